@@ -0,0 +1,145 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyBenchmark
+ * Package:       edu.miracosta.cs220
+ * Description:   Measures whole assemblies of small, medium and huge programs:
+ *                firstPass() + secondPass() over an already parsed program, and
+ *                end-to-end runs (parse & both passes, or the single pass) through
+ *                HackAssembler. Output words are counted and dropped, so no I/O is
+ *                measured. Scores are assemblies per second (times the lines
+ *                parameter for lines per second).
+ *
+ * History:       added for the JMH benchmarks
+ *
+ * Methods:       Public:   setUp(), passes(), twoPass(), singlePass()
+ *
+ * Inner Classes: DiscardingSink
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class AssemblyBenchmark {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+
+    //  Lines of source: a course program, a big generated one, and a stress test
+    @Param({"1000", "100000", "2000000"})
+    public int lines;
+
+    private byte[] source;
+    private ParsedProgram program;
+    private HackAssembler twoPassAssembler;
+    private HackAssembler singlePassAssembler;
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = Workloads.program(lines, Workloads.TYPICAL).getBytes(StandardCharsets.ISO_8859_1);
+        program = new Parser(new ArraySource(source)).parseAll();
+        twoPassAssembler = new HackAssembler(false);
+        singlePassAssembler = new HackAssembler(true);
+        //  A benchmark that measures an error path would be measuring nothing
+        if (!twoPassAssembler.assemble(new ArraySource(source)).isSuccessful()) {
+            throw new IllegalStateException("The generated program does not assemble");
+        }
+    }
+
+    /**
+     * Both passes over a program parsed once in setUp().
+     */
+    @Benchmark
+    public long passes() throws AssemblyException, IOException {
+        DiscardingSink output = new DiscardingSink();
+        SymbolTable symbolTable = new SymbolTable();
+        HackAssembler.firstPass(program, symbolTable);
+        HackAssembler.secondPass(program, symbolTable, output);
+        return output.getWordCount() + symbolTable.size();
+    }
+
+    /**
+     * Parse, firstPass() & secondPass() from the source bytes.
+     */
+    @Benchmark
+    public long twoPass() throws IOException {
+        return twoPassAssembler.assemble(new ArraySource(source), new DiscardingSink()).getWordCount();
+    }
+
+    /**
+     * The single streaming pass from the source bytes. DiscardingSink can be
+     * patched (it ignores patches), so HackAssembler does take this path.
+     */
+    @Benchmark
+    public long singlePass() throws IOException {
+        return singlePassAssembler.assemble(new ArraySource(source), new DiscardingSink()).getWordCount();
+    }
+
+    /*****************
+     * Inner Classes *
+     *****************/
+
+    /**
+     * Counts words and drops them.
+     */
+    private static class DiscardingSink implements OutputSink {
+        private long wordCount;
+
+        @Override
+        public void write(int word) {
+            wordCount++;
+        }
+
+        @Override
+        public void patch(long position, int word) {
+        }
+
+        @Override
+        public boolean isPatchable() {
+            return true;
+        }
+
+        @Override
+        public long getWordCount() {
+            return wordCount;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return 0;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/************************************************************************************
+ *
+ * Class name:    CodeBenchmark
+ * Package:       edu.miracosta.cs220
+ * Description:   Measures the translation of mnemonics and numbers: the String API
+ *                (getComp(), getDest(), getJump(), decimalToBinary()) and the int
+ *                bit-field API the passes use (compBits(), destBits(), jumpBits(),
+ *                aInstruction()). Scores are translations per second.
+ *
+ * History:       added for the JMH benchmarks
+ *
+ * Methods:       Public:   setUp(), getComp(Blackhole), getDest(Blackhole), getJump(Blackhole),
+ *                          decimalToBinary(Blackhole), compBits(), destBits(), jumpBits(),
+ *                          aInstruction()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CodeBenchmark {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  Every valid mnemonic, so no single switch branch is favored
+    private static final String[] COMPS = {
+        "0", "1", "-1", "D", "A", "!D", "!A", "-D", "-A", "D+1", "A+1", "D-1", "A-1", "D+A",
+        "D-A", "A-D", "D&A", "D|A", "M", "!M", "-M", "M+1", "M-1", "D+M", "D-M", "M-D",
+        "D&M", "D|M"
+    };
+    private static final String[] DESTS = {"null", "M", "D", "MD", "A", "AM", "AD", "AMD"};
+    private static final String[] JUMPS = {"null", "JGT", "JEQ", "JGE", "JLT", "JNE", "JLE", "JMP"};
+    private static final int NUMBERS = 1024;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private Code code;
+    private int[] numbers;
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Setup
+    public void setUp() {
+        code = new Code();
+        numbers = new int[NUMBERS];
+        for (int i = 0; i < NUMBERS; i++) {
+            //  Spread over the whole 15-bit range
+            numbers[i] = (i * 7919) & 0x7FFF;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(28)
+    public void getComp(Blackhole blackhole) {
+        for (String mnemonic : COMPS) {
+            blackhole.consume(code.getComp(mnemonic));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void getDest(Blackhole blackhole) {
+        for (String mnemonic : DESTS) {
+            blackhole.consume(code.getDest(mnemonic));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void getJump(Blackhole blackhole) {
+        for (String mnemonic : JUMPS) {
+            blackhole.consume(code.getJump(mnemonic));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBERS)
+    public void decimalToBinary(Blackhole blackhole) {
+        for (int number : numbers) {
+            blackhole.consume(code.decimalToBinary(number));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(28)
+    public int compBits() {
+        int bits = 0;
+        for (String mnemonic : COMPS) {
+            bits ^= Code.compBits(mnemonic);
+        }
+        return bits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public int destBits() {
+        int bits = 0;
+        for (String mnemonic : DESTS) {
+            bits ^= Code.destBits(mnemonic);
+        }
+        return bits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public int jumpBits() {
+        int bits = 0;
+        for (String mnemonic : JUMPS) {
+            bits ^= Code.jumpBits(mnemonic);
+        }
+        return bits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBERS)
+    public int aInstruction() {
+        int bits = 0;
+        for (int number : numbers) {
+            bits ^= Code.aInstruction(number);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,86 @@
+/************************************************************************************
+ *
+ * Class name:    ParserBenchmark
+ * Package:       edu.miracosta.cs220
+ * Description:   Measures Parser.advance() (reading, cleaning & splitting a line)
+ *                and Parser.parseAll() on typical, heavily commented and compact
+ *                line mixes. Scores are lines per second.
+ *
+ * History:       added for the JMH benchmarks
+ *
+ * Methods:       Public:   setUp(), advance(), parseAll()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParserBenchmark {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int LINES = 10_000;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    @Param({Workloads.TYPICAL, Workloads.COMMENTED, Workloads.COMPACT})
+    public String mix;
+
+    private byte[] source;
+    private Parser parser;
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Setup
+    public void setUp() {
+        source = Workloads.program(LINES, mix).getBytes(StandardCharsets.ISO_8859_1);
+        parser = new Parser(new ArraySource(source));
+    }
+
+    /**
+     * Reads every line with one reused Parser, as the single pass does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int advance() {
+        parser.reset(new ArraySource(source));
+        int kinds = 0;
+        while (parser.hasMoreCommands()) {
+            parser.advance();
+            kinds += parser.getCommandType().ordinal();
+        }
+        return kinds;
+    }
+
+    /**
+     * Decodes every line into a ParsedProgram, as the two passes do.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public ParsedProgram parseAll() {
+        return new Parser(new ArraySource(source)).parseAll();
+    }
+}
@@ -0,0 +1,114 @@
+/************************************************************************************
+ *
+ * Class name:    SymbolTableBenchmark
+ * Package:       edu.miracosta.cs220
+ * Description:   Measures SymbolTable.addEntry(), contains() and getAddress() under
+ *                a label-heavy load (thousands of long, mangled names, as a VM
+ *                translator declares) and a variable-heavy load (hundreds of short
+ *                names). addEntry() starts from a fresh table each time, so it
+ *                includes the table growing. Scores are operations per second.
+ *
+ * History:       added for the JMH benchmarks
+ *
+ * Methods:       Public:   setUp(), addEntry(), contains(), getAddress()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SymbolTableBenchmark {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int SYMBOLS = 4096;
+    private static final String LABELS = "labels";
+    private static final String VARIABLES = "variables";
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    @Param({LABELS, VARIABLES})
+    public String load;
+
+    private String[] symbols;   //  SYMBOLS names, the first half of them in the table
+    private SymbolTable table;
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Setup
+    public void setUp() {
+        //  Hack RAM only has room for ~16K variables, and programs use far fewer
+        symbols = load.equals(LABELS) ? Workloads.labelNames(SYMBOLS) : Workloads.variableNames(SYMBOLS / 8);
+        table = new SymbolTable();
+        for (int i = 0; i < symbols.length / 2; i++) {
+            table.addEntry(symbols[i], i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SYMBOLS)
+    public SymbolTable addEntry() {
+        SymbolTable fresh = new SymbolTable();
+        for (int repeat = SYMBOLS / symbols.length; repeat > 0; repeat--) {
+            //  Later rounds find every symbol already there, as repeated references do
+            for (int i = 0; i < symbols.length; i++) {
+                fresh.addEntry(symbols[i], i);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Half of the lookups hit, half miss.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SYMBOLS)
+    public int contains() {
+        int found = 0;
+        for (int repeat = SYMBOLS / symbols.length; repeat > 0; repeat--) {
+            for (String symbol : symbols) {
+                if (table.contains(symbol)) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Half of the lookups hit, half miss.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SYMBOLS)
+    public int getAddress() {
+        int sum = 0;
+        for (int repeat = SYMBOLS / symbols.length; repeat > 0; repeat--) {
+            for (String symbol : symbols) {
+                sum += table.getAddress(symbol);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,242 @@
+/************************************************************************************
+ *
+ * Class name:    ThroughputGate
+ * Package:       edu.miracosta.cs220
+ * Description:   End-to-end throughput regression check. Generates a corpus of
+ *                .asm files with WorkloadGenerator (course-sized programs, a huge
+ *                VM-style program, and label-heavy, variable-heavy, noisy and
+ *                backward-reference programs), assembles the whole corpus from disk
+ *                to disk the way the command line does for several files, and
+ *                reports MB/s, lines/s and peak heap. The run fails if throughput
+ *                drops more than the tolerance below a stored baseline.
+ *
+ * History:       added for the throughput regression gate
+ *
+ * Methods:       Public:   main(String[])
+ *
+ *                Private:  generateCorpus(Path), assembleCorpus(List), peakHeapBytes(),
+ *                          resetPeakHeap(), median(double[]), argument(String[], String, String)
+ *
+ * Notes:         Usage, from the project root once benchmarks.jar has been built:
+ *                  java -cp benchmarks/target/benchmarks.jar edu.miracosta.cs220.ThroughputGate
+ *                      [--baseline=FILE] [--tolerance=0.15] [--rounds=5] [--record]
+ *                --record stores the measured figures as the new baseline instead of
+ *                checking them. A baseline only means something on the machine it was
+ *                recorded on, so record one on the machine that runs the gate.
+ *                Exits with status 1 on a regression.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+public class ThroughputGate {
+
+    /*************
+     * Constants *
+     *************/
+    private static final String DEFAULT_BASELINE = "benchmarks/baseline.properties";
+    private static final String DEFAULT_TOLERANCE = "0.15";
+    private static final String DEFAULT_ROUNDS = "5";
+    private static final int WARMUP_ROUNDS = 3;
+    private static final long SEED = 20;
+
+    private static final String MB_PER_SECOND = "mb.per.second";
+    private static final String LINES_PER_SECOND = "lines.per.second";
+    private static final String PEAK_HEAP_BYTES = "peak.heap.bytes";
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Measures the corpus and checks (or with --record, stores) the baseline.
+     *
+     * @param   args    -   the options described in the class notes
+     */
+    public static void main(String[] args) throws IOException {
+        Path baselineFile = Paths.get(argument(args, "--baseline=", DEFAULT_BASELINE));
+        double tolerance = Double.parseDouble(argument(args, "--tolerance=", DEFAULT_TOLERANCE));
+        int rounds = Integer.parseInt(argument(args, "--rounds=", DEFAULT_ROUNDS));
+        boolean record = Arrays.asList(args).contains("--record");
+
+        Path directory = Files.createTempDirectory("hack-throughput");
+        boolean regressed = false;
+        try {
+            List<Path> files = generateCorpus(directory);
+            long corpusBytes = 0, corpusLines = 0;
+            for (Path file : files) {
+                byte[] text = Files.readAllBytes(file);
+                corpusBytes += text.length;
+                for (byte b : text) {
+                    corpusLines += b == '\n' ? 1 : 0;
+                }
+            }
+            System.out.printf("Corpus: %d files, %.1f MB, %d lines%n", files.size(), corpusBytes / 1e6, corpusLines);
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                assembleCorpus(files);
+            }
+
+            double[] seconds = new double[rounds];
+            resetPeakHeap();
+            for (int round = 0; round < rounds; round++) {
+                seconds[round] = assembleCorpus(files);
+                System.out.printf("Round %d: %.3f s%n", round + 1, seconds[round]);
+            }
+            double median = median(seconds);
+            double megabytesPerSecond = corpusBytes / 1e6 / median;
+            double linesPerSecond = corpusLines / median;
+            long peakHeap = peakHeapBytes();
+            System.out.printf("%.1f MB/s, %.0f lines/s, peak heap %.1f MB%n",
+                              megabytesPerSecond, linesPerSecond, peakHeap / 1e6);
+
+            Properties baseline = new Properties();
+            if (record) {
+                baseline.setProperty(MB_PER_SECOND, String.format("%.1f", megabytesPerSecond));
+                baseline.setProperty(LINES_PER_SECOND, String.format("%.0f", linesPerSecond));
+                baseline.setProperty(PEAK_HEAP_BYTES, Long.toString(peakHeap));
+                try (OutputStream out = Files.newOutputStream(baselineFile)) {
+                    baseline.store(out, "ThroughputGate baseline (" + System.getProperty("java.vm.name") + " "
+                                        + System.getProperty("java.version") + ", "
+                                        + Runtime.getRuntime().availableProcessors() + " CPUs)");
+                }
+                System.out.println("Baseline recorded in " + baselineFile);
+                return;
+            }
+            try (InputStream in = Files.newInputStream(baselineFile)) {
+                baseline.load(in);
+            }
+            double baselineMegabytes = Double.parseDouble(baseline.getProperty(MB_PER_SECOND));
+            double baselineLines = Double.parseDouble(baseline.getProperty(LINES_PER_SECOND));
+            System.out.printf("Baseline: %.1f MB/s, %.0f lines/s (tolerance %.0f%%)%n",
+                              baselineMegabytes, baselineLines, tolerance * 100);
+            if (megabytesPerSecond < baselineMegabytes * (1 - tolerance)
+                    || linesPerSecond < baselineLines * (1 - tolerance)) {
+                System.out.printf("Throughput regressed by %.1f%%%n", 100 * (1 - linesPerSecond / baselineLines));
+                regressed = true;
+            } else {
+                System.out.println("Throughput is within the baseline");
+            }
+        } finally {
+            try (Stream<Path> walk = Files.walk(directory)) {
+                walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Writes the corpus into directory.
+     */
+    private static List<Path> generateCorpus(Path directory) throws IOException {
+        List<WorkloadGenerator> generators = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            generators.add(new WorkloadGenerator(SEED + i).setLines(300).setVariableCount(8));
+            names.add("course" + i);
+        }
+        generators.add(new WorkloadGenerator(SEED).setLines(1_000_000));
+        names.add("vm");
+        generators.add(new WorkloadGenerator(SEED).setLines(200_000).setLabelDensity(0.3));
+        names.add("labels");
+        generators.add(new WorkloadGenerator(SEED).setLines(200_000).setVariableCount(12_000));
+        names.add("variables");
+        generators.add(new WorkloadGenerator(SEED).setLines(200_000).setNoise(1.0));
+        names.add("noisy");
+        generators.add(new WorkloadGenerator(SEED).setLines(200_000).setForwardShare(0.0)
+                                                  .setAInstructionShare(0.7));
+        names.add("backward");
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < generators.size(); i++) {
+            Path file = directory.resolve(names.get(i) + BatchAssembler.SOURCE_EXTENSION);
+            generators.get(i).write(file);
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Assembles every file to .hack on one thread and returns the elapsed seconds.
+     */
+    private static double assembleCorpus(List<Path> files) {
+        long start = System.nanoTime();
+        List<AssemblyResult> results = new BatchAssembler(new HackAssembler(), List.of(OutputFormat.HACK), 1)
+                                           .assembleAll(files);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i).isSuccessful()) {
+                //  A failing file would be measured as (much) faster than it is
+                throw new IllegalStateException(files.get(i) + ": " + results.get(i).getDiagnostics().get(0));
+            }
+        }
+        return seconds;
+    }
+
+    /**
+     * Returns the sum of the peak usage of every heap pool since resetPeakHeap().
+     */
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Starts measuring peak heap usage from now.
+     */
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the median of values, which is not thrown off by one slow round.
+     */
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * Returns the value of option in args, or defaultValue if it isn't there.
+     */
+    private static String argument(String[] args, String option, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(option)) {
+                return arg.substring(option.length());
+            }
+        }
+        return defaultValue;
+    }
+}
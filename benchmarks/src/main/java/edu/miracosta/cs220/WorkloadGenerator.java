@@ -0,0 +1,295 @@
+/************************************************************************************
+ *
+ * Class name:    WorkloadGenerator
+ * Package:       edu.miracosta.cs220
+ * Description:   Generates Hack .asm programs of any size from a seed, with a
+ *                configurable mix: the share of A-Instructions, how often labels are
+ *                declared, how many distinct variables are used, how much comment &
+ *                whitespace noise there is, and how many label references point
+ *                forward. The same settings and seed always give the same program.
+ *
+ * History:       added for the throughput regression gate
+ *
+ * Methods:       Public:   WorkloadGenerator(long), setLines(int), setAInstructionShare(double),
+ *                          setLabelDensity(double), setVariableCount(int),
+ *                          setNoise(double), setForwardShare(double), generate(),
+ *                          write(Path), main(String[])
+ *
+ *                Private:  aInstruction(StringBuilder), cInstruction(StringBuilder),
+ *                          argument(String, String)
+ *
+ * Notes:         Every generated program assembles without errors: each label is
+ *                declared exactly once (those still undeclared at the end are declared
+ *                there), and every symbol is a valid name.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+public class WorkloadGenerator {
+
+    /*************
+     * Constants *
+     *************/
+    private static final String[] COMPS = {
+        "0", "1", "-1", "D", "A", "M", "!D", "-D", "D+1", "A+1", "M+1", "D-1", "A-1", "M-1",
+        "D+A", "D+M", "D-A", "D-M", "A-D", "M-D", "D&A", "D&M", "D|A", "D|M"
+    };
+    private static final String[] DESTS = {"M", "D", "MD", "A", "AM", "AD", "AMD"};
+    private static final String[] JUMPS = {"JGT", "JEQ", "JGE", "JLT", "JNE", "JLE", "JMP"};
+    private static final String[] PREDEFINED = {"SP", "LCL", "ARG", "THIS", "THAT", "R13", "R14", "R15"};
+    private static final String[] COMMENTS = {"// push constant 7", "// pop local 0", "// call Main.main 0",
+                                               "// if-goto LOOP", "// TODO"};
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private long seed;
+    private int lines;
+    private double aInstructionShare;
+    private double labelDensity;
+    private int variableCount;
+    private double noise;
+    private double forwardShare;
+
+    private Random random;
+    private int labelCount;
+    private int labelsDeclared;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates a generator with the default mix: 10,000 lines, half of the
+     * instructions A-Instructions, a label every 20 lines, 40 variables, noise on
+     * a fifth of the lines and as many forward as backward label references.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @param   seed    -   the seed every program of this generator is made from
+     */
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+        lines = 10_000;
+        aInstructionShare = 0.5;
+        labelDensity = 0.05;
+        variableCount = 40;
+        noise = 0.2;
+        forwardShare = 0.5;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @param   lines   -   the number of source lines (> 0)
+     * @return          -   this generator
+     */
+    public WorkloadGenerator setLines(int lines) {
+        this.lines = lines;
+        return this;
+    }
+
+    /**
+     * @param   share   -   the share of instructions that are A-Instructions, 0 to 1
+     * @return          -   this generator
+     */
+    public WorkloadGenerator setAInstructionShare(double share) {
+        aInstructionShare = share;
+        return this;
+    }
+
+    /**
+     * @param   density -   the share of lines that declare a label, 0 to 1
+     * @return          -   this generator
+     */
+    public WorkloadGenerator setLabelDensity(double density) {
+        labelDensity = density;
+        return this;
+    }
+
+    /**
+     * @param   count   -   the number of distinct variables to refer to (0 for none)
+     * @return          -   this generator
+     */
+    public WorkloadGenerator setVariableCount(int count) {
+        variableCount = count;
+        return this;
+    }
+
+    /**
+     * @param   noise   -   the share of lines with a comment, a blank line or extra
+     *                      whitespace, 0 to 1
+     * @return          -   this generator
+     */
+    public WorkloadGenerator setNoise(double noise) {
+        this.noise = noise;
+        return this;
+    }
+
+    /**
+     * @param   share   -   the share of label references to labels declared further
+     *                      down, 0 to 1
+     * @return          -   this generator
+     */
+    public WorkloadGenerator setForwardShare(double share) {
+        forwardShare = share;
+        return this;
+    }
+
+    /**
+     * Generates the program.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the .asm text, one instruction, label or noise line per line
+     */
+    public String generate() {
+        random = new Random(seed);
+        labelCount = Math.max(1, (int) (lines * labelDensity));
+        labelsDeclared = 0;
+        StringBuilder text = new StringBuilder(lines * 16);
+        for (int line = 0; line < lines; line++) {
+            boolean noisy = random.nextDouble() < noise;
+            if (noisy && random.nextInt(4) == 0) {
+                //  A line with no instruction at all
+                if (random.nextBoolean()) {
+                    text.append(COMMENTS[random.nextInt(COMMENTS.length)]);
+                }
+                text.append('\n');
+                continue;
+            }
+            if (noisy) {
+                text.append(random.nextBoolean() ? "    " : "\t");
+            }
+            if (labelsDeclared < labelCount && random.nextDouble() < labelDensity) {
+                text.append("(L").append(labelsDeclared++).append(')');
+            } else if (random.nextDouble() < aInstructionShare) {
+                aInstruction(text);
+            } else {
+                cInstruction(text);
+            }
+            if (noisy) {
+                text.append(random.nextBoolean() ? " " : "\t").append(COMMENTS[random.nextInt(COMMENTS.length)]);
+            }
+            text.append('\n');
+        }
+        while (labelsDeclared < labelCount) {
+            text.append("(L").append(labelsDeclared++).append(")\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Generates the program into a file.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   file holds the program
+     *
+     * @param   file    -   the .asm file to create or replace
+     * @throws IOException  if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Files.write(file, generate().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Writes a generated program to the file named by the last argument.
+     * Options: --seed=N, --lines=N, --a-share=X, --label-density=X,
+     * --variables=N, --noise=X, --forward-share=X.
+     *
+     * @param   args    -   the options, then the output file name
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: WorkloadGenerator [--seed=N] [--lines=N] [--a-share=X]"
+                               + " [--label-density=X] [--variables=N] [--noise=X] [--forward-share=X] OUT.asm");
+            System.exit(1);
+        }
+        long seed = 1;
+        for (String arg : args) {
+            if (argument(arg, "--seed=") != null) {
+                seed = Long.parseLong(argument(arg, "--seed="));
+            }
+        }
+        WorkloadGenerator generator = new WorkloadGenerator(seed);
+        for (int i = 0; i < args.length - 1; i++) {
+            String value;
+            if ((value = argument(args[i], "--lines=")) != null) {
+                generator.setLines(Integer.parseInt(value));
+            } else if ((value = argument(args[i], "--a-share=")) != null) {
+                generator.setAInstructionShare(Double.parseDouble(value));
+            } else if ((value = argument(args[i], "--label-density=")) != null) {
+                generator.setLabelDensity(Double.parseDouble(value));
+            } else if ((value = argument(args[i], "--variables=")) != null) {
+                generator.setVariableCount(Integer.parseInt(value));
+            } else if ((value = argument(args[i], "--noise=")) != null) {
+                generator.setNoise(Double.parseDouble(value));
+            } else if ((value = argument(args[i], "--forward-share=")) != null) {
+                generator.setForwardShare(Double.parseDouble(value));
+            } else if (argument(args[i], "--seed=") == null) {
+                System.err.println("Unknown option " + args[i]);
+                System.exit(1);
+            }
+        }
+        generator.write(Paths.get(args[args.length - 1]));
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Appends an A-Instruction: a label, a variable, a predefined symbol or a number.
+     */
+    private void aInstruction(StringBuilder text) {
+        int kind = random.nextInt(10);
+        if (kind < 3) {
+            //  Forward if asked for & possible, otherwise backward if possible
+            boolean forward = labelsDeclared == 0
+                              || (labelsDeclared < labelCount && random.nextDouble() < forwardShare);
+            int label = forward ? labelsDeclared + random.nextInt(labelCount - labelsDeclared)
+                                : random.nextInt(labelsDeclared);
+            text.append("@L").append(label);
+        } else if (kind < 5 && variableCount > 0) {
+            text.append("@var").append(random.nextInt(variableCount));
+        } else if (kind < 8) {
+            text.append('@').append(PREDEFINED[random.nextInt(PREDEFINED.length)]);
+        } else {
+            text.append('@').append(random.nextInt(32768));
+        }
+    }
+
+    /**
+     * Appends a C-Instruction with a dest, a jump or both.
+     */
+    private void cInstruction(StringBuilder text) {
+        String comp = COMPS[random.nextInt(COMPS.length)];
+        int kind = random.nextInt(10);
+        if (kind < 7) {
+            text.append(DESTS[random.nextInt(DESTS.length)]).append('=').append(comp);
+        } else if (kind < 9) {
+            text.append(comp).append(';').append(JUMPS[random.nextInt(JUMPS.length)]);
+        } else {
+            text.append(DESTS[random.nextInt(DESTS.length)]).append('=').append(comp)
+                .append(';').append(JUMPS[random.nextInt(JUMPS.length)]);
+        }
+    }
+
+    /**
+     * Returns the value of an option like --lines=N, or null if arg is not that option.
+     */
+    private static String argument(String arg, String option) {
+        return arg.startsWith(option) ? arg.substring(option.length()) : null;
+    }
+}
@@ -0,0 +1,81 @@
+/************************************************************************************
+ *
+ * Class name:    Workloads
+ * Package:       edu.miracosta.cs220
+ * Description:   Builds the .asm text and symbol names the benchmarks run on. Every
+ *                workload is generated from a fixed seed, so each run (and each
+ *                machine) measures exactly the same input.
+ *
+ * History:       added for the JMH benchmarks
+ *
+ * Methods:       Package:  program(int, String), labelNames(int), variableNames(int)
+ *
+ * Notes:         Programs come from a WorkloadGenerator with its default mix: a
+ *                label every 20 or so lines, references to labels both ahead and
+ *                behind, and a few dozen variables.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+final class Workloads {
+
+    /*************
+     * Constants *
+     *************/
+    static final String TYPICAL = "typical";
+    static final String COMMENTED = "commented";
+    static final String COMPACT = "compact";
+
+    private static final long SEED = 0x4861636BL;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    private Workloads() {
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Generates a program of the given number of lines.
+     *
+     * PRECONDITION:    lines > 0, mix is TYPICAL, COMMENTED or COMPACT
+     * POSTCONDITION:   N/A
+     *
+     * @param   lines   -   the number of source lines
+     * @param   mix     -   TYPICAL (some comments, blank lines & indentation),
+     *                      COMMENTED (on every line) or COMPACT (none)
+     * @return          -   the .asm text, which assembles without errors
+     */
+    static String program(int lines, String mix) {
+        double noise = mix.equals(COMMENTED) ? 1.0 : mix.equals(TYPICAL) ? 0.15 : 0.0;
+        return new WorkloadGenerator(SEED).setLines(lines).setNoise(noise).generate();
+    }
+
+    /**
+     * @param   count   -   the number of names
+     * @return          -   long, mangled names like a VM translator's labels
+     */
+    static String[] labelNames(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "Main.function" + (i / 50) + "$WHILE_EXP" + i;
+        }
+        return names;
+    }
+
+    /**
+     * @param   count   -   the number of names
+     * @return          -   short names like hand-written variables
+     */
+    static String[] variableNames(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = (char) ('a' + i % 26) + Integer.toString(i / 26);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,114 @@
+/************************************************************************************
+ *
+ * Class name:    ArraySource
+ * Package:       edu.miracosta.cs220
+ * Description:   An InputSource over .asm text that is already in memory, for tests
+ *                and for embedding the assembler.
+ *
+ * History:       added to replace the Scanner inside Parser
+ *
+ * Methods:       Public:   ArraySource(byte[]), ArraySource(byte[], int, int),
+ *                          ArraySource(ByteBuffer), ArraySource(CharSequence), close()
+ *
+ *                Protected: refill()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.ByteBuffer;
+
+public class ArraySource extends ByteBufferSource {
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Reads lines straight out of bytes, without copying it.
+     *
+     * PRECONDITION:    bytes is not null
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   bytes   -   ASCII .asm text
+     */
+    public ArraySource(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads lines out of a slice of bytes, without copying it.
+     *
+     * PRECONDITION:    offset and length lie within bytes
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   bytes   -   ASCII .asm text
+     * @param   offset  -   the index of the first byte to read
+     * @param   length  -   the number of bytes to read
+     */
+    public ArraySource(byte[] bytes, int offset, int length) {
+        super(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Reads lines out of the remaining bytes of buffer (heap or direct), without
+     * copying it. The position of buffer itself is left alone.
+     *
+     * PRECONDITION:    buffer is not null
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   buffer  -   ASCII .asm text between position and limit
+     */
+    public ArraySource(ByteBuffer buffer) {
+        super(buffer.slice());
+    }
+
+    /**
+     * Reads lines out of text. Characters outside of Latin-1 become '?', which
+     * is never valid in an instruction.
+     *
+     * PRECONDITION:    text is not null
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   text    -   .asm text
+     */
+    public ArraySource(CharSequence text) {
+        this(toBytes(text));
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void close() {
+        buffer.position(buffer.limit());
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    @Override
+    protected boolean refill() {
+        return false;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Converts text to one byte per character.
+     *
+     * @param   text    -   .asm text
+     * @return          -   the text as bytes
+     */
+    private static byte[] toBytes(CharSequence text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char current = text.charAt(i);
+            bytes[i] = current <= 0xFF ? (byte) current : (byte) '?';
+        }
+        return bytes;
+    }
+}
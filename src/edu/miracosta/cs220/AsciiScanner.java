@@ -0,0 +1,443 @@
+/************************************************************************************
+ *
+ * Class name:    AsciiScanner
+ * Package:       edu.miracosta.cs220
+ * Description:   Finds line breaks, comments and whitespace in ASCII .asm text eight
+ *                bytes at a time, by treating each group of 8 bytes as one long
+ *                (SWAR - SIMD within a register). Every fast method has a plain
+ *                byte-by-byte twin that gives identical results, so the fast path
+ *                can be checked against it; setting the system property
+ *                "hack.scanner.scalar" to true makes the Parser use the scalar
+ *                methods only.
+ *
+ * History:       added as the bulk front end of the Parser
+ *
+ * Methods:       Public:   indexOfLineEnd(ByteBuffer, int, int), cleanLine(byte[], int, byte[]),
+ *                          cleanLineScalar(byte[], int, byte[]), scan(ByteBuffer, int, int),
+ *                          scanLineStarts(ByteBuffer, int, int, int[]), scanScalar(ByteBuffer, int, int)
+ *
+ *                Private:  matches(long, long), movemask(long), commentStarts(...),
+ *                          fillComments(...)
+ *
+ * Notes:         A "clean" line follows the original String rules exactly: the text
+ *                before the first "//", trimmed of characters <= ' ' at both ends,
+ *                with every remaining space and tab removed.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public final class AsciiScanner {
+
+    /*************
+     * Constants *
+     *************/
+    public static final boolean SCALAR_ONLY = Boolean.getBoolean("hack.scanner.scalar");
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_SEVEN = 0x7F7F7F7F7F7F7F7FL;
+    private static final long NEWLINES = '\n' * ONES;
+    private static final long RETURNS = '\r' * ONES;
+    private static final long SPACES = ' ' * ONES;
+    private static final long TABS = '\t' * ONES;
+    private static final long SLASHES = '/' * ONES;
+
+    //  Reads 8 bytes of a byte[] as one little-endian long -> byte i is bits 8i..8i+7
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /****************
+     * Constructors *
+     ****************/
+
+    private AsciiScanner() {
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Finds the first '\n' or '\r' between from and to.
+     *
+     * PRECONDITION:    0 <= from <= to <= buffer.limit()
+     * POSTCONDITION:   N/A
+     *
+     * @param   buffer  -   the bytes to search (position and limit are not used)
+     * @param   from    -   the index to start at
+     * @param   to      -   the index to stop before
+     * @return          -   the index of the line end, or to if there is none
+     */
+    public static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+        int index = from;
+        if (!SCALAR_ONLY) {
+            boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+            for (; index + 8 <= to; index += 8) {
+                long word = buffer.getLong(index);
+                long found = matches(word, NEWLINES) | matches(word, RETURNS);
+                if (found != 0) {
+                    return index + (bigEndian ? Long.numberOfLeadingZeros(found)
+                                              : Long.numberOfTrailingZeros(found)) / 8;
+                }
+            }
+        }
+        for (; index < to; index++) {
+            byte current = buffer.get(index);
+            if (current == '\n' || current == '\r') {
+                return index;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Copies the clean form of a raw line into clean, 8 bytes at a time.
+     *
+     * PRECONDITION:    line holds length bytes, clean has room for length bytes
+     * POSTCONDITION:   clean starts with the cleaned line
+     *
+     * @param   line    -   the raw line, with no line terminator
+     * @param   length  -   the number of bytes in the line
+     * @param   clean   -   the buffer to copy the clean line into
+     * @return          -   the length of the clean line
+     */
+    public static int cleanLine(byte[] line, int length, byte[] clean) {
+        if (SCALAR_ONLY) {
+            return cleanLineScalar(line, length, clean);
+        }
+        int end = length;
+        int index = 0;
+        //  Find the comment, if there is one
+        for (; index + 9 <= length; index += 8) {
+            long word = (long) LONGS.get(line, index);
+            long next = (long) LONGS.get(line, index + 1);
+            long starts = matches(word, SLASHES) & matches(next, SLASHES);
+            if (starts != 0) {
+                end = index + Long.numberOfTrailingZeros(starts) / 8;
+                break;
+            }
+        }
+        if (end == length) {
+            for (; index + 1 < length; index++) {
+                if (line[index] == '/' && line[index + 1] == '/') {
+                    end = index;
+                    break;
+                }
+            }
+        }
+        //  Trim, as String.trim() would
+        int start = 0;
+        while (start < end && (line[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (line[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        //  Copy everything that is not a space or tab, skipping 8-byte runs that hold none
+        int count = 0;
+        index = start;
+        for (; index + 8 <= end; index += 8) {
+            long word = (long) LONGS.get(line, index);
+            long blanks = matches(word, SPACES) | matches(word, TABS);
+            if (blanks == 0) {
+                LONGS.set(clean, count, word);
+                count += 8;
+            } else {
+                for (int i = index; i < index + 8; i++) {
+                    if (line[i] != ' ' && line[i] != '\t') {
+                        clean[count++] = line[i];
+                    }
+                }
+            }
+        }
+        for (; index < end; index++) {
+            if (line[index] != ' ' && line[index] != '\t') {
+                clean[count++] = line[index];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies the clean form of a raw line into clean, one byte at a time.
+     *
+     * PRECONDITION:    line holds length bytes, clean has room for length bytes
+     * POSTCONDITION:   clean starts with the cleaned line
+     *
+     * @param   line    -   the raw line, with no line terminator
+     * @param   length  -   the number of bytes in the line
+     * @param   clean   -   the buffer to copy the clean line into
+     * @return          -   the length of the clean line
+     */
+    public static int cleanLineScalar(byte[] line, int length, byte[] clean) {
+        int end = length;
+        for (int i = 0; i + 1 < length; i++) {
+            if (line[i] == '/' && line[i + 1] == '/') {
+                end = i;
+                break;
+            }
+        }
+        int start = 0;
+        while (start < end && (line[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (line[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (line[i] != ' ' && line[i] != '\t') {
+                clean[count++] = line[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sweeps a whole buffer of .asm text 8 bytes at a time, recording where each
+     * line starts and which bytes are whitespace (space or tab) or part of a comment.
+     *
+     * PRECONDITION:    offset and length lie within the buffer's limit
+     * POSTCONDITION:   N/A
+     *
+     * @param   buffer  -   the text to scan (position, limit and byte order are not used)
+     * @param   offset  -   the index of the first byte to scan
+     * @param   length  -   the number of bytes to scan
+     * @return          -   the line starts and masks, relative to offset
+     */
+    public static BufferScan scan(ByteBuffer buffer, int offset, int length) {
+        if (SCALAR_ONLY) {
+            return scanScalar(buffer, offset, length);
+        }
+        //  Byte i of each long is bits 8i..8i+7, whatever order the buffer reads in
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int maskWords = (length + 63) >>> 6;
+        long[] whitespace = new long[maskWords];
+        long[] breaks = new long[maskWords];
+        long[] slashes = new long[maskWords];
+        int index = 0;
+        for (; index + 8 <= length; index += 8) {
+            long word = bytes.getLong(offset + index);
+            int maskWord = index >>> 6;
+            int shift = index & 63;
+            whitespace[maskWord] |= movemask(matches(word, SPACES) | matches(word, TABS)) << shift;
+            breaks[maskWord] |= movemask(matches(word, NEWLINES) | matches(word, RETURNS)) << shift;
+            slashes[maskWord] |= movemask(matches(word, SLASHES)) << shift;
+        }
+        for (; index < length; index++) {
+            byte current = bytes.get(offset + index);
+            long bit = 1L << index;
+            if (current == ' ' || current == '\t') {
+                whitespace[index >>> 6] |= bit;
+            } else if (current == '\n' || current == '\r') {
+                breaks[index >>> 6] |= bit;
+            } else if (current == '/') {
+                slashes[index >>> 6] |= bit;
+            }
+        }
+        long[] comments = fillComments(commentStarts(slashes), breaks, length);
+        int[] lineStarts = new int[length];
+        int lineCount = scanLineStarts(buffer, offset, length, lineStarts);
+        return new BufferScan(Arrays.copyOf(lineStarts, lineCount), whitespace, comments, length);
+    }
+
+    /**
+     * Finds where every line in a buffer of .asm text starts, 8 bytes at a time:
+     * the line starts of scan(), without the masks. A line starts at offset
+     * (if there are any bytes), after every '\n', and after every '\r' that is
+     * not part of "\r\n", but never at offset + length.
+     *
+     * PRECONDITION:    offset and length lie within the buffer's limit, lineStarts
+     *                  has room for length entries (no more lines can start)
+     * POSTCONDITION:   lineStarts starts with the line starts, relative to offset
+     *                  and in order
+     *
+     * @param   buffer      -   the text to scan (position, limit and byte order are not used)
+     * @param   offset      -   the index of the first byte to scan
+     * @param   length      -   the number of bytes to scan
+     * @param   lineStarts  -   the array to fill, which can be reused from one call to the next
+     * @return              -   the number of lines
+     */
+    public static int scanLineStarts(ByteBuffer buffer, int offset, int length, int[] lineStarts) {
+        if (SCALAR_ONLY) {
+            int[] scalar = scanScalar(buffer, offset, length).getLineStarts();
+            System.arraycopy(scalar, 0, lineStarts, 0, scalar.length);
+            return scalar.length;
+        }
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int lineCount = 0;
+        if (length > 0) {
+            lineStarts[lineCount++] = 0;
+        }
+        //  Gather 64 bytes into one bit mask per terminator, then walk the set bits:
+        //  a line starts after every '\n' and after every '\r' not followed by one.
+        //  The last byte can't start a line after it, so it is left to the byte loop below
+        int index = 0;
+        for (; index + 64 < length; index += 64) {
+            long newlines = 0, returns = 0;
+            for (int shift = 0; shift < 64; shift += 8) {
+                long word = bytes.getLong(offset + index + shift);
+                newlines |= movemask(matches(word, NEWLINES)) << shift;
+                returns |= movemask(matches(word, RETURNS)) << shift;
+            }
+            //  Byte 64 (there is one) decides whether byte 63 is half of a "\r\n"
+            long followedByNewline = (newlines >>> 1) | (bytes.get(offset + index + 64) == '\n' ? 1L << 63 : 0);
+            long bits = newlines | (returns & ~followedByNewline);
+            while (bits != 0) {
+                lineStarts[lineCount++] = index + Long.numberOfTrailingZeros(bits) + 1;
+                bits &= bits - 1;
+            }
+        }
+        for (; index + 1 < length; index++) {
+            byte current = bytes.get(offset + index);
+            if (current == '\n' || current == '\r' && bytes.get(offset + index + 1) != '\n') {
+                lineStarts[lineCount++] = index + 1;
+            }
+        }
+        return lineCount;
+    }
+
+    /**
+     * Sweeps a whole buffer one byte at a time; gives exactly the same result as scan().
+     *
+     * PRECONDITION:    offset and length lie within the buffer's limit
+     * POSTCONDITION:   N/A
+     *
+     * @param   buffer  -   the text to scan (position, limit and byte order are not used)
+     * @param   offset  -   the index of the first byte to scan
+     * @param   length  -   the number of bytes to scan
+     * @return          -   the line starts and masks, relative to offset
+     */
+    public static BufferScan scanScalar(ByteBuffer buffer, int offset, int length) {
+        int maskWords = (length + 63) >>> 6;
+        long[] whitespace = new long[maskWords];
+        long[] comments = new long[maskWords];
+        int[] lineStarts = new int[16];
+        int lineCount = 0;
+        boolean inComment = false;
+        if (length > 0) {
+            lineStarts[lineCount++] = 0;
+        }
+        for (int i = 0; i < length; i++) {
+            byte current = buffer.get(offset + i);
+            if (current == '\n' || current == '\r') {
+                inComment = false;
+                if (i + 1 < length && !(current == '\r' && buffer.get(offset + i + 1) == '\n')) {
+                    if (lineCount == lineStarts.length) {
+                        lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    }
+                    lineStarts[lineCount++] = i + 1;
+                }
+                continue;
+            }
+            if (!inComment && current == '/' && i + 1 < length && buffer.get(offset + i + 1) == '/') {
+                inComment = true;
+            }
+            if (inComment) {
+                comments[i >>> 6] |= 1L << i;
+            }
+            if (current == ' ' || current == '\t') {
+                whitespace[i >>> 6] |= 1L << i;
+            }
+        }
+        return new BufferScan(Arrays.copyOf(lineStarts, lineCount), whitespace, comments, length);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Sets the high bit of every byte of word that equals the byte repeated in pattern.
+     * Exact for all byte values: no borrow can carry from one byte into the next.
+     *
+     * @param   word    -   8 bytes of text
+     * @param   pattern -   the byte to look for, repeated 8 times
+     * @return          -   0x80 in every matching byte, 0x00 elsewhere
+     */
+    private static long matches(long word, long pattern) {
+        long zeroes = word ^ pattern;
+        long high = ((zeroes & LOW_SEVEN) + LOW_SEVEN) | zeroes;
+        return ~(high | LOW_SEVEN);
+    }
+
+    /**
+     * Gathers the high bit of each byte into the low 8 bits, byte 0 -> bit 0.
+     *
+     * @param   highBits    -   a result of matches()
+     * @return              -   one bit per byte
+     */
+    private static long movemask(long highBits) {
+        return ((highBits >>> 7) * 0x0102040810204080L) >>> 56;
+    }
+
+    /**
+     * Marks the first byte of every "//" pair, given a mask of single '/' bytes.
+     *
+     * @param   slashes -   one bit per '/' byte
+     * @return          -   one bit per '/' that is followed by another '/'
+     */
+    private static long[] commentStarts(long[] slashes) {
+        long[] starts = new long[slashes.length];
+        for (int w = 0; w < slashes.length; w++) {
+            long next = (slashes[w] >>> 1) | (w + 1 < slashes.length ? slashes[w + 1] << 63 : 0);
+            starts[w] = slashes[w] & next;
+        }
+        return starts;
+    }
+
+    /**
+     * Marks every byte from a comment start up to (not including) the next line break.
+     *
+     * @param   starts  -   one bit per comment start
+     * @param   breaks  -   one bit per '\n' or '\r'
+     * @param   length  -   the number of bytes scanned
+     * @return          -   one bit per comment byte
+     */
+    private static long[] fillComments(long[] starts, long[] breaks, int length) {
+        long[] comments = new long[starts.length];
+        boolean inComment = false;
+        for (int w = 0; w < starts.length; w++) {
+            long fill = 0;
+            int bit = 0;
+            while (bit < 64) {
+                if (inComment) {
+                    long ahead = breaks[w] >>> bit;
+                    int stop = ahead == 0 ? 64 : bit + Long.numberOfTrailingZeros(ahead);
+                    fill |= range(bit, stop);
+                    if (stop == 64) {
+                        break;
+                    }
+                    inComment = false;
+                    bit = stop + 1;
+                } else {
+                    long ahead = bit == 64 ? 0 : starts[w] >>> bit;
+                    if (ahead == 0) {
+                        break;
+                    }
+                    bit += Long.numberOfTrailingZeros(ahead);
+                    inComment = true;
+                }
+            }
+            comments[w] = fill;
+        }
+        //  Bits past the end of the buffer are never part of a comment
+        if ((length & 63) != 0 && comments.length > 0) {
+            comments[comments.length - 1] &= (1L << (length & 63)) - 1;
+        }
+        return comments;
+    }
+
+    /**
+     * Returns a mask with bits from (inclusive) to to (exclusive) set.
+     */
+    private static long range(int from, int to) {
+        long upTo = to == 64 ? -1L : (1L << to) - 1;
+        return upTo & (-1L << from);
+    }
+}
@@ -16,17 +16,47 @@
  ************************************************************************************/
 package edu.miracosta.cs220;
 
+import java.io.FileDescriptor;
 import java.io.FileOutputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.io.PrintWriter;
 
 public class Assembler {
 
-    /**********************
-     * Instance Variables *
-     **********************/
-    private static SymbolTable symbolTable;
+    /*************
+     * Constants *
+     *************/
+    private static final String SINGLE_PASS_OPTION = "--single-pass";
+    private static final String FORMAT_OPTION = "--format=";
+    private static final String JOBS_OPTION = "--jobs=";
+    private static final String PARALLEL_OPTION = "--parallel";
+    private static final String PIPELINED_OPTION = "--pipelined";
+    private static final String DAEMON_OPTION = "--daemon=";
+    private static final String CLIENT_OPTION = "--client=";
+    private static final String SHUTDOWN_OPTION = "--shutdown";
+    private static final String CACHE_OPTION = "--cache";
+    private static final String WATCH_OPTION = "--watch";
+    private static final String OBJECT_OPTION = "--object";
+    private static final String LINK_OPTION = "--link=";
+    private static final String STATS_OPTION = "--stats";
+    private static final String OPTIMIZE_OPTION = "--optimize";
+    private static final String PEEPHOLE = "peephole";
+    private static final String CONTROL_FLOW = "cfg";
+    private static final String CONSERVATIVE_CONTROL_FLOW = "cfg-conservative";
+    private static final String JSON = "json";
+    private static final String STANDARD_STREAMS = "-";
 
     /**
      * Handles the translation of .asm source code to .hack binary code.
@@ -34,6 +64,38 @@ public class Assembler {
      * - 	accounts for symbols and performs asm to binary translation
      * - 	reports found errors to the user or outputs a message of completion
      *
+     * -	with --single-pass, makes one streaming pass over the file and patches
+     *		forward references in the output instead of holding the program in memory
+     * -	with --format=hack,bin,hex,ihex, writes each listed format (XXX.hack, XXX.bin,
+     *		XXX.hex, XXX.ihx) from the same assembly pass
+     * -	given several files, directories or glob patterns, assembles every .asm
+     *		file found on --jobs=N threads (default: one per processor) and reports
+     *		the errors of each file in file name order, then the throughput
+     * -	with --parallel, splits a single large file into chunks that are
+     *		assembled on --jobs=N threads
+     * -	with --pipelined, reads, parses, encodes & writes on separate threads
+     * -	with --daemon=SOCKET, stays running and assembles the files sent to the
+     *		Unix domain socket SOCKET until told to shut down
+     * -	with --client=SOCKET, has the daemon listening on SOCKET assemble the file;
+     *		--client=SOCKET --shutdown stops that daemon instead
+     * -	with --cache or --cache=DIR, skips files whose outputs are already in the
+     *		cache (by default ~/.cache/hack-assembler) and leaves unchanged outputs alone
+     * -	with --watch, assembles the files, then re-assembles each one whenever
+     *		it is saved, parsing only the edited lines again
+     * -	with --object, assembles each file into a relocatable module XXX.hobj
+     * -	with --link=NAME, links the .hobj modules given, in that order, into
+     *		NAME.hack (and any other --format)
+     * -	given - as the file, reads .asm from standard input and writes the one
+     *		--format to standard output, each word as soon as nothing can change it
+     * -	with --optimize, removes redundant instructions before encoding and reports
+     *		how many each rule removed; --optimize=peephole,cfg also threads jumps
+     *		and removes unreachable code (cfg-conservative instead of cfg leaves
+     *		programs with computed jumps alone)
+     * -	with --stats (or --stats=json), reports the time, CPU time & allocation of
+     *		each phase and what was processed (on standard error with -); with
+     *		--stats=json the JSON is all that goes to standard output, the other
+     *		messages go to standard error
+     *
      * PRECONDITION:    a file may have been entered from the command line
      * POSTCONDITION:   a XXX.hack file has been generated in the same directory as
      *                  the provided XXX.asm file
@@ -42,180 +104,682 @@ public class Assembler {
      */
     public static void main(String[] args) {
 
-        String inputFileName, outputFileName;
+        String inputFileName = null, outputBaseName, daemonSocket = null, clientSocket = null;
+        String cacheDirectory = null, linkBaseName = null, statsFormat = null;
+        boolean singlePass = false, parallel = false, pipelined = false, watch = false, object = false;
+        boolean shutdown = false;
+        List<Optimizer> optimizers = List.of();
+        List<OutputFormat> formats = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+        int jobs = Runtime.getRuntime().availableProcessors();
+        //  Standard output carries the machine code then, so nothing else may go there
+        boolean streaming = Arrays.asList(args).contains(STANDARD_STREAMS);
+        //  With --stats=json standard output carries only the JSON, so it can be piped on
+        PrintStream messages = Arrays.asList(args).contains(STATS_OPTION + "=" + JSON) ? System.err : System.out;
 
-        //  get input file name from command line or console input
-        if(args.length == 1) {
-            System.out.println("command line arg = " + args[0]);
-            inputFileName = args[0];
-        } else {
+        //  get options & input file name from command line or console input
+        for (String arg : args) {
+            if (arg.equals(SINGLE_PASS_OPTION)) {
+                singlePass = true;
+            } else if (arg.equals(PARALLEL_OPTION)) {
+                parallel = true;
+            } else if (arg.equals(PIPELINED_OPTION)) {
+                pipelined = true;
+            } else if (arg.startsWith(DAEMON_OPTION)) {
+                daemonSocket = arg.substring(DAEMON_OPTION.length());
+            } else if (arg.startsWith(CLIENT_OPTION)) {
+                clientSocket = arg.substring(CLIENT_OPTION.length());
+            } else if (arg.equals(SHUTDOWN_OPTION)) {
+                shutdown = true;
+            } else if (arg.equals(WATCH_OPTION)) {
+                watch = true;
+            } else if (arg.equals(OBJECT_OPTION)) {
+                object = true;
+            } else if (arg.startsWith(LINK_OPTION)) {
+                linkBaseName = arg.substring(LINK_OPTION.length());
+            } else if (arg.equals(OPTIMIZE_OPTION)) {
+                optimizers = List.of(new PeepholeOptimizer());
+            } else if (arg.startsWith(OPTIMIZE_OPTION + "=")) {
+                optimizers = parseOptimizers(arg.substring(OPTIMIZE_OPTION.length() + 1));
+            } else if (arg.equals(STATS_OPTION)) {
+                statsFormat = "text";
+            } else if (arg.startsWith(STATS_OPTION + "=")) {
+                statsFormat = arg.substring(STATS_OPTION.length() + 1);
+                if (!statsFormat.equals(JSON)) {
+                    reportError("Unknown statistics format " + statsFormat,
+                                "Use " + STATS_OPTION + " for a table or " + STATS_OPTION + "=" + JSON);
+                }
+            } else if (arg.equals(CACHE_OPTION)) {
+                cacheDirectory = AssemblyCache.defaultDirectory().toString();
+            } else if (arg.startsWith(CACHE_OPTION + "=")) {
+                cacheDirectory = arg.substring(CACHE_OPTION.length() + 1);
+            } else if (arg.startsWith(FORMAT_OPTION)) {
+                for (String name : arg.substring(FORMAT_OPTION.length()).split(",")) {
+                    OutputFormat format = OutputFormat.fromName(name);
+                    if (format == null) {
+                        reportError("Unknown output format " + name,
+                                    "Supported formats are hack, bin, hex and ihex");
+                    }
+                    if (!formats.contains(format)) {
+                        formats.add(format);
+                    }
+                }
+            } else if (arg.startsWith(JOBS_OPTION)) {
+                try {
+                    jobs = Integer.parseInt(arg.substring(JOBS_OPTION.length()));
+                } catch (NumberFormatException e) {
+                    jobs = 0;
+                }
+                if (jobs < 1) {
+                    reportError("Invalid number of jobs " + arg.substring(JOBS_OPTION.length()),
+                                "Use a whole number of at least 1");
+                }
+            } else {
+                if (!streaming) {
+                    messages.println("command line arg = " + arg);
+                }
+                inputFileName = arg;
+                inputs.add(arg);
+            }
+        }
+        if (daemonSocket != null) {
+            runDaemon(daemonSocket);
+            return;
+        }
+        if (shutdown) {
+            if (clientSocket == null || !inputs.isEmpty()) {
+                reportError("Option " + SHUTDOWN_OPTION + " stops a running daemon and takes no files",
+                            "Run program again with only " + CLIENT_OPTION + "SOCKET " + SHUTDOWN_OPTION);
+            }
+            stopDaemon(clientSocket);
+            return;
+        }
+        boolean batch = inputs.size() > 1
+                        || (inputs.size() == 1 && BatchAssembler.isBatchArgument(inputFileName));
+        if (inputFileName == null) {
             Scanner keyboard = new Scanner(System.in);
 
-            System.out.println("Please enter assembly file name you would like to assemble.");
-            System.out.println("Don't forget the .asm extension: ");
+            messages.println("Please enter assembly file name you would like to assemble.");
+            messages.println("Don't forget the .asm extension: ");
             inputFileName = keyboard.nextLine();
 
             keyboard.close();
         }
 
-        outputFileName = inputFileName.substring(0, inputFileName.lastIndexOf('.')) + ".hack";
+        if (formats.isEmpty()) {
+            formats.add(OutputFormat.HACK);
+        }
+
+        if (singlePass && formats.contains(OutputFormat.INTEL_HEX)) {
+            //	Intel HEX records carry checksums, so forward references can't be patched in
+            reportError("Output format ihex cannot be written in a single pass",
+                        "Run program again without " + SINGLE_PASS_OPTION + " or without ihex");
+        }
+        if ((singlePass ? 1 : 0) + (parallel ? 1 : 0) + (pipelined ? 1 : 0) > 1) {
+            reportError("Options " + SINGLE_PASS_OPTION + ", " + PARALLEL_OPTION + " and "
+                        + PIPELINED_OPTION + " cannot be combined",
+                        "Run program again with only one of them");
+        }
+
+        if (cacheDirectory != null && (parallel || pipelined || clientSocket != null)) {
+            reportError("Option " + CACHE_OPTION + " cannot be combined with " + PARALLEL_OPTION + ", "
+                        + PIPELINED_OPTION + " or " + CLIENT_OPTION,
+                        "Run program again without one of them");
+        }
+        if (watch && (parallel || pipelined || clientSocket != null || cacheDirectory != null)) {
+            reportError("Option " + WATCH_OPTION + " cannot be combined with " + PARALLEL_OPTION + ", "
+                        + PIPELINED_OPTION + ", " + CLIENT_OPTION + " or " + CACHE_OPTION,
+                        "Run program again without one of them");
+        }
+        if ((object || linkBaseName != null)
+                && (singlePass || parallel || pipelined || watch || clientSocket != null || cacheDirectory != null)) {
+            reportError("Options " + OBJECT_OPTION + " and " + LINK_OPTION + " cannot be combined with "
+                        + "another mode",
+                        "Run program again with only " + OBJECT_OPTION + " or " + LINK_OPTION);
+        }
+        if (object && linkBaseName != null) {
+            reportError("Options " + OBJECT_OPTION + " and " + LINK_OPTION + " cannot be combined",
+                        "Assemble the modules first, then link the .hobj files");
+        }
+        if (parallel && batch) {
+            reportError("Option " + PARALLEL_OPTION + " splits a single file across threads",
+                        "Run program again with one file, or without " + PARALLEL_OPTION + " to assemble "
+                        + "the files side by side with " + JOBS_OPTION + "N");
+        }
+        if (statsFormat != null && (batch || parallel || pipelined || watch || object || linkBaseName != null
+                                    || clientSocket != null || cacheDirectory != null)) {
+            reportError("Option " + STATS_OPTION + " measures a single file assembled in this process",
+                        "Run program again with one file, optionally " + SINGLE_PASS_OPTION
+                        + ", and no other mode");
+        }
+        if (!optimizers.isEmpty() && (singlePass || parallel || pipelined || watch || object || linkBaseName != null
+                                      || clientSocket != null || cacheDirectory != null || streaming)) {
+            reportError("Option " + OPTIMIZE_OPTION + " needs the whole program before it is encoded",
+                        "Run program again without the other mode, or without " + OPTIMIZE_OPTION);
+        }
+        if (streaming) {
+            if (inputs.size() > 1 || parallel || pipelined || watch || object || linkBaseName != null
+                    || clientSocket != null || cacheDirectory != null) {
+                reportError("Standard input (" + STANDARD_STREAMS + ") can only be assembled on its own",
+                            "Run program again with " + STANDARD_STREAMS + " and at most --format");
+            }
+            if (formats.size() > 1) {
+                reportError("Only one output format can be written to standard output",
+                            "Run program again with a single format");
+            }
+            assembleStream(formats.get(0), statsFormat);
+            return;
+        }
+        AssemblyCache cache = cacheDirectory == null ? null : openCache(cacheDirectory);
+
+        if (object) {
+            assembleObjects(inputs.isEmpty() ? List.of(inputFileName) : inputs);
+            return;
+        }
+        if (linkBaseName != null) {
+            link(inputs.isEmpty() ? List.of(inputFileName) : inputs, linkBaseName, formats);
+            return;
+        }
+
+        if (watch) {
+            watch(inputs.isEmpty() ? List.of(inputFileName) : inputs, formats);
+            return;
+        }
+
+        if (clientSocket != null) {
+            if (batch || parallel || pipelined) {
+                reportError("Option " + CLIENT_OPTION + " takes a single file",
+                            "Run program again with one file and without " + PARALLEL_OPTION
+                            + " or " + PIPELINED_OPTION);
+            }
+            assembleRemotely(clientSocket, inputFileName, formats, singlePass);
+            return;
+        }
+
+        if (batch) {
+            assembleBatch(inputs, new HackAssembler(singlePass, OutputFormat.HACK, optimizers), formats, jobs, cache);
+            return;
+        }
+
+        outputBaseName = inputFileName.substring(0, inputFileName.lastIndexOf('.'));
+        AssemblyResult result = null;
+        AssemblyStats stats = statsFormat == null ? null : new AssemblyStats();
+        InputSource inputFile = null;
+        if (cache != null || parallel) {
+            //	These read the file themselves, so it is only checked here
+            checkInput(inputFileName);
+        } else {
+            inputFile = openInput(inputFileName);
+        }
+        if (cache != null) {
+            //	The cache leaves unchanged outputs alone
+            try {
+                result = cache.assemble(new HackAssembler(singlePass), Paths.get(inputFileName),
+                                        formats, outputBaseName);
+            } catch (IOException ex) {
+                reportError("Could not write output file " + outputBaseName,
+                            "Run program again, make sure you have write permissions, etc.");
+            }
+        } else {
+            try (OutputSink outputFile = openOutputs(outputBaseName, formats)) {
+                if (parallel) {
+                    //	The chunks are mapped straight from the file
+                    result = new ParallelAssembler(jobs).assemble(Paths.get(inputFileName), outputFile);
+                } else if (pipelined) {
+                    result = new PipelinedAssembler().assemble(inputFile, outputFile);
+                } else {
+                    result = new HackAssembler(singlePass, OutputFormat.HACK, optimizers)
+                                     .assemble(inputFile, outputFile, stats);
+                }
+            } catch (IOException ex) {
+                reportError("Could not write output file " + outputBaseName,
+                            "Run program again, make sure you have write permissions, etc.");
+            }
+        }
+        if (!result.isSuccessful()) {
+            Diagnostic error = result.getDiagnostics().get(0);
+            reportError(error.toString(), error.getHint());
+        }
+        messages.println("Compilation successful");
+        if (!optimizers.isEmpty()) {
+            reportRemoved(messages, result.getRemovedInstructions());
+        }
+        if (stats != null) {
+            System.out.print(statsFormat.equals(JSON) ? stats.toJson() + "\n" : stats.toText());
+        }
+    }
+
+    /**
+     * Assembles standard input to standard output in a single pass. Each word
+     * is held back only while a placeholder before it waits for its label, and
+     * the output is flushed whenever the input has to be waited for, so the
+     * assembler can sit in the middle of a pipeline.
+     *
+     * PRECONDITION:	standard input carries .asm text
+     * POSTCONDITION:	standard output carries the machine code OR an error has
+     *					been reported to the user and the program has ended
+     *
+     * @param	format		-	the format to write
+     * @param	statsFormat	-	"text" or "json" to report statistics on standard
+     *						error, or null
+     */
+    private static void assembleStream(OutputFormat format, String statsFormat) {
+        FileChannel standardOutput = new FileOutputStream(FileDescriptor.out).getChannel();
+        HoldBackSink output = new HoldBackSink(format.open(standardOutput));
+        AssemblyResult result = null;
+        AssemblyStats stats = statsFormat == null ? null : new AssemblyStats();
+        try {
+            result = new HackAssembler(true).assemble(new ChannelSource(new StandardInputChannel(output)), output,
+                                                      stats);
+        } catch (IOException | UncheckedIOException e) {
+            reportError("Could not read standard input or write standard output",
+                        "Make sure the programs on both sides of the pipe are still running");
+        }
+        if (!result.isSuccessful()) {
+            Diagnostic error = result.getDiagnostics().get(0);
+            reportError(error.toString(), error.getHint());
+        }
+        if (statsFormat != null) {
+            System.err.print(statsFormat.equals(JSON) ? stats.toJson() + "\n" : stats.toText());
+        }
+    }
+
+    /**
+     * Runs the assembler daemon on the given socket until it is shut down.
+     *
+     * PRECONDITION:	socketName names a socket file that may be created
+     * POSTCONDITION:	the daemon has been shut down OR an error has been
+     *					reported to the user and the program has ended
+     *
+     * @param	socketName	-	the Unix domain socket file to listen on
+     */
+    private static void runDaemon(String socketName) {
+        try {
+            HackDaemon daemon = new HackDaemon(Paths.get(socketName));
+            //	Stopped with Ctrl-C or kill, the daemon still removes its socket file
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    daemon.close();
+                } catch (IOException e) {
+                    //	the JVM is exiting; nothing more can be done
+                }
+            }));
+            try (daemon) {
+                System.out.println("Listening on " + socketName);
+                daemon.serve();
+            }
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not listen on " + socketName + ": " + e.getMessage(),
+                        "Make sure the directory exists and no other daemon is using the socket");
+        }
+    }
+
+    /**
+     * Has the daemon listening on socketName assemble one file, then reports
+     * the outcome just as a local run would.
+     *
+     * PRECONDITION:	a daemon is listening on socketName
+     * POSTCONDITION:	the output files have been written and a message of
+     *					completion shown OR an error has been reported to the
+     *					user and the program has ended
+     *
+     * @param	socketName		-	the daemon's Unix domain socket file
+     * @param	inputFileName	-	the .asm file to assemble
+     * @param	formats			-	the formats to write
+     * @param	singlePass		-	whether to assemble in a single pass
+     */
+    private static void assembleRemotely(String socketName, String inputFileName,
+                                         List<OutputFormat> formats, boolean singlePass) {
+        AssemblyResult result = null;
+        try {
+            result = new HackClient(Paths.get(socketName)).assembleFile(Paths.get(inputFileName),
+                                                                         formats, singlePass);
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not reach the daemon on " + socketName + ": " + e.getMessage(),
+                        "Start it with " + DAEMON_OPTION + socketName + " or run program again without "
+                        + CLIENT_OPTION);
+        }
+        if (!result.isSuccessful()) {
+            Diagnostic error = result.getDiagnostics().get(0);
+            reportError(error.toString(), error.getHint());
+        }
+        System.out.println("Compilation successful");
+    }
+
+    /**
+     * Tells the daemon listening on socketName to stop.
+     *
+     * PRECONDITION:	a daemon is listening on socketName
+     * POSTCONDITION:	the daemon has stopped & removed its socket file OR an
+     *					error has been reported to the user and the program has ended
+     *
+     * @param	socketName	-	the daemon's Unix domain socket file
+     */
+    private static void stopDaemon(String socketName) {
+        try {
+            new HackClient(Paths.get(socketName)).shutdown();
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not reach the daemon on " + socketName + ": " + e.getMessage(),
+                        "Check that it is still running on " + socketName);
+        }
+        System.out.println("Daemon on " + socketName + " stopped");
+    }
+
+    /**
+     * Assembles every .asm file named by inputs, then keeps re-assembling each
+     * one whenever it changes, until the program is stopped.
+     *
+     * PRECONDITION:	inputs holds file names, directory names or glob patterns
+     * POSTCONDITION:	the program has been stopped OR an error has been
+     *					reported to the user and the program has ended
+     *
+     * @param	inputs	-	the file names, directory names & glob patterns given
+     * @param	formats	-	the formats to write for each file
+     */
+    private static void watch(List<String> inputs, List<OutputFormat> formats) {
+        List<Path> files = null;
+        try {
+            files = BatchAssembler.findSources(inputs);
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not search " + inputs, "Make sure every directory can be read");
+        }
+        if (files.isEmpty()) {
+            reportError("No .asm files found in " + inputs, "Check the directory names & patterns");
+        }
+        try {
+            System.out.println("Watching " + files.size() + " file(s), press Ctrl+C to stop");
+            new AssemblyWatcher(files, formats, System.out, System.err).run();
+        } catch (IOException e) {
+            reportError("Could not watch " + inputs + ": " + e.getMessage(),
+                        "Make sure the directories exist and can be read");
+        }
+    }
+
+    /**
+     * Assembles every .asm file named by inputs into a relocatable module
+     * XXX.hobj next to it, reporting each file's errors in file name order.
+     *
+     * PRECONDITION:	inputs holds file names, directory names or glob patterns
+     * POSTCONDITION:	every file found has been assembled (or its error reported)
+     *					OR an error has been reported to the user and the
+     *					program has ended
+     *
+     * @param	inputs	-	the file names, directory names & glob patterns given
+     */
+    private static void assembleObjects(List<String> inputs) {
+        List<Path> files = null;
+        try {
+            files = BatchAssembler.findSources(inputs);
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not search " + inputs, "Make sure every directory can be read");
+        }
+        if (files.isEmpty()) {
+            reportError("No .asm files found in " + inputs, "Check the directory names & patterns");
+        }
+        HackAssembler assembler = new HackAssembler();
+        int failed = 0;
+        for (Path file : files) {
+            String name = file.toString();
+            Path objectFile = Paths.get(name.substring(0, name.lastIndexOf('.')) + HackObject.EXTENSION);
+            try {
+                assembler.assembleObject(openInput(name), file.getFileName().toString()).write(objectFile);
+            } catch (AssemblyException e) {
+                System.err.println(file + ": " + e.getDiagnostic());
+                failed++;
+            } catch (IOException e) {
+                reportError("Could not write output file " + objectFile,
+                            "Run program again, make sure you have write permissions, etc.");
+            }
+        }
+        System.out.println("Assembled " + files.size() + " module(s) (" + failed + " failed)");
+    }
 
+    /**
+     * Links the modules named by inputs, in the order given, into one program.
+     *
+     * PRECONDITION:	inputs holds .hobj file names & formats is not empty
+     * POSTCONDITION:	the linked program has been written in every format OR an
+     *					error has been reported to the user and the program has ended
+     *
+     * @param	inputs			-	the .hobj files, in the order they go in ROM
+     * @param	outputBaseName	-	the output file name without an extension
+     * @param	formats			-	the formats to write
+     */
+    private static void link(List<String> inputs, String outputBaseName, List<OutputFormat> formats) {
+        List<HackObject> objects = new ArrayList<>();
+        for (String input : inputs) {
+            try {
+                objects.add(HackObject.read(Paths.get(input)));
+            } catch (IOException | RuntimeException e) {
+                reportError("Could not read object file " + input + " (" + e.getMessage() + ")",
+                            "Run program again with .hobj files written by " + OBJECT_OPTION);
+            }
+        }
+        AssemblyResult result = null;
+        try (OutputSink outputFile = openOutputs(outputBaseName, formats)) {
+            result = new HackLinker().link(objects, outputFile);
+        } catch (IOException ex) {
+            reportError("Could not write output file " + outputBaseName,
+                        "Run program again, make sure you have write permissions, etc.");
+        }
+        if (!result.isSuccessful()) {
+            Diagnostic error = result.getDiagnostics().get(0);
+            reportError(error.toString(), error.getHint());
+        }
+        System.out.println("Compilation successful");
+    }
+
+    /**
+     * Assembles every .asm file named by inputs, reporting each file's errors
+     * in file name order and then the overall throughput.
+     *
+     * PRECONDITION:	inputs holds file names, directory names or glob patterns
+     * POSTCONDITION:	every file found has been assembled (or its error reported)
+     *					OR no files were found, an error has been reported to the
+     *					user and the program has ended
+     *
+     * @param	inputs		-	the file names, directory names & glob patterns given
+     * @param	assembler	-	the assembler to run on each file
+     * @param	formats		-	the formats to write for each file
+     * @param	jobs		-	the number of files to assemble at once
+     * @param	cache		-	the cache of assembled outputs, or null for none
+     */
+    private static void assembleBatch(List<String> inputs, HackAssembler assembler,
+                                      List<OutputFormat> formats, int jobs, AssemblyCache cache) {
+        List<Path> files = null;
         try {
-            PrintWriter outputFile = new PrintWriter(new FileOutputStream(outputFileName));
+            files = BatchAssembler.findSources(inputs);
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not search " + inputs, "Make sure every directory can be read");
+        }
+        if (files.isEmpty()) {
+            reportError("No .asm files found in " + inputs, "Check the directory names & patterns");
+        }
 
-            symbolTable = new SymbolTable();
-            firstPass(inputFileName);
-            secondPass(inputFileName, outputFile);
-            outputFile.close();
-            System.out.println("Compilation successful");
+        long start = System.nanoTime();
+        List<AssemblyResult> results = new BatchAssembler(assembler, formats, jobs, cache).assembleAll(files);
+        double seconds = (System.nanoTime() - start) / 1e9;
 
-        } catch (FileNotFoundException ex) {
+        long lines = 0;
+        int failed = 0;
+        Map<String, Integer> removed = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            AssemblyResult result = results.get(i);
+            lines += result.getSourceLineCount();
+            result.getRemovedInstructions().forEach((rule, count) -> removed.merge(rule, count, Integer::sum));
+            for (Diagnostic error : result.getDiagnostics()) {
+                System.err.println(files.get(i) + ": " + error);
+            }
+            if (!result.isSuccessful()) {
+                failed++;
+            }
+        }
+        System.out.printf("Assembled %d files (%d failed), %d lines in %.3f s: %.1f files/s, %.0f lines/s%n",
+                          files.size(), failed, lines, seconds, files.size() / seconds, lines / seconds);
+        if (!removed.isEmpty()) {
+            reportRemoved(System.out, removed);
+        }
+    }
+
+    /**
+     * Opens (creating if needed) the cache of assembled outputs.
+     *
+     * PRECONDITION:	N/A
+     * POSTCONDITION:	returns the open cache OR an error has been
+     *					reported to the user and the program has ended
+     *
+     * @param	directoryName	-	the cache directory
+     * @return					-	the open cache
+     */
+    private static AssemblyCache openCache(String directoryName) {
+        AssemblyCache cache = null;
+        try {
+            cache = new AssemblyCache(Paths.get(directoryName), AssemblyCache.DEFAULT_MAX_BYTES);
+        } catch (IOException | RuntimeException e) {
+            reportError("Could not open cache directory " + directoryName,
+                        "Run program again, make sure you have write permissions, etc.");
+        }
+        return cache;
+    }
+
+    /**
+     * Opens one output file per requested format, all fed by a single sink.
+     *
+     * PRECONDITION:	formats is not empty
+     * POSTCONDITION:	returns a sink writing every format OR an error has been
+     *					reported to the user and the program has ended
+     *
+     * @param	outputBaseName	-	the output file name without an extension
+     * @param	formats			-	the formats to write
+     * @return					-	the sink to write words to
+     */
+    private static OutputSink openOutputs(String outputBaseName, List<OutputFormat> formats) {
+        if (formats.size() == 1) {
+            return formats.get(0).open(openOutput(outputBaseName + formats.get(0).getExtension()));
+        }
+        List<OutputSink> sinks = new ArrayList<>();
+        for (OutputFormat format : formats) {
+            sinks.add(format.open(openOutput(outputBaseName + format.getExtension())));
+        }
+        return new FanOutSink(sinks);
+    }
+
+    /**
+     * Opens (creating or truncating) the output file.
+     *
+     * PRECONDITION:	an output file name has been derived from the input file name
+     * POSTCONDITION:	returns the open, empty file OR an error has been
+     *					reported to the user and the program has ended
+     *
+     * @param	outputFileName	-	the name of the output file
+     * @return					-	the open file
+     */
+    private static FileChannel openOutput(String outputFileName) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Paths.get(outputFileName), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException | RuntimeException e) {
             reportError("Could not open output file " + outputFileName,
                         "Run program again, make sure you have write permissions, etc.");
         }
+        return channel;
     }
 
     /**
-     * Move through the .asm file a first time to add valid label declarations
-     * and their corresponding line to symbolTable.
+     * Opens the .asm file for reading.
      *
      * PRECONDITION:	an .asm file name to be opened has been obtained
-     * POSTCONDITION:	symbolTable contains all label declarations &
-     *					inputFileName is ready for translation OR
-     *					an error has been reported to the user and the
-     *					program has ended
+     * POSTCONDITION:	returns the open file OR an error has been
+     *					reported to the user and the program has ended
+     *
      * @param	inputFileName	-	the name of the .asm file to read from
+     * @return					-	the open file
      */
-    private static void firstPass(String inputFileName) {
-        String symbol;
-        int romAddress = 0;
+    private static InputSource openInput(String inputFileName) {
+        InputSource source = null;
         try {
-            Parser parser = new Parser(inputFileName);
-
-            while (parser.hasMoreCommands()) {
-                parser.advance();
-                Parser.Command commandType = parser.getCommandType();
-                switch (commandType) {
-                    case A_INSTRUCTION:
-                    case C_INSTRUCTION:
-                        romAddress++;
-                        break;
-                    case L_INSTRUCTION:
-                        symbol = parser.getSymbol();
-                        if (!symbolTable.contains(symbol)) {
-                            //	If not added, add it, unless invalid -- catch it here!
-                            if (!symbolTable.addEntry(symbol, romAddress)) {
-                                reportError("In line " + parser.getLineNumber() + ", Invalid symbol", null);
-                            }
-                        }
-                        break;
-                }
-            }
-        } catch (FileNotFoundException e) {
+            source = new MappedFileSource(Paths.get(inputFileName));
+        } catch (IOException | RuntimeException e) {
             reportError("Could not open input file " + inputFileName,
                         "Run program again, make sure you type correct file name, etc.");
         }
+        return source;
     }
 
     /**
-     * Move through the .asm source file a second time, processing each
-     * line, translating to the binary equivalent, and outputting it to
-     * the output .hack file.
+     * Checks that the .asm file can be read, for the modes that open it
+     * themselves.
      *
-     * PRECONDITION:	firstPass() has been completed without errors,
-     *					& input and output files have been successfully opened
-     * POSTCONDITION:	outputFile contains the translated machine code,
-     *					OR the process has halted and an error has been
+     * PRECONDITION:	N/A
+     * POSTCONDITION:	returns if the file can be read OR an error has been
      *					reported to the user and the program has ended
      *
      * @param	inputFileName	-	the name of the .asm file to read from
-     * @param	outputFile		-	the file stream to output to
      */
-    private static void secondPass(String inputFileName, PrintWriter outputFile){
-
-        Code code = new Code();
-        String comp, dest, jump;	//	Binary holders for error checks
-        StringBuilder binaryOut;
-        String symbol;
-        int ramAddress = 16;
-
+    private static void checkInput(String inputFileName) {
         try {
-            Parser parser = new Parser(inputFileName);
-
-            while (parser.hasMoreCommands()) {
-                binaryOut = new StringBuilder();
-                parser.advance();
-                Parser.Command commandType = parser.getCommandType();
-                switch (commandType) {
-                    case A_INSTRUCTION:
-					/*	TODO - 	End of line expected
-					 * 		 -	non '@', symbol chars
-					 */
-                        int num;
-                        symbol = parser.getSymbol();
-                        try {
-                            num = Integer.parseInt(symbol);
-                            if (num < 0) {
-                                reportError("In line " + parser.getLineNumber() + ", Negative integer not allowed", null);
-                            }
-                            binaryOut.append(code.decimalToBinary(num));
-                        } catch (NumberFormatException e) {
-                            //	Symbol added?
-                            if (symbolTable.contains(symbol)) {
-                                binaryOut.append(code.decimalToBinary(symbolTable.getAddress(symbol)));
-                            } else {
-                                //	Add symbol unless it's invalid
-                                if (!symbolTable.addEntry(symbol, ramAddress)) {
-                                    reportError("In line " + parser.getLineNumber() + ", Invalid symbol", null);
-                                }
-                                binaryOut.append(code.decimalToBinary(ramAddress++));
-                            }
-                        }
-                        outputFile.write(binaryOut.toString() + "\n");
-                        break;
-                    case C_INSTRUCTION:
-                        binaryOut.append("111");
-                        comp = code.getComp(parser.getComp());
-                        dest = code.getDest(parser.getDest());
-                        jump = code.getJump(parser.getJump());
-                        //	Valid codes for each part?
-                        if (comp == null) {
-                            reportError("In line " + parser.getLineNumber() + ", Invalid comp code", null);
-                        }
-                        if (dest == null) {
-                            reportError("In line " + parser.getLineNumber() + ", Invalid dest code", null);
-                        }
-                        if (jump == null) {
-                            reportError("In line " + parser.getLineNumber() + ", Invalid jump code", null);
-                        }
-                    /*	TODO 	-	End of line expected	-
-                     * 		sum of comp/dest/jump mnemonics (if valid)
-                     * 		AND '=' and/or ';' == cleanLine.length()?
-                     * 	-> error?
-                     */
-                        binaryOut.append(comp);
-                        binaryOut.append(dest);
-                        binaryOut.append(jump);
-                        outputFile.write(binaryOut.toString() + "\n");
-                        break;
-                    case L_INSTRUCTION:
-					/*	TODO - 	Unexpected end of line [missing ')']
-					 *		 -	End of line expected [non '(', ')', symbol chars]
-					 */
-                        break;
-                    case N_INSTRUCTION:
-                        //	If not an empty string, catch all for "something's wrong"
-                        if (parser.getCleanLine().length() > 0) {
-                            reportError("In line " + parser.getLineNumber() + ", Expression expected", null);
-                        }
-                        break;
-                }
+            if (Files.isRegularFile(Paths.get(inputFileName)) && Files.isReadable(Paths.get(inputFileName))) {
+                return;
             }
-        } catch (FileNotFoundException e) {
-            reportError("Could not open input file " + inputFileName,
-                        "Run program again, make sure you type correct file name, etc.");
+        } catch (RuntimeException e) {
+            //	An invalid path can't be read either
         }
+        reportError("Could not open input file " + inputFileName,
+                    "Run program again, make sure you type correct file name, etc.");
+    }
 
+    /**
+     * Turns the comma-separated names given to --optimize= into optimizers. The
+     * control-flow pass runs first, as the code it removes needn't be peepholed.
+     *
+     * PRECONDITION:	N/A
+     * POSTCONDITION:	returns the optimizers OR an error has been reported to
+     *					the user and the program has ended
+     *
+     * @param	names	-	peephole, cfg and/or cfg-conservative
+     * @return			-	the optimizers, in the order they should run
+     */
+    private static List<Optimizer> parseOptimizers(String names) {
+        List<String> given = Arrays.asList(names.split(","));
+        for (String name : given) {
+            if (!name.equals(PEEPHOLE) && !name.equals(CONTROL_FLOW) && !name.equals(CONSERVATIVE_CONTROL_FLOW)) {
+                reportError("Unknown optimization " + name,
+                            "Supported optimizations are " + PEEPHOLE + ", " + CONTROL_FLOW + " and "
+                            + CONSERVATIVE_CONTROL_FLOW);
+            }
+        }
+        if (given.contains(CONTROL_FLOW) && given.contains(CONSERVATIVE_CONTROL_FLOW)) {
+            reportError("Optimizations " + CONTROL_FLOW + " and " + CONSERVATIVE_CONTROL_FLOW + " cannot be combined",
+                        "Run program again with only one of them");
+        }
+        List<Optimizer> optimizers = new ArrayList<>();
+        if (given.contains(CONTROL_FLOW) || given.contains(CONSERVATIVE_CONTROL_FLOW)) {
+            optimizers.add(new ControlFlowOptimizer(given.contains(CONSERVATIVE_CONTROL_FLOW)));
+        }
+        if (given.contains(PEEPHOLE)) {
+            optimizers.add(new PeepholeOptimizer());
+        }
+        return optimizers;
+    }
+
+    /**
+     * Reports how many instructions the optimizer removed, in total and by rule.
+     *
+     * PRECONDITION:	N/A
+     * POSTCONDITION:	the counts have been shown to the user
+     *
+     * @param	out		-	the stream to report on
+     * @param	removed	-	the instructions removed, by rule name
+     */
+    private static void reportRemoved(PrintStream out, Map<String, Integer> removed) {
+        int total = 0;
+        StringBuilder rules = new StringBuilder();
+        for (Map.Entry<String, Integer> rule : removed.entrySet()) {
+            total += rule.getValue();
+            rules.append(rules.length() == 0 ? "" : ", ").append(rule.getKey()).append(' ').append(rule.getValue());
+        }
+        out.println("Removed " + total + " instructions (" + rules + ")");
     }
 
     /**
@@ -0,0 +1,462 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyCache
+ * Package:       edu.miracosta.cs220
+ * Description:   An on-disk cache of assembled outputs, keyed by a 128-bit hash of
+ *                the input bytes together with the cache version and output format.
+ *                An input whose outputs are cached is not parsed at all, and an
+ *                output file whose contents would not change is not rewritten, so
+ *                its modification time (and anything downstream watching it) is left
+ *                alone. Entries are evicted least recently used first once the
+ *                cache grows past its size limit.
+ *
+ * History:       added for the assembly cache
+ *
+ * Methods:       Public:   AssemblyCache(Path, long), assemble(HackAssembler, Path, List, String),
+ *                          defaultDirectory()
+ *
+ *                Package:  hash(ByteBuffer)
+ *
+ *                Private:  openTemporaries(List, List, List), restore(Path, Path),
+ *                          store(Path, Path), storeCounts(AssemblyResult, Path),
+ *                          readCounts(Path, List, long), install(Path, Path), sameContents(Path, Path),
+ *                          evict(), scan(List), lastModified(Path), mix(long, int),
+ *                          finalMix(long)
+ *
+ * Notes:         Several processes may share one cache directory. Every file is
+ *                written under a temporary name in its final directory and then
+ *                renamed into place atomically, so a reader sees either a whole
+ *                entry or none; an entry evicted from under a reader is treated as
+ *                a miss. Single-pass & two-pass assembly give identical outputs, so
+ *                the pass mode is not part of the key. Next to the outputs, each
+ *                entry keeps the run's word, line and symbol counts, so a hit
+ *                reports the same figures as the run that filled it.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AssemblyCache {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  Bump whenever a change to the assembler may change its output for the same input
+    public static final int VERSION = 1;
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    private static final String ENTRY_PREFIX = "v" + VERSION + "-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String COUNTS_SUFFIX = ".counts";
+    //  word count (long), source line count (int), symbol count (int)
+    private static final int COUNTS_BYTES = 16;
+    //  Temporary files this old were left behind by a process that died
+    private static final long STALE_TEMPORARY_MILLIS = 60 * 60 * 1000;
+    //  Eviction stops once the cache is back under this fraction of its limit
+    private static final double EVICTION_TARGET = 0.75;
+
+    //  MurmurHash3 x64 128-bit constants
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong usedBytes;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Opens (creating if needed) the cache in directory.
+     *
+     * PRECONDITION:    maxBytes > 0
+     * POSTCONDITION:   the cache directory exists
+     *
+     * @param   directory   -   the cache directory, which may be shared between processes
+     * @param   maxBytes    -   the size the cache is kept under
+     * @throws IOException  if the directory cannot be created or read
+     */
+    public AssemblyCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        usedBytes = new AtomicLong(scan(null));
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Writes one output file per format for an .asm file, from the cache if
+     * every output is cached and by assembling the file otherwise. Output files
+     * are only replaced (atomically) if their contents change. A failed
+     * assembly leaves the existing outputs as they were.
+     *
+     * PRECONDITION:    formats is not empty
+     * POSTCONDITION:   on success, outputBaseName + extension holds each output
+     *
+     * @param   assembler       -   the assembler to use on a miss
+     * @param   input           -   the .asm file
+     * @param   formats         -   the formats to write
+     * @param   outputBaseName  -   the output file name without an extension
+     * @return                  -   the assembly result; on a hit it has no words, but the
+     *                              counts are those of the run that filled the cache
+     * @throws IOException      if the input cannot be read or an output cannot be written
+     */
+    public AssemblyResult assemble(HackAssembler assembler, Path input, List<OutputFormat> formats,
+                                   String outputBaseName) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer source = null;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            //  Files too large to map in one piece are assembled without the cache
+            if (channel.size() <= Integer.MAX_VALUE) {
+                source = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        List<Path> entries = new ArrayList<>(formats.size());
+        List<Path> outputs = new ArrayList<>(formats.size());
+        Path counts = null;
+        boolean hit = source != null;
+        for (OutputFormat format : formats) {
+            outputs.add(Paths.get(outputBaseName + format.getExtension()));
+        }
+        if (source != null) {
+            String key = hash(source);
+            for (OutputFormat format : formats) {
+                Path entry = directory.resolve(ENTRY_PREFIX + key + "." + format.getName());
+                entries.add(entry);
+                hit &= Files.isRegularFile(entry);
+            }
+            counts = directory.resolve(ENTRY_PREFIX + key + COUNTS_SUFFIX);
+            hit &= Files.isRegularFile(counts);
+        }
+        if (hit) {
+            try {
+                for (int i = 0; i < entries.size(); i++) {
+                    restore(entries.get(i), outputs.get(i));
+                }
+                AssemblyResult result = readCounts(counts, entries, start);
+                if (result != null) {
+                    return result;
+                }
+            } catch (NoSuchFileException e) {
+                //  evicted by another process in the meantime: assemble after all
+            }
+        }
+
+        List<Path> temporaries = new ArrayList<>(formats.size());
+        AssemblyResult result;
+        try {
+            try (OutputSink output = openTemporaries(outputs, formats, temporaries)) {
+                result = assembler.assemble(source != null ? new ArraySource(source)
+                                                           : new MappedFileSource(input), output);
+            }
+            if (result.isSuccessful()) {
+                for (int i = 0; i < temporaries.size(); i++) {
+                    if (!entries.isEmpty()) {
+                        store(temporaries.get(i), entries.get(i));
+                    }
+                    install(temporaries.get(i), outputs.get(i));
+                }
+                if (counts != null) {
+                    storeCounts(result, counts);
+                }
+            }
+        } finally {
+            for (Path temporary : temporaries) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return      -   the cache directory used when none is given:
+     *                  $XDG_CACHE_HOME/hack-assembler, else ~/.cache/hack-assembler
+     */
+    public static Path defaultDirectory() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        Path base = cacheHome != null && !cacheHome.isEmpty()
+                    ? Paths.get(cacheHome) : Paths.get(System.getProperty("user.home"), ".cache");
+        return base.resolve("hack-assembler");
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Hashes the remaining bytes of data with MurmurHash3 x64 128, which reads
+     * 16 bytes per step and is far faster than a cryptographic digest.
+     *
+     * PRECONDITION:    data is not null
+     * POSTCONDITION:   data's position is unchanged
+     *
+     * @param   data    -   the bytes to hash
+     * @return          -   the 128-bit hash as 32 hexadecimal digits
+     */
+    static String hash(ByteBuffer data) {
+        ByteBuffer bytes = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long length = bytes.remaining();
+        long h1 = 0, h2 = 0;
+        while (bytes.remaining() >= 16) {
+            h1 ^= mix(bytes.getLong(), 0);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mix(bytes.getLong(), 1);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0, k2 = 0;
+        for (int i = 0; bytes.hasRemaining(); i++) {
+            long next = bytes.get() & 0xFFL;
+            if (i < 8) {
+                k1 |= next << (8 * i);
+            } else {
+                k2 |= next << (8 * (i - 8));
+            }
+        }
+        h1 ^= mix(k1, 0) ^ length;
+        h2 ^= mix(k2, 1) ^ length;
+        h1 += h2;
+        h2 += h1;
+        h1 = finalMix(h1);
+        h2 = finalMix(h2);
+        h1 += h2;
+        h2 += h1;
+        return String.format("%016x%016x", h1, h2);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Opens a temporary file next to each output, named after it, and returns a
+     * sink writing each format to its file; the files are added to temporaries.
+     */
+    private static OutputSink openTemporaries(List<Path> outputs, List<OutputFormat> formats,
+                                              List<Path> temporaries) throws IOException {
+        List<OutputSink> sinks = new ArrayList<>(formats.size());
+        try {
+            for (int i = 0; i < formats.size(); i++) {
+                Path output = outputs.get(i).toAbsolutePath();
+                Path temporary = Files.createTempFile(output.getParent(), "." + output.getFileName(),
+                                                      TEMPORARY_SUFFIX);
+                temporaries.add(temporary);
+                sinks.add(formats.get(i).open(FileChannel.open(temporary, StandardOpenOption.WRITE)));
+            }
+        } catch (IOException e) {
+            for (OutputSink sink : sinks) {
+                sink.close();
+            }
+            throw e;
+        }
+        return sinks.size() == 1 ? sinks.get(0) : new FanOutSink(sinks);
+    }
+
+    /**
+     * Brings output up to date from a cache entry and marks the entry as used.
+     */
+    private void restore(Path entry, Path output) throws IOException {
+        if (!sameContents(entry, output)) {
+            Path absolute = output.toAbsolutePath();
+            Path temporary = Files.createTempFile(absolute.getParent(), "." + absolute.getFileName(),
+                                                  TEMPORARY_SUFFIX);
+            try {
+                Files.copy(entry, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, output, StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    /**
+     * Copies a freshly assembled output into the cache under entry.
+     */
+    private void store(Path output, Path entry) throws IOException {
+        Path temporary = Files.createTempFile(directory, entry.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            Files.copy(output, temporary, StandardCopyOption.REPLACE_EXISTING);
+            //  Another process may have stored the same entry meanwhile; either copy will do
+            Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        if (usedBytes.addAndGet(Files.size(entry)) > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Records the counts of a fresh run in the cache under counts.
+     */
+    private void storeCounts(AssemblyResult result, Path counts) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(COUNTS_BYTES);
+        bytes.putLong(result.getWordCount()).putInt(result.getSourceLineCount()).putInt(result.getSymbolCount());
+        Path temporary = Files.createTempFile(directory, counts.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            Files.write(temporary, bytes.array());
+            Files.move(temporary, counts, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        if (usedBytes.addAndGet(COUNTS_BYTES) > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Returns the result of a hit, with the counts stored under counts and the
+     * sizes of the restored entries, or null if the counts file is damaged.
+     */
+    private static AssemblyResult readCounts(Path counts, List<Path> entries, long start) throws IOException {
+        byte[] stored = Files.readAllBytes(counts);
+        if (stored.length != COUNTS_BYTES) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(stored);
+        long wordCount = bytes.getLong();
+        int sourceLineCount = bytes.getInt();
+        int symbolCount = bytes.getInt();
+        long bytesWritten = 0;
+        for (Path entry : entries) {
+            bytesWritten += Files.size(entry);
+        }
+        Files.setLastModifiedTime(counts, FileTime.fromMillis(System.currentTimeMillis()));
+        return new AssemblyResult(Collections.emptyList(), null, wordCount, bytesWritten, sourceLineCount,
+                                  symbolCount, System.nanoTime() - start);
+    }
+
+    /**
+     * Moves a freshly assembled output over output, unless output already
+     * holds the same bytes.
+     */
+    private static void install(Path temporary, Path output) throws IOException {
+        if (!sameContents(temporary, output)) {
+            Files.move(temporary, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns whether both files exist and hold the same bytes.
+     */
+    private static boolean sameContents(Path first, Path second) throws IOException {
+        return Files.isRegularFile(second) && Files.size(first) == Files.size(second)
+               && Files.mismatch(first, second) == -1;
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is well under its
+     * limit. Other processes may be evicting at the same time, so entries that
+     * have already gone are skipped.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long size = scan(entries);
+        entries.sort(Comparator.comparing(AssemblyCache::lastModified));
+        long target = (long) (maxBytes * EVICTION_TARGET);
+        for (int i = 0; i < entries.size() && size > target; i++) {
+            try {
+                long entrySize = Files.size(entries.get(i));
+                Files.delete(entries.get(i));
+                size -= entrySize;
+            } catch (NoSuchFileException e) {
+                //  already evicted elsewhere
+            }
+        }
+        usedBytes.set(size);
+    }
+
+    /**
+     * Totals the size of the cache entries, adding them to entries if it is not
+     * null, and deletes stale temporary files along the way.
+     */
+    private long scan(List<Path> entries) throws IOException {
+        long size = 0;
+        long staleBefore = System.currentTimeMillis() - STALE_TEMPORARY_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (!attributes.isRegularFile()) {
+                        continue;
+                    }
+                    if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                        if (attributes.lastModifiedTime().toMillis() < staleBefore) {
+                            Files.deleteIfExists(file);
+                        }
+                    } else {
+                        size += attributes.size();
+                        if (entries != null) {
+                            entries.add(file);
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    //  removed while listing
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns a file's modification time, or 0 if it has gone.
+     */
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Scrambles one 8-byte block for lane 0 or lane 1 of the hash.
+     */
+    private static long mix(long block, int lane) {
+        if (lane == 0) {
+            return Long.rotateLeft(block * C1, 31) * C2;
+        }
+        return Long.rotateLeft(block * C2, 33) * C1;
+    }
+
+    /**
+     * Spreads every bit of h over the whole word.
+     */
+    private static long finalMix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53fe87ec53bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
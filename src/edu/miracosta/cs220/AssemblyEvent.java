@@ -0,0 +1,77 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyEvent
+ * Package:       edu.miracosta.cs220
+ * Description:   Java Flight Recorder event for one run of HackAssembler, from
+ *                opening the source to finishing the output. Its start time and
+ *                duration mark where the assembly began and ended; the fields say
+ *                what was assembled and how much of it there was.
+ *
+ * History:       added for the Flight Recorder events
+ *
+ * Notes:         Enabled by default. Like every event in the "Hack Assembler"
+ *                category it can be recorded with -XX:StartFlightRecording or
+ *                streamed in-process, e.g.
+ *                  try (RecordingStream events = new RecordingStream()) {
+ *                      events.enable(AssemblyEvent.NAME);
+ *                      events.onEvent(AssemblyEvent.NAME, e -> log(e.getDuration()));
+ *                      events.startAsync();
+ *                      ...
+ *                When no recording asks for the event, begin(), end() and
+ *                shouldCommit() do nothing and the fields are never filled in.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(AssemblyEvent.NAME)
+@Label("Assembly")
+@Category("Hack Assembler")
+@Description("One .asm program assembled by HackAssembler")
+public class AssemblyEvent extends Event {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String NAME = "edu.miracosta.cs220.Assembly";
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    @Label("File")
+    @Description("The source file, or empty if the source is not a file")
+    String file;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("Lines")
+    int lines;
+
+    @Label("Instructions")
+    long instructions;
+
+    @Label("Labels")
+    int labels;
+
+    @Label("Variables")
+    int variables;
+
+    @Label("Single Pass")
+    boolean singlePass;
+
+    @Label("Successful")
+    @Description("False if the source has an error")
+    boolean successful;
+}
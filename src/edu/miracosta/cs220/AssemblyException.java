@@ -0,0 +1,51 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyException
+ * Package:       edu.miracosta.cs220
+ * Description:   Thrown when a program cannot be assembled because of an error in
+ *                its source. It carries the Diagnostic describing the error.
+ *
+ * History:       added for the in-process assembler API
+ *
+ * Methods:       Public:   AssemblyException(Diagnostic), getDiagnostic()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+public class AssemblyException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Diagnostic diagnostic;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an exception for the given source error.
+     *
+     * PRECONDITION:    diagnostic is not null
+     * POSTCONDITION:   N/A
+     *
+     * @param   diagnostic  -   the error found in the source
+     */
+    public AssemblyException(Diagnostic diagnostic) {
+        super(diagnostic.toString());
+        this.diagnostic = diagnostic;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the error found in the source
+     */
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+}
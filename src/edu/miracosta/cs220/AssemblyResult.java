@@ -0,0 +1,182 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyResult
+ * Package:       edu.miracosta.cs220
+ * Description:   What one HackAssembler run produced: its diagnostics, the assembled
+ *                words (when they were kept in memory) and some statistics. A run
+ *                stops at the first error, so a failed result holds one diagnostic
+ *                and its output is incomplete.
+ *
+ * History:       added for the in-process assembler API
+ *
+ * Methods:       Public:   isSuccessful(), getDiagnostics(), throwIfFailed(), getWords(),
+ *                          getWordCount(), getBytesWritten(), getSourceLineCount(),
+ *                          getSymbolCount(), getElapsedNanos(), getRemovedInstructions()
+ *
+ *                Package:  AssemblyResult(List, int[], long, long, int, int, long),
+ *                          AssemblyResult(List, int[], long, long, int, int, long, Map),
+ *                          failed(Diagnostic)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class AssemblyResult {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final List<Diagnostic> diagnostics;
+    private final int[] words;
+    private final long wordCount;
+    private final long bytesWritten;
+    private final int sourceLineCount;
+    private final int symbolCount;
+    private final long elapsedNanos;
+    private final Map<String, Integer> removedInstructions;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates a result; only HackAssembler makes these.
+     *
+     * @param   diagnostics     -   the errors found (empty on success)
+     * @param   words           -   the assembled words, or null if they were not kept
+     * @param   wordCount       -   the number of words written
+     * @param   bytesWritten    -   the number of output bytes written
+     * @param   sourceLineCount -   the number of source lines read
+     * @param   symbolCount     -   the number of symbols in the symbol table
+     * @param   elapsedNanos    -   the wall-clock time of the run
+     */
+    AssemblyResult(List<Diagnostic> diagnostics, int[] words, long wordCount, long bytesWritten,
+                   int sourceLineCount, int symbolCount, long elapsedNanos) {
+        this(diagnostics, words, wordCount, bytesWritten, sourceLineCount, symbolCount, elapsedNanos,
+             Collections.emptyMap());
+    }
+
+    /**
+     * Creates the result of a run whose program was optimized.
+     *
+     * @param   removedInstructions -   the instructions each optimizer rule removed
+     */
+    AssemblyResult(List<Diagnostic> diagnostics, int[] words, long wordCount, long bytesWritten,
+                   int sourceLineCount, int symbolCount, long elapsedNanos,
+                   Map<String, Integer> removedInstructions) {
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+        this.words = words;
+        this.wordCount = wordCount;
+        this.bytesWritten = bytesWritten;
+        this.sourceLineCount = sourceLineCount;
+        this.symbolCount = symbolCount;
+        this.elapsedNanos = elapsedNanos;
+        this.removedInstructions = Collections.unmodifiableMap(removedInstructions);
+    }
+
+    /**
+     * Creates the result of a run that failed before anything was assembled,
+     * e.g. because the file could not be opened.
+     *
+     * @param   diagnostic  -   what went wrong
+     * @return              -   a failed result with no output
+     */
+    static AssemblyResult failed(Diagnostic diagnostic) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        diagnostics.add(diagnostic);
+        return new AssemblyResult(diagnostics, null, 0, 0, 0, 0, 0);
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   true if the program was assembled without errors, false otherwise
+     */
+    public boolean isSuccessful() {
+        return diagnostics.isEmpty();
+    }
+
+    /**
+     * @return      -   the errors found, in the order they were found (empty on success)
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Turns a failed result into an exception, for callers that prefer them.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   returns this result, or throws if it failed
+     *
+     * @return      -   this result, if it is successful
+     * @throws AssemblyException    for the first diagnostic of a failed result
+     */
+    public AssemblyResult throwIfFailed() throws AssemblyException {
+        if (!isSuccessful()) {
+            throw new AssemblyException(diagnostics.get(0));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the assembled 16-bit words, if the program was assembled into
+     * memory (see HackAssembler.assemble(InputSource)).
+     *
+     * @return      -   the words, or null if they were written to an output instead
+     */
+    public int[] getWords() {
+        return words;
+    }
+
+    /**
+     * @return      -   the number of instruction words written
+     */
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return      -   the number of output bytes written, in the output's format
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return      -   the number of source lines read, including blank and comment-only lines
+     */
+    public int getSourceLineCount() {
+        return sourceLineCount;
+    }
+
+    /**
+     * @return      -   the number of symbols in the symbol table, predefined ones included
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * @return      -   the wall-clock time the run took, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns how many instructions each optimizer rule removed, in the order
+     * the rules ran (see HackAssembler(boolean, OutputFormat, List)).
+     *
+     * @return      -   instructions removed by rule name, empty if nothing was optimized
+     */
+    public Map<String, Integer> getRemovedInstructions() {
+        return removedInstructions;
+    }
+}
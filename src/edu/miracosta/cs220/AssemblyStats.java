@@ -0,0 +1,340 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyStats
+ * Package:       edu.miracosta.cs220
+ * Description:   Where the time of one assembly went: wall time, CPU time and bytes
+ *                allocated for each phase (reading & parsing the input, optimizing,
+ *                firstPass, secondPass or the single pass, flushing the output), plus what was
+ *                processed (lines, instructions, labels, variables, bytes) and how
+ *                full the symbol table ended up. Can be reported as text or as JSON.
+ *
+ * History:       added for --stats
+ *
+ * Methods:       Public:   AssemblyStats(), getPhaseCount(), getPhaseName(int),
+ *                          getWallNanos(int), getCpuNanos(int), getAllocatedBytes(int),
+ *                          getLineCount(), getInstructionCount(), getLabelCount(),
+ *                          getVariableCount(), getSymbolTableSize(),
+ *                          getSymbolTableCapacity(), getLoadFactor(), getBytesRead(),
+ *                          getBytesWritten(), toText(), toJson()
+ *
+ *                Package:  startPhase(String), endPhase(), setCounts(int, long, int, int),
+ *                          setSymbolTable(SymbolTable), setBytes(long, long)
+ *
+ *                Private:  cpuNanos(), allocatedBytes(), millis(long), kilobytes(long)
+ *
+ * Notes:         Phases are measured on the thread that runs them, which is the
+ *                calling thread for the two-pass and single-pass assemblers. CPU time
+ *                and allocation are -1 where the JVM can't measure them.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class AssemblyStats {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String READ = "read";
+    public static final String OPTIMIZE = "optimize";
+    public static final String FIRST_PASS = "firstPass";
+    public static final String SECOND_PASS = "secondPass";
+    public static final String SINGLE_PASS = "singlePass";
+    public static final String FLUSH = "flush";
+
+    private static final long UNAVAILABLE = -1;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private ThreadMXBean threads;
+    private boolean allocationCounted;
+    private List<String> phaseNames;
+    private List<long[]> phaseCosts;    //  per phase: wall, CPU, allocated
+    private String currentPhase;
+    private long startWall, startCpu, startAllocated;
+
+    private int lineCount;
+    private long instructionCount;
+    private int labelCount;
+    private int variableCount;
+    private int symbolTableSize;
+    private int symbolTableCapacity;
+    private long bytesRead;
+    private long bytesWritten;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates empty statistics, to be filled in by one assembly.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   no phase has been measured
+     */
+    public AssemblyStats() {
+        threads = ManagementFactory.getThreadMXBean();
+        allocationCounted = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+        phaseNames = new ArrayList<>();
+        phaseCosts = new ArrayList<>();
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the number of phases measured, in the order they ran
+     */
+    public int getPhaseCount() {
+        return phaseNames.size();
+    }
+
+    /**
+     * @param   phase   -   0 <= phase < getPhaseCount()
+     * @return          -   the phase's name, e.g. FIRST_PASS
+     */
+    public String getPhaseName(int phase) {
+        return phaseNames.get(phase);
+    }
+
+    /**
+     * @param   phase   -   0 <= phase < getPhaseCount()
+     * @return          -   the phase's wall-clock time in nanoseconds
+     */
+    public long getWallNanos(int phase) {
+        return phaseCosts.get(phase)[0];
+    }
+
+    /**
+     * @param   phase   -   0 <= phase < getPhaseCount()
+     * @return          -   the phase's CPU time in nanoseconds, or -1 if unavailable
+     */
+    public long getCpuNanos(int phase) {
+        return phaseCosts.get(phase)[1];
+    }
+
+    /**
+     * @param   phase   -   0 <= phase < getPhaseCount()
+     * @return          -   the bytes allocated during the phase, or -1 if unavailable
+     */
+    public long getAllocatedBytes(int phase) {
+        return phaseCosts.get(phase)[2];
+    }
+
+    /**
+     * @return      -   the number of source lines read
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return      -   the number of instructions (words) assembled
+     */
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * @return      -   the number of labels declared
+     */
+    public int getLabelCount() {
+        return labelCount;
+    }
+
+    /**
+     * @return      -   the number of variables given a RAM address
+     */
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * @return      -   the number of symbols in the table, predefined ones included
+     */
+    public int getSymbolTableSize() {
+        return symbolTableSize;
+    }
+
+    /**
+     * @return      -   the number of slots in the table's hash array
+     */
+    public int getSymbolTableCapacity() {
+        return symbolTableCapacity;
+    }
+
+    /**
+     * @return      -   the share of the table's slots in use
+     */
+    public double getLoadFactor() {
+        return symbolTableCapacity == 0 ? 0 : (double) symbolTableSize / symbolTableCapacity;
+    }
+
+    /**
+     * @return      -   the number of input bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return      -   the number of output bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the statistics as a table for people to read.
+     *
+     * @return      -   one line per phase, then a total and the counts
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        long wall = 0, cpu = 0, allocated = 0;
+        text.append(String.format(Locale.ROOT, "%-12s %12s %12s %14s%n", "phase", "wall ms", "cpu ms", "allocated KB"));
+        for (int i = 0; i < getPhaseCount(); i++) {
+            text.append(String.format(Locale.ROOT, "%-12s %12.3f %12s %14s%n", getPhaseName(i),
+                                      getWallNanos(i) / 1e6, millis(getCpuNanos(i)), kilobytes(getAllocatedBytes(i))));
+            wall += getWallNanos(i);
+            cpu = cpu < 0 || getCpuNanos(i) < 0 ? UNAVAILABLE : cpu + getCpuNanos(i);
+            allocated = allocated < 0 || getAllocatedBytes(i) < 0 ? UNAVAILABLE : allocated + getAllocatedBytes(i);
+        }
+        text.append(String.format(Locale.ROOT, "%-12s %12.3f %12s %14s%n", "total", wall / 1e6, millis(cpu),
+                                  kilobytes(allocated)));
+        text.append(String.format(Locale.ROOT, "lines %d, instructions %d, labels %d, variables %d%n",
+                                  lineCount, instructionCount, labelCount, variableCount));
+        text.append(String.format(Locale.ROOT, "symbol table %d of %d slots (load factor %.2f)%n",
+                                  symbolTableSize, symbolTableCapacity, getLoadFactor()));
+        text.append(String.format(Locale.ROOT, "bytes read %d, bytes written %d%n", bytesRead, bytesWritten));
+        return text.toString();
+    }
+
+    /**
+     * Returns the statistics as one JSON object, for tools to read. Times are
+     * in nanoseconds; unavailable figures are -1.
+     *
+     * @return      -   the JSON text, without a trailing newline
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":[");
+        for (int i = 0; i < getPhaseCount(); i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("{\"name\":\"").append(getPhaseName(i))
+                .append("\",\"wallNanos\":").append(getWallNanos(i))
+                .append(",\"cpuNanos\":").append(getCpuNanos(i))
+                .append(",\"allocatedBytes\":").append(getAllocatedBytes(i)).append('}');
+        }
+        json.append("],\"lines\":").append(lineCount)
+            .append(",\"instructions\":").append(instructionCount)
+            .append(",\"labels\":").append(labelCount)
+            .append(",\"variables\":").append(variableCount)
+            .append(",\"symbolTableSize\":").append(symbolTableSize)
+            .append(",\"symbolTableCapacity\":").append(symbolTableCapacity)
+            .append(",\"loadFactor\":").append(String.format(Locale.ROOT, "%.4f", getLoadFactor()))
+            .append(",\"bytesRead\":").append(bytesRead)
+            .append(",\"bytesWritten\":").append(bytesWritten)
+            .append('}');
+        return json.toString();
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Ends the current phase, if any, and starts measuring the next one.
+     *
+     * @param   name    -   the phase's name, e.g. FIRST_PASS
+     */
+    void startPhase(String name) {
+        endPhase();
+        currentPhase = name;
+        startAllocated = allocatedBytes();
+        startCpu = cpuNanos();
+        startWall = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    void endPhase() {
+        if (currentPhase == null) {
+            return;
+        }
+        long wall = System.nanoTime() - startWall;
+        long cpu = startCpu == UNAVAILABLE ? UNAVAILABLE : cpuNanos() - startCpu;
+        long allocated = startAllocated == UNAVAILABLE ? UNAVAILABLE : allocatedBytes() - startAllocated;
+        phaseNames.add(currentPhase);
+        phaseCosts.add(new long[] {wall, cpu, allocated});
+        currentPhase = null;
+    }
+
+    /**
+     * Records what the assembly processed.
+     */
+    void setCounts(int lines, long instructions, int labels, int variables) {
+        lineCount = lines;
+        instructionCount = instructions;
+        labelCount = labels;
+        variableCount = variables;
+    }
+
+    /**
+     * Records how full the symbol table ended up.
+     */
+    void setSymbolTable(SymbolTable symbolTable) {
+        symbolTableSize = symbolTable.size();
+        symbolTableCapacity = symbolTable.capacity();
+    }
+
+    /**
+     * Records the input & output sizes.
+     */
+    void setBytes(long read, long written) {
+        bytesRead = read;
+        bytesWritten = written;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Returns this thread's CPU time so far, or UNAVAILABLE.
+     */
+    private long cpuNanos() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : UNAVAILABLE;
+    }
+
+    /**
+     * Returns the bytes this thread has allocated so far, or UNAVAILABLE.
+     */
+    private long allocatedBytes() {
+        return allocationCounted
+               ? ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes() : UNAVAILABLE;
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds, or "n/a".
+     */
+    private static String millis(long nanos) {
+        return nanos < 0 ? "n/a" : String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Formats bytes as kilobytes, or "n/a".
+     */
+    private static String kilobytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", bytes / 1e3);
+    }
+}
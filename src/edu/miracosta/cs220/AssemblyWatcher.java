@@ -0,0 +1,168 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyWatcher
+ * Package:       edu.miracosta.cs220
+ * Description:   Watches .asm files with a WatchService and re-assembles each one
+ *                as soon as it is saved, through an IncrementalAssembler per file,
+ *                so only the edited lines are parsed again. Each rebuild reports
+ *                its outcome, the number of lines parsed and the time it took.
+ *
+ * History:       added for watch mode
+ *
+ * Methods:       Public:   AssemblyWatcher(List, List, PrintStream, PrintStream), run()
+ *
+ *                Private:  rebuild(Path)
+ *
+ * Notes:         The directories holding the files are watched rather than the
+ *                files themselves, since many editors save by writing a new file and
+ *                renaming it over the old one.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class AssemblyWatcher {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  How long to wait for more events after one arrives, so a save that
+    //  writes a file in several steps is rebuilt once
+    private static final long SETTLE_MILLIS = 20;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Map<Path, IncrementalAssembler> assemblers;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to watch the given files.
+     *
+     * PRECONDITION:    files and formats are not empty
+     * POSTCONDITION:   nothing is watched until run() is called
+     *
+     * @param   files   -   the .asm files to watch
+     * @param   formats -   the formats to write for each file
+     * @param   out     -   where rebuilds are reported
+     * @param   err     -   where errors are reported
+     */
+    public AssemblyWatcher(List<Path> files, List<OutputFormat> formats, PrintStream out, PrintStream err) {
+        assemblers = new LinkedHashMap<>();
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+            String name = absolute.toString();
+            int dot = name.lastIndexOf('.');
+            String outputBaseName = dot > name.lastIndexOf(absolute.getFileSystem().getSeparator())
+                                    ? name.substring(0, dot) : name;
+            assemblers.put(absolute, new IncrementalAssembler(absolute, outputBaseName, formats));
+        }
+        this.out = out;
+        this.err = err;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Assembles every file once, then rebuilds each file whenever it changes,
+     * until the thread is interrupted.
+     *
+     * PRECONDITION:    the files' directories exist
+     * POSTCONDITION:   the thread has been interrupted and the watch stopped
+     *
+     * @throws IOException  if the directories cannot be watched
+     */
+    public void run() throws IOException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Set<Path> directories = new LinkedHashSet<>();
+            for (Path file : assemblers.keySet()) {
+                if (directories.add(file.getParent())) {
+                    file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                              StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+            for (Path file : assemblers.keySet()) {
+                rebuild(file);
+            }
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watcher.take();
+                do {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            //  Events were lost; check every file in this directory
+                            for (Path file : assemblers.keySet()) {
+                                if (file.getParent().equals(directory)) {
+                                    changed.add(file);
+                                }
+                            }
+                        } else {
+                            Path file = directory.resolve((Path) event.context());
+                            if (assemblers.containsKey(file)) {
+                                changed.add(file);
+                            }
+                        }
+                    }
+                    key.reset();
+                } while ((key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                for (Path file : changed) {
+                    rebuild(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Brings one file's outputs up to date and reports the outcome.
+     */
+    private void rebuild(Path file) {
+        IncrementalAssembler assembler = assemblers.get(file);
+        AssemblyResult result;
+        try {
+            result = assembler.update();
+        } catch (IOException e) {
+            //  e.g. the file is being replaced right now; the next event will retry
+            err.println(file + ": Could not read input file or write output file (" + e.getMessage() + ")");
+            return;
+        }
+        if (result.isSuccessful()) {
+            out.printf("%s: Compilation successful (%d of %d lines parsed, %.2f ms)%n", file,
+                       assembler.getReparsedLineCount(), result.getSourceLineCount(),
+                       result.getElapsedNanos() / 1e6);
+        } else {
+            for (Diagnostic error : result.getDiagnostics()) {
+                err.println(file + ": " + error);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/************************************************************************************
+ *
+ * Class name:    BatchAssembler
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles many .asm files at once on a work-stealing ForkJoinPool.
+ *                Sources are found from file names, directories (searched
+ *                recursively) and glob patterns such as "progs/**.asm". Every file
+ *                is written next to its source exactly as a single run would, and
+ *                results come back in sorted file order whatever order the files
+ *                finished in, so the report is the same from run to run.
+ *
+ * History:       added for the batch command-line mode
+ *
+ * Methods:       Public:   BatchAssembler(HackAssembler, List, int),
+ *                          BatchAssembler(HackAssembler, List, int, AssemblyCache), assembleAll(List),
+ *                          findSources(List), isBatchArgument(String)
+ *
+ *                Package:  assembleFile(Path)
+ *
+ *                Private:  openOutputs(String), addMatches(String, Set),
+ *                          isGlob(String), globBase(String)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+public class BatchAssembler {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String SOURCE_EXTENSION = ".asm";
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final HackAssembler assembler;
+    private final List<OutputFormat> formats;
+    private final int parallelism;
+    private final AssemblyCache cache;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to assemble files with the given settings.
+     *
+     * PRECONDITION:    formats is not empty, parallelism > 0
+     * POSTCONDITION:   the batch assembler is ready to use
+     *
+     * @param   assembler   -   the assembler to run on each file
+     * @param   formats     -   the output formats to write for each file
+     * @param   parallelism -   the number of files to assemble at the same time
+     */
+    public BatchAssembler(HackAssembler assembler, List<OutputFormat> formats, int parallelism) {
+        this(assembler, formats, parallelism, null);
+    }
+
+    /**
+     * Prepares to assemble files with the given settings, skipping files whose
+     * outputs are already in cache.
+     *
+     * PRECONDITION:    formats is not empty, parallelism > 0
+     * POSTCONDITION:   the batch assembler is ready to use
+     *
+     * @param   assembler   -   the assembler to run on each file
+     * @param   formats     -   the output formats to write for each file
+     * @param   parallelism -   the number of files to assemble at the same time
+     * @param   cache       -   the cache of assembled outputs, or null for none
+     */
+    public BatchAssembler(HackAssembler assembler, List<OutputFormat> formats, int parallelism,
+                          AssemblyCache cache) {
+        this.assembler = assembler;
+        this.formats = new ArrayList<>(formats);
+        this.parallelism = parallelism;
+        this.cache = cache;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Assembles every file, parallelism files at a time. A file that cannot be
+     * read or written gets a failed result of its own; the others go on.
+     *
+     * PRECONDITION:    files is not null
+     * POSTCONDITION:   an output has been written for every file that assembled
+     *
+     * @param   files   -   the .asm files to assemble
+     * @return          -   one result per file, in the same order as files
+     */
+    public List<AssemblyResult> assembleAll(List<Path> files) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<AssemblyResult>> tasks = new ArrayList<>(files.size());
+            for (Path file : files) {
+                tasks.add(pool.submit(() -> assembleFile(file)));
+            }
+            List<AssemblyResult> results = new ArrayList<>(files.size());
+            for (ForkJoinTask<AssemblyResult> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Finds the .asm files named by the given arguments: plain files are taken
+     * as they are, directories are searched recursively for .asm files, and
+     * glob patterns are matched against the files under their fixed prefix.
+     *
+     * PRECONDITION:    arguments is not null
+     * POSTCONDITION:   N/A
+     *
+     * @param   arguments   -   file names, directory names and glob patterns
+     * @return              -   every matching file once, sorted by path
+     * @throws IOException  if a directory cannot be searched
+     */
+    public static List<Path> findSources(List<String> arguments) throws IOException {
+        Set<Path> sources = new TreeSet<>();
+        for (String argument : arguments) {
+            if (isGlob(argument)) {
+                addMatches(argument, sources);
+            } else {
+                Path path = Paths.get(argument);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> walk = Files.walk(path)) {
+                        walk.filter(file -> file.toString().endsWith(SOURCE_EXTENSION)
+                                            && Files.isRegularFile(file))
+                            .forEach(sources::add);
+                    }
+                } else {
+                    sources.add(path);
+                }
+            }
+        }
+        return new ArrayList<>(sources);
+    }
+
+    /**
+     * Returns whether a command-line argument asks for batch mode, i.e. it is a
+     * directory or a glob pattern rather than a single file.
+     *
+     * @param   argument    -   a file name, directory name or glob pattern
+     * @return              -   true if argument names a directory or is a glob pattern
+     */
+    public static boolean isBatchArgument(String argument) {
+        return isGlob(argument) || Files.isDirectory(Paths.get(argument));
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Assembles one file into its output files.
+     *
+     * @param   file    -   the .asm file
+     * @return          -   its result; I/O failures become a failed result
+     */
+    AssemblyResult assembleFile(Path file) {
+        InputSource source;
+        try {
+            source = new MappedFileSource(file);
+        } catch (IOException | RuntimeException e) {
+            return AssemblyResult.failed(new Diagnostic(0, "Could not open input file " + file,
+                    "Make sure the file exists and can be read"));
+        }
+        String fileName = file.toString();
+        int dot = fileName.lastIndexOf('.');
+        String outputBaseName = dot > fileName.lastIndexOf(file.getFileSystem().getSeparator())
+                                ? fileName.substring(0, dot) : fileName;
+        if (cache != null) {
+            //  The cache reads the file itself & leaves unchanged outputs alone
+            source.close();
+            try {
+                return cache.assemble(assembler, file, formats, outputBaseName);
+            } catch (IOException | RuntimeException e) {
+                return AssemblyResult.failed(new Diagnostic(0, "Could not write output file " + outputBaseName,
+                        "Make sure you have write permissions to it and to the cache"));
+            }
+        }
+        try (OutputSink output = openOutputs(outputBaseName)) {
+            return assembler.assemble(source, output);
+        } catch (IOException e) {
+            source.close();
+            return AssemblyResult.failed(new Diagnostic(0, "Could not write output file " + outputBaseName,
+                    "Make sure you have write permissions"));
+        }
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Opens (creating or truncating) one output file per format.
+     *
+     * @param   outputBaseName  -   the output file name without an extension
+     * @return                  -   the sink to write words to
+     */
+    private OutputSink openOutputs(String outputBaseName) throws IOException {
+        List<OutputSink> sinks = new ArrayList<>();
+        try {
+            for (OutputFormat format : formats) {
+                FileChannel channel = FileChannel.open(Paths.get(outputBaseName + format.getExtension()),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                sinks.add(format.open(channel));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (OutputSink sink : sinks) {
+                sink.close();
+            }
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        return sinks.size() == 1 ? sinks.get(0) : new FanOutSink(sinks);
+    }
+
+    /**
+     * Adds every regular file under the fixed prefix of a glob pattern that the
+     * pattern matches. "**" crosses directories, "*" does not.
+     *
+     * @param   pattern -   a glob pattern, e.g. "progs/**.asm"
+     * @param   sources -   the set to add matching files to
+     */
+    private static void addMatches(String pattern, Set<Path> sources) throws IOException {
+        Path base = globBase(pattern);
+        PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + pattern);
+        if (!Files.isDirectory(base.toString().isEmpty() ? Paths.get(".") : base)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(base)) {
+            walk.filter(file -> matcher.matches(file) && Files.isRegularFile(file))
+                .forEach(sources::add);
+        }
+    }
+
+    /**
+     * Returns whether argument contains any glob special characters.
+     */
+    private static boolean isGlob(String argument) {
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(i)) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the directories at the start of pattern that hold no glob
+     * characters, e.g. "progs/big" for "progs/big/*.asm" (or the empty path).
+     */
+    private static Path globBase(String pattern) {
+        int end = 0;
+        while (end < pattern.length() && GLOB_CHARACTERS.indexOf(pattern.charAt(end)) == -1) {
+            end++;
+        }
+        int separator = Math.max(pattern.lastIndexOf('/', end), pattern.lastIndexOf('\\', end));
+        return separator < 0 ? Paths.get("") : Paths.get(pattern.substring(0, separator + 1));
+    }
+}
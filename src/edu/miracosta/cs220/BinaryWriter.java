@@ -0,0 +1,48 @@
+/************************************************************************************
+ *
+ * Class name:    BinaryWriter
+ * Package:       edu.miracosta.cs220
+ * Description:   Writes instruction words as a packed ROM image: two bytes per word,
+ *                big-endian, with nothing in between - the layout FPGA ROM loaders
+ *                read directly.
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   BinaryWriter(WritableByteChannel)
+ *
+ *                Protected: encode(ByteBuffer, int, int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class BinaryWriter extends FixedWidthWriter {
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to write a binary ROM image to channel.
+     *
+     * PRECONDITION:    channel is open for writing (and positioned at its start, if it is a file)
+     * POSTCONDITION:   the writer is ready to write
+     *
+     * @param   channel -   the channel to write the image to
+     */
+    public BinaryWriter(WritableByteChannel channel) {
+        super(channel, 2);
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    @Override
+    protected void encode(ByteBuffer target, int index, int word) {
+        target.put(index, (byte) (word >>> 8));
+        target.put(index + 1, (byte) word);
+    }
+}
@@ -0,0 +1,120 @@
+/************************************************************************************
+ *
+ * Class name:    BufferScan
+ * Package:       edu.miracosta.cs220
+ * Description:   The result of sweeping a buffer of .asm text with AsciiScanner:
+ *                the offset of every line start, plus one bit per byte marking
+ *                whitespace (space or tab) and comment bytes ("//" to line end).
+ *
+ * History:       added as the bulk front end of the Parser
+ *
+ * Methods:       Public:   BufferScan(int[], long[], long[], int), getLineCount(),
+ *                          getLineStart(int), getLineStarts(), isWhitespace(int),
+ *                          isComment(int), length(), equals(Object), hashCode()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.Arrays;
+
+public class BufferScan {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private int[] lineStarts;
+    private long[] whitespaceMask;
+    private long[] commentMask;
+    private int length;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Wraps the arrays produced by a scan.
+     *
+     * PRECONDITION:    both masks hold at least length bits
+     * POSTCONDITION:   N/A
+     *
+     * @param   lineStarts      -   the offset of the first byte of every line
+     * @param   whitespaceMask  -   bit i set if byte i is a space or tab
+     * @param   commentMask     -   bit i set if byte i is part of a comment
+     * @param   length          -   the number of bytes scanned
+     */
+    public BufferScan(int[] lineStarts, long[] whitespaceMask, long[] commentMask, int length) {
+        this.lineStarts = lineStarts;
+        this.whitespaceMask = whitespaceMask;
+        this.commentMask = commentMask;
+        this.length = length;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the number of lines in the buffer
+     */
+    public int getLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * @param   line    -   a 0-based line index, less than getLineCount()
+     * @return          -   the offset of the first byte of the line
+     */
+    public int getLineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * @return      -   a copy of every line start offset, in order
+     */
+    public int[] getLineStarts() {
+        return lineStarts.clone();
+    }
+
+    /**
+     * @param   index   -   an offset less than length()
+     * @return          -   true if the byte is a space or tab
+     */
+    public boolean isWhitespace(int index) {
+        return (whitespaceMask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param   index   -   an offset less than length()
+     * @return          -   true if the byte is part of a "//" comment
+     */
+    public boolean isComment(int index) {
+        return (commentMask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return      -   the number of bytes scanned
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Two scans are equal when every line start and every mask bit is the same,
+     * which is how the SWAR scan is checked against the scalar one.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BufferScan)) {
+            return false;
+        }
+        BufferScan scan = (BufferScan) other;
+        return length == scan.length && Arrays.equals(lineStarts, scan.lineStarts)
+                && Arrays.equals(whitespaceMask, scan.whitespaceMask)
+                && Arrays.equals(commentMask, scan.commentMask);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(lineStarts) + Arrays.hashCode(commentMask);
+    }
+}
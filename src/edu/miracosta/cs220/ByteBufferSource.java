@@ -0,0 +1,192 @@
+/************************************************************************************
+ *
+ * Class name:    ByteBufferSource
+ * Package:       edu.miracosta.cs220
+ * Description:   Splits the bytes of a ByteBuffer into lines. Subclasses only decide
+ *                where the bytes come from, by supplying the buffer and refilling it
+ *                when a line runs past its end. Line breaks are found by sweeping the
+ *                buffer with AsciiScanner.scanLineStarts() a block at a time, so
+ *                most lines are read off the line starts of a block already swept.
+ *
+ * History:       added to replace the Scanner inside Parser
+ *
+ * Methods:       Public:   hasNextLine(), nextLine(LineBuffer), getBytesRead()
+ *
+ *                Protected: ByteBufferSource(ByteBuffer), refill()
+ *
+ *                Private:  skipLineFeed(), nextScannedLine(LineBuffer)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.ByteBuffer;
+
+public abstract class ByteBufferSource implements InputSource {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  Bytes swept per scan; keeps the line starts small however large the window
+    private static final int SCAN_BLOCK = 1 << 16;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+
+    //  Unread bytes are those between the buffer's position and limit
+    protected ByteBuffer buffer;
+    private boolean afterCarriageReturn;
+    private long bytesRead;
+    //  The line starts of the last block scanned, from scanStart; line nextScanned is the next to read
+    private ByteBuffer scanned;
+    private int[] lineStarts;
+    private int lineCount;
+    private int scanStart;
+    private int nextScanned;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to split buffer into lines.
+     *
+     * PRECONDITION:    buffer holds the first bytes of input between position and limit
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   buffer  -   the initial window of input
+     */
+    protected ByteBufferSource(ByteBuffer buffer) {
+        this.buffer = buffer;
+        afterCarriageReturn = false;
+        bytesRead = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public boolean hasNextLine() {
+        if (!buffer.hasRemaining() && !refill()) {
+            return false;
+        }
+        skipLineFeed();
+        return buffer.hasRemaining() || refill();
+    }
+
+    @Override
+    public void nextLine(LineBuffer line) {
+        skipLineFeed();
+        if (nextScannedLine(line)) {
+            return;
+        }
+        //  A line longer than a block, or the last one in the buffer
+        scanned = null;
+        int start = buffer.position();
+        int index = start;
+        while (true) {
+            index = AsciiScanner.indexOfLineEnd(buffer, index, buffer.limit());
+            if (index < buffer.limit()) {
+                byte current = buffer.get(index);
+                line.set(buffer, start, index - start);
+                afterCarriageReturn = current == '\r';
+                buffer.position(index + 1);
+                bytesRead += index + 1 - start;
+                return;
+            }
+            //  No terminator in this window -> get more bytes, keeping the partial line
+            int scanned = index - start;
+            if (!refill()) {
+                line.set(buffer, buffer.position(), scanned);
+                buffer.position(buffer.position() + scanned);
+                bytesRead += scanned;
+                return;
+            }
+            start = buffer.position();
+            index = start + scanned;
+        }
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    /**
+     * Makes more input available. The unread bytes (from position to limit) must
+     * still be unread, in order and starting at the new position, afterwards.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   more bytes are between position and limit, or false is returned
+     *
+     * @return      -   true if more bytes were made available, false at the end of input
+     */
+    protected abstract boolean refill();
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Reads the next line from the line starts of a scanned block, scanning the
+     * block starting at the position first if the last one has been used up. The
+     * last line of a block may run on past it, so it is never read from that
+     * block; the next block starts with it instead.
+     *
+     * PRECONDITION:    the position is at the start of a line
+     * POSTCONDITION:   line holds the next line and the source has moved past its
+     *                  terminator, or false is returned and nothing has moved
+     *
+     * @param   line    -   the reusable buffer to copy the line into
+     * @return          -   true if a line was read, false if it is not in one block
+     */
+    private boolean nextScannedLine(LineBuffer line) {
+        int start = buffer.position();
+        if (scanned != buffer || nextScanned + 1 >= lineCount || scanStart + lineStarts[nextScanned] != start) {
+            int length = Math.min(SCAN_BLOCK, buffer.limit() - start);
+            if (lineStarts == null || lineStarts.length < length) {
+                lineStarts = new int[length];
+            }
+            scanned = buffer;
+            lineCount = AsciiScanner.scanLineStarts(buffer, start, length, lineStarts);
+            scanStart = start;
+            nextScanned = 0;
+            if (lineCount < 2) {
+                return false;
+            }
+        }
+        //  The next line starts just after this one's '\n' or '\r'. A '\r' just before
+        //  that can only be the first half of "\r\n", or a line would start after it
+        int next = scanStart + lineStarts[++nextScanned];
+        int end = next - 1;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        line.set(buffer, start, end - start);
+        buffer.position(next);
+        bytesRead += next - start;
+        return true;
+    }
+
+    /**
+     * Drops the '\n' of a "\r\n" pair whose '\r' ended the previous line.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the next unread byte does not belong to the previous terminator
+     */
+    private void skipLineFeed() {
+        if (afterCarriageReturn && (buffer.hasRemaining() || refill())) {
+            if (buffer.get(buffer.position()) == '\n') {
+                buffer.position(buffer.position() + 1);
+                bytesRead++;
+            }
+            afterCarriageReturn = false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/************************************************************************************
+ *
+ * Class name:    ByteSlice
+ * Package:       edu.miracosta.cs220
+ * Description:   A reusable (buffer, start, end) view over ASCII bytes that reads as
+ *                a CharSequence. The Parser hands these out instead of substrings,
+ *                so parsing a line does not allocate; a view is only valid until
+ *                the buffer it points into is reused.
+ *
+ * History:       added for the allocation-free Parser
+ *
+ * Methods:       Public:   ByteSlice(), getBytes(), getStart(), getEnd(), length(),
+ *                          charAt(int), subSequence(int, int), contentEquals(CharSequence),
+ *                          toString()
+ *
+ *                Package:  set(byte[], int, int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.charset.StandardCharsets;
+
+public class ByteSlice implements CharSequence {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private byte[] bytes;
+    private int start;
+    private int end;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty view.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the view has length 0
+     */
+    public ByteSlice() {
+        bytes = new byte[0];
+        start = 0;
+        end = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the buffer the view points into
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return      -   the index of the view's first byte in getBytes()
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return      -   the index just past the view's last byte in getBytes()
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new String(bytes, start + from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Compares the view's characters with text, without allocating.
+     *
+     * @param   text    -   the characters to compare with
+     * @return          -   true if both hold the same characters, false otherwise
+     */
+    public boolean contentEquals(CharSequence text) {
+        if (text.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != (char) (bytes[start + i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Points the view at bytes[start..end).
+     *
+     * PRECONDITION:    0 <= start <= end <= bytes.length
+     * POSTCONDITION:   the view reads the given range
+     *
+     * @param   bytes   -   the buffer to view
+     * @param   start   -   the first index of the view
+     * @param   end     -   the index just past the view
+     */
+    void set(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+}
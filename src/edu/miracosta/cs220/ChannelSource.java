@@ -0,0 +1,115 @@
+/************************************************************************************
+ *
+ * Class name:    ChannelSource
+ * Package:       edu.miracosta.cs220
+ * Description:   An InputSource that reads a ReadableByteChannel (a pipe, a socket,
+ *                standard input) through one large reusable buffer.
+ *
+ * History:       added to replace the Scanner inside Parser
+ *
+ * Methods:       Public:   ChannelSource(ReadableByteChannel),
+ *                          ChannelSource(ReadableByteChannel, int), close()
+ *
+ *                Protected: refill()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class ChannelSource extends ByteBufferSource {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private ReadableByteChannel channel;
+    private boolean endOfInput;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Reads channel through a DEFAULT_BUFFER_SIZE buffer.
+     *
+     * PRECONDITION:    channel is open for reading
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   channel -   the channel to read .asm text from
+     */
+    public ChannelSource(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Reads channel through a buffer of the given size. The buffer grows if a
+     * single line does not fit in it.
+     *
+     * PRECONDITION:    channel is open for reading, bufferSize > 0
+     * POSTCONDITION:   the source is ready to be read
+     *
+     * @param   channel     -   the channel to read .asm text from
+     * @param   bufferSize  -   the initial buffer size in bytes
+     */
+    public ChannelSource(ReadableByteChannel channel, int bufferSize) {
+        super(ByteBuffer.allocate(bufferSize).limit(0));
+        this.channel = channel;
+        endOfInput = false;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void close() {
+        endOfInput = true;
+        buffer.position(buffer.limit());
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    @Override
+    protected boolean refill() {
+        if (endOfInput) {
+            return false;
+        }
+        if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+            //  One line fills the whole buffer -> make room for more of it
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        try {
+            int count;
+            do {
+                count = channel.read(buffer);
+            } while (count == 0);
+            if (count < 0) {
+                endOfInput = true;
+            }
+            return count > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.flip();
+        }
+    }
+}
@@ -2,96 +2,45 @@
  *
  * Class name:    Code
  * Package:       edu.miracosta.cs220
- * Description:   Uses HashMaps to store the comp, dest, and jump component
- *                possibilities and their binary equivalents to be used as
- *                lookup references.
+ * Description:   Translates the comp, dest, and jump mnemonics of a C-Instruction
+ *                into their binary codes. The codes are returned as int bit fields
+ *                (decoded with switches on length & characters, no hashing), and
+ *                as strings of bits for the original String-based API.
  *
  * History:       Mar. 4, J, author, taken from Lab #6 UML & Method Layout
  *
  * Methods:       Public:   Code(), getComp(String), getDest(String), getJump(String)
- *                          decimalToBinary(int)
+ *                          decimalToBinary(int), aInstruction(int), compBits(CharSequence),
+ *                          destBits(CharSequence), jumpBits(CharSequence),
+ *                          cInstruction(int, int, int)
+ *
+ *                Private:  toBinary(int, int), compOf(char), dOperation(...)
  *
  ************************************************************************************/
 package edu.miracosta.cs220;
 
-import java.util.HashMap;
-
 public class Code {
 
-    /**********************
-     * Instance Variables *
-     **********************/
-    private HashMap<String, String> compCodes;
-    private HashMap<String, String> destCodes;
-    private HashMap<String, String> jumpCodes;
+    /*************
+     * Constants *
+     *************/
+    public static final int INVALID = -1;
+    public static final int C_PREFIX = 0b111 << 13;
+
+    //  The 'a' bit of a comp field: use M instead of A
+    private static final int M_BIT = 0b1000000;
 
     /****************
      * Constructors *
      ****************/
 
     /**
-     * Initializes hashmaps with binary codes for easy lookup
+     * Creates a translator. The codes are fixed, so there is nothing to build.
      *
      * PRECONDITION:    N/A
-     * POSTCONDITION:   all hashmaps have lookups for valid codes
+     * POSTCONDITION:   N/A
      */
     Code() {
-        compCodes = new HashMap<>();
-        destCodes = new HashMap<>();
-        jumpCodes = new HashMap<>();
-        //  Build compCodes table
-        compCodes.put("0",   "0101010");
-        compCodes.put("1",   "0111111");
-        compCodes.put("-1",  "0111010");
-        compCodes.put("D",   "0001100");
-        compCodes.put("A",   "0110000");
-        compCodes.put("!D",  "0001101");
-        compCodes.put("!A",  "0110001");
-        compCodes.put("-D",  "0001111");
-        compCodes.put("-A",  "0110011");
-        compCodes.put("D+1", "0011111");
-        compCodes.put("A+1", "0110111");
-        compCodes.put("D-1", "0001110");
-        compCodes.put("A-1", "0110010");
-        compCodes.put("D+A", "0000010");
-        compCodes.put("A+D", "0000010");
-        compCodes.put("D-A", "0010011");
-        compCodes.put("A-D", "0000111");
-        compCodes.put("D&A", "0000000");
-        compCodes.put("A&D", "0000000");
-        compCodes.put("D|A", "0010101");
-        compCodes.put("A|D", "0010101");
-        compCodes.put("M",   "1110000");
-        compCodes.put("!M",  "1110001");
-        compCodes.put("-M",  "1110011");
-        compCodes.put("M+1", "1110111");
-        compCodes.put("M-1", "1110010");
-        compCodes.put("D+M", "1000010");
-        compCodes.put("M+D", "1000010");
-        compCodes.put("D-M", "1010011");
-        compCodes.put("M-D", "1000111");
-        compCodes.put("D&M", "1000000");
-        compCodes.put("M&D", "1000000");
-        compCodes.put("D|M", "1010101");
-        compCodes.put("M|D", "1010101");
-        //  Build destCodes table
-        destCodes.put("null", "000");
-        destCodes.put("M",    "001");
-        destCodes.put("D",    "010");
-        destCodes.put("MD",   "011");
-        destCodes.put("A",    "100");
-        destCodes.put("AM",   "101");
-        destCodes.put("AD",   "110");
-        destCodes.put("AMD",  "111");
-        //  Build jumpCodes table
-        jumpCodes.put("null", "000");
-        jumpCodes.put("JGT",  "001");
-        jumpCodes.put("JEQ",  "010");
-        jumpCodes.put("JGE",  "011");
-        jumpCodes.put("JLT",  "100");
-        jumpCodes.put("JNE",  "101");
-        jumpCodes.put("JLE",  "110");
-        jumpCodes.put("JMP",  "111");
     }
 
     /******************
@@ -108,7 +57,7 @@ public class Code {
      * @return              -   mnemonic as a string of (7) bits, or null
      */
     public String getComp(String mnemonic) {
-        return compCodes.get(mnemonic);
+        return toBinary(compBits(mnemonic), 7);
     }
 
     /**
@@ -121,7 +70,7 @@ public class Code {
      * @return              -   mnemonic as a string of (3) bits, or null
      */
     public String getDest(String mnemonic) {
-        return destCodes.get(mnemonic);
+        return toBinary(destBits(mnemonic), 3);
     }
 
     /**
@@ -134,7 +83,170 @@ public class Code {
      * @return              -   mnemonic as a string of (3) bits, or null
      */
     public String getJump(String mnemonic) {
-        return jumpCodes.get(mnemonic);
+        return toBinary(jumpBits(mnemonic), 3);
+    }
+
+    /**
+     * Converts a given comp mnemonic to its (7) bit code, a-bit first.
+     *
+     * PRECONDITION:    mnemonic comes from the comp of a C-Instruction
+     * POSTCONDITION:   N/A
+     *
+     * @param   mnemonic    -   the comp portion of a C-Instruction
+     * @return              -   the comp bits, or INVALID
+     */
+    public static int compBits(CharSequence mnemonic) {
+        switch (mnemonic.length()) {
+            case 1:
+                switch (mnemonic.charAt(0)) {
+                    case '0': return 0b0101010;
+                    case '1': return 0b0111111;
+                    default:  return compOf(mnemonic.charAt(0));
+                }
+            case 2: {
+                int operand = compOf(mnemonic.charAt(1));
+                switch (mnemonic.charAt(0)) {
+                    case '-':
+                        //  -D = D | 0b11, -A/-M = A/M | 0b11
+                        if (mnemonic.charAt(1) == '1') {
+                            return 0b0111010;
+                        }
+                        return operand == INVALID ? INVALID : operand | 0b0000011;
+                    case '!':
+                        return operand == INVALID ? INVALID : operand | 0b0000001;
+                    default:
+                        return INVALID;
+                }
+            }
+            case 3: {
+                char left = mnemonic.charAt(0);
+                char operation = mnemonic.charAt(1);
+                char right = mnemonic.charAt(2);
+                if (right == '1') {
+                    //  D+1, D-1, A+1, A-1, M+1, M-1
+                    int operand = compOf(left);
+                    if (operand == INVALID) {
+                        return INVALID;
+                    }
+                    if (operation == '+') {
+                        return operand | 0b0000111 | (left == 'D' ? 0b0010000 : 0b0000000);
+                    } else if (operation == '-') {
+                        return operand | 0b0000010;
+                    }
+                    return INVALID;
+                }
+                if (left == 'D' && (right == 'A' || right == 'M')) {
+                    return dOperation(operation, true, right == 'M');
+                } else if (right == 'D' && (left == 'A' || left == 'M')) {
+                    return dOperation(operation, false, left == 'M');
+                }
+                return INVALID;
+            }
+            default:
+                return INVALID;
+        }
+    }
+
+    /**
+     * Converts a given dest mnemonic to its (3) bit code.
+     *
+     * PRECONDITION:    mnemonic comes from the dest of a C-Instruction
+     * POSTCONDITION:   N/A
+     *
+     * @param   mnemonic    -   the dest portion of a C-Instruction ("null" if there is none)
+     * @return              -   the dest bits, or INVALID
+     */
+    public static int destBits(CharSequence mnemonic) {
+        switch (mnemonic.length()) {
+            case 1:
+                switch (mnemonic.charAt(0)) {
+                    case 'M': return 0b001;
+                    case 'D': return 0b010;
+                    case 'A': return 0b100;
+                    default:  return INVALID;
+                }
+            case 2:
+                if (mnemonic.charAt(0) == 'M' && mnemonic.charAt(1) == 'D') {
+                    return 0b011;
+                } else if (mnemonic.charAt(0) == 'A') {
+                    switch (mnemonic.charAt(1)) {
+                        case 'M': return 0b101;
+                        case 'D': return 0b110;
+                        default:  return INVALID;
+                    }
+                }
+                return INVALID;
+            case 3:
+                return mnemonic.charAt(0) == 'A' && mnemonic.charAt(1) == 'M'
+                        && mnemonic.charAt(2) == 'D' ? 0b111 : INVALID;
+            case 4:
+                return isNull(mnemonic) ? 0b000 : INVALID;
+            default:
+                return INVALID;
+        }
+    }
+
+    /**
+     * Converts a given jump mnemonic to its (3) bit code.
+     *
+     * PRECONDITION:    mnemonic comes from the jump of a C-Instruction
+     * POSTCONDITION:   N/A
+     *
+     * @param   mnemonic    -   the jump portion of a C-Instruction ("null" if there is none)
+     * @return              -   the jump bits, or INVALID
+     */
+    public static int jumpBits(CharSequence mnemonic) {
+        if (mnemonic.length() == 4) {
+            return isNull(mnemonic) ? 0b000 : INVALID;
+        }
+        if (mnemonic.length() != 3 || mnemonic.charAt(0) != 'J') {
+            return INVALID;
+        }
+        char first = mnemonic.charAt(1);
+        char second = mnemonic.charAt(2);
+        switch (first) {
+            case 'G':
+                return second == 'T' ? 0b001 : second == 'E' ? 0b011 : INVALID;
+            case 'E':
+                return second == 'Q' ? 0b010 : INVALID;
+            case 'L':
+                return second == 'T' ? 0b100 : second == 'E' ? 0b110 : INVALID;
+            case 'N':
+                return second == 'E' ? 0b101 : INVALID;
+            case 'M':
+                return second == 'P' ? 0b111 : INVALID;
+            default:
+                return INVALID;
+        }
+    }
+
+    /**
+     * Assembles a whole C-Instruction word from its fields.
+     *
+     * PRECONDITION:    none of the fields is INVALID
+     * POSTCONDITION:   N/A
+     *
+     * @param   comp    -   the (7) comp bits
+     * @param   dest    -   the (3) dest bits
+     * @param   jump    -   the (3) jump bits
+     * @return          -   the 16-bit instruction
+     */
+    public static int cInstruction(int comp, int dest, int jump) {
+        return C_PREFIX | comp << 6 | dest << 3 | jump;
+    }
+
+    /**
+     * Builds an A-Instruction word. Only the low 15 bits of the value fit; the
+     * MSB of an A-Instruction is always 0.
+     *
+     * PRECONDITION:    value is a non-negative integer (normally less than 2^15)
+     * POSTCONDITION:   N/A
+     *
+     * @param   value   -   the constant or address loaded into A
+     * @return          -   the 16-bit instruction
+     */
+    public static int aInstruction(int value) {
+        return value & 0x7FFF;
     }
 
     /**
@@ -148,13 +260,72 @@ public class Code {
      * @return  result  -   a 16-bit binary number with the MSB on the left
      */
     public String decimalToBinary(int decimal) {
-        int remainder;
-        String result = "";
-        for (int i = 0; i < 15; i++) {
-            remainder = decimal % 2;
-            decimal /= 2;
-            result = remainder + result;
+        return HackWriter.toBinary(aInstruction(decimal));
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Returns the comp code of a lone register: D, A or M.
+     *
+     * @param   register    -   the register name
+     * @return              -   the comp bits of the register, or INVALID
+     */
+    private static int compOf(char register) {
+        switch (register) {
+            case 'D': return 0b0001100;
+            case 'A': return 0b0110000;
+            case 'M': return 0b0110000 | M_BIT;
+            default:  return INVALID;
+        }
+    }
+
+    /**
+     * Returns the comp code of an operation between D and A (or M).
+     *
+     * @param   operation   -   one of + - &amp; |
+     * @param   dFirst      -   true if D is the left operand
+     * @param   useM        -   true if the other operand is M rather than A
+     * @return              -   the comp bits, or INVALID
+     */
+    private static int dOperation(char operation, boolean dFirst, boolean useM) {
+        int bits;
+        switch (operation) {
+            case '+': bits = 0b0000010; break;
+            case '&': bits = 0b0000000; break;
+            case '|': bits = 0b0010101; break;
+            case '-': bits = dFirst ? 0b0010011 : 0b0000111; break;
+            default:  return INVALID;
+        }
+        return useM ? bits | M_BIT : bits;
+    }
+
+    /**
+     * Checks for the "null" mnemonic used for a missing dest or jump.
+     */
+    private static boolean isNull(CharSequence mnemonic) {
+        return mnemonic.charAt(0) == 'n' && mnemonic.charAt(1) == 'u'
+                && mnemonic.charAt(2) == 'l' && mnemonic.charAt(3) == 'l';
+    }
+
+    /**
+     * Writes a bit field as a string of bits, MSB on the left.
+     *
+     * @param   bits    -   the field, or INVALID
+     * @param   width   -   the number of bits in the field
+     * @return          -   the field as a string of bits, or null if it is INVALID
+     */
+    private static String toBinary(int bits, int width) {
+        if (bits == INVALID) {
+            return null;
+        }
+        char[] digits = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + (bits & 1));
+            bits >>>= 1;
         }
-        return 0 + result;
+        return new String(digits);
     }
 }
@@ -0,0 +1,215 @@
+/************************************************************************************
+ *
+ * Class name:    ConcurrentSymbolTable
+ * Package:       edu.miracosta.cs220
+ * Description:   A SymbolTable that several threads can define and look up symbols
+ *                in at the same time, e.g. parser threads publishing the labels of
+ *                one program. The overlay is split into lock stripes chosen by the
+ *                symbol's hash, so threads working on different symbols rarely wait
+ *                on each other; the shared predefined symbols are read without
+ *                locking.
+ *
+ * History:       added for assembling with several threads
+ *
+ * Methods:       Public:   ConcurrentSymbolTable(), addEntry(String, int),
+ *                          contains(String), getAddress(String), getAddress(CharSequence),
+ *                          getAddress(byte[], int, int), getOrAssign(CharSequence, int),
+ *                          size(), capacity()
+ *
+ *                Private:  stripe(int)
+ *
+ * Notes:         getOrAssign() is atomic: when several threads assign the same new
+ *                symbol, exactly one address wins and every caller gets it back.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+public class ConcurrentSymbolTable extends SymbolTable {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int STRIPE_COUNT = 16;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+
+    //  Each stripe is only read or written while holding its own monitor
+    private final SymbolMap[] stripes;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Initializes an empty, thread-safe overlay on top of the shared predefined symbols.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the table has lookups for all valid predefined symbols
+     */
+    public ConcurrentSymbolTable() {
+        //  The stripes hold every symbol, so the base class gets no overlay of its own
+        super((SymbolMap) null);
+        stripes = new SymbolMap[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new SymbolMap();
+        }
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Adds a new pair [symbol, address] to the table.
+     *
+     * PRECONDITION:    symbol/address pair is not in the table (check w/ contains first)
+     * POSTCONDITION:   returns true if symbol is a valid identifier and was added to the table (false otherwise)
+     *
+     * @param   symbol  -   an identifier/symbol from an A or L instruction
+     * @param   address -   the ROM or RAM address of the symbol
+     * @return          -   true if symbol is valid & is added to the table, false otherwise
+     */
+    @Override
+    public boolean addEntry(String symbol, int address) {
+        if (!isValidName(symbol)) {
+            return false;
+        }
+        SymbolMap stripe = stripe(SymbolMap.hash(symbol));
+        synchronized (stripe) {
+            stripe.put(symbol, address);
+        }
+        return true;
+    }
+
+    /**
+     * Returns boolean of whether the table has symbol as a key or not.
+     *
+     * @param   symbol  -   an identifier/symbol from an A or L instruction
+     * @return          -   true if the table contains the symbol, false otherwise
+     */
+    @Override
+    public boolean contains(String symbol) {
+        return getAddress((CharSequence) symbol) != INVALID;
+    }
+
+    /**
+     * Returns the address of the given symbol.
+     *
+     * @param   symbol  -   an identifier/symbol from an A or L instruction
+     * @return          -   the symbol's address, or INVALID if it is not in the table
+     */
+    @Override
+    public int getAddress(String symbol) {
+        return getAddress((CharSequence) symbol);
+    }
+
+    /**
+     * Returns the address of the given symbol, without needing it as a String.
+     *
+     * @param   symbol  -   an identifier/symbol from an A or L instruction
+     * @return          -   the symbol's address, or INVALID if it is not in the table
+     */
+    @Override
+    public int getAddress(CharSequence symbol) {
+        SymbolMap stripe = stripe(SymbolMap.hash(symbol));
+        int address;
+        synchronized (stripe) {
+            address = stripe.get(symbol);
+        }
+        return address != SymbolMap.NOT_FOUND ? address : getPredefined(symbol);
+    }
+
+    /**
+     * Returns the address of the symbol held in bytes[offset..offset+length).
+     *
+     * @param   bytes   -   a buffer holding the symbol
+     * @param   offset  -   the index of the symbol's first byte
+     * @param   length  -   the number of bytes in the symbol
+     * @return          -   the symbol's address, or INVALID if it is not in the table
+     */
+    @Override
+    public int getAddress(byte[] bytes, int offset, int length) {
+        SymbolMap stripe = stripe(SymbolMap.hash(bytes, offset, length));
+        int address;
+        synchronized (stripe) {
+            address = stripe.get(bytes, offset, length);
+        }
+        return address != SymbolMap.NOT_FOUND ? address : getPredefined(bytes, offset, length);
+    }
+
+    /**
+     * Returns the address of symbol, first adding it with nextRamAddress if it
+     * is not in the table yet. The check and the insert happen under one lock,
+     * so concurrent callers all see the address that was stored first.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   symbol is in the table, unless it is not a valid name
+     *
+     * @param   symbol          -   an identifier/symbol from an A or L instruction
+     * @param   nextRamAddress  -   the address to give symbol if it is new
+     * @return                  -   the symbol's address, or INVALID if it is new & not a valid name
+     */
+    @Override
+    public int getOrAssign(CharSequence symbol, int nextRamAddress) {
+        SymbolMap stripe = stripe(SymbolMap.hash(symbol));
+        synchronized (stripe) {
+            int address = stripe.get(symbol);
+            if (address == SymbolMap.NOT_FOUND) {
+                address = getPredefined(symbol);
+            }
+            if (address != INVALID) {
+                return address;
+            }
+            if (!isValidName(symbol)) {
+                return INVALID;
+            }
+            stripe.put(symbol, nextRamAddress);
+            return nextRamAddress;
+        }
+    }
+
+    /**
+     * Returns the number of symbols in the table, predefined ones included.
+     *
+     * @return      -   the number of symbols
+     */
+    @Override
+    public int size() {
+        int size = getPredefinedCount();
+        for (SymbolMap stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of hash slots over all stripes.
+     *
+     * @return      -   the table's capacity
+     */
+    @Override
+    public int capacity() {
+        int capacity = 0;
+        for (SymbolMap stripe : stripes) {
+            synchronized (stripe) {
+                capacity += stripe.capacity();
+            }
+        }
+        return capacity;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Picks the stripe for a hash; uses the high bits, as the low bits pick the slot.
+     */
+    private SymbolMap stripe(int hash) {
+        return stripes[(hash >>> 24) & (STRIPE_COUNT - 1)];
+    }
+}
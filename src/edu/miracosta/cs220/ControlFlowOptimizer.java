@@ -0,0 +1,324 @@
+/************************************************************************************
+ *
+ * Class name:    ControlFlowOptimizer
+ * Package:       edu.miracosta.cs220
+ * Description:   Splits the program into basic blocks (a block starts at a label or
+ *                after a jump, and ends with a jump or where the next one starts),
+ *                links them by their @LABEL + ;Jxx pairs and fall-throughs, and
+ *                then:
+ *                  jump-threading      points a jump whose target is only another
+ *                                      jump (@NEXT, 0;JMP) straight at the final
+ *                                      target, which can leave the in-between
+ *                                      jumps unreachable
+ *                  unreachable-code    drops the instructions of every block that
+ *                                      can't be reached from the start of the program
+ *
+ * History:       added for control-flow optimization
+ *
+ * Methods:       Public:   ControlFlowOptimizer(boolean), optimize(ParsedProgram, Map)
+ *
+ *                Private:  hasErrors(ParsedProgram), threadable(ParsedProgram, int),
+ *                          finalTarget(ParsedProgram, int[], int),
+ *                          unreachable(ParsedProgram, int[], int[], boolean)
+ *
+ * Notes:         A computed jump (one whose A was loaded from memory, e.g. a VM
+ *                "return") can go anywhere. By default its targets are taken to be
+ *                the labels whose address the program loads as data (@RET, D=A);
+ *                in conservative mode a program with any computed jump is left as it
+ *                is. Instructions that only became unreachable because of threading
+ *                are counted as jump-threading. Labels themselves are kept, since
+ *                they take no ROM, and so is the first @X of each variable, so every
+ *                variable keeps its RAM address. Programs with errors, and programs
+ *                that jump to numeric ROM addresses, are left as they are.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+public class ControlFlowOptimizer implements Optimizer {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String JUMP_THREADING = "jump-threading";
+    public static final String UNREACHABLE_CODE = "unreachable-code";
+
+    private static final int UNCONDITIONAL = Code.jumpBits("JMP");
+    private static final int DEST_A = Code.destBits("A") << ParsedProgram.DEST_SHIFT;
+    private static final int DEST_M = Code.destBits("M") << ParsedProgram.DEST_SHIFT;
+
+    //  The ALU's zy bit: the comp replaces its A/M input by 0, so A doesn't matter
+    private static final int IGNORES_A = 0b0001000 << ParsedProgram.COMP_SHIFT;
+
+    //  What loaded the A of a jump
+    private static final int NOT_A_JUMP = -1;
+    private static final int COMPUTED = -2;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final boolean conservative;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an optimizer that threads jumps and removes unreachable code.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @param   conservative    -   true to leave programs with computed jumps alone
+     */
+    public ControlFlowOptimizer(boolean conservative) {
+        this.conservative = conservative;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Threads jumps through jumps, then removes the blocks that can no longer
+     * be reached.
+     *
+     * PRECONDITION:    program was filled by the Parser
+     * POSTCONDITION:   program behaves as before when assembled; removed holds the
+     *                  number of instructions each rule removed
+     *
+     * @param   program -   the program to rewrite
+     * @param   removed -   instructions removed, by rule name
+     */
+    @Override
+    public void optimize(ParsedProgram program, Map<String, Integer> removed) {
+        int threaded = 0, unreachable = 0;
+        boolean[] labels = PeepholeOptimizer.labelSymbols(program);
+        if (!hasErrors(program) && !PeepholeOptimizer.jumpsToNumber(program, labels)) {
+            //  Where each label is declared (the first declaration counts)
+            int[] labelIndices = new int[program.getSymbolCount()];
+            Arrays.fill(labelIndices, -1);
+            //  The @LABEL each jump goes to, or COMPUTED
+            int[] loaders = new int[program.size()];
+            Arrays.fill(loaders, NOT_A_JUMP);
+            boolean computed = false;
+            int loaded = -1;
+            for (int i = 0; i < program.size(); i++) {
+                int operand = program.getOperand(i);
+                switch (program.getKind(i)) {
+                    case ParsedProgram.L_INSTRUCTION:
+                        if (labels[operand] && labelIndices[operand] == -1) {
+                            labelIndices[operand] = i;
+                        }
+                        //  Jumps may arrive here with any A
+                        loaded = -1;
+                        break;
+                    case ParsedProgram.A_SYMBOL:
+                        loaded = i;
+                        break;
+                    case ParsedProgram.A_NUMBER:
+                        loaded = -1;
+                        break;
+                    default:
+                        if ((operand & ParsedProgram.JUMP_MASK) != 0) {
+                            loaders[i] = loaded == -1 ? COMPUTED : loaded;
+                            computed |= loaded == -1;
+                        }
+                        if ((operand & DEST_A) != 0) {
+                            loaded = -1;
+                        }
+                        break;
+                }
+            }
+
+            if (!computed || !conservative) {
+                boolean[] removable = PeepholeOptimizer.removable(program, labels);
+                boolean[] deadBefore = unreachable(program, labelIndices, loaders, computed);
+                //  Follow every chain as written before changing any, so the order doesn't matter
+                int[] targets = new int[program.size()];
+                for (int i = 0; i < program.size(); i++) {
+                    if (loaders[i] >= 0 && threadable(program, i)) {
+                        targets[i] = finalTarget(program, labelIndices, program.getOperand(loaders[i]));
+                    }
+                }
+                for (int i = 0; i < program.size(); i++) {
+                    if (loaders[i] >= 0 && threadable(program, i)) {
+                        program.setOperand(loaders[i], targets[i]);
+                    }
+                }
+                boolean[] dead = unreachable(program, labelIndices, loaders, computed);
+                for (int i = 0; i < program.size(); i++) {
+                    dead[i] &= removable[i];
+                    if (dead[i] && deadBefore[i]) {
+                        unreachable++;
+                    } else if (dead[i]) {
+                        threaded++;
+                    }
+                }
+                program.compact(dead);
+            }
+        }
+        removed.merge(JUMP_THREADING, threaded, Integer::sum);
+        removed.merge(UNREACHABLE_CODE, unreachable, Integer::sum);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Checks whether the program has an instruction that will be reported as
+     * an error. Such a program isn't worth optimizing, and its blocks may not be
+     * what they seem.
+     */
+    private static boolean hasErrors(ParsedProgram program) {
+        for (int i = 0; i < program.size(); i++) {
+            int operand = program.getOperand(i);
+            switch (program.getKind(i)) {
+                case ParsedProgram.A_NUMBER:
+                    if (operand < 0) {
+                        return true;
+                    }
+                    break;
+                case ParsedProgram.A_SYMBOL:
+                case ParsedProgram.L_INSTRUCTION:
+                    if (!SymbolTable.isValidName(program.getSymbol(operand))) {
+                        return true;
+                    }
+                    break;
+                case ParsedProgram.C_INSTRUCTION:
+                    if ((operand & (ParsedProgram.INVALID_COMP | ParsedProgram.INVALID_DEST
+                                    | ParsedProgram.INVALID_JUMP)) != 0) {
+                        return true;
+                    }
+                    break;
+                default:
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the jump at index can have its @LABEL (just before it)
+     * changed: the jump mustn't depend on or write through A, and if it may
+     * fall through, the next instruction must load A again.
+     */
+    private static boolean threadable(ParsedProgram program, int index) {
+        int operand = program.getOperand(index);
+        if (program.getKind(index - 1) != ParsedProgram.A_SYMBOL || (operand & IGNORES_A) == 0
+                || (operand & (DEST_A | DEST_M)) != 0) {
+            return false;
+        }
+        if ((operand & ParsedProgram.JUMP_MASK) == UNCONDITIONAL) {
+            return true;
+        }
+        for (int i = index + 1; i < program.size(); i++) {
+            if (program.getKind(i) != ParsedProgram.L_INSTRUCTION) {
+                return program.getKind(i) == ParsedProgram.A_NUMBER || program.getKind(i) == ParsedProgram.A_SYMBOL;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Follows the label symbol through blocks that only jump on (@NEXT, 0;JMP)
+     * and returns the label at the end of the chain. If the chain runs into a
+     * loop of such jumps (e.g. the halt loop "(END) @END 0;JMP"), the last label
+     * before it comes back round is returned, as any label in the loop will do.
+     */
+    private static int finalTarget(ParsedProgram program, int[] labelIndices, int symbol) {
+        boolean[] visited = new boolean[labelIndices.length];
+        int target = symbol;
+        visited[target] = true;
+        while (true) {
+            int i = labelIndices[target];
+            while (i < program.size() && program.getKind(i) == ParsedProgram.L_INSTRUCTION) {
+                i++;
+            }
+            if (i + 1 >= program.size() || program.getKind(i) != ParsedProgram.A_SYMBOL
+                    || labelIndices[program.getOperand(i)] == -1
+                    || program.getKind(i + 1) != ParsedProgram.C_INSTRUCTION
+                    || (program.getOperand(i + 1) & (ParsedProgram.DEST_MASK | ParsedProgram.JUMP_MASK))
+                       != UNCONDITIONAL
+                    || visited[program.getOperand(i)]) {
+                return target;
+            }
+            target = program.getOperand(i);
+            visited[target] = true;
+        }
+    }
+
+    /**
+     * Marks the instructions of every basic block that can't be reached from
+     * the first instruction (or, with computed jumps, from any label whose
+     * address is loaded as data).
+     */
+    private static boolean[] unreachable(ParsedProgram program, int[] labelIndices, int[] loaders,
+                                         boolean computed) {
+        int size = program.size();
+        int[] blocks = new int[size];
+        int[] blockStarts = new int[size + 1];
+        int blockCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || program.getKind(i) == ParsedProgram.L_INSTRUCTION || loaders[i - 1] != NOT_A_JUMP) {
+                blockStarts[blockCount++] = i;
+            }
+            blocks[i] = blockCount - 1;
+        }
+        blockStarts[blockCount] = size;
+
+        boolean[] reached = new boolean[blockCount];
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        if (size > 0) {
+            reached[0] = true;
+            work.add(0);
+        }
+        if (computed) {
+            boolean[] jumpLoaders = new boolean[size];
+            for (int loader : loaders) {
+                if (loader >= 0) {
+                    jumpLoaders[loader] = true;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                if (program.getKind(i) == ParsedProgram.A_SYMBOL && !jumpLoaders[i]
+                        && labelIndices[program.getOperand(i)] != -1) {
+                    int block = blocks[labelIndices[program.getOperand(i)]];
+                    if (!reached[block]) {
+                        reached[block] = true;
+                        work.add(block);
+                    }
+                }
+            }
+        }
+        while (!work.isEmpty()) {
+            int block = work.remove();
+            int last = blockStarts[block + 1] - 1;
+            int next = block + 1 < blockCount ? block + 1 : -1;
+            int target = -1;
+            if (loaders[last] >= 0) {
+                target = blocks[labelIndices[program.getOperand(loaders[last])]];
+            }
+            if (loaders[last] != NOT_A_JUMP
+                    && (program.getOperand(last) & ParsedProgram.JUMP_MASK) == UNCONDITIONAL) {
+                next = -1;
+            }
+            for (int successor : new int[] {next, target}) {
+                if (successor != -1 && !reached[successor]) {
+                    reached[successor] = true;
+                    work.add(successor);
+                }
+            }
+        }
+
+        boolean[] dead = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            dead[i] = !reached[blocks[i]] && program.getKind(i) != ParsedProgram.L_INSTRUCTION;
+        }
+        return dead;
+    }
+}
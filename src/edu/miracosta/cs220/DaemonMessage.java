@@ -0,0 +1,221 @@
+/************************************************************************************
+ *
+ * Class name:    DaemonMessage
+ * Package:       edu.miracosta.cs220
+ * Description:   A request to, or a response from, the assembler daemon. On the
+ *                wire a message is a block of "key=value" header lines ended by an
+ *                empty line, followed by exactly "body-length" bytes of body (inline
+ *                .asm source in a request, assembled output in a response).
+ *
+ * History:       added for the assembler daemon
+ *
+ * Methods:       Public:   DaemonMessage(), get(String), get(String, String), set(String, Object),
+ *                          getBody(), setBody(byte[]), read(InputStream), write(OutputStream)
+ *
+ *                Private:  readLine(InputStream)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DaemonMessage {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  Header keys
+    public static final String COMMAND = "command";
+    public static final String INPUT = "input";
+    public static final String FORMATS = "formats";
+    public static final String SINGLE_PASS = "single-pass";
+    public static final String STATUS = "status";
+    public static final String LINE = "line";
+    public static final String MESSAGE = "message";
+    public static final String HINT = "hint";
+    public static final String WORDS = "words";
+    public static final String BYTES = "bytes";
+    public static final String LINES = "lines";
+    public static final String SYMBOLS = "symbols";
+    public static final String ELAPSED_NANOS = "elapsed-nanos";
+    private static final String BODY_LENGTH = "body-length";
+
+    //  Commands & statuses
+    public static final String ASSEMBLE = "assemble";
+    public static final String SHUTDOWN = "shutdown";
+    public static final String OK = "ok";
+    public static final String FAILED = "failed";
+    public static final String ERROR = "error";
+
+    private static final int MAX_LINE_LENGTH = 1 << 16;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Map<String, String> headers;
+    private byte[] body;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty message.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the message has no headers and an empty body
+     */
+    public DaemonMessage() {
+        headers = new LinkedHashMap<>();
+        body = new byte[0];
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @param   key     -   a header key
+     * @return          -   the header's value, or null if it is not set
+     */
+    public String get(String key) {
+        return headers.get(key);
+    }
+
+    /**
+     * @param   key             -   a header key
+     * @param   defaultValue    -   the value to use if the header is not set
+     * @return                  -   the header's value, or defaultValue
+     */
+    public String get(String key, String defaultValue) {
+        return headers.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Sets a header.
+     *
+     * PRECONDITION:    neither key nor value holds a line break, key holds no '='
+     * POSTCONDITION:   get(key) returns String.valueOf(value)
+     *
+     * @param   key     -   the header key
+     * @param   value   -   the header value
+     * @return          -   this message, so calls can be chained
+     */
+    public DaemonMessage set(String key, Object value) {
+        String text = String.valueOf(value);
+        if (key.indexOf('=') != -1 || (key + text).indexOf('\n') != -1 || (key + text).indexOf('\r') != -1) {
+            throw new IllegalArgumentException("Header cannot be sent: " + key + "=" + text);
+        }
+        headers.put(key, text);
+        return this;
+    }
+
+    /**
+     * @return      -   the message body (never null)
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @param   body    -   the new message body
+     * @return          -   this message, so calls can be chained
+     */
+    public DaemonMessage setBody(byte[] body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * Reads one message.
+     *
+     * PRECONDITION:    in is positioned at the start of a message
+     * POSTCONDITION:   in is positioned just after the message
+     *
+     * @param   in  -   the stream to read from
+     * @return      -   the message read
+     * @throws IOException  if the stream ends early or the message is malformed
+     */
+    public static DaemonMessage read(InputStream in) throws IOException {
+        DaemonMessage message = new DaemonMessage();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int equals = line.indexOf('=');
+            if (equals < 1) {
+                throw new IOException("Malformed header line: " + line);
+            }
+            message.headers.put(line.substring(0, equals), line.substring(equals + 1));
+        }
+        String length = message.headers.remove(BODY_LENGTH);
+        if (length != null) {
+            int bodyLength;
+            try {
+                bodyLength = Integer.parseInt(length);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed body length: " + length);
+            }
+            if (bodyLength < 0) {
+                throw new IOException("Malformed body length: " + length);
+            }
+            message.body = in.readNBytes(bodyLength);
+            if (message.body.length != bodyLength) {
+                throw new EOFException("Message body ended early");
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Writes this message and flushes out.
+     *
+     * PRECONDITION:    out is open
+     * POSTCONDITION:   the whole message has been written
+     *
+     * @param   out -   the stream to write to
+     * @throws IOException  if the message cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            header.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        header.append(BODY_LENGTH).append('=').append(body.length).append("\n\n");
+        out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(body);
+        out.flush();
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Reads one UTF-8 header line, without its '\n'.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        byte[] line = new byte[128];
+        int length = 0;
+        int current;
+        while ((current = in.read()) != '\n') {
+            if (current == -1) {
+                throw new EOFException("Message ended early");
+            }
+            if (length == MAX_LINE_LENGTH) {
+                throw new IOException("Header line too long");
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = (byte) current;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+/************************************************************************************
+ *
+ * Class name:    Diagnostic
+ * Package:       edu.miracosta.cs220
+ * Description:   One problem found while assembling a program: the source line it
+ *                was found on, what is wrong, and (optionally) how to fix it.
+ *
+ * History:       added for the in-process assembler API
+ *
+ * Methods:       Public:   Diagnostic(int, String, String), getLineNumber(), getMessage(),
+ *                          getHint(), toString()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+public final class Diagnostic {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final int lineNumber;
+    private final String message;
+    private final String hint;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates a diagnostic.
+     *
+     * PRECONDITION:    message is not null
+     * POSTCONDITION:   N/A
+     *
+     * @param   lineNumber  -   the 1-based source line, or 0 if the problem is not on one line
+     * @param   message     -   what is wrong, e.g. "Invalid comp code"
+     * @param   hint        -   guidance on fixing it, or null
+     */
+    public Diagnostic(int lineNumber, String message, String hint) {
+        this.lineNumber = lineNumber;
+        this.message = message;
+        this.hint = hint;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the 1-based source line, or 0 if the problem is not on one line
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return      -   what is wrong, without the line number
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return      -   guidance on fixing the problem, or null
+     */
+    public String getHint() {
+        return hint;
+    }
+
+    /**
+     * Returns the diagnostic the way the command line reports it,
+     * e.g. "In line 12, Invalid comp code".
+     *
+     * @return      -   the formatted diagnostic
+     */
+    @Override
+    public String toString() {
+        return lineNumber > 0 ? "In line " + lineNumber + ", " + message : message;
+    }
+}
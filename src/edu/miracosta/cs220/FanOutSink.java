@@ -0,0 +1,130 @@
+/************************************************************************************
+ *
+ * Class name:    FanOutSink
+ * Package:       edu.miracosta.cs220
+ * Description:   Sends every word to several sinks, so one assembly pass can write
+ *                several output formats at once.
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   FanOutSink(List), write(int), patch(long, int), isPatchable(),
+ *                          hold(long), getWordCount(), getBytesWritten(), flush(), finish(), close()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FanOutSink implements OutputSink {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private OutputSink[] sinks;
+    private long wordCount;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Wraps the given sinks.
+     *
+     * PRECONDITION:    sinks is not empty and every sink is open
+     * POSTCONDITION:   writes go to every sink, in list order
+     *
+     * @param   sinks   -   the sinks to write to
+     */
+    public FanOutSink(List<? extends OutputSink> sinks) {
+        this.sinks = new ArrayList<OutputSink>(sinks).toArray(new OutputSink[0]);
+        wordCount = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void write(int word) throws IOException {
+        for (OutputSink sink : sinks) {
+            sink.write(word);
+        }
+        wordCount++;
+    }
+
+    @Override
+    public void patch(long position, int word) throws IOException {
+        for (OutputSink sink : sinks) {
+            sink.patch(position, word);
+        }
+    }
+
+    @Override
+    public boolean isPatchable() {
+        for (OutputSink sink : sinks) {
+            if (!sink.isPatchable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void hold(long position) throws IOException {
+        for (OutputSink sink : sinks) {
+            sink.hold(position);
+        }
+    }
+
+    @Override
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        long total = 0;
+        for (OutputSink sink : sinks) {
+            total += sink.getBytesWritten();
+        }
+        return total;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (OutputSink sink : sinks) {
+            sink.flush();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        for (OutputSink sink : sinks) {
+            sink.finish();
+        }
+    }
+
+    /**
+     * Closes every sink, even if closing one of them fails.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (OutputSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/************************************************************************************
+ *
+ * Class name:    FixedWidthWriter
+ * Package:       edu.miracosta.cs220
+ * Description:   The buffering shared by output formats that spend the same number
+ *                of bytes on every word. Words are encoded straight into a large
+ *                direct buffer that is written to the channel in big chunks, and
+ *                since a word's offset is position * width, any word can be patched
+ *                in place (in the buffer, or in the file through a FileChannel).
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   write(int), patch(long, int), isPatchable(), getWordCount(),
+ *                          getBytesWritten(), getWordWidth(), flush(), close()
+ *
+ *                Protected: FixedWidthWriter(WritableByteChannel, int),
+ *                          encode(ByteBuffer, int, int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+public abstract class FixedWidthWriter implements OutputSink {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private int width;
+    private long flushedWords;
+    private long wordCount;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to write words of width bytes each to channel.
+     *
+     * PRECONDITION:    channel is open for writing (and positioned at its start, if it is a file)
+     * POSTCONDITION:   the writer is ready to write
+     *
+     * @param   channel -   the channel to write to
+     * @param   width   -   the number of bytes encode() produces per word
+     */
+    protected FixedWidthWriter(WritableByteChannel channel, int width) {
+        this.channel = channel;
+        this.width = width;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE / width * width);
+        flushedWords = 0;
+        wordCount = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void write(int word) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        int index = buffer.position();
+        encode(buffer, index, word);
+        buffer.position(index + width);
+        wordCount++;
+    }
+
+    /**
+     * Overwrites a word, whether it is still buffered or already in the file.
+     * Words that have already been flushed can only be patched when the
+     * channel is a FileChannel.
+     */
+    @Override
+    public void patch(long position, int word) throws IOException {
+        if (position >= flushedWords) {
+            encode(buffer, (int) (position - flushedWords) * width, word);
+        } else if (channel instanceof FileChannel) {
+            ByteBuffer encoded = ByteBuffer.allocate(width);
+            encode(encoded, 0, word);
+            long offset = position * width;
+            while (encoded.hasRemaining()) {
+                offset += ((FileChannel) channel).write(encoded, offset);
+            }
+        } else {
+            throw new IOException("Cannot patch word " + position + ", it has already been written");
+        }
+    }
+
+    @Override
+    public boolean isPatchable() {
+        return channel instanceof FileChannel;
+    }
+
+    @Override
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return wordCount * width;
+    }
+
+    /**
+     * @return      -   the number of bytes every word takes in the output
+     */
+    public int getWordWidth() {
+        return width;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        flushedWords = wordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    /**
+     * Puts the encoding of word into target, starting at index.
+     *
+     * PRECONDITION:    target has room for width bytes at index
+     * POSTCONDITION:   exactly width bytes have been put; target's position is unchanged
+     *
+     * @param   target  -   the buffer to encode into
+     * @param   index   -   the absolute index of the first byte
+     * @param   word    -   the instruction word
+     */
+    protected abstract void encode(ByteBuffer target, int index, int word);
+}
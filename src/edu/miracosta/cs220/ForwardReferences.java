@@ -0,0 +1,151 @@
+/************************************************************************************
+ *
+ * Class name:    ForwardReferences
+ * Package:       edu.miracosta.cs220
+ * Description:   Tracks the output positions of A-Instructions whose symbol has not
+ *                been declared yet, so they can be patched once the matching label
+ *                is seen (or the symbol turns out to be a variable). Memory use
+ *                grows with the number of unresolved references only.
+ *
+ * History:       added for single-pass assembly
+ *
+ * Methods:       Public:   ForwardReferences(), add(String, long), resolve(String),
+ *                          isEmpty(), nextSymbol(), firstPosition(), size()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+public class ForwardReferences {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+
+    //  Insertion order is first-reference order, which is the order variables get RAM in
+    private LinkedHashMap<String, Positions> pending;
+    private int size;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty set of forward references.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   no symbol is pending
+     */
+    public ForwardReferences() {
+        pending = new LinkedHashMap<>();
+        size = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Records that the word at position refers to a symbol that is not yet known.
+     *
+     * PRECONDITION:    symbol is not in the symbol table yet
+     * POSTCONDITION:   position will be returned by resolve(symbol)
+     *
+     * @param   symbol      -   the unresolved symbol of an A-Instruction
+     * @param   position    -   the output word index of the A-Instruction
+     */
+    public void add(String symbol, long position) {
+        Positions positions = pending.get(symbol);
+        if (positions == null) {
+            positions = new Positions();
+            pending.put(symbol, positions);
+        }
+        positions.add(position);
+        size++;
+    }
+
+    /**
+     * Removes symbol and returns every position waiting on it.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   symbol is no longer pending
+     *
+     * @param   symbol  -   a symbol that now has an address
+     * @return          -   the word positions to patch, or an empty array if none
+     */
+    public long[] resolve(String symbol) {
+        Positions positions = pending.remove(symbol);
+        if (positions == null) {
+            return new long[0];
+        }
+        size -= positions.count;
+        return Arrays.copyOf(positions.values, positions.count);
+    }
+
+    /**
+     * Returns the pending symbol that was referenced first.
+     *
+     * PRECONDITION:    isEmpty() is false
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the earliest referenced pending symbol
+     */
+    public String nextSymbol() {
+        Iterator<String> symbols = pending.keySet().iterator();
+        return symbols.next();
+    }
+
+    /**
+     * Returns the lowest position still waiting to be patched. Symbols are kept
+     * in first-reference order, so it is the first position of the first symbol.
+     *
+     * PRECONDITION:    isEmpty() is false
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the earliest word position that may still change
+     */
+    public long firstPosition() {
+        Iterator<Positions> positions = pending.values().iterator();
+        return positions.next().values[0];
+    }
+
+    /**
+     * Returns whether any symbol is still waiting for an address.
+     *
+     * @return      -   true if no references are pending, false otherwise
+     */
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Returns the number of pending references (not distinct symbols).
+     *
+     * @return      -   the number of positions waiting to be patched
+     */
+    public int size() {
+        return size;
+    }
+
+    /*****************
+     * Inner Classes *
+     *****************/
+
+    /**
+     * A growable list of word positions.
+     */
+    private static class Positions {
+        private long[] values = new long[4];
+        private int count = 0;
+
+        private void add(long position) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = position;
+        }
+    }
+}
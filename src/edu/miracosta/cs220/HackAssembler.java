@@ -0,0 +1,750 @@
+/************************************************************************************
+ *
+ * Class name:    HackAssembler
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles Hack .asm programs in-process. Input can be a file, a
+ *                ByteBuffer, an InputStream or any InputSource; output can be any
+ *                OutputStream, WritableByteChannel or OutputSink, or kept in memory.
+ *                Errors in the source are returned as Diagnostics in the
+ *                AssemblyResult instead of ending the program, so one JVM can
+ *                assemble any number of programs. A HackAssembler holds no state
+ *                between runs and may be used by several threads at once.
+ *
+ * History:       added so the assembler can be embedded; the passes were moved here
+ *                from Assembler
+ *
+ * Methods:       Public:   HackAssembler(), HackAssembler(boolean),
+ *                          HackAssembler(boolean, OutputFormat),
+ *                          HackAssembler(boolean, OutputFormat, List), assemble(InputSource),
+ *                          assemble(InputSource, OutputSink),
+ *                          assemble(InputSource, OutputSink, AssemblyStats),
+ *                          assemble(InputSource, WritableByteChannel),
+ *                          assemble(Path, WritableByteChannel), assemble(Path, OutputStream),
+ *                          assemble(ByteBuffer, WritableByteChannel),
+ *                          assemble(ByteBuffer, OutputStream),
+ *                          assemble(InputStream, WritableByteChannel),
+ *                          assemble(InputStream, OutputStream),
+ *                          assembleObject(InputSource, String)
+ *
+ *                Package:  firstPass(ParsedProgram, SymbolTable),
+ *                          secondPass(ParsedProgram, SymbolTable, OutputSink),
+ *                          objectPass(ParsedProgram, String)
+ *
+ *                Private:  singlePass(...), encode(ParsedProgram, int),
+ *                          startPhase(AssemblyStats, PassEvent, String),
+ *                          endPhase(AssemblyStats, PassEvent),
+ *                          isNumberStart(CharSequence), reportError(int, String)
+ *
+ * Notes:         Each run is reported to Java Flight Recorder as an AssemblyEvent
+ *                holding a PassEvent per phase (and a SlowAssemblyEvent if enabled
+ *                and over its threshold); these cost next to nothing unless a
+ *                recording asks for them.
+ *                Sources are always closed; caller-supplied outputs are finished
+ *                (flushed, trailer written) but never closed. Single-pass assembly
+ *                needs an output that can be patched; for any other output (e.g.
+ *                an OutputStream, or Intel HEX) the two-pass path is used instead.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HackAssembler {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int FIRST_VARIABLE_ADDRESS = 16;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final boolean singlePass;
+    private final OutputFormat format;
+    private final List<Optimizer> optimizers;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates a two-pass assembler writing .hack text.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the assembler is ready to use
+     */
+    public HackAssembler() {
+        this(false, OutputFormat.HACK);
+    }
+
+    /**
+     * Creates an assembler writing .hack text.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the assembler is ready to use
+     *
+     * @param   singlePass  -   true to stream the source once and patch forward references
+     */
+    public HackAssembler(boolean singlePass) {
+        this(singlePass, OutputFormat.HACK);
+    }
+
+    /**
+     * Creates an assembler.
+     *
+     * PRECONDITION:    format is not null
+     * POSTCONDITION:   the assembler is ready to use
+     *
+     * @param   singlePass  -   true to stream the source once and patch forward references
+     * @param   format      -   the format written by the methods that take a channel or stream
+     */
+    public HackAssembler(boolean singlePass, OutputFormat format) {
+        this(singlePass, format, Collections.emptyList());
+    }
+
+    /**
+     * Creates an assembler that rewrites each program with the given optimizers,
+     * in order, before encoding it. An optimizing assembler always makes two
+     * passes, since the whole program has to be seen before anything is encoded.
+     *
+     * PRECONDITION:    format and optimizers are not null
+     * POSTCONDITION:   the assembler is ready to use
+     *
+     * @param   singlePass  -   true to stream the source once when there are no optimizers
+     * @param   format      -   the format written by the methods that take a channel or stream
+     * @param   optimizers  -   the optimizers to run (none to encode the program as written)
+     */
+    public HackAssembler(boolean singlePass, OutputFormat format, List<Optimizer> optimizers) {
+        this.singlePass = singlePass && optimizers.isEmpty();
+        this.format = format;
+        this.optimizers = new ArrayList<>(optimizers);
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Assembles source into memory.
+     *
+     * PRECONDITION:    source is open
+     * POSTCONDITION:   source has been closed
+     *
+     * @param   source  -   the .asm text
+     * @return          -   the result; getWords() holds the machine code
+     */
+    public AssemblyResult assemble(InputSource source) {
+        WordArraySink output = new WordArraySink();
+        try {
+            return assemble(source, output, true, null);
+        } catch (IOException e) {
+            //  Only the sink can throw, and an in-memory one never does
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Assembles source into output, which is finished but left open.
+     *
+     * PRECONDITION:    source and output are open
+     * POSTCONDITION:   source has been closed; output holds the machine code
+     *                  (or as much of it as came before the first error)
+     *
+     * @param   source  -   the .asm text
+     * @param   output  -   the sink to write the words to
+     * @return          -   the result of the run
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult assemble(InputSource source, OutputSink output) throws IOException {
+        return assemble(source, output, false, null);
+    }
+
+    /**
+     * Assembles source into output like assemble(InputSource, OutputSink), and
+     * measures each phase of the run into stats.
+     *
+     * PRECONDITION:    source and output are open, stats has not been used before
+     * POSTCONDITION:   source has been closed; output holds the machine code;
+     *                  stats describes the run
+     *
+     * @param   source  -   the .asm text
+     * @param   output  -   the sink to write the words to
+     * @param   stats   -   the statistics to fill in, or null not to measure
+     * @return          -   the result of the run
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult assemble(InputSource source, OutputSink output, AssemblyStats stats)
+            throws IOException {
+        return assemble(source, output, false, stats);
+    }
+
+    /**
+     * Assembles source into output in this assembler's format. The channel is
+     * not closed; a FileChannel can be patched, so single-pass works with it.
+     *
+     * PRECONDITION:    source and output are open
+     * POSTCONDITION:   source has been closed; output holds the machine code
+     *
+     * @param   source  -   the .asm text
+     * @param   output  -   the channel to write to
+     * @return          -   the result of the run
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult assemble(InputSource source, WritableByteChannel output) throws IOException {
+        return assemble(source, format.open(output));
+    }
+
+    /**
+     * Assembles the .asm file at input into output in this assembler's format.
+     *
+     * @param   input   -   the .asm file
+     * @param   output  -   the channel to write to (left open)
+     * @return          -   the result of the run
+     * @throws IOException  if the file cannot be read or the output cannot be written
+     */
+    public AssemblyResult assemble(Path input, WritableByteChannel output) throws IOException {
+        return assemble(new MappedFileSource(input), output);
+    }
+
+    /**
+     * Assembles the .asm file at input into output in this assembler's format.
+     *
+     * @param   input   -   the .asm file
+     * @param   output  -   the stream to write to (left open)
+     * @return          -   the result of the run
+     * @throws IOException  if the file cannot be read or the output cannot be written
+     */
+    public AssemblyResult assemble(Path input, OutputStream output) throws IOException {
+        return assemble(new MappedFileSource(input), Channels.newChannel(output));
+    }
+
+    /**
+     * Assembles the .asm text between input's position and limit.
+     *
+     * @param   input   -   the .asm text (its position is not changed)
+     * @param   output  -   the channel to write to (left open)
+     * @return          -   the result of the run
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult assemble(ByteBuffer input, WritableByteChannel output) throws IOException {
+        return assemble(new ArraySource(input), output);
+    }
+
+    /**
+     * Assembles the .asm text between input's position and limit.
+     *
+     * @param   input   -   the .asm text (its position is not changed)
+     * @param   output  -   the stream to write to (left open)
+     * @return          -   the result of the run
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult assemble(ByteBuffer input, OutputStream output) throws IOException {
+        return assemble(new ArraySource(input), Channels.newChannel(output));
+    }
+
+    /**
+     * Assembles the .asm text read from input, which is closed afterwards.
+     *
+     * @param   input   -   the stream of .asm text
+     * @param   output  -   the channel to write to (left open)
+     * @return          -   the result of the run
+     * @throws IOException  if the input cannot be read or the output cannot be written
+     */
+    public AssemblyResult assemble(InputStream input, WritableByteChannel output) throws IOException {
+        return assemble(new ChannelSource(Channels.newChannel(input)), output);
+    }
+
+    /**
+     * Assembles the .asm text read from input, which is closed afterwards.
+     *
+     * @param   input   -   the stream of .asm text
+     * @param   output  -   the stream to write to (left open)
+     * @return          -   the result of the run
+     * @throws IOException  if the input cannot be read or the output cannot be written
+     */
+    public AssemblyResult assemble(InputStream input, OutputStream output) throws IOException {
+        return assemble(new ChannelSource(Channels.newChannel(input)), Channels.newChannel(output));
+    }
+
+    /**
+     * Assembles source as one module of a program to be put together by a
+     * HackLinker, leaving references to other modules' labels and to variables
+     * unresolved.
+     *
+     * PRECONDITION:    source is open
+     * POSTCONDITION:   source has been closed
+     *
+     * @param   source  -   the .asm text of the module
+     * @param   name    -   the module's name, used in link errors
+     * @return          -   the module
+     * @throws AssemblyException    for the first error in the source
+     * @throws IOException          if the source cannot be read
+     */
+    public HackObject assembleObject(InputSource source, String name) throws AssemblyException, IOException {
+        try {
+            return objectPass(new Parser(source).parseAll(), name);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            source.close();
+        }
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Move through the program a first time to add valid label declarations
+     * and their corresponding line to symbolTable.
+     *
+     * PRECONDITION:	the .asm file has been read into program
+     * POSTCONDITION:	symbolTable contains all label declarations &
+     *					program is ready for translation
+     *
+     * @param	program		-	the decoded .asm file
+     * @param	symbolTable	-	the symbol table of this assembly
+     * @throws AssemblyException	for the first invalid label
+     */
+    static void firstPass(ParsedProgram program, SymbolTable symbolTable) throws AssemblyException {
+        String symbol;
+        int romAddress = 0;
+
+        for (int i = 0; i < program.size(); i++) {
+            switch (program.getKind(i)) {
+                case ParsedProgram.A_NUMBER:
+                case ParsedProgram.A_SYMBOL:
+                case ParsedProgram.C_INSTRUCTION:
+                    romAddress++;
+                    break;
+                case ParsedProgram.L_INSTRUCTION:
+                    symbol = program.getSymbol(program.getOperand(i));
+                    //	If not added, add it, unless invalid -- catch it here!
+                    if (symbolTable.getOrAssign(symbol, romAddress) == SymbolTable.INVALID) {
+                        reportError(program.getLineNumber(i), "Invalid symbol");
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Move through the program a second time, translating each instruction
+     * to the binary equivalent, and outputting it to the output file.
+     *
+     * PRECONDITION:	firstPass() has been completed without errors,
+     *					& the output has been successfully opened
+     * POSTCONDITION:	outputFile contains the translated machine code
+     *
+     * @param	program		-	the decoded .asm file
+     * @param	symbolTable	-	the symbol table filled by firstPass()
+     * @param	outputFile	-	the sink to output to
+     * @throws AssemblyException	for the first instruction that cannot be translated
+     */
+    static void secondPass(ParsedProgram program, SymbolTable symbolTable,
+                                   OutputSink outputFile) throws AssemblyException, IOException {
+
+        int symbolCount, address;
+        int ramAddress = FIRST_VARIABLE_ADDRESS;
+
+        for (int i = 0; i < program.size(); i++) {
+            switch (program.getKind(i)) {
+                case ParsedProgram.A_SYMBOL:
+                    //	Look the symbol up, adding it as the next variable unless it's invalid
+                    symbolCount = symbolTable.size();
+                    address = symbolTable.getOrAssign(program.getSymbol(program.getOperand(i)), ramAddress);
+                    if (address == SymbolTable.INVALID) {
+                        reportError(program.getLineNumber(i), "Invalid symbol");
+                    }
+                    if (symbolTable.size() != symbolCount) {
+                        ramAddress++;
+                    }
+                    outputFile.write(Code.aInstruction(address));
+                    break;
+                case ParsedProgram.L_INSTRUCTION:
+                    break;
+                default:
+                    outputFile.write(encode(program, i));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Assembles the program as one module of a larger program. Labels are
+     * resolved as in firstPass(), but relative to the start of the module, and
+     * every other symbol that isn't predefined is left for the linker.
+     *
+     * PRECONDITION:	the .asm file has been read into program
+     * POSTCONDITION:	N/A
+     *
+     * @param	program	-	the decoded .asm file
+     * @param	name	-	the module's name
+     * @return			-	the module
+     * @throws AssemblyException	for the first error a full assembly would report
+     */
+    static HackObject objectPass(ParsedProgram program, String name) throws AssemblyException {
+        SymbolTable symbolTable = new SymbolTable();
+        firstPass(program, symbolTable);
+        HackObject object = new HackObject(name);
+        String symbol;
+        int address;
+
+        for (int i = 0; i < program.size(); i++) {
+            if (program.getKind(i) == ParsedProgram.L_INSTRUCTION) {
+                symbol = program.getSymbol(program.getOperand(i));
+                if (SymbolTable.getPredefined(symbol) == SymbolTable.INVALID) {
+                    object.addExport(symbol, symbolTable.getAddress(symbol));
+                }
+            }
+        }
+        for (int i = 0; i < program.size(); i++) {
+            switch (program.getKind(i)) {
+                case ParsedProgram.A_SYMBOL:
+                    symbol = program.getSymbol(program.getOperand(i));
+                    address = symbolTable.getAddress(symbol);
+                    if (address == SymbolTable.INVALID) {
+                        //	Another module's label or a variable -- the linker decides which
+                        if (!SymbolTable.isValidName(symbol)) {
+                            reportError(program.getLineNumber(i), "Invalid symbol");
+                        }
+                        object.addReference(symbol);
+                    } else if (SymbolTable.getPredefined(symbol) != SymbolTable.INVALID) {
+                        object.addWord(Code.aInstruction(address));
+                    } else {
+                        object.addRelocatedWord(address);
+                    }
+                    break;
+                case ParsedProgram.L_INSTRUCTION:
+                    break;
+                default:
+                    object.addWord(encode(program, i));
+                    break;
+            }
+        }
+        return object;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Runs one assembly with a fresh symbol table and collects the result.
+     *
+     * PRECONDITION:    source and output are open
+     * POSTCONDITION:   source has been closed and output has been finished
+     *
+     * @param   source      -   the .asm text
+     * @param   output      -   the sink to write the words to
+     * @param   keepWords   -   true if output is a WordArraySink whose words go in the result
+     * @param   stats       -   the statistics to fill in, or null
+     * @return              -   the result of the run
+     */
+    private AssemblyResult assemble(InputSource source, OutputSink output, boolean keepWords,
+                                    AssemblyStats stats) throws IOException {
+        AssemblyEvent event = new AssemblyEvent();
+        SlowAssemblyEvent slowEvent = new SlowAssemblyEvent();
+        event.begin();
+        slowEvent.begin();
+        long start = System.nanoTime();
+        SymbolTable symbolTable = new SymbolTable();
+        List<Diagnostic> diagnostics = Collections.emptyList();
+        int sourceLineCount = 0, labelCount = 0, variableCount = 0;
+        long bytesRead = 0;
+        Map<String, Integer> removed = Collections.emptyMap();
+        boolean singlePassTaken = singlePass && output.isPatchable();
+        PassEvent pass = null;
+        try {
+            if (singlePassTaken) {
+                Parser parser = new Parser(source);
+                try {
+                    pass = startPhase(stats, pass, AssemblyStats.SINGLE_PASS);
+                    variableCount = singlePass(parser, symbolTable, output);
+                    labelCount = symbolTable.size() - SymbolTable.getPredefinedCount() - variableCount;
+                } finally {
+                    sourceLineCount = parser.getLineNumber();
+                }
+            } else {
+                pass = startPhase(stats, pass, AssemblyStats.READ);
+                ParsedProgram program = new Parser(source).parseAll();
+                sourceLineCount = program.getSourceLineCount();
+                if (!optimizers.isEmpty()) {
+                    pass = startPhase(stats, pass, AssemblyStats.OPTIMIZE);
+                    removed = new LinkedHashMap<>();
+                    for (Optimizer optimizer : optimizers) {
+                        optimizer.optimize(program, removed);
+                    }
+                }
+                pass = startPhase(stats, pass, AssemblyStats.FIRST_PASS);
+                firstPass(program, symbolTable);
+                labelCount = symbolTable.size() - SymbolTable.getPredefinedCount();
+                pass = startPhase(stats, pass, AssemblyStats.SECOND_PASS);
+                secondPass(program, symbolTable, output);
+                variableCount = symbolTable.size() - SymbolTable.getPredefinedCount() - labelCount;
+            }
+        } catch (AssemblyException e) {
+            diagnostics = new ArrayList<>();
+            diagnostics.add(e.getDiagnostic());
+        } catch (UncheckedIOException e) {
+            //  ChannelSource can only report read errors unchecked
+            throw e.getCause();
+        } finally {
+            bytesRead = source.getBytesRead();
+            source.close();
+        }
+        pass = startPhase(stats, pass, AssemblyStats.FLUSH);
+        output.finish();
+        endPhase(stats, pass);
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = source.getName();
+            event.bytesRead = bytesRead;
+            event.bytesWritten = output.getBytesWritten();
+            event.lines = sourceLineCount;
+            event.instructions = output.getWordCount();
+            event.labels = labelCount;
+            event.variables = variableCount;
+            event.singlePass = singlePassTaken;
+            event.successful = diagnostics.isEmpty();
+            event.commit();
+        }
+        slowEvent.end();
+        if (slowEvent.shouldCommit()) {
+            slowEvent.file = source.getName();
+            slowEvent.bytesRead = bytesRead;
+            slowEvent.lines = sourceLineCount;
+            slowEvent.singlePass = singlePassTaken;
+            slowEvent.commit();
+        }
+        if (stats != null) {
+            stats.setCounts(sourceLineCount, output.getWordCount(), labelCount, variableCount);
+            stats.setSymbolTable(symbolTable);
+            stats.setBytes(bytesRead, output.getBytesWritten());
+        }
+        return new AssemblyResult(diagnostics,
+                keepWords ? ((WordArraySink) output).getWords() : null,
+                output.getWordCount(), output.getBytesWritten(), sourceLineCount,
+                symbolTable.size(), System.nanoTime() - start, removed);
+    }
+
+    /**
+     * Assembles the .asm file in a single streaming pass, writing each word
+     * straight to the output. A-Instructions that refer to a label that
+     * has not been declared yet are written as placeholders and patched in
+     * place once the label is seen; symbols still unresolved at the end of the
+     * file are variables and are given RAM addresses in first-reference order,
+     * exactly as secondPass() would. Only the unresolved references are kept
+     * in memory, and the output is told (hold()) where the first of them is, so
+     * a streaming output can pass on every word before it.
+     *
+     * PRECONDITION:	parser is open on the .asm text & outputFile is patchable
+     * POSTCONDITION:	outputFile contains the translated machine code
+     *
+     * @param	parser			-	the parser reading the .asm text
+     * @param	symbolTable		-	the symbol table of this assembly
+     * @param	outputFile		-	the sink to output to
+     * @return					-	the number of variables given a RAM address
+     * @throws AssemblyException	for the first instruction that cannot be translated
+     */
+    private static int singlePass(Parser parser, SymbolTable symbolTable,
+                                   OutputSink outputFile) throws AssemblyException, IOException {
+        ForwardReferences forwardReferences = new ForwardReferences();
+        ByteSlice symbolView;
+        String symbol;
+        int address, comp, dest, jump;
+        int ramAddress = FIRST_VARIABLE_ADDRESS;
+
+        while (parser.hasMoreCommands()) {
+            parser.advance();
+            switch (parser.getCommandType()) {
+                case A_INSTRUCTION:
+                    symbolView = parser.getSymbolView();
+                    if (isNumberStart(symbolView)) {
+                        try {
+                            int num = Integer.parseInt(symbolView, 0, symbolView.length(), 10);
+                            if (num < 0) {
+                                reportError(parser.getLineNumber(), "Negative integer not allowed");
+                            }
+                            outputFile.write(Code.aInstruction(num));
+                            break;
+                        } catch (NumberFormatException e) {
+                            //	Not a number after all -- treat it as a symbol (it will be invalid)
+                        }
+                    }
+                    address = symbolTable.getAddress(symbolView);
+                    if (address != SymbolTable.INVALID) {
+                        outputFile.write(Code.aInstruction(address));
+                    } else if (SymbolTable.isValidName(symbolView)) {
+                        //	Label further down or a variable -- decide once it's known
+                        if (forwardReferences.isEmpty()) {
+                            outputFile.hold(outputFile.getWordCount());
+                        }
+                        forwardReferences.add(symbolView.toString(), outputFile.getWordCount());
+                        outputFile.write(0);
+                    } else {
+                        reportError(parser.getLineNumber(), "Invalid symbol");
+                    }
+                    break;
+                case C_INSTRUCTION:
+                    comp = Code.compBits(parser.getCompView());
+                    dest = Code.destBits(parser.getDestView());
+                    jump = Code.jumpBits(parser.getJumpView());
+                    if (comp == Code.INVALID) {
+                        reportError(parser.getLineNumber(), "Invalid comp code");
+                    }
+                    if (dest == Code.INVALID) {
+                        reportError(parser.getLineNumber(), "Invalid dest code");
+                    }
+                    if (jump == Code.INVALID) {
+                        reportError(parser.getLineNumber(), "Invalid jump code");
+                    }
+                    outputFile.write(Code.cInstruction(comp, dest, jump));
+                    break;
+                case L_INSTRUCTION:
+                    symbolView = parser.getSymbolView();
+                    if (symbolTable.getAddress(symbolView) == SymbolTable.INVALID) {
+                        if (symbolTable.getOrAssign(symbolView, (int) outputFile.getWordCount()) == SymbolTable.INVALID) {
+                            reportError(parser.getLineNumber(), "Invalid symbol");
+                        }
+                        address = Code.aInstruction((int) outputFile.getWordCount());
+                        long[] positions = forwardReferences.resolve(symbolView.toString());
+                        for (long position : positions) {
+                            outputFile.patch(position, address);
+                        }
+                        if (positions.length > 0) {
+                            //	Everything before the first placeholder left is final now
+                            outputFile.hold(forwardReferences.isEmpty()
+                                            ? Long.MAX_VALUE : forwardReferences.firstPosition());
+                        }
+                    }
+                    break;
+                case N_INSTRUCTION:
+                    if (parser.getCleanLineView().length() > 0) {
+                        reportError(parser.getLineNumber(), "Expression expected");
+                    }
+                    break;
+            }
+        }
+        //	Whatever is still unresolved was never declared as a label -> variable
+        while (!forwardReferences.isEmpty()) {
+            symbol = forwardReferences.nextSymbol();
+            symbolTable.getOrAssign(symbol, ramAddress);
+            address = Code.aInstruction(ramAddress++);
+            for (long position : forwardReferences.resolve(symbol)) {
+                outputFile.patch(position, address);
+            }
+        }
+        return ramAddress - FIRST_VARIABLE_ADDRESS;
+    }
+
+    /**
+     * Checks whether an A-Instruction operand could be a number, i.e. starts
+     * with a digit or a sign, so only those are handed to Integer.parseInt().
+     *
+     * PRECONDITION:	N/A
+     * POSTCONDITION:	N/A
+     *
+     * @param	operand	-	the operand of an A-Instruction
+     * @return			-	true if operand starts like a decimal integer, false otherwise
+     */
+    private static boolean isNumberStart(CharSequence operand) {
+        if (operand.length() == 0) {
+            return false;
+        }
+        char first = operand.charAt(0);
+        return first == '+' || first == '-' || (first >= '0' && first <= '9');
+    }
+
+    /**
+     * Ends the previous phase of a run, if any, and starts the next one: as a
+     * PassEvent, and in stats if the run is measured.
+     *
+     * @return      -   the event of the phase just started
+     */
+    private static PassEvent startPhase(AssemblyStats stats, PassEvent previous, String phase) {
+        endPhase(stats, previous);
+        if (stats != null) {
+            stats.startPhase(phase);
+        }
+        PassEvent pass = new PassEvent();
+        pass.pass = phase;
+        pass.begin();
+        return pass;
+    }
+
+    /**
+     * Ends the current phase of a run, if any.
+     */
+    private static void endPhase(AssemblyStats stats, PassEvent pass) {
+        if (stats != null) {
+            stats.endPhase();
+        }
+        if (pass != null) {
+            pass.end();
+            if (pass.shouldCommit()) {
+                pass.commit();
+            }
+        }
+    }
+
+    /**
+     * Encodes an instruction that doesn't involve a symbol, stopping the run if
+     * it's invalid.
+     */
+    private static int encode(ParsedProgram program, int i) throws AssemblyException {
+        int operand = program.getOperand(i);
+        switch (program.getKind(i)) {
+            case ParsedProgram.A_NUMBER:
+                if (operand < 0) {
+                    reportError(program.getLineNumber(i), "Negative integer not allowed");
+                }
+                return Code.aInstruction(operand);
+            case ParsedProgram.C_INSTRUCTION:
+                //	Valid codes for each part?
+                if ((operand & ParsedProgram.INVALID_COMP) != 0) {
+                    reportError(program.getLineNumber(i), "Invalid comp code");
+                }
+                if ((operand & ParsedProgram.INVALID_DEST) != 0) {
+                    reportError(program.getLineNumber(i), "Invalid dest code");
+                }
+                if ((operand & ParsedProgram.INVALID_JUMP) != 0) {
+                    reportError(program.getLineNumber(i), "Invalid jump code");
+                }
+                return Code.cInstruction(
+                        (operand & ParsedProgram.COMP_MASK) >>> ParsedProgram.COMP_SHIFT,
+                        (operand & ParsedProgram.DEST_MASK) >>> ParsedProgram.DEST_SHIFT,
+                        operand & ParsedProgram.JUMP_MASK);
+            default:
+                //	Catch all for "something's wrong"
+                reportError(program.getLineNumber(i), "Expression expected");
+                return 0;
+        }
+    }
+
+    /**
+     * Stops the run with a translation error.
+     *
+     * PRECONDITION:	there is an error to report (error is not null)
+     * POSTCONDITION:	an AssemblyException has been thrown
+     *
+     * @param	lineNumber	-	the source line the error is on
+     * @param	error		-	the error message
+     * @throws AssemblyException	always
+     */
+    private static void reportError(int lineNumber, String error) throws AssemblyException {
+        throw new AssemblyException(new Diagnostic(lineNumber, error, null));
+    }
+}
@@ -0,0 +1,176 @@
+/************************************************************************************
+ *
+ * Class name:    HackClient
+ * Package:       edu.miracosta.cs220
+ * Description:   Sends assemble requests to a running HackDaemon over its Unix
+ *                domain socket and turns the answers back into AssemblyResults, so
+ *                callers see the same results as from a local HackAssembler.
+ *
+ * History:       added for the assembler daemon
+ *
+ * Methods:       Public:   HackClient(Path), assembleFile(Path, List, boolean),
+ *                          assembleSource(byte[], OutputFormat, boolean, WritableByteChannel),
+ *                          shutdown()
+ *
+ *                Private:  send(DaemonMessage), toResult(DaemonMessage), formatNames(List),
+ *                          parseNumber(DaemonMessage, String)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class HackClient {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final UnixDomainSocketAddress address;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares a client for the daemon listening on the given socket file.
+     *
+     * PRECONDITION:    socketPath is not null
+     * POSTCONDITION:   the client is ready to send requests
+     *
+     * @param   socketPath  -   the daemon's socket file
+     */
+    public HackClient(Path socketPath) {
+        address = UnixDomainSocketAddress.of(socketPath);
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Has the daemon assemble an .asm file, writing one output file per format
+     * next to it.
+     *
+     * PRECONDITION:    formats is not empty
+     * POSTCONDITION:   the daemon has written the output files, if assembly succeeded
+     *
+     * @param   input       -   the .asm file (made absolute before it is sent)
+     * @param   formats     -   the output formats to write
+     * @param   singlePass  -   whether to assemble in a single pass
+     * @return              -   the daemon's result (getWords() is null)
+     * @throws IOException  if the daemon cannot be reached or rejects the request
+     */
+    public AssemblyResult assembleFile(Path input, List<OutputFormat> formats, boolean singlePass)
+            throws IOException {
+        DaemonMessage request = new DaemonMessage().set(DaemonMessage.INPUT, input.toAbsolutePath())
+                                                   .set(DaemonMessage.FORMATS, formatNames(formats))
+                                                   .set(DaemonMessage.SINGLE_PASS, singlePass);
+        return toResult(send(request));
+    }
+
+    /**
+     * Has the daemon assemble source text, writing the output to output.
+     *
+     * PRECONDITION:    output is open
+     * POSTCONDITION:   the output has been written to output, if assembly succeeded
+     *
+     * @param   source      -   the .asm source text
+     * @param   format      -   the output format
+     * @param   singlePass  -   whether to assemble in a single pass
+     * @param   output      -   where to write the output
+     * @return              -   the daemon's result (getWords() is null)
+     * @throws IOException  if the daemon cannot be reached or rejects the request
+     */
+    public AssemblyResult assembleSource(byte[] source, OutputFormat format, boolean singlePass,
+                                         WritableByteChannel output) throws IOException {
+        DaemonMessage request = new DaemonMessage().set(DaemonMessage.FORMATS, format.getName())
+                                                   .set(DaemonMessage.SINGLE_PASS, singlePass)
+                                                   .setBody(source);
+        DaemonMessage response = send(request);
+        AssemblyResult result = toResult(response);
+        ByteBuffer body = ByteBuffer.wrap(response.getBody());
+        while (body.hasRemaining()) {
+            output.write(body);
+        }
+        return result;
+    }
+
+    /**
+     * Asks the daemon to stop accepting requests and exit.
+     *
+     * @throws IOException  if the daemon cannot be reached
+     */
+    public void shutdown() throws IOException {
+        send(new DaemonMessage().set(DaemonMessage.COMMAND, DaemonMessage.SHUTDOWN));
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Sends one request on a new connection and reads the response.
+     */
+    private DaemonMessage send(DaemonMessage request) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(address);
+            request.write(Channels.newOutputStream(channel));
+            DaemonMessage response = DaemonMessage.read(Channels.newInputStream(channel));
+            if (DaemonMessage.ERROR.equals(response.get(DaemonMessage.STATUS))) {
+                throw new IOException("Daemon rejected request: " + response.get(DaemonMessage.MESSAGE));
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Rebuilds the AssemblyResult a response describes.
+     */
+    private static AssemblyResult toResult(DaemonMessage response) throws IOException {
+        List<Diagnostic> diagnostics = Collections.emptyList();
+        if (!DaemonMessage.OK.equals(response.get(DaemonMessage.STATUS))) {
+            diagnostics = Collections.singletonList(new Diagnostic(
+                    (int) parseNumber(response, DaemonMessage.LINE),
+                    response.get(DaemonMessage.MESSAGE, ""),
+                    response.get(DaemonMessage.HINT)));
+        }
+        return new AssemblyResult(diagnostics, null,
+                                  parseNumber(response, DaemonMessage.WORDS),
+                                  parseNumber(response, DaemonMessage.BYTES),
+                                  (int) parseNumber(response, DaemonMessage.LINES),
+                                  (int) parseNumber(response, DaemonMessage.SYMBOLS),
+                                  parseNumber(response, DaemonMessage.ELAPSED_NANOS));
+    }
+
+    /**
+     * Joins format names with commas.
+     */
+    private static String formatNames(List<OutputFormat> formats) {
+        List<String> names = new ArrayList<>(formats.size());
+        for (OutputFormat format : formats) {
+            names.add(format.getName());
+        }
+        return String.join(",", names);
+    }
+
+    /**
+     * Reads a numeric header, which is 0 if it is not set.
+     */
+    private static long parseNumber(DaemonMessage response, String key) throws IOException {
+        try {
+            return Long.parseLong(response.get(key, "0"));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed " + key + " in daemon response");
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/************************************************************************************
+ *
+ * Class name:    HackDaemon
+ * Package:       edu.miracosta.cs220
+ * Description:   A long-lived assembler server listening on a Unix domain socket,
+ *                so build tools pay for JVM start-up and JIT warm-up once instead of
+ *                once per file. Each connection carries one DaemonMessage request
+ *                and gets one response. A request either names an .asm file (whose
+ *                outputs are written next to it, as the command line would) or
+ *                carries the source inline (and gets the output back inline).
+ *                Requests are handled concurrently, each on a thread of its own.
+ *
+ * History:       added for the assembler daemon
+ *
+ * Methods:       Public:   HackDaemon(Path), serve(), close()
+ *
+ *                Private:  warmUp(), handle(SocketChannel), process(DaemonMessage),
+ *                          assembleSource(HackAssembler, byte[], DaemonMessage), parseFormats(String)
+ *
+ * Notes:         Request handlers run on a cached pool of daemon threads, which
+ *                gives the same one-thread-per-request model virtual threads would
+ *                on this Java version.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class HackDaemon implements Closeable {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  A small program touching every kind of instruction, run once at start-up
+    private static final String WARM_UP_PROGRAM =
+            "@R0\nD=M\n@i\nM=D\n(LOOP)\n@i\nD=M\n@END\nD;JEQ\n@i\nM=M-1\n@LOOP\n0;JMP\n(END)\n@END\n0;JMP\n";
+    private static final int WARM_UP_RUNS = 2000;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Path socketPath;
+    private final ExecutorService handlers;
+    private ServerSocketChannel server;
+    private volatile boolean running;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares a daemon for the given socket file.
+     *
+     * PRECONDITION:    socketPath is not null
+     * POSTCONDITION:   the daemon is ready to serve()
+     *
+     * @param   socketPath  -   the socket file to listen on
+     */
+    public HackDaemon(Path socketPath) {
+        this.socketPath = socketPath;
+        handlers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "hack-daemon-handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Warms up the assembler, then accepts and handles connections until close()
+     * is called or a shutdown request arrives. A stale socket file left by an
+     * earlier daemon is replaced.
+     *
+     * PRECONDITION:    no other daemon is listening on the socket file
+     * POSTCONDITION:   the socket has been closed and its file removed
+     *
+     * @throws IOException  if the socket cannot be opened
+     */
+    public void serve() throws IOException {
+        warmUp();
+        Files.deleteIfExists(socketPath);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        running = true;
+        try {
+            while (running) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                handlers.execute(() -> handle(client));
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Stops accepting connections and removes the socket file. Requests already
+     * being handled are finished.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        handlers.shutdown();
+        if (server != null) {
+            server.close();
+        }
+        Files.deleteIfExists(socketPath);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Runs a small program through every assembly mode, so the first real
+     * request finds the Parser, Code & SymbolTable paths loaded and compiled.
+     */
+    private void warmUp() {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            new HackAssembler(i % 2 == 0).assemble(new ArraySource(WARM_UP_PROGRAM));
+        }
+    }
+
+    /**
+     * Reads one request from client, answers it and closes the connection.
+     */
+    private void handle(SocketChannel client) {
+        try (SocketChannel channel = client) {
+            InputStream in = Channels.newInputStream(channel);
+            OutputStream out = Channels.newOutputStream(channel);
+            DaemonMessage response;
+            try {
+                response = process(DaemonMessage.read(in));
+            } catch (IOException | RuntimeException e) {
+                response = new DaemonMessage().set(DaemonMessage.STATUS, DaemonMessage.ERROR)
+                                              .set(DaemonMessage.MESSAGE, String.valueOf(e.getMessage())
+                                                      .replace('\n', ' ').replace('\r', ' '));
+            }
+            response.write(out);
+        } catch (IOException e) {
+            //  the client went away; nothing left to tell it
+        }
+    }
+
+    /**
+     * Carries out one request.
+     *
+     * @param   request -   the request read from a client
+     * @return          -   the response to send back
+     */
+    private DaemonMessage process(DaemonMessage request) throws IOException {
+        String command = request.get(DaemonMessage.COMMAND, DaemonMessage.ASSEMBLE);
+        if (command.equals(DaemonMessage.SHUTDOWN)) {
+            running = false;
+            server.close();
+            return new DaemonMessage().set(DaemonMessage.STATUS, DaemonMessage.OK);
+        }
+        if (!command.equals(DaemonMessage.ASSEMBLE)) {
+            throw new IOException("Unknown command " + command);
+        }
+        List<OutputFormat> formats = parseFormats(request.get(DaemonMessage.FORMATS, OutputFormat.HACK.getName()));
+        HackAssembler assembler = new HackAssembler(Boolean.parseBoolean(request.get(DaemonMessage.SINGLE_PASS)),
+                                                    formats.get(0));
+        String input = request.get(DaemonMessage.INPUT);
+        DaemonMessage response = new DaemonMessage();
+        AssemblyResult result = input != null ? new BatchAssembler(assembler, formats, 1).assembleFile(Paths.get(input))
+                                              : assembleSource(assembler, request.getBody(), response);
+        response.set(DaemonMessage.STATUS, result.isSuccessful() ? DaemonMessage.OK : DaemonMessage.FAILED);
+        if (!result.isSuccessful()) {
+            Diagnostic diagnostic = result.getDiagnostics().get(0);
+            response.set(DaemonMessage.LINE, diagnostic.getLineNumber())
+                    .set(DaemonMessage.MESSAGE, diagnostic.getMessage());
+            if (diagnostic.getHint() != null) {
+                response.set(DaemonMessage.HINT, diagnostic.getHint());
+            }
+        }
+        return response.set(DaemonMessage.WORDS, result.getWordCount())
+                       .set(DaemonMessage.BYTES, result.getBytesWritten())
+                       .set(DaemonMessage.LINES, result.getSourceLineCount())
+                       .set(DaemonMessage.SYMBOLS, result.getSymbolCount())
+                       .set(DaemonMessage.ELAPSED_NANOS, result.getElapsedNanos());
+    }
+
+    /**
+     * Assembles inline source, putting the output (in the first format) in the response body.
+     */
+    private static AssemblyResult assembleSource(HackAssembler assembler, byte[] source, DaemonMessage response)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AssemblyResult result = assembler.assemble(new ArraySource(source), Channels.newChannel(output));
+        response.setBody(output.toByteArray());
+        return result;
+    }
+
+    /**
+     * Parses a comma-separated list of format names.
+     */
+    private static List<OutputFormat> parseFormats(String names) throws IOException {
+        List<OutputFormat> formats = new ArrayList<>();
+        for (String name : names.split(",")) {
+            OutputFormat format = OutputFormat.fromName(name);
+            if (format == null) {
+                throw new IOException("Unknown output format " + name);
+            }
+            if (!formats.contains(format)) {
+                formats.add(format);
+            }
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,136 @@
+/************************************************************************************
+ *
+ * Class name:    HackLinker
+ * Package:       edu.miracosta.cs220
+ * Description:   Puts separately assembled modules (HackObjects) together into one
+ *                program. The modules are laid out in ROM in the order given, each
+ *                module's relocations are moved by the address it starts at, and
+ *                each import is resolved to the label of that name in some module
+ *                or, if no module declares it, to a variable. The output is the same
+ *                as assembling the modules' sources concatenated in that order.
+ *
+ * History:       added for separate assembly & linking
+ *
+ * Methods:       Public:   HackLinker(), link(List, OutputSink)
+ *
+ * Notes:         Variables are given RAM addresses from 16 on in the order the
+ *                linked program first refers to them, as in a single file. A label
+ *                declared by two modules is an error, since which one a reference
+ *                meant depends on nothing the programmer wrote.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public class HackLinker {
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates a linker. A HackLinker holds no state between runs.
+     */
+    public HackLinker() {
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Links the modules, in order, into output, which is finished but left open.
+     *
+     * PRECONDITION:    output is open
+     * POSTCONDITION:   output holds the linked machine code, unless the modules
+     *                  could not be linked
+     *
+     * @param   objects -   the modules, in the order they are placed in ROM
+     * @param   output  -   the sink to write the words to
+     * @return          -   the result of the link; a failed one names the label
+     *                      declared twice
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult link(List<HackObject> objects, OutputSink output) throws IOException {
+        long start = System.nanoTime();
+        SymbolMap labels = new SymbolMap();
+        SymbolMap owners = new SymbolMap();
+        int[] bases = new int[objects.size()];
+        int base = 0;
+
+        //  Place the modules & gather their labels
+        for (int m = 0; m < objects.size(); m++) {
+            HackObject object = objects.get(m);
+            SymbolMap exports = object.getExports();
+            bases[m] = base;
+            for (int i = 0; i < exports.size(); i++) {
+                String label = exports.getKey(i);
+                int owner = owners.putIfAbsent(label, m);
+                if (owner != SymbolMap.NOT_FOUND) {
+                    return AssemblyResult.failed(new Diagnostic(0, "Label " + label + " is declared in both "
+                            + objects.get(owner).getName() + " and " + object.getName(),
+                            "Rename one of them or make sure each module is linked once"));
+                }
+                labels.put(label, exports.getValue(i) + base);
+            }
+            base += object.getWordCount();
+        }
+
+        //  Resolve each module's imports, then write its words with the fix-ups applied
+        SymbolMap variables = new SymbolMap();
+        int ramAddress = HackAssembler.FIRST_VARIABLE_ADDRESS;
+        for (int m = 0; m < objects.size(); m++) {
+            HackObject object = objects.get(m);
+            SymbolMap imports = object.getImports();
+            int[] importAddresses = new int[imports.size()];
+            for (int i = 0; i < imports.size(); i++) {
+                String symbol = imports.getKey(i);
+                int address = labels.get(symbol);
+                if (address == SymbolMap.NOT_FOUND) {
+                    address = variables.putIfAbsent(symbol, ramAddress);
+                    if (address == SymbolMap.NOT_FOUND) {
+                        address = ramAddress++;
+                    }
+                }
+                importAddresses[i] = address;
+            }
+
+            int relocation = 0, reference = 0;
+            int nextRelocation = nextIndex(object, relocation, true);
+            int nextReference = nextIndex(object, reference, false);
+            for (int i = 0; i < object.getWordCount(); i++) {
+                if (i == nextRelocation) {
+                    output.write(Code.aInstruction(object.getWord(i) + bases[m]));
+                    nextRelocation = nextIndex(object, ++relocation, true);
+                } else if (i == nextReference) {
+                    output.write(Code.aInstruction(importAddresses[object.getReferenceImport(reference)]));
+                    nextReference = nextIndex(object, ++reference, false);
+                } else {
+                    output.write(object.getWord(i));
+                }
+            }
+        }
+        output.finish();
+        return new AssemblyResult(Collections.emptyList(), null, output.getWordCount(),
+                output.getBytesWritten(), 0, SymbolTable.getPredefinedCount() + labels.size() + variables.size(),
+                System.nanoTime() - start);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Returns the word index of a module's next relocation or reference, or
+     * -1 once there are no more.
+     */
+    private static int nextIndex(HackObject object, int number, boolean relocation) {
+        if (relocation) {
+            return number < object.getRelocationCount() ? object.getRelocation(number) : -1;
+        }
+        return number < object.getReferenceCount() ? object.getReference(number) : -1;
+    }
+}
@@ -0,0 +1,377 @@
+/************************************************************************************
+ *
+ * Class name:    HackObject
+ * Package:       edu.miracosta.cs220
+ * Description:   One separately assembled module: its encoded words plus what the
+ *                linker needs to place it in a program. References to the module's
+ *                own labels are relocations (the word holds the ROM address relative
+ *                to the start of the module); references to any other symbol are
+ *                imports (listed with the import's number), which the linker
+ *                resolves to a label of another module or, failing that, to a
+ *                variable. Every label is exported, just as every label of a single
+ *                file is visible to the whole file.
+ *
+ * History:       added for separate assembly & linking
+ *
+ * Methods:       Public:   getName(), getWordCount(), write(Path), read(Path)
+ *
+ *                Package:  HackObject(String), addWord(int), addRelocatedWord(int),
+ *                          addReference(CharSequence), addExport(CharSequence, int),
+ *                          getWord(int), getRelocation(int), getRelocationCount(),
+ *                          getReference(int), getReferenceImport(int), getReferenceCount(),
+ *                          getExports(), getImports()
+ *
+ *                Private:  append(int[], int, int), putName(ByteBuffer, String),
+ *                          getName(ByteBuffer), checkWordIndices(Path, int[], int, int),
+ *                          getCount(ByteBuffer, int)
+ *
+ * Notes:         The .hobj file is big-endian:
+ *                  "HOBJ", u16 version,
+ *                  u32 word count, u16 per word,
+ *                  u32 relocation count, u32 word index per relocation,
+ *                  u32 export count, per export: u16 length, name, u32 address,
+ *                  u32 import count, per import: u16 length, name (first-use order),
+ *                  u32 reference count, per reference: u32 word index, u32 import number.
+ *                Relocations & references are in ascending word order, so linking is
+ *                one pass over the words of each module.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class HackObject {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String EXTENSION = ".hobj";
+
+    private static final int MAGIC = ('H' << 24) | ('O' << 16) | ('B' << 8) | 'J';
+    private static final int VERSION = 1;
+    private static final int MAX_NAME_LENGTH = 0xFFFF;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private String name;
+    private int[] words;
+    private int wordCount;
+    private int[] relocations;
+    private int relocationCount;
+    private int[] references;
+    private int[] referenceImports;
+    private int referenceCount;
+    private SymbolMap exports;
+    private SymbolMap imports;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty module.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the module has no words and no symbols
+     *
+     * @param   name    -   the module's name, used in link errors
+     */
+    HackObject(String name) {
+        this.name = name;
+        words = new int[256];
+        relocations = new int[16];
+        references = new int[16];
+        referenceImports = new int[16];
+        exports = new SymbolMap();
+        imports = new SymbolMap();
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the module's name (its file name, when read from a file)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return      -   the number of instruction words in the module
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Writes the module to an object file.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   file holds the module
+     *
+     * @param   file    -   the .hobj file to create or replace
+     * @throws IOException  if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        int size = 6 + 4 + 2 * wordCount + 4 + 4 * relocationCount + 4 + 4 + 4 + 8 * referenceCount;
+        for (int i = 0; i < exports.size(); i++) {
+            size += 2 + exports.getKey(i).length() + 4;
+        }
+        for (int i = 0; i < imports.size(); i++) {
+            size += 2 + imports.getKey(i).length();
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putShort((short) VERSION);
+        out.putInt(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            out.putShort((short) words[i]);
+        }
+        out.putInt(relocationCount);
+        for (int i = 0; i < relocationCount; i++) {
+            out.putInt(relocations[i]);
+        }
+        out.putInt(exports.size());
+        for (int i = 0; i < exports.size(); i++) {
+            putName(out, exports.getKey(i));
+            out.putInt(exports.getValue(i));
+        }
+        out.putInt(imports.size());
+        for (int i = 0; i < imports.size(); i++) {
+            putName(out, imports.getKey(i));
+        }
+        out.putInt(referenceCount);
+        for (int i = 0; i < referenceCount; i++) {
+            out.putInt(references[i]).putInt(referenceImports[i]);
+        }
+        Files.write(file, out.array());
+    }
+
+    /**
+     * Reads a module from an object file.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @param   file    -   a .hobj file written by write(Path)
+     * @return          -   the module, named after the file
+     * @throws IOException  if the file cannot be read or is not a valid object file
+     */
+    public static HackObject read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        HackObject object = new HackObject(file.getFileName().toString());
+        try {
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                throw new IOException(file + " is not a Hack object file of version " + VERSION);
+            }
+            object.wordCount = getCount(in, 2);
+            object.words = new int[object.wordCount];
+            for (int i = 0; i < object.wordCount; i++) {
+                object.words[i] = in.getShort() & 0xFFFF;
+            }
+            object.relocationCount = getCount(in, 4);
+            object.relocations = new int[object.relocationCount];
+            for (int i = 0; i < object.relocationCount; i++) {
+                object.relocations[i] = in.getInt();
+            }
+            checkWordIndices(file, object.relocations, object.relocationCount, object.wordCount);
+            int exportCount = getCount(in, 6);
+            object.exports = new SymbolMap(exportCount);
+            for (int i = 0; i < exportCount; i++) {
+                object.exports.put(getName(in), in.getInt());
+            }
+            int importCount = getCount(in, 2);
+            object.imports = new SymbolMap(importCount);
+            for (int i = 0; i < importCount; i++) {
+                object.imports.put(getName(in), i);
+            }
+            object.referenceCount = getCount(in, 8);
+            object.references = new int[object.referenceCount];
+            object.referenceImports = new int[object.referenceCount];
+            for (int i = 0; i < object.referenceCount; i++) {
+                object.references[i] = in.getInt();
+                object.referenceImports[i] = in.getInt();
+                if (object.referenceImports[i] < 0 || object.referenceImports[i] >= importCount) {
+                    throw new IOException(file + " refers to import " + object.referenceImports[i]
+                                          + " of " + importCount);
+                }
+            }
+            checkWordIndices(file, object.references, object.referenceCount, object.wordCount);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + " is truncated");
+        }
+        return object;
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Appends a word that needs no fixing up.
+     *
+     * @param   word    -   the encoded instruction
+     */
+    void addWord(int word) {
+        words = append(words, wordCount++, word);
+    }
+
+    /**
+     * Appends an A-Instruction referring to one of this module's labels.
+     *
+     * @param   relativeAddress -   the label's ROM address within the module
+     */
+    void addRelocatedWord(int relativeAddress) {
+        relocations = append(relocations, relocationCount++, wordCount);
+        addWord(Code.aInstruction(relativeAddress));
+    }
+
+    /**
+     * Appends an A-Instruction referring to a symbol this module does not declare.
+     *
+     * @param   symbol  -   the symbol, imported the first time it is referenced
+     */
+    void addReference(CharSequence symbol) {
+        int number = imports.putIfAbsent(symbol, imports.size());
+        references = append(references, referenceCount, wordCount);
+        referenceImports = append(referenceImports, referenceCount++,
+                                  number == SymbolMap.NOT_FOUND ? imports.size() - 1 : number);
+        addWord(0);
+    }
+
+    /**
+     * Exports a label declared by this module, unless it already is.
+     *
+     * @param   symbol          -   the label
+     * @param   relativeAddress -   its ROM address within the module
+     */
+    void addExport(CharSequence symbol, int relativeAddress) {
+        exports.putIfAbsent(symbol, relativeAddress);
+    }
+
+    /**
+     * @param   index   -   0 <= index < getWordCount()
+     * @return          -   the word at index, before linking
+     */
+    int getWord(int index) {
+        return words[index];
+    }
+
+    /**
+     * @param   index   -   0 <= index < getRelocationCount()
+     * @return          -   the index of the word holding the relocation
+     */
+    int getRelocation(int index) {
+        return relocations[index];
+    }
+
+    /**
+     * @return      -   the number of references to this module's labels
+     */
+    int getRelocationCount() {
+        return relocationCount;
+    }
+
+    /**
+     * @param   index   -   0 <= index < getReferenceCount()
+     * @return          -   the index of the word holding the import number
+     */
+    int getReference(int index) {
+        return references[index];
+    }
+
+    /**
+     * @param   index   -   0 <= index < getReferenceCount()
+     * @return          -   the number of the import the reference is to
+     */
+    int getReferenceImport(int index) {
+        return referenceImports[index];
+    }
+
+    /**
+     * @return      -   the number of references to imported symbols
+     */
+    int getReferenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * @return      -   the exported labels and their module-relative addresses
+     */
+    SymbolMap getExports() {
+        return exports;
+    }
+
+    /**
+     * @return      -   the imported symbols, numbered in first-use order
+     */
+    SymbolMap getImports() {
+        return imports;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Stores value at index, growing array if it is full.
+     */
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    /**
+     * Writes a symbol as its length followed by its Latin-1 bytes.
+     */
+    private static void putName(ByteBuffer out, String symbol) throws IOException {
+        if (symbol.length() > MAX_NAME_LENGTH) {
+            throw new IOException("Symbol too long for an object file: " + symbol.substring(0, 32) + "...");
+        }
+        out.putShort((short) symbol.length());
+        out.put(symbol.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Reads a symbol written by putName().
+     */
+    private static String getName(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Checks that word indices are in ascending order and name words of the module.
+     */
+    private static void checkWordIndices(Path file, int[] indices, int count, int wordCount) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (indices[i] >= wordCount || indices[i] < (i == 0 ? 0 : indices[i - 1] + 1)) {
+                throw new IOException(file + " has a fix-up out of order at word " + indices[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a count of items of at least itemSize bytes each, checking that
+     * they can fit in what is left, so a damaged file can't make us allocate
+     * a huge array.
+     */
+    private static int getCount(ByteBuffer in, int itemSize) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || (long) count * itemSize > in.remaining()) {
+            throw new IOException("Damaged object file: a count of " + count + " does not fit");
+        }
+        return count;
+    }
+}
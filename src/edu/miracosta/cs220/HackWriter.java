@@ -0,0 +1,86 @@
+/************************************************************************************
+ *
+ * Class name:    HackWriter
+ * Package:       edu.miracosta.cs220
+ * Description:   Writes 16-bit instruction words as .hack text. Each byte of a word
+ *                is turned into its 8 ASCII '0'/'1' characters with one lookup in a
+ *                precomputed table; every line is exactly LINE_LENGTH bytes.
+ *
+ * History:       added to replace decimalToBinary() and PrintWriter output
+ *
+ * Methods:       Public:   HackWriter(WritableByteChannel), toBinary(int)
+ *
+ *                Protected: encode(ByteBuffer, int, int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class HackWriter extends FixedWidthWriter {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int LINE_LENGTH = 17;
+
+    //  BYTE_BITS[8 * b .. 8 * b + 7] holds the characters of byte b, MSB first
+    private static final byte[] BYTE_BITS = new byte[256 * 8];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            for (int bit = 0; bit < 8; bit++) {
+                BYTE_BITS[value * 8 + bit] = (byte) ((value >>> (7 - bit) & 1) == 0 ? '0' : '1');
+            }
+        }
+    }
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to write .hack lines to channel.
+     *
+     * PRECONDITION:    channel is open for writing (and positioned at its start, if it is a file)
+     * POSTCONDITION:   the writer is ready to write
+     *
+     * @param   channel -   the channel to write .hack text to
+     */
+    public HackWriter(WritableByteChannel channel) {
+        super(channel, LINE_LENGTH);
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Writes a 16-bit word as a string of bits, using the same table.
+     *
+     * PRECONDITION:    0 <= word < 2^16
+     * POSTCONDITION:   N/A
+     *
+     * @param   word    -   the word to convert
+     * @return          -   the word as 16 '0'/'1' characters, MSB on the left
+     */
+    public static String toBinary(int word) {
+        byte[] bits = new byte[16];
+        System.arraycopy(BYTE_BITS, (word >>> 8 & 0xFF) * 8, bits, 0, 8);
+        System.arraycopy(BYTE_BITS, (word & 0xFF) * 8, bits, 8, 8);
+        return new String(bits, StandardCharsets.ISO_8859_1);
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    @Override
+    protected void encode(ByteBuffer target, int index, int word) {
+        target.put(index, BYTE_BITS, (word >>> 8 & 0xFF) * 8, 8);
+        target.put(index + 8, BYTE_BITS, (word & 0xFF) * 8, 8);
+        target.put(index + 16, (byte) '\n');
+    }
+}
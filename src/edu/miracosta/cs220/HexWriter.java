@@ -0,0 +1,82 @@
+/************************************************************************************
+ *
+ * Class name:    HexWriter
+ * Package:       edu.miracosta.cs220
+ * Description:   Writes instruction words as a plain hex dump: four upper-case hex
+ *                digits and a '\n' per word, as read by $readmemh and most
+ *                simulators.
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   HexWriter(WritableByteChannel)
+ *
+ *                Package:  putHexByte(ByteBuffer, int, int)
+ *
+ *                Protected: encode(ByteBuffer, int, int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class HexWriter extends FixedWidthWriter {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int LINE_LENGTH = 5;
+
+    //  HEX_DIGITS[2 * b], HEX_DIGITS[2 * b + 1] are the two digits of byte b
+    private static final byte[] HEX_DIGITS = new byte[256 * 2];
+
+    static {
+        byte[] digits = "0123456789ABCDEF".getBytes();
+        for (int value = 0; value < 256; value++) {
+            HEX_DIGITS[value * 2] = digits[value >>> 4];
+            HEX_DIGITS[value * 2 + 1] = digits[value & 0xF];
+        }
+    }
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to write a hex dump to channel.
+     *
+     * PRECONDITION:    channel is open for writing (and positioned at its start, if it is a file)
+     * POSTCONDITION:   the writer is ready to write
+     *
+     * @param   channel -   the channel to write the hex dump to
+     */
+    public HexWriter(WritableByteChannel channel) {
+        super(channel, LINE_LENGTH);
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Puts the two hex digits of a byte into target at index.
+     *
+     * @param   target  -   the buffer to write into
+     * @param   index   -   the absolute index of the first digit
+     * @param   value   -   the byte, 0 - 255
+     */
+    static void putHexByte(ByteBuffer target, int index, int value) {
+        target.put(index, HEX_DIGITS, (value & 0xFF) * 2, 2);
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    @Override
+    protected void encode(ByteBuffer target, int index, int word) {
+        putHexByte(target, index, word >>> 8);
+        putHexByte(target, index + 2, word);
+        target.put(index + 4, (byte) '\n');
+    }
+}
@@ -0,0 +1,179 @@
+/************************************************************************************
+ *
+ * Class name:    HoldBackSink
+ * Package:       edu.miracosta.cs220
+ * Description:   Makes any sink patchable by holding back only the words that may
+ *                still change. Words before the hold position go straight to the
+ *                sink underneath; words from the hold position on are kept in memory
+ *                until the position moves past them. Single-pass assembly moves it to
+ *                the first placeholder still waiting for its label, so a program can
+ *                be streamed to a pipe (or written as Intel HEX) while it is read.
+ *
+ * History:       added for streaming standard input to standard output
+ *
+ * Methods:       Public:   HoldBackSink(OutputSink), write(int), patch(long, int),
+ *                          isPatchable(), hold(long), getWordCount(), getBytesWritten(),
+ *                          getHeldWordCount(), flush(), finish(), close()
+ *
+ *                Private:  release(long)
+ *
+ * Notes:         A symbol that turns out to be a variable is only known to be one at
+ *                the end of the program, so output that refers to a variable before
+ *                any label declaration follows it is held until the end.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class HoldBackSink implements OutputSink {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private OutputSink sink;
+    private int[] held;
+    private int heldStart;      //  index in held of the first held word
+    private int heldCount;
+    private long releasedWords; //  words passed to sink, i.e. position of the first held word
+    private long holdPosition;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Wraps sink, holding nothing back until hold(long) is called.
+     *
+     * PRECONDITION:    sink is open
+     * POSTCONDITION:   words written go to sink, in order
+     *
+     * @param   sink    -   the sink to write the final words to
+     */
+    public HoldBackSink(OutputSink sink) {
+        this.sink = sink;
+        held = new int[1024];
+        heldStart = 0;
+        heldCount = 0;
+        releasedWords = 0;
+        holdPosition = Long.MAX_VALUE;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void write(int word) throws IOException {
+        if (heldCount == 0 && releasedWords < holdPosition) {
+            sink.write(word);
+            releasedWords++;
+            return;
+        }
+        if (heldStart + heldCount == held.length) {
+            if (heldStart >= held.length / 2) {
+                //  Mostly released -> slide the held words down instead of growing
+                System.arraycopy(held, heldStart, held, 0, heldCount);
+            } else {
+                held = Arrays.copyOf(held, held.length * 2);
+                System.arraycopy(held, heldStart, held, 0, heldCount);
+            }
+            heldStart = 0;
+        }
+        held[heldStart + heldCount++] = word;
+    }
+
+    /**
+     * Overwrites a word that is still held back.
+     */
+    @Override
+    public void patch(long position, int word) throws IOException {
+        if (position < releasedWords) {
+            throw new IOException("Cannot patch word " + position + ", it has already been written");
+        }
+        held[heldStart + (int) (position - releasedWords)] = word;
+    }
+
+    @Override
+    public boolean isPatchable() {
+        return true;
+    }
+
+    /**
+     * Releases every held word before position to the sink underneath and
+     * holds back every word from position on, including words not written yet.
+     *
+     * PRECONDITION:    position is not before an earlier hold position
+     * POSTCONDITION:   words before position can no longer be patched
+     *
+     * @param   position    -   the first word that may still be patched, or
+     *                          Long.MAX_VALUE if none may
+     */
+    @Override
+    public void hold(long position) throws IOException {
+        holdPosition = position;
+        release(position);
+    }
+
+    @Override
+    public long getWordCount() {
+        return releasedWords + heldCount;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return sink.getBytesWritten();
+    }
+
+    /**
+     * @return      -   the number of words kept in memory right now
+     */
+    public int getHeldWordCount() {
+        return heldCount;
+    }
+
+    /**
+     * Flushes the words released so far; held words stay held.
+     */
+    @Override
+    public void flush() throws IOException {
+        sink.flush();
+    }
+
+    /**
+     * Releases every held word and finishes the sink underneath.
+     */
+    @Override
+    public void finish() throws IOException {
+        hold(Long.MAX_VALUE);
+        sink.finish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            hold(Long.MAX_VALUE);
+        } finally {
+            sink.close();
+        }
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Passes held words to the sink until position (or the last held word).
+     */
+    private void release(long position) throws IOException {
+        while (heldCount > 0 && releasedWords < position) {
+            sink.write(held[heldStart++]);
+            heldCount--;
+            releasedWords++;
+        }
+        if (heldCount == 0) {
+            heldStart = 0;
+        }
+    }
+}
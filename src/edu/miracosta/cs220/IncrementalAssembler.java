@@ -0,0 +1,775 @@
+/************************************************************************************
+ *
+ * Class name:    IncrementalAssembler
+ * Package:       edu.miracosta.cs220
+ * Description:   Keeps one .asm file parsed & encoded in memory and brings its
+ *                outputs up to date after each edit. The old and new text are
+ *                compared to find the edited line range; only those lines are
+ *                parsed & encoded again and spliced into the ParsedProgram and the
+ *                words. Each symbol's first declaration & first use are kept by
+ *                symbol number, so the edit shows which labels moved (the ones
+ *                after it, if it changed the number of instructions) and whether
+ *                it changed the first-use order that numbers the variables. Only
+ *                the A-instructions naming a symbol whose address changed are
+ *                encoded again, and the outputs are rewritten from the first
+ *                changed word on (not at all, if no word changed).
+ *
+ * History:       added for watch mode
+ *
+ * Methods:       Public:   IncrementalAssembler(Path, String, List), update(),
+ *                          getReparsedLineCount(), getEncodedWordCount()
+ *
+ *                Private:  editedRange(byte[]), commonSuffix(byte[], byte[], int),
+ *                          lineAtOrBefore(int), firstLineAfter(int),
+ *                          spliceLineStarts(byte[], int, int, int, int), isLineStart(byte[], int),
+ *                          forget(int, int), resolve(int, int, int, int), findLostFirsts(int, int),
+ *                          numberVariables(), spliceErrors(int, int, int, int[], int),
+ *                          encodeReferences(int, int), wordsBefore(int), learnSymbols(),
+ *                          checkErrors(), errorAt(int), isWord(byte), isError(byte, int),
+ *                          encode(byte, int), writeOutputs(int), reportError(int, String)
+ *
+ * Notes:         Lines end at "\n", "\r" or "\r\n", as they do for the Parser.
+ *                Addresses follow HackAssembler's firstPass() & secondPass() rule
+ *                for rule: a label is the ROM address of its first declaration,
+ *                and variables are numbered from 16 in the order of their first
+ *                uses. Errors are kept per instruction as lines are spliced in,
+ *                and checkErrors() picks the one a full run reports: a label with
+ *                an invalid name first, then the earliest error in line order. An
+ *                edit that leaves errors in the file leaves the outputs as they
+ *                were, so the last good build stays in place.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class IncrementalAssembler {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  Bytes compared at a time when looking for the unchanged end of the text
+    private static final int SUFFIX_BLOCK = 4096;
+
+    //  No instruction (for first declarations & uses) or no word (for dirtyFrom)
+    private static final int NONE = Integer.MAX_VALUE;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Path input;
+    private final String outputBaseName;
+    private final List<OutputFormat> formats;
+
+    //  The text last assembled, the offset each of its lines starts at, and its parse
+    private byte[] text;
+    private int[] lineStarts;
+    private int lineCount;
+    private ParsedProgram program;
+
+    //  Per symbol number: predefined address (or INVALID), validity, resolved address,
+    //  the address before the last edit, and how many instructions declare & use it
+    //  along with the first of each (NONE if there is none)
+    private int[] predefined;
+    private boolean[] validName;
+    private int[] addresses;
+    private int[] previousAddresses;
+    private int[] declarations;
+    private int[] firstDeclaration;
+    private int[] uses;
+    private int[] firstUse;
+    private int knownSymbols;
+    private int symbolCount;
+    //  The symbols with invalid names, an error for as long as they are declared or used
+    private int[] invalidSymbols;
+    private int invalidSymbolCount;
+
+    //  The instructions that are errors in themselves, in order
+    private int[] errorIndices;
+    private int errorCount;
+
+    //  The word of each instruction as the file is now. The outputs hold the last
+    //  good build, which has builtWordCount words and matches these up to dirtyFrom
+    private int[] words;
+    private int wordCount;
+    private boolean built;
+    private int builtWordCount;
+    private int dirtyFrom;
+    private int reparsedLineCount;
+    private int encodedWordCount;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to assemble input into one output file per format.
+     *
+     * PRECONDITION:    formats is not empty
+     * POSTCONDITION:   nothing has been read yet; the first update() assembles the whole file
+     *
+     * @param   input           -   the .asm file
+     * @param   outputBaseName  -   the output file name without an extension
+     * @param   formats         -   the formats to write
+     */
+    public IncrementalAssembler(Path input, String outputBaseName, List<OutputFormat> formats) {
+        this.input = input;
+        this.outputBaseName = outputBaseName;
+        this.formats = new ArrayList<>(formats);
+        text = new byte[0];
+        lineStarts = new int[64];
+        lineCount = 0;
+        program = new ParsedProgram();
+        predefined = new int[0];
+        validName = new boolean[0];
+        addresses = new int[0];
+        previousAddresses = new int[0];
+        declarations = new int[0];
+        firstDeclaration = new int[0];
+        uses = new int[0];
+        firstUse = new int[0];
+        knownSymbols = 0;
+        symbolCount = SymbolTable.getPredefinedCount();
+        invalidSymbols = new int[8];
+        invalidSymbolCount = 0;
+        errorIndices = new int[8];
+        errorCount = 0;
+        words = new int[64];
+        wordCount = 0;
+        built = false;
+        dirtyFrom = NONE;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Reads the file again and brings the outputs up to date with it.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the outputs match the file, or the file has an error and
+     *                  the outputs are unchanged
+     *
+     * @return      -   the result of assembling the file as it is now
+     * @throws IOException  if the file cannot be read or an output cannot be written
+     */
+    public AssemblyResult update() throws IOException {
+        long start = System.nanoTime();
+        byte[] newText = Files.readAllBytes(input);
+        reparsedLineCount = 0;
+        encodedWordCount = 0;
+
+        int[] range = editedRange(newText);
+        if (range != null) {
+            int firstLine = range[0], endLine = range[1], regionStart = range[2], regionEnd = range[3];
+            ParsedProgram region = new Parser(new ArraySource(
+                    ByteBuffer.wrap(newText, regionStart, regionEnd - regionStart))).parseAll();
+            int regionLines = region.getSourceLineCount();
+            int from = program.firstIndexAtLine(firstLine + 1);
+            int to = program.firstIndexAtLine(endLine + 1);
+            int oldWords = forget(from, to);
+            program.splice(firstLine + 1, endLine + 1, region, regionLines - (endLine - firstLine));
+            spliceLineStarts(newText, firstLine, endLine, regionStart, regionEnd);
+            text = newText;
+            reparsedLineCount = regionLines;
+            resolve(from, to, region.size(), oldWords);
+        }
+
+        List<Diagnostic> diagnostics = Collections.emptyList();
+        try {
+            checkErrors();
+        } catch (AssemblyException e) {
+            diagnostics = Collections.singletonList(e.getDiagnostic());
+        }
+
+        long bytesWritten = 0;
+        if (diagnostics.isEmpty() && (!built || dirtyFrom != NONE)) {
+            bytesWritten = writeOutputs(dirtyFrom);
+            built = true;
+            builtWordCount = wordCount;
+            dirtyFrom = NONE;
+        }
+        return new AssemblyResult(diagnostics, null, diagnostics.isEmpty() ? wordCount : 0, bytesWritten,
+                                  program.getSourceLineCount(), symbolCount, System.nanoTime() - start);
+    }
+
+    /**
+     * @return      -   the number of source lines the last update() parsed
+     */
+    public int getReparsedLineCount() {
+        return reparsedLineCount;
+    }
+
+    /**
+     * @return      -   the number of words the last update() encoded: those of
+     *                  the edited lines and of the A-instructions naming a symbol
+     *                  whose address the edit changed
+     */
+    public int getEncodedWordCount() {
+        return encodedWordCount;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Finds the whole lines that differ between the current text and newText.
+     * The bytes before the first difference and after the last one are the
+     * same in both, so the lines lying entirely within them are unchanged.
+     *
+     * @param   newText -   the edited text
+     * @return          -   null if nothing changed, else {first edited line, line after
+     *                      the last edited old line (0-based), start & end of the edited
+     *                      lines in newText}
+     */
+    private int[] editedRange(byte[] newText) {
+        int prefix = Arrays.mismatch(text, newText);
+        if (prefix == -1) {
+            return null;
+        }
+        int oldLength = text.length, newLength = newText.length;
+        int suffix = commonSuffix(text, newText, Math.min(oldLength, newLength) - prefix);
+        //  A line starting exactly at the first difference may not start there any
+        //  more (e.g. "\r" + inserted "\n"), so it begins on the line before
+        int firstLine = lineAtOrBefore(prefix - 1);
+        int regionStart = lineCount == 0 ? 0 : lineStarts[firstLine];
+        //  A line whose terminator lies in the unchanged suffix starts the same unchanged text
+        int endLine = firstLineAfter(oldLength - suffix);
+        int oldEnd = endLine < lineCount ? lineStarts[endLine] : oldLength;
+        return new int[] { firstLine, endLine, regionStart, oldEnd + newLength - oldLength };
+    }
+
+    /**
+     * Returns how many bytes at the end of first and second are the same, up
+     * to limit. Whole blocks are compared first, which the JIT vectorizes.
+     */
+    private static int commonSuffix(byte[] first, byte[] second, int limit) {
+        int suffix = 0;
+        while (limit - suffix >= SUFFIX_BLOCK
+               && Arrays.equals(first, first.length - suffix - SUFFIX_BLOCK, first.length - suffix,
+                                second, second.length - suffix - SUFFIX_BLOCK, second.length - suffix)) {
+            suffix += SUFFIX_BLOCK;
+        }
+        while (suffix < limit && first[first.length - 1 - suffix] == second[second.length - 1 - suffix]) {
+            suffix++;
+        }
+        return suffix;
+    }
+
+    /**
+     * Returns the index of the line holding offset, or 0 if offset < 0.
+     */
+    private int lineAtOrBefore(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return Math.max(index, 0);
+    }
+
+    /**
+     * Returns the index of the first line starting after offset (its
+     * terminator is then at or after offset), or lineCount if there is none.
+     */
+    private int firstLineAfter(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset + 1);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * Replaces the start offsets of the old lines firstLine up to endLine with
+     * those of the lines in newText between regionStart and regionEnd, and moves
+     * the offsets of the lines after them.
+     */
+    private void spliceLineStarts(byte[] newText, int firstLine, int endLine, int regionStart, int regionEnd) {
+        int[] starts = new int[16];
+        int added = 0;
+        for (int offset = regionStart; offset < regionEnd; offset++) {
+            if (offset == regionStart || isLineStart(newText, offset)) {
+                if (added == starts.length) {
+                    starts = Arrays.copyOf(starts, added * 2);
+                }
+                starts[added++] = offset;
+            }
+        }
+        int newCount = lineCount - (endLine - firstLine) + added;
+        if (lineStarts.length < newCount) {
+            lineStarts = Arrays.copyOf(lineStarts, Math.max(newCount, lineStarts.length * 2));
+        }
+        System.arraycopy(lineStarts, endLine, lineStarts, firstLine + added, lineCount - endLine);
+        System.arraycopy(starts, 0, lineStarts, firstLine, added);
+        int shift = newText.length - text.length;
+        for (int i = firstLine + added; i < newCount; i++) {
+            lineStarts[i] += shift;
+        }
+        lineCount = newCount;
+    }
+
+    /**
+     * Returns whether a line starts at offset, i.e. the byte before it ends a line.
+     */
+    private static boolean isLineStart(byte[] bytes, int offset) {
+        byte previous = bytes[offset - 1];
+        return previous == '\n' || (previous == '\r' && bytes[offset] != '\n');
+    }
+
+    /**
+     * Takes the instructions from up to to, which an edit is about to replace,
+     * out of the symbols' declaration & use counts.
+     *
+     * @return      -   the number of words they encode to
+     */
+    private int forget(int from, int to) {
+        int oldWords = 0;
+        for (int i = from; i < to; i++) {
+            byte kind = program.getKind(i);
+            if (kind == ParsedProgram.L_INSTRUCTION) {
+                declarations[program.getOperand(i)]--;
+            } else if (kind == ParsedProgram.A_SYMBOL) {
+                uses[program.getOperand(i)]--;
+            }
+            if (isWord(kind)) {
+                oldWords++;
+            }
+        }
+        return oldWords;
+    }
+
+    /**
+     * Brings symbols, errors and words up to date after the instructions from
+     * up to to (of which oldWords were words) have been replaced by the added
+     * ones now starting at from. Labels declared after the edit move by the
+     * change in the number of words and those declared in it are placed afresh;
+     * the variables are numbered again only if the edit changed a first
+     * declaration or use. The edited instructions are encoded, and then only
+     * the A-instructions elsewhere that name a symbol whose address changed.
+     */
+    private void resolve(int from, int to, int added, int oldWords) {
+        learnSymbols();
+        System.arraycopy(addresses, 0, previousAddresses, 0, knownSymbols);
+        int end = from + added;
+        int start = wordsBefore(from);
+        int newWords = 0;
+        for (int i = from; i < end; i++) {
+            if (isWord(program.getKind(i))) {
+                newWords++;
+            }
+        }
+        int wordShift = newWords - oldWords;
+
+        //  First declarations & uses after the edit move with it; those in it are lost
+        boolean lost = false;
+        boolean renumber = false;
+        for (int symbol = 0; symbol < knownSymbols; symbol++) {
+            int declaration = firstDeclaration[symbol];
+            if (declaration != NONE && declaration >= from) {
+                if (declaration >= to) {
+                    firstDeclaration[symbol] = declaration + end - to;
+                    if (predefined[symbol] == SymbolTable.INVALID) {
+                        addresses[symbol] += wordShift;
+                    }
+                } else {
+                    firstDeclaration[symbol] = NONE;
+                    lost = true;
+                    renumber |= predefined[symbol] == SymbolTable.INVALID;
+                }
+            }
+            int use = firstUse[symbol];
+            if (use != NONE && use >= from) {
+                if (use >= to) {
+                    firstUse[symbol] = use + end - to;
+                } else {
+                    firstUse[symbol] = NONE;
+                    lost = true;
+                    renumber |= predefined[symbol] == SymbolTable.INVALID;
+                }
+            }
+        }
+
+        //  The edited instructions come before any moved first, so they may take its place
+        int[] regionErrors = new int[8];
+        int regionErrorCount = 0;
+        int word = start;
+        for (int i = from; i < end; i++) {
+            byte kind = program.getKind(i);
+            int operand = program.getOperand(i);
+            if (kind == ParsedProgram.L_INSTRUCTION) {
+                declarations[operand]++;
+                if (firstDeclaration[operand] > i) {
+                    firstDeclaration[operand] = i;
+                    if (predefined[operand] == SymbolTable.INVALID) {
+                        addresses[operand] = word;
+                        renumber = true;
+                    }
+                }
+            } else if (kind == ParsedProgram.A_SYMBOL) {
+                uses[operand]++;
+                if (firstUse[operand] > i) {
+                    firstUse[operand] = i;
+                    renumber |= predefined[operand] == SymbolTable.INVALID;
+                }
+            }
+            if (isError(kind, operand)) {
+                if (regionErrorCount == regionErrors.length) {
+                    regionErrors = Arrays.copyOf(regionErrors, regionErrorCount * 2);
+                }
+                regionErrors[regionErrorCount++] = i;
+            }
+            if (isWord(kind)) {
+                word++;
+            }
+        }
+        if (lost) {
+            findLostFirsts(end, start + newWords);
+        }
+        if (renumber) {
+            numberVariables();
+        }
+        spliceErrors(from, to, end, regionErrors, regionErrorCount);
+
+        //  Addresses are final now, so the edited instructions can be encoded
+        int[] regionWords = new int[newWords];
+        word = 0;
+        for (int i = from; i < end; i++) {
+            byte kind = program.getKind(i);
+            if (isWord(kind)) {
+                regionWords[word++] = encode(kind, program.getOperand(i));
+            }
+        }
+        int mismatch = Arrays.mismatch(words, start, start + oldWords, regionWords, 0, newWords);
+        if (dirtyFrom != NONE && dirtyFrom > start) {
+            dirtyFrom = dirtyFrom >= start + oldWords ? dirtyFrom + wordShift : start;
+        }
+        if (mismatch != -1) {
+            dirtyFrom = Math.min(dirtyFrom, start + mismatch);
+        }
+        int newCount = wordCount + wordShift;
+        if (words.length < newCount) {
+            words = Arrays.copyOf(words, Math.max(newCount, words.length * 2));
+        }
+        System.arraycopy(words, start + oldWords, words, start + newWords, wordCount - start - oldWords);
+        System.arraycopy(regionWords, 0, words, start, newWords);
+        wordCount = newCount;
+        encodedWordCount = newWords;
+        encodeReferences(from, end);
+    }
+
+    /**
+     * Finds the first declarations & uses that an edit deleted and that are
+     * not in its new lines either. As they were first, the next ones come
+     * after the edit; a label found this way is placed at its word.
+     *
+     * @param   from    -   the first instruction after the edit
+     * @param   word    -   the number of words before it
+     */
+    private void findLostFirsts(int from, int word) {
+        int pending = 0;
+        for (int symbol = 0; symbol < knownSymbols; symbol++) {
+            if (declarations[symbol] > 0 && firstDeclaration[symbol] == NONE) {
+                pending++;
+            }
+            if (uses[symbol] > 0 && firstUse[symbol] == NONE) {
+                pending++;
+            }
+        }
+        int size = program.size();
+        for (int i = from; pending > 0 && i < size; i++) {
+            byte kind = program.getKind(i);
+            int operand = program.getOperand(i);
+            if (kind == ParsedProgram.L_INSTRUCTION && firstDeclaration[operand] == NONE) {
+                firstDeclaration[operand] = i;
+                if (predefined[operand] == SymbolTable.INVALID) {
+                    addresses[operand] = word;
+                }
+                pending--;
+            } else if (kind == ParsedProgram.A_SYMBOL && firstUse[operand] == NONE) {
+                firstUse[operand] = i;
+                pending--;
+            }
+            if (isWord(kind)) {
+                word++;
+            }
+        }
+    }
+
+    /**
+     * Numbers the variables (symbols used but neither predefined nor declared)
+     * from FIRST_VARIABLE_ADDRESS in the order of their first uses, and counts
+     * the symbols as a full run's SymbolTable would hold them.
+     */
+    private void numberVariables() {
+        long[] order = new long[knownSymbols];
+        int variables = 0;
+        int labels = 0;
+        for (int symbol = 0; symbol < knownSymbols; symbol++) {
+            if (predefined[symbol] == SymbolTable.INVALID) {
+                if (declarations[symbol] > 0) {
+                    labels++;
+                } else if (uses[symbol] > 0) {
+                    order[variables++] = (long) firstUse[symbol] << 32 | symbol;
+                } else {
+                    addresses[symbol] = SymbolTable.INVALID;
+                }
+            }
+        }
+        Arrays.sort(order, 0, variables);
+        for (int i = 0; i < variables; i++) {
+            addresses[(int) order[i]] = HackAssembler.FIRST_VARIABLE_ADDRESS + i;
+        }
+        symbolCount = SymbolTable.getPredefinedCount() + labels + variables;
+    }
+
+    /**
+     * Replaces the errors among the instructions from up to to with the added
+     * ones, and moves the errors after them to where the edit left them.
+     */
+    private void spliceErrors(int from, int to, int end, int[] added, int addedCount) {
+        int first = Arrays.binarySearch(errorIndices, 0, errorCount, from);
+        first = first < 0 ? -first - 1 : first;
+        int last = Arrays.binarySearch(errorIndices, 0, errorCount, to);
+        last = last < 0 ? -last - 1 : last;
+        int newCount = errorCount - (last - first) + addedCount;
+        if (errorIndices.length < newCount) {
+            errorIndices = Arrays.copyOf(errorIndices, Math.max(newCount, errorIndices.length * 2));
+        }
+        System.arraycopy(errorIndices, last, errorIndices, first + addedCount, errorCount - last);
+        for (int i = first + addedCount; i < newCount; i++) {
+            errorIndices[i] += end - to;
+        }
+        System.arraycopy(added, 0, errorIndices, first, addedCount);
+        errorCount = newCount;
+    }
+
+    /**
+     * Encodes again the A-instructions outside the edit that name a symbol
+     * whose address it changed. The program is only swept if there is one.
+     */
+    private void encodeReferences(int from, int end) {
+        boolean moved = false;
+        for (int symbol = 0; symbol < knownSymbols && !moved; symbol++) {
+            moved = uses[symbol] > 0 && addresses[symbol] != previousAddresses[symbol];
+        }
+        if (!moved) {
+            return;
+        }
+        int size = program.size();
+        int word = 0;
+        for (int i = 0; i < size; i++) {
+            byte kind = program.getKind(i);
+            if (kind == ParsedProgram.A_SYMBOL && (i < from || i >= end)) {
+                int operand = program.getOperand(i);
+                if (addresses[operand] != previousAddresses[operand]) {
+                    int encoded = Code.aInstruction(addresses[operand]);
+                    if (words[word] != encoded) {
+                        words[word] = encoded;
+                        dirtyFrom = Math.min(dirtyFrom, word);
+                    }
+                    encodedWordCount++;
+                }
+            }
+            if (isWord(kind)) {
+                word++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of words the instructions before index encode to.
+     */
+    private int wordsBefore(int index) {
+        int count = 0;
+        for (int i = 0; i < index; i++) {
+            if (isWord(program.getKind(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Works out the predefined address & validity of symbols added to the
+     * program's pool since the last call. Symbols stay in the pool after the
+     * lines using them are deleted, so each is only looked at once.
+     */
+    private void learnSymbols() {
+        int symbols = program.getSymbolCount();
+        if (symbols == knownSymbols) {
+            return;
+        }
+        if (predefined.length < symbols) {
+            int capacity = Math.max(symbols, predefined.length * 2);
+            predefined = Arrays.copyOf(predefined, capacity);
+            validName = Arrays.copyOf(validName, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            previousAddresses = new int[capacity];
+            declarations = Arrays.copyOf(declarations, capacity);
+            firstDeclaration = Arrays.copyOf(firstDeclaration, capacity);
+            uses = Arrays.copyOf(uses, capacity);
+            firstUse = Arrays.copyOf(firstUse, capacity);
+        }
+        for (int i = knownSymbols; i < symbols; i++) {
+            String symbol = program.getSymbol(i);
+            predefined[i] = SymbolTable.getPredefined(symbol);
+            validName[i] = SymbolTable.isValidName(symbol);
+            addresses[i] = predefined[i];
+            firstDeclaration[i] = NONE;
+            firstUse[i] = NONE;
+            if (!validName[i]) {
+                if (invalidSymbolCount == invalidSymbols.length) {
+                    invalidSymbols = Arrays.copyOf(invalidSymbols, invalidSymbolCount * 2);
+                }
+                invalidSymbols[invalidSymbolCount++] = i;
+            }
+        }
+        knownSymbols = symbols;
+    }
+
+    /**
+     * Reports the error a full run would: HackAssembler.firstPass() stops at
+     * the first label with an invalid name, and secondPass() at the first
+     * instruction that is an error or names a variable with an invalid name.
+     *
+     * @throws AssemblyException    for that error, if the file has one
+     */
+    private void checkErrors() throws AssemblyException {
+        int label = NONE;
+        int variable = NONE;
+        for (int i = 0; i < invalidSymbolCount; i++) {
+            int symbol = invalidSymbols[i];
+            if (predefined[symbol] == SymbolTable.INVALID) {
+                if (declarations[symbol] > 0) {
+                    label = Math.min(label, firstDeclaration[symbol]);
+                } else if (uses[symbol] > 0) {
+                    variable = Math.min(variable, firstUse[symbol]);
+                }
+            }
+        }
+        if (label != NONE) {
+            reportError(program.getLineNumber(label), "Invalid symbol");
+        }
+        int first = Math.min(variable, errorCount > 0 ? errorIndices[0] : NONE);
+        if (first != NONE) {
+            reportError(program.getLineNumber(first), errorAt(first));
+        }
+    }
+
+    /**
+     * Returns the error message for the instruction at index, worded as
+     * HackAssembler words it.
+     */
+    private String errorAt(int index) {
+        int operand = program.getOperand(index);
+        switch (program.getKind(index)) {
+            case ParsedProgram.A_NUMBER:
+                return "Negative integer not allowed";
+            case ParsedProgram.A_SYMBOL:
+                return "Invalid symbol";
+            case ParsedProgram.C_INSTRUCTION:
+                if ((operand & ParsedProgram.INVALID_COMP) != 0) {
+                    return "Invalid comp code";
+                }
+                if ((operand & ParsedProgram.INVALID_DEST) != 0) {
+                    return "Invalid dest code";
+                }
+                return "Invalid jump code";
+            default:
+                return "Expression expected";
+        }
+    }
+
+    /**
+     * Returns whether an instruction of kind takes a word in ROM.
+     */
+    private static boolean isWord(byte kind) {
+        return kind != ParsedProgram.L_INSTRUCTION && kind != ParsedProgram.INVALID;
+    }
+
+    /**
+     * Returns whether an instruction is an error whatever the rest of the file says.
+     */
+    private static boolean isError(byte kind, int operand) {
+        switch (kind) {
+            case ParsedProgram.A_NUMBER:
+                return operand < 0;
+            case ParsedProgram.C_INSTRUCTION:
+                return (operand & (ParsedProgram.INVALID_COMP | ParsedProgram.INVALID_DEST
+                                   | ParsedProgram.INVALID_JUMP)) != 0;
+            case ParsedProgram.INVALID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Encodes one instruction that takes a word, with symbols at their current addresses.
+     */
+    private int encode(byte kind, int operand) {
+        switch (kind) {
+            case ParsedProgram.A_NUMBER:
+                return Code.aInstruction(operand);
+            case ParsedProgram.A_SYMBOL:
+                return Code.aInstruction(addresses[operand]);
+            default:
+                return Code.cInstruction((operand & ParsedProgram.COMP_MASK) >>> ParsedProgram.COMP_SHIFT,
+                                         (operand & ParsedProgram.DEST_MASK) >>> ParsedProgram.DEST_SHIFT,
+                                         operand & ParsedProgram.JUMP_MASK);
+        }
+    }
+
+    /**
+     * Brings every output file up to date with the words, of which the ones
+     * before firstChanged are already in the files. Formats with a fixed
+     * number of bytes per word are rewritten from the first changed word on;
+     * the others are rewritten whole.
+     *
+     * @return      -   the number of bytes written to the first output
+     */
+    private long writeOutputs(int firstChanged) throws IOException {
+        long bytesWritten = -1;
+        for (OutputFormat format : formats) {
+            Path file = Paths.get(outputBaseName + format.getExtension());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                OutputSink output = format.open(channel);
+                int from = 0;
+                if (output instanceof FixedWidthWriter) {
+                    long width = ((FixedWidthWriter) output).getWordWidth();
+                    //  Only keep the words in the file if it is the size the last build left
+                    if (built && channel.size() == builtWordCount * width) {
+                        from = firstChanged;
+                        channel.position(from * width);
+                    }
+                }
+                for (int i = from; i < wordCount; i++) {
+                    output.write(words[i]);
+                }
+                output.finish();
+                channel.truncate(channel.position());
+                if (bytesWritten == -1) {
+                    bytesWritten = output.getBytesWritten();
+                }
+            }
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Ends checkErrors() with an error, worded as HackAssembler words it.
+     */
+    private static void reportError(int lineNumber, String error) throws AssemblyException {
+        throw new AssemblyException(new Diagnostic(lineNumber, error, null));
+    }
+}
@@ -0,0 +1,63 @@
+/************************************************************************************
+ *
+ * Class name:    InputSource
+ * Package:       edu.miracosta.cs220
+ * Description:   A source of .asm lines for the Parser. Implementations read raw
+ *                ASCII bytes (no charset decoding) from a memory-mapped file, a
+ *                channel or an in-memory buffer.
+ *
+ * History:       added to replace the Scanner inside Parser
+ *
+ * Methods:       Public:   hasNextLine(), nextLine(LineBuffer), getBytesRead(), getName(),
+ *                          close()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.Closeable;
+
+public interface InputSource extends Closeable {
+
+    /**
+     * Returns whether another line can be read. An empty source has no lines,
+     * and a final line does not need a line terminator.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   true if nextLine(LineBuffer) will return a line, false otherwise
+     */
+    boolean hasNextLine();
+
+    /**
+     * Copies the next line, without its "\n", "\r\n" or "\r" terminator, into line.
+     *
+     * PRECONDITION:    there is another line (check with hasNextLine() first)
+     * POSTCONDITION:   line holds the line's bytes and the source has moved past it
+     *
+     * @param   line    -   the reusable buffer to copy the line into
+     */
+    void nextLine(LineBuffer line);
+
+    /**
+     * Returns how many bytes of input have been consumed so far.
+     *
+     * @return      -   the number of bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * Returns what the input is called, e.g. its file name, for monitoring.
+     *
+     * @return      -   the name, or "" if the input has none
+     */
+    default String getName() {
+        return "";
+    }
+
+    /**
+     * Releases the underlying file or channel. Closing twice has no effect.
+     */
+    @Override
+    void close();
+}
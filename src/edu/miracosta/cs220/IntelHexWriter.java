@@ -0,0 +1,187 @@
+/************************************************************************************
+ *
+ * Class name:    IntelHexWriter
+ * Package:       edu.miracosta.cs220
+ * Description:   Writes instruction words as Intel HEX: data records of up to
+ *                RECORD_BYTES bytes (words big-endian, byte addresses), an extended
+ *                linear address record whenever the address passes a 64K boundary,
+ *                and an end-of-file record when closed. Records carry checksums,
+ *                so words cannot be patched once written.
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   IntelHexWriter(WritableByteChannel), write(int), getWordCount(),
+ *                          getBytesWritten(), flush(), finish(), close()
+ *
+ *                Private:  endRecord(), writeRecord(int, int, byte[], int), ensureRoom(int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class IntelHexWriter implements OutputSink {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int RECORD_BYTES = 16;
+    private static final int DATA_RECORD = 0x00;
+    private static final int END_OF_FILE_RECORD = 0x01;
+    private static final int EXTENDED_LINEAR_ADDRESS_RECORD = 0x04;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private byte[] record;
+    private int recordLength;
+    private long recordAddress;
+    private long wordCount;
+    private long bytesWritten;
+    private boolean finished;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Prepares to write Intel HEX records to channel.
+     *
+     * PRECONDITION:    channel is open for writing
+     * POSTCONDITION:   the writer is ready to write
+     *
+     * @param   channel -   the channel to write the records to
+     */
+    public IntelHexWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        record = new byte[RECORD_BYTES];
+        recordLength = 0;
+        recordAddress = 0;
+        wordCount = 0;
+        bytesWritten = 0;
+        finished = false;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void write(int word) throws IOException {
+        record[recordLength++] = (byte) (word >>> 8);
+        record[recordLength++] = (byte) word;
+        wordCount++;
+        if (recordLength == RECORD_BYTES) {
+            endRecord();
+        }
+    }
+
+    @Override
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    /**
+     * Writes the complete records so far. A partly filled record stays open
+     * until it is full or the writer is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the last data record and the end-of-file record, once.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (!finished) {
+            if (recordLength > 0) {
+                endRecord();
+            }
+            writeRecord(END_OF_FILE_RECORD, 0, record, 0);
+            finished = true;
+        }
+        flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Writes the pending data record, preceded by an extended linear address
+     * record if it starts a new 64K segment.
+     */
+    private void endRecord() throws IOException {
+        if (recordAddress > 0 && (recordAddress & 0xFFFF) == 0) {
+            byte[] segment = {(byte) (recordAddress >>> 24), (byte) (recordAddress >>> 16)};
+            writeRecord(EXTENDED_LINEAR_ADDRESS_RECORD, 0, segment, 2);
+        }
+        writeRecord(DATA_RECORD, (int) (recordAddress & 0xFFFF), record, recordLength);
+        recordAddress += recordLength;
+        recordLength = 0;
+    }
+
+    /**
+     * Writes one ":LLAAAATT<data>CC" record line.
+     *
+     * @param   type    -   the record type
+     * @param   address -   the 16-bit address field
+     * @param   data    -   the data bytes
+     * @param   length  -   the number of data bytes
+     */
+    private void writeRecord(int type, int address, byte[] data, int length) throws IOException {
+        ensureRoom(1 + 2 * (4 + length + 1) + 1);
+        int checksum = length + (address >>> 8) + (address & 0xFF) + type;
+        int index = buffer.position();
+        buffer.put(index++, (byte) ':');
+        HexWriter.putHexByte(buffer, index, length);
+        HexWriter.putHexByte(buffer, index + 2, address >>> 8);
+        HexWriter.putHexByte(buffer, index + 4, address);
+        HexWriter.putHexByte(buffer, index + 6, type);
+        index += 8;
+        for (int i = 0; i < length; i++) {
+            HexWriter.putHexByte(buffer, index, data[i]);
+            checksum += data[i] & 0xFF;
+            index += 2;
+        }
+        HexWriter.putHexByte(buffer, index, -checksum);
+        buffer.put(index + 2, (byte) '\n');
+        buffer.position(index + 3);
+    }
+
+    /**
+     * Flushes the buffer if it cannot take count more bytes.
+     */
+    private void ensureRoom(int count) throws IOException {
+        if (buffer.remaining() < count) {
+            flush();
+        }
+    }
+}
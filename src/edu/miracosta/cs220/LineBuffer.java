@@ -0,0 +1,104 @@
+/************************************************************************************
+ *
+ * Class name:    LineBuffer
+ * Package:       edu.miracosta.cs220
+ * Description:   A reusable, growable byte buffer holding one line of ASCII input.
+ *                It is read as a CharSequence (one char per byte) so no String
+ *                has to be built unless one is asked for.
+ *
+ * History:       added to replace the Scanner inside Parser
+ *
+ * Methods:       Public:   LineBuffer(), getBytes(), length(), charAt(int),
+ *                          subSequence(int, int), toString()
+ *
+ *                Package:  set(ByteBuffer, int, int)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class LineBuffer implements CharSequence {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int INITIAL_CAPACITY = 128;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private byte[] bytes;
+    private int length;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty line buffer.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the buffer holds an empty line
+     */
+    public LineBuffer() {
+        bytes = new byte[INITIAL_CAPACITY];
+        length = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Returns the backing array; only the first length() bytes belong to the line.
+     *
+     * @return      -   the backing array
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Replaces the line with count bytes of source starting at index.
+     *
+     * PRECONDITION:    index and count lie within source
+     * POSTCONDITION:   the buffer holds the copied bytes
+     *
+     * @param   source  -   the buffer to copy from (its position is not changed)
+     * @param   index   -   the absolute index of the first byte
+     * @param   count   -   the number of bytes to copy
+     */
+    void set(ByteBuffer source, int index, int count) {
+        if (count > bytes.length) {
+            bytes = new byte[Math.max(count, bytes.length * 2)];
+        }
+        source.get(index, bytes, 0, count);
+        length = count;
+    }
+}
@@ -0,0 +1,134 @@
+/************************************************************************************
+ *
+ * Class name:    MappedFileSource
+ * Package:       edu.miracosta.cs220
+ * Description:   An InputSource that memory-maps an .asm file and reads its bytes
+ *                directly, with no copying into a heap buffer and no decoding.
+ *                Files larger than one mapping window are mapped a window at a time.
+ *
+ * History:       added to replace the Scanner inside Parser
+ *
+ * Methods:       Public:   MappedFileSource(Path), MappedFileSource(Path, int), getName(),
+ *                          close()
+ *
+ *                Protected: refill()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedFileSource extends ByteBufferSource {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private Path file;
+    private FileChannel channel;
+    private long fileSize;
+    private long windowStart;
+    private int windowSize;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Maps the file in DEFAULT_WINDOW_SIZE windows.
+     *
+     * PRECONDITION:    file names a readable file
+     * POSTCONDITION:   the first window is mapped, or an IOException has been thrown
+     *
+     * @param   file    -   the .asm file to read
+     */
+    public MappedFileSource(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Maps the file in windows of the given size.
+     *
+     * PRECONDITION:    file names a readable file, windowSize > 0
+     * POSTCONDITION:   the first window is mapped, or an IOException has been thrown
+     *
+     * @param   file        -   the .asm file to read
+     * @param   windowSize  -   the largest number of bytes mapped at once
+     */
+    public MappedFileSource(Path file, int windowSize) throws IOException {
+        super(ByteBuffer.allocate(0));
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        fileSize = channel.size();
+        windowStart = 0;
+        this.windowSize = windowSize;
+        buffer = map(0);
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public String getName() {
+        return file.toString();
+    }
+
+    @Override
+    public void close() {
+        windowStart = fileSize;
+        buffer = ByteBuffer.allocate(0);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*********************
+     * Protected Methods *
+     *********************/
+
+    @Override
+    protected boolean refill() {
+        long unread = windowStart + buffer.position();
+        if (windowStart + buffer.limit() >= fileSize) {
+            return false;
+        }
+        if (buffer.position() == 0) {
+            //  One line fills the whole window -> map a bigger one
+            windowSize = (int) Math.min(Integer.MAX_VALUE - 8, windowSize * 2L);
+        }
+        buffer = map(unread);
+        return true;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Maps the window of the file starting at start.
+     *
+     * @param   start   -   the file offset of the first byte to map
+     * @return          -   the mapped window, positioned at its first byte
+     */
+    private ByteBuffer map(long start) {
+        try {
+            windowStart = start;
+            long size = Math.min(windowSize, fileSize - start);
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/************************************************************************************
+ *
+ * Class name:    Optimizer
+ * Package:       edu.miracosta.cs220
+ * Description:   An optional stage between parsing and encoding that rewrites a
+ *                ParsedProgram into a smaller or faster program with the same
+ *                behavior. HackAssembler runs its optimizers in order, then runs
+ *                firstPass() over the result, so labels get the addresses they have
+ *                after the rewrite.
+ *
+ * History:       added for the peephole optimizer
+ *
+ * Methods:       Public:   optimize(ParsedProgram, Map)
+ *
+ * Notes:         Optimizers hold no state between runs, so one assembler (and its
+ *                optimizers) may be used by several threads at once. They must keep
+ *                every instruction that will be reported as an error, and must not
+ *                change which RAM address a variable is given.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.Map;
+
+public interface Optimizer {
+
+    /**
+     * Rewrites program in place and counts the instructions removed.
+     *
+     * PRECONDITION:    program was filled by the Parser
+     * POSTCONDITION:   program behaves as before when assembled; removed holds,
+     *                  for each rule of this optimizer, the number of instructions
+     *                  it removed (added to any count already there)
+     *
+     * @param   program -   the program to rewrite
+     * @param   removed -   instructions removed, by rule name
+     */
+    void optimize(ParsedProgram program, Map<String, Integer> removed);
+}
@@ -0,0 +1,97 @@
+/************************************************************************************
+ *
+ * Class name:    OutputFormat
+ * Package:       edu.miracosta.cs220
+ * Description:   The output formats the assembler can write, with the file extension
+ *                and command-line name of each.
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   getName(), getExtension(), open(WritableByteChannel),
+ *                          fromName(String)
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.channels.WritableByteChannel;
+
+public enum OutputFormat {
+
+    HACK("hack", ".hack"),
+    BINARY("bin", ".bin"),
+    HEX("hex", ".hex"),
+    INTEL_HEX("ihex", ".ihx");
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final String name;
+    private final String extension;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    OutputFormat(String name, String extension) {
+        this.name = name;
+        this.extension = extension;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * @return      -   the name used for the format on the command line
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return      -   the file extension of the format, including the '.'
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Creates a sink that writes this format to channel.
+     *
+     * PRECONDITION:    channel is open for writing
+     * POSTCONDITION:   N/A
+     *
+     * @param   channel -   the channel to write to
+     * @return          -   a new sink for this format
+     */
+    public OutputSink open(WritableByteChannel channel) {
+        switch (this) {
+            case BINARY:
+                return new BinaryWriter(channel);
+            case HEX:
+                return new HexWriter(channel);
+            case INTEL_HEX:
+                return new IntelHexWriter(channel);
+            default:
+                return new HackWriter(channel);
+        }
+    }
+
+    /**
+     * Looks up a format by its command-line name.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @param   name    -   a format name, such as "hack" or "bin"
+     * @return          -   the matching format, or null if there is none
+     */
+    public static OutputFormat fromName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.name.equals(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+/************************************************************************************
+ *
+ * Class name:    OutputSink
+ * Package:       edu.miracosta.cs220
+ * Description:   A destination for assembled 16-bit instruction words. Each output
+ *                format (.hack text, raw binary, hex, Intel HEX) is one sink, and
+ *                a FanOutSink lets one assembly pass feed several of them.
+ *
+ * History:       added for multi-format output
+ *
+ * Methods:       Public:   write(int), patch(long, int), isPatchable(), hold(long), getWordCount(),
+ *                          getBytesWritten(), flush(), finish(), close()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+
+public interface OutputSink extends AutoCloseable {
+
+    /**
+     * Appends one 16-bit word to the output.
+     *
+     * PRECONDITION:    0 <= word < 2^16, the sink is open
+     * POSTCONDITION:   the word has been buffered or written
+     *
+     * @param   word    -   the instruction word
+     */
+    void write(int word) throws IOException;
+
+    /**
+     * Overwrites a word that was already written. Only sinks whose isPatchable()
+     * is true support this.
+     *
+     * PRECONDITION:    0 <= position < getWordCount(), isPatchable() is true
+     * POSTCONDITION:   the word at position has been replaced
+     *
+     * @param   position    -   the index of the word to overwrite
+     * @param   word        -   the new instruction word
+     */
+    default void patch(long position, int word) throws IOException {
+        throw new IOException("This output format cannot be patched");
+    }
+
+    /**
+     * Returns whether patch(long, int) can be used on this sink.
+     *
+     * @return      -   true if written words can be overwritten, false otherwise
+     */
+    default boolean isPatchable() {
+        return false;
+    }
+
+    /**
+     * Tells the sink that words before position will not be patched again,
+     * while words from position on (written or not) still may be. A sink that
+     * streams its output (HoldBackSink) writes out everything before position
+     * and keeps the rest back; other sinks need not do anything.
+     *
+     * PRECONDITION:    position is not before an earlier hold position
+     * POSTCONDITION:   N/A
+     *
+     * @param   position    -   the first word that may still be patched, or
+     *                          Long.MAX_VALUE if none may
+     */
+    default void hold(long position) throws IOException {
+    }
+
+    /**
+     * @return      -   the number of words written so far
+     */
+    long getWordCount();
+
+    /**
+     * @return      -   the number of output bytes produced so far
+     */
+    long getBytesWritten();
+
+    /**
+     * Writes any buffered output.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Completes the output (trailer records, buffered bytes) without closing the
+     * channel underneath, for callers that own the channel. Nothing may be
+     * written after it.
+     */
+    default void finish() throws IOException {
+        flush();
+    }
+
+    /**
+     * Completes the output (trailer records, buffered bytes) and closes it.
+     */
+    @Override
+    void close() throws IOException;
+}
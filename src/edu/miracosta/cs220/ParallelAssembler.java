@@ -0,0 +1,420 @@
+/************************************************************************************
+ *
+ * Class name:    ParallelAssembler
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles one large .asm file on several cores. The text is split
+ *                at line boundaries into chunks that are parsed in parallel, each
+ *                counting its own instructions and collecting its own labels. A
+ *                prefix sum over the counts gives every chunk its ROM base, after
+ *                which the labels are merged into the SymbolTable in file order.
+ *                New variables are then given RAM addresses in file order (only
+ *                the distinct new symbols of each chunk are visited one after the
+ *                other), and finally the chunks are encoded in parallel and
+ *                written out one after the other. The output and the error
+ *                reported are the same as HackAssembler's two-pass assembly.
+ *
+ * History:       added to use several cores on very large programs
+ *
+ * Methods:       Public:   ParallelAssembler(int), ParallelAssembler(int, int),
+ *                          assemble(Path, OutputSink), assemble(ByteBuffer, OutputSink)
+ *
+ *                Private:  split(ByteBuffer), runAll(ForkJoinPool, List, Task),
+ *                          mergeLabels(List, SymbolTable), assignVariables(List, SymbolTable)
+ *
+ * Notes:         The passes are the same as in HackAssembler.firstPass()/secondPass();
+ *                the Chunk inner class holds the per-chunk halves of them.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class ParallelAssembler {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    //  Chunks per thread, so a chunk full of long comments doesn't hold up the rest
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    //  Marks a pooled symbol whose address is not known yet
+    private static final int UNRESOLVED = SymbolTable.INVALID;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final int parallelism;
+    private final int chunkSize;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an assembler using parallelism threads and chunks of at least
+     * DEFAULT_CHUNK_SIZE bytes.
+     *
+     * PRECONDITION:    parallelism > 0
+     * POSTCONDITION:   the assembler is ready to use
+     *
+     * @param   parallelism -   the number of threads to use
+     */
+    public ParallelAssembler(int parallelism) {
+        this(parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an assembler using parallelism threads and chunks of at least
+     * chunkSize bytes (a file smaller than that is assembled as one chunk).
+     *
+     * PRECONDITION:    parallelism > 0, chunkSize > 0
+     * POSTCONDITION:   the assembler is ready to use
+     *
+     * @param   parallelism -   the number of threads to use
+     * @param   chunkSize   -   the smallest number of bytes worth a chunk of its own
+     */
+    public ParallelAssembler(int parallelism, int chunkSize) {
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Assembles the .asm file at input into output, which is finished but left
+     * open. Files too large to map at once are assembled by HackAssembler.
+     *
+     * PRECONDITION:    output is open
+     * POSTCONDITION:   output holds the machine code (or as much of it as
+     *                  came before the first error)
+     *
+     * @param   input   -   the .asm file
+     * @param   output  -   the sink to write the words to
+     * @return          -   the result of the run
+     * @throws IOException  if the file cannot be read or the output cannot be written
+     */
+    public AssemblyResult assemble(Path input, OutputSink output) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return new HackAssembler().assemble(new MappedFileSource(input), output);
+            }
+            return assemble(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), output);
+        }
+    }
+
+    /**
+     * Assembles the .asm text between input's position and limit into output,
+     * which is finished but left open.
+     *
+     * PRECONDITION:    output is open
+     * POSTCONDITION:   output holds the machine code (or as much of it as
+     *                  came before the first error)
+     *
+     * @param   input   -   the .asm text (its position is not changed)
+     * @param   output  -   the sink to write the words to
+     * @return          -   the result of the run
+     * @throws IOException  if the output cannot be written
+     */
+    public AssemblyResult assemble(ByteBuffer input, OutputSink output) throws IOException {
+        long start = System.nanoTime();
+        List<Chunk> chunks = split(input.slice());
+        SymbolTable symbolTable = new SymbolTable();
+        Diagnostic error = null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            //  1. parse, count instructions & collect labels - every chunk on its own
+            runAll(pool, chunks, Chunk::parse);
+            int romBase = 0, lineBase = 0;
+            for (Chunk chunk : chunks) {
+                chunk.romBase = romBase;
+                chunk.lineBase = lineBase;
+                romBase += chunk.romCount;
+                lineBase += chunk.program.getSourceLineCount();
+            }
+
+            //  2. labels in file order, then look up every pooled symbol & list new ones
+            error = mergeLabels(chunks, symbolTable);
+            if (error == null) {
+                runAll(pool, chunks, chunk -> chunk.resolveSymbols(symbolTable));
+
+                //  3. variables in file order, then encode every chunk
+                assignVariables(chunks, symbolTable);
+                runAll(pool, chunks, Chunk::encode);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        //  4. write the chunks in order, up to the first error
+        int sourceLineCount = 0;
+        for (Chunk chunk : chunks) {
+            sourceLineCount += chunk.program.getSourceLineCount();
+        }
+        if (error == null) {
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.wordCount; i++) {
+                    output.write(chunk.words[i]);
+                }
+                if (chunk.error != null) {
+                    error = chunk.error;
+                    break;
+                }
+            }
+        }
+        output.finish();
+        List<Diagnostic> diagnostics = error == null ? Collections.<Diagnostic>emptyList()
+                                                     : Collections.singletonList(error);
+        return new AssemblyResult(diagnostics, null, output.getWordCount(), output.getBytesWritten(),
+                sourceLineCount, symbolTable.size(), System.nanoTime() - start);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Splits text into about CHUNKS_PER_THREAD chunks per thread, none smaller
+     * than chunkSize, each ending just after a '\n' (or at the end of the text).
+     *
+     * @param   text    -   the .asm text, from index 0 to its limit
+     * @return          -   the chunks, in file order
+     */
+    private List<Chunk> split(ByteBuffer text) {
+        int length = text.limit();
+        long target = Math.max(chunkSize, length / ((long) parallelism * CHUNKS_PER_THREAD) + 1);
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < length || chunks.isEmpty()) {
+            int end = (int) Math.min(length, start + target);
+            //  move the end up to just past the next line feed
+            while (end < length && text.get(end - 1) != '\n') {
+                end++;
+            }
+            ByteBuffer slice = text.duplicate();
+            slice.position(start).limit(end);
+            chunks.add(new Chunk(slice));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Runs task on every chunk in the pool and waits for all of them.
+     */
+    private static void runAll(ForkJoinPool pool, List<Chunk> chunks, Task task) throws IOException {
+        List<ForkJoinTask<?>> running = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            running.add(pool.submit(() -> task.run(chunk)));
+        }
+        for (ForkJoinTask<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while assembling", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Adds every chunk's labels to symbolTable in file order, so the first
+     * declaration of a label wins just as in HackAssembler.firstPass().
+     *
+     * @return      -   the error for the first invalid label, or null
+     */
+    private static Diagnostic mergeLabels(List<Chunk> chunks, SymbolTable symbolTable) {
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.labelCount; i++) {
+                String symbol = chunk.program.getSymbol(chunk.labelSymbols[i]);
+                if (symbolTable.getOrAssign(symbol, chunk.romBase + chunk.labelAddresses[i]) == SymbolTable.INVALID) {
+                    return new Diagnostic(chunk.lineBase + chunk.labelLines[i], "Invalid symbol", null);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives the new variables of every chunk their RAM addresses, in file
+     * order of first use, just as HackAssembler.secondPass() would. Invalid
+     * symbols are left unresolved for Chunk.encode() to report.
+     */
+    private static void assignVariables(List<Chunk> chunks, SymbolTable symbolTable) {
+        int ramAddress = HackAssembler.FIRST_VARIABLE_ADDRESS;
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.newSymbolCount; i++) {
+                int symbolIndex = chunk.newSymbols[i];
+                String symbol = chunk.program.getSymbol(symbolIndex);
+                if (!SymbolTable.isValidName(symbol)) {
+                    //  the run stops at this symbol, so later variables don't matter
+                    return;
+                }
+                int symbolCount = symbolTable.size();
+                chunk.addresses[symbolIndex] = symbolTable.getOrAssign(symbol, ramAddress);
+                if (symbolTable.size() != symbolCount) {
+                    ramAddress++;
+                }
+            }
+        }
+    }
+
+    /*****************
+     * Inner Classes *
+     *****************/
+
+    /**
+     * A step to run on one chunk.
+     */
+    private interface Task {
+        void run(Chunk chunk);
+    }
+
+    /**
+     * One line-aligned piece of the source and everything worked out for it.
+     * Each step only touches its own chunk (and reads the symbol table while
+     * nobody writes it), so chunks can be processed by different threads.
+     */
+    private static class Chunk {
+        private final ByteBuffer text;
+        private ParsedProgram program;
+        private int romCount;
+        private int romBase;
+        private int lineBase;
+
+        //  Labels: symbol index, ROM address within the chunk & line within the chunk
+        private int[] labelSymbols = new int[16];
+        private int[] labelAddresses = new int[16];
+        private int[] labelLines = new int[16];
+        private int labelCount;
+
+        //  Address of each pooled symbol, and the unresolved ones in order of first use
+        private int[] addresses;
+        private int[] newSymbols;
+        private int newSymbolCount;
+
+        private int[] words;
+        private int wordCount;
+        private Diagnostic error;
+
+        private Chunk(ByteBuffer text) {
+            this.text = text;
+        }
+
+        /**
+         * Parses the chunk, counting its instructions and collecting its labels.
+         */
+        private void parse() {
+            program = new Parser(new ArraySource(text)).parseAll();
+            for (int i = 0; i < program.size(); i++) {
+                switch (program.getKind(i)) {
+                    case ParsedProgram.A_NUMBER:
+                    case ParsedProgram.A_SYMBOL:
+                    case ParsedProgram.C_INSTRUCTION:
+                        romCount++;
+                        break;
+                    case ParsedProgram.L_INSTRUCTION:
+                        if (labelCount == labelSymbols.length) {
+                            labelSymbols = Arrays.copyOf(labelSymbols, labelCount * 2);
+                            labelAddresses = Arrays.copyOf(labelAddresses, labelCount * 2);
+                            labelLines = Arrays.copyOf(labelLines, labelCount * 2);
+                        }
+                        labelSymbols[labelCount] = program.getOperand(i);
+                        labelAddresses[labelCount] = romCount;
+                        labelLines[labelCount] = program.getLineNumber(i);
+                        labelCount++;
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Looks up every symbol of the chunk's pool and lists the unresolved
+         * ones that A-Instructions use, in order of first use.
+         */
+        private void resolveSymbols(SymbolTable symbolTable) {
+            addresses = new int[program.getSymbolCount()];
+            for (int symbolIndex = 0; symbolIndex < addresses.length; symbolIndex++) {
+                addresses[symbolIndex] = symbolTable.getAddress(program.getSymbol(symbolIndex));
+            }
+            newSymbols = new int[addresses.length];
+            boolean[] listed = new boolean[addresses.length];
+            for (int i = 0; i < program.size(); i++) {
+                if (program.getKind(i) == ParsedProgram.A_SYMBOL) {
+                    int symbolIndex = program.getOperand(i);
+                    if (addresses[symbolIndex] == UNRESOLVED && !listed[symbolIndex]) {
+                        listed[symbolIndex] = true;
+                        newSymbols[newSymbolCount++] = symbolIndex;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Translates the chunk's instructions, stopping at the first error.
+         */
+        private void encode() {
+            words = new int[romCount];
+            for (int i = 0; i < program.size(); i++) {
+                int operand = program.getOperand(i);
+                int lineNumber = lineBase + program.getLineNumber(i);
+                switch (program.getKind(i)) {
+                    case ParsedProgram.A_NUMBER:
+                        if (operand < 0) {
+                            error = new Diagnostic(lineNumber, "Negative integer not allowed", null);
+                            return;
+                        }
+                        words[wordCount++] = Code.aInstruction(operand);
+                        break;
+                    case ParsedProgram.A_SYMBOL:
+                        if (addresses[operand] == UNRESOLVED) {
+                            error = new Diagnostic(lineNumber, "Invalid symbol", null);
+                            return;
+                        }
+                        words[wordCount++] = Code.aInstruction(addresses[operand]);
+                        break;
+                    case ParsedProgram.C_INSTRUCTION:
+                        if ((operand & ParsedProgram.INVALID_COMP) != 0) {
+                            error = new Diagnostic(lineNumber, "Invalid comp code", null);
+                            return;
+                        }
+                        if ((operand & ParsedProgram.INVALID_DEST) != 0) {
+                            error = new Diagnostic(lineNumber, "Invalid dest code", null);
+                            return;
+                        }
+                        if ((operand & ParsedProgram.INVALID_JUMP) != 0) {
+                            error = new Diagnostic(lineNumber, "Invalid jump code", null);
+                            return;
+                        }
+                        words[wordCount++] = Code.cInstruction(
+                                (operand & ParsedProgram.COMP_MASK) >>> ParsedProgram.COMP_SHIFT,
+                                (operand & ParsedProgram.DEST_MASK) >>> ParsedProgram.DEST_SHIFT,
+                                operand & ParsedProgram.JUMP_MASK);
+                        break;
+                    case ParsedProgram.INVALID:
+                        error = new Diagnostic(lineNumber, "Expression expected", null);
+                        return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/************************************************************************************
+ *
+ * Class name:    ParsedProgram
+ * Package:       edu.miracosta.cs220
+ * Description:   A compact, struct-of-arrays representation of a parsed .asm file.
+ *                Each instruction is stored as a kind byte, a packed operand and
+ *                the source line it came from, so both assembler passes can run
+ *                over it without re-reading or re-cleaning the file.
+ *
+ * History:       added so a file is read and cleaned once for both passes
+ *
+ * Methods:       Public:   ParsedProgram(), size(), getKind(int), getOperand(int),
+ *                          getLineNumber(int), getSymbol(int), getSymbolCount(),
+ *                          getSourceLineCount()
+ *
+ *                Package:  add(byte, int, int), symbolIndex(CharSequence),
+ *                          setSourceLineCount(int), splice(int, int, ParsedProgram, int),
+ *                          firstIndexAtLine(int), setOperand(int, int), compact(boolean[])
+ *
+ *                Private:  grow()
+ *
+ * Notes:         C-Instruction operands are packed as comp (7 bits), dest (3 bits)
+ *                and jump (3 bits), in the same order they appear in the final
+ *                binary word. A lookup that failed sets one of the INVALID flags
+ *                so the error can still be reported in line order.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.Arrays;
+
+public class ParsedProgram {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  Instruction kinds
+    public static final byte A_NUMBER = 0;
+    public static final byte A_SYMBOL = 1;
+    public static final byte C_INSTRUCTION = 2;
+    public static final byte L_INSTRUCTION = 3;
+    public static final byte INVALID = 4;
+
+    //  C-Instruction operand layout
+    public static final int JUMP_MASK = 0x7;
+    public static final int DEST_SHIFT = 3;
+    public static final int DEST_MASK = 0x7 << DEST_SHIFT;
+    public static final int COMP_SHIFT = 6;
+    public static final int COMP_MASK = 0x7F << COMP_SHIFT;
+    public static final int INVALID_COMP = 1 << 13;
+    public static final int INVALID_DEST = 1 << 14;
+    public static final int INVALID_JUMP = 1 << 15;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private byte[] kinds;
+    private int[] operands;
+    private int[] lineNumbers;
+    private int size;
+    private int sourceLineCount;
+
+    //  Symbol pool - each distinct symbol is stored once and referred to by index
+    private String[] symbols;
+    private int symbolCount;
+    private SymbolMap symbolIndices;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty program, ready to be filled by the Parser.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the program holds no instructions and no symbols
+     */
+    public ParsedProgram() {
+        kinds = new byte[INITIAL_CAPACITY];
+        operands = new int[INITIAL_CAPACITY];
+        lineNumbers = new int[INITIAL_CAPACITY];
+        size = 0;
+        sourceLineCount = 0;
+        symbols = new String[64];
+        symbolCount = 0;
+        symbolIndices = new SymbolMap();
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Returns the number of stored instructions (blank and comment-only lines are not stored).
+     *
+     * @return      -   the number of instructions in the program
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kind of the instruction at the given index.
+     *
+     * PRECONDITION:    0 <= index < size()
+     * POSTCONDITION:   N/A
+     *
+     * @param   index   -   the instruction index
+     * @return          -   one of A_NUMBER, A_SYMBOL, C_INSTRUCTION, L_INSTRUCTION, INVALID
+     */
+    public byte getKind(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Returns the operand of the instruction at the given index: the value of an
+     * A_NUMBER, the symbol index of an A_SYMBOL or L_INSTRUCTION, or the packed
+     * comp/dest/jump fields of a C_INSTRUCTION.
+     *
+     * PRECONDITION:    0 <= index < size()
+     * POSTCONDITION:   N/A
+     *
+     * @param   index   -   the instruction index
+     * @return          -   the instruction's operand
+     */
+    public int getOperand(int index) {
+        return operands[index];
+    }
+
+    /**
+     * Returns the source line number the instruction at the given index was read from.
+     *
+     * PRECONDITION:    0 <= index < size()
+     * POSTCONDITION:   N/A
+     *
+     * @param   index   -   the instruction index
+     * @return          -   the 1-based source line number
+     */
+    public int getLineNumber(int index) {
+        return lineNumbers[index];
+    }
+
+    /**
+     * Returns the symbol stored under the given symbol index.
+     *
+     * PRECONDITION:    0 <= symbolIndex < getSymbolCount()
+     * POSTCONDITION:   N/A
+     *
+     * @param   symbolIndex -   an index taken from an A_SYMBOL or L_INSTRUCTION operand
+     * @return              -   the symbol as a String
+     */
+    public String getSymbol(int symbolIndex) {
+        return symbols[symbolIndex];
+    }
+
+    /**
+     * Returns the number of distinct symbols referenced or declared by the program.
+     *
+     * @return      -   the size of the symbol pool
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Returns the number of source lines read, including blank and comment-only lines.
+     *
+     * @return      -   the number of lines in the source file
+     */
+    public int getSourceLineCount() {
+        return sourceLineCount;
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Appends an instruction to the program.
+     *
+     * PRECONDITION:    kind is one of the instruction kind constants
+     * POSTCONDITION:   the instruction is stored at index size() - 1
+     *
+     * @param   kind        -   the instruction kind
+     * @param   operand     -   the instruction operand (see getOperand(int))
+     * @param   lineNumber  -   the source line number of the instruction
+     */
+    void add(byte kind, int operand, int lineNumber) {
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = kind;
+        operands[size] = operand;
+        lineNumbers[size] = lineNumber;
+        size++;
+    }
+
+    /**
+     * Returns the index of symbol in the symbol pool, adding it if it is new.
+     * A String is only built the first time a symbol is seen.
+     *
+     * PRECONDITION:    symbol is not null and holds only Latin-1 characters
+     * POSTCONDITION:   symbol is stored in the pool
+     *
+     * @param   symbol  -   a symbol (or a view of one) from an A- or L-Instruction
+     * @return          -   the index of the symbol in the pool
+     */
+    int symbolIndex(CharSequence symbol) {
+        int index = symbolIndices.putIfAbsent(symbol, symbolCount);
+        if (index != SymbolMap.NOT_FOUND) {
+            return index;
+        }
+        if (symbolCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, symbolCount * 2);
+        }
+        symbols[symbolCount] = symbol.toString();
+        return symbolCount++;
+    }
+
+    /**
+     * Records the number of source lines the program was parsed from.
+     *
+     * @param   count   -   the number of lines read
+     */
+    void setSourceLineCount(int count) {
+        sourceLineCount = count;
+    }
+
+    /**
+     * Replaces the instructions read from source lines fromLine up to (but not
+     * including) toLine with the instructions of replacement, whose line numbers
+     * count from fromLine, and moves the instructions after them by lineDelta
+     * lines. This is how an edit to a few lines of a large file is applied
+     * without parsing the rest of it again.
+     *
+     * PRECONDITION:    1 <= fromLine <= toLine, replacement was parsed from the new
+     *                  text of those lines, and lineDelta is the change in line count
+     * POSTCONDITION:   the program is the one the edited file would parse to
+     *
+     * @param   fromLine    -   the first replaced source line (1-based)
+     * @param   toLine      -   the source line just after the replaced ones
+     * @param   replacement -   the program parsed from the new text of the lines
+     * @param   lineDelta   -   the number of lines added (negative if removed)
+     */
+    void splice(int fromLine, int toLine, ParsedProgram replacement, int lineDelta) {
+        int from = firstIndexAtLine(fromLine);
+        int to = firstIndexAtLine(toLine);
+        int added = replacement.size;
+        int newSize = size - (to - from) + added;
+        while (kinds.length < newSize) {
+            grow();
+        }
+        System.arraycopy(kinds, to, kinds, from + added, size - to);
+        System.arraycopy(operands, to, operands, from + added, size - to);
+        System.arraycopy(lineNumbers, to, lineNumbers, from + added, size - to);
+        for (int i = from + added; i < newSize; i++) {
+            lineNumbers[i] += lineDelta;
+        }
+        for (int i = 0; i < added; i++) {
+            byte kind = replacement.kinds[i];
+            int operand = replacement.operands[i];
+            if (kind == A_SYMBOL || kind == L_INSTRUCTION) {
+                operand = symbolIndex(replacement.symbols[operand]);
+            }
+            kinds[from + i] = kind;
+            operands[from + i] = operand;
+            lineNumbers[from + i] = replacement.lineNumbers[i] + fromLine - 1;
+        }
+        size = newSize;
+        sourceLineCount += lineDelta;
+    }
+
+    /**
+     * Returns the index of the first instruction read from line or later, or
+     * size() if there is none. Instructions are stored in line order.
+     *
+     * @param   line    -   a 1-based source line number
+     * @return          -   the index of the first instruction at or after line
+     */
+    int firstIndexAtLine(int line) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lineNumbers[middle] < line) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Replaces the operand of an instruction, e.g. to point an A_SYMBOL at
+     * another label.
+     *
+     * PRECONDITION:    0 <= index < size(), operand suits the instruction's kind
+     * POSTCONDITION:   getOperand(index) returns operand
+     *
+     * @param   index   -   the instruction index
+     * @param   operand -   the new operand (see getOperand(int))
+     */
+    void setOperand(int index, int operand) {
+        operands[index] = operand;
+    }
+
+    /**
+     * Drops the marked instructions, keeping the others (and their line
+     * numbers) in order. This is how an Optimizer removes instructions.
+     *
+     * PRECONDITION:    removed.length >= size()
+     * POSTCONDITION:   the program holds only the instructions not marked
+     *
+     * @param   removed -   true for each instruction index to drop
+     */
+    void compact(boolean[] removed) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed[i]) {
+                kinds[kept] = kinds[i];
+                operands[kept] = operands[i];
+                lineNumbers[kept] = lineNumbers[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Doubles the capacity of the instruction arrays.
+     *
+     * PRECONDITION:    the instruction arrays are full
+     * POSTCONDITION:   the instruction arrays have room for more instructions
+     */
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        operands = Arrays.copyOf(operands, capacity);
+        lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+    }
+}
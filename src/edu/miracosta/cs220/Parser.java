@@ -8,22 +8,32 @@
  *
  * History:       Mar. 4, J, author, taken from Lab #6 UML & Method Layout
  *
- * Methods:       Public:   Parser(String), hasMoreCommands(), advance()
+ * Methods:       Public:   Parser(String), Parser(InputSource), reset(InputSource),
+ *                          hasMoreCommands(), advance(), parseAll()
  *                          getCommandType(), getCommandTypeString()
  *                          getSymbol(), getDest(), getComp(), getJump(),
- *                          getRawLine(), getCleanLine(), getLineNumber()
+ *                          getSymbolView(), getDestView(), getCompView(), getJumpView(),
+ *                          getRawLine(), getCleanLine(), getCleanLineView(), getLineNumber()
+ *
+ *                Package:  parseInto(ParsedProgram, int)
  *
  *                Private:  cleanLine(), parseCommandType(), parse(),
- *                          parseSymbol(), parseDest(), parseComp(), parseJump()
+ *                          parseSymbol(), parseDest(), parseComp(), parseJump(),
+ *                          packFields(), indexOf(byte),
+ *                          isNumber(ByteSlice)
  *
- * Notes:
+ * Notes:         advance() does not allocate: the parts of a line are views into a
+ *                reusable buffer, and the String getters only build a String the
+ *                first time they are called for a line. Views are only valid until
+ *                the next call to advance() or reset().
  *
  ************************************************************************************/
 package edu.miracosta.cs220;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 
 public class Parser {
 
@@ -37,18 +47,30 @@ public class Parser {
         N_INSTRUCTION
     }
 
+    //  What a missing dest or jump reads as
+    private static final byte[] NULL_MNEMONIC = {'n', 'u', 'l', 'l'};
+
     /**********************
      * Instance Variables *
      **********************/
 
     //  File Management & Debugging
-    private Scanner inputFile;
+    private InputSource inputFile;
+    private LineBuffer line;
     private int lineNumber;
     private String rawLine;
 
-    //  Parsed Command Parts
-    private String cleanLine;
+    //  Parsed Command Parts - views into cleanBytes
+    private byte[] cleanBytes;
+    private ByteSlice cleanView;
     private Command commandType;
+    private ByteSlice symbolView;
+    private ByteSlice compView;
+    private ByteSlice destView;
+    private ByteSlice jumpView;
+
+    //  Parsed Command Parts - Strings, built from the views when first asked for
+    private String cleanLine;
     private String symbol;
     private String compMnemonic;
     private String destMnemonic;
@@ -59,7 +81,8 @@ public class Parser {
      ****************/
 
     /**
-     * Opens input file/stream and prepares to parse it.
+     * Opens input file and prepares to parse it. The file is memory-mapped and
+     * read as ASCII bytes.
      *
      * PRECONDITION:    a file name to be opened has been collected/received
      * POSTCONDITION:   the file has been opened and is reaady for parsing,
@@ -67,26 +90,61 @@ public class Parser {
      * @param   inFileName  -   the name of the file to be opened
      */
     public Parser(String inFileName) throws FileNotFoundException {
-        //  File Constructor can throw a NullPointerException if inFileName = null
-        if (inFileName != null) {
-            inputFile = new Scanner(new File(inFileName));
-            lineNumber = 0;
-            rawLine = "";
-            cleanLine = "";
-            commandType = Command.N_INSTRUCTION;
-            symbol = "";
-            compMnemonic = "";
-            destMnemonic = "";
-            jumpMnemonic = "";
-        } else {
-            throw new FileNotFoundException();
-        }
+        //  open() checks for inFileName = null, which Paths.get() would reject with a NullPointerException
+        this(open(inFileName));
+    }
+
+    /**
+     * Prepares to parse lines from an already opened source.
+     *
+     * PRECONDITION:    source is open and not null
+     * POSTCONDITION:   the source is ready for parsing
+     * @param   source  -   the source of .asm lines
+     */
+    public Parser(InputSource source) {
+        line = new LineBuffer();
+        cleanBytes = new byte[128];
+        cleanView = new ByteSlice();
+        symbolView = new ByteSlice();
+        compView = new ByteSlice();
+        destView = new ByteSlice();
+        jumpView = new ByteSlice();
+        reset(source);
     }
 
     /***********************
      * Public File Methods *
      ***********************/
 
+    /**
+     * Points the parser at a new source so one instance (and its buffers) can be
+     * reused for any number of files. Any previous source is closed.
+     *
+     * PRECONDITION:    source is open and not null
+     * POSTCONDITION:   the parser is in the same state as a newly constructed one
+     *
+     * @param   source  -   the source of .asm lines
+     */
+    public void reset(InputSource source) {
+        if (inputFile != null) {
+            inputFile.close();
+        }
+        inputFile = source;
+        lineNumber = 0;
+        commandType = Command.N_INSTRUCTION;
+        cleanView.set(cleanBytes, 0, 0);
+        symbolView.set(cleanBytes, 0, 0);
+        compView.set(cleanBytes, 0, 0);
+        destView.set(cleanBytes, 0, 0);
+        jumpView.set(cleanBytes, 0, 0);
+        rawLine = "";
+        cleanLine = "";
+        symbol = "";
+        compMnemonic = "";
+        destMnemonic = "";
+        jumpMnemonic = "";
+    }
+
     /**
      * Returns a boolean of whether or not more commands are left in the file.
      * If there are no more commands left, the stream is closed.
@@ -98,16 +156,11 @@ public class Parser {
      * @return      -   true if there are more commands to be read, false otherwise
      */
     public boolean hasMoreCommands() {
-        //  Scanner's hasNextLine() throws an IllegalStateException if the scanner is closed. Check this first.
-        try {
-            if (inputFile.hasNextLine()) {
-                return true;
-            } else {
-                //  No lines left & inputFile is still open -> close it.
-                inputFile.close();
-                return false;
-            }
-        } catch (IllegalStateException e) {
+        if (inputFile.hasNextLine()) {
+            return true;
+        } else {
+            //  No lines left -> close it (closing again is harmless)
+            inputFile.close();
             return false;
         }
     }
@@ -122,57 +175,136 @@ public class Parser {
     public void advance() {
         lineNumber++;
         //  Read the line in
-        rawLine = inputFile.nextLine();
+        inputFile.nextLine(line);
+        rawLine = null;
         //  Clean it up
-        cleanLine = cleanLine(rawLine);
+        cleanLine(line);
         //  Break it down
         parse();
     }
 
+    /**
+     * Reads every remaining line of the file and decodes it into a ParsedProgram,
+     * so the file only has to be read and cleaned once no matter how many passes
+     * are made over it.
+     *
+     * PRECONDITION:    the file stream has been opened
+     * POSTCONDITION:   the file has been read to the end and closed, and every
+     *                  non-empty line is stored in the returned program
+     *
+     * @return      -   the decoded program
+     */
+    public ParsedProgram parseAll() {
+        ParsedProgram program = new ParsedProgram();
+        parseInto(program, Integer.MAX_VALUE);
+        return program;
+    }
+
+    /**
+     * Reads up to maxLines more lines and appends their instructions to program,
+     * so a file can be decoded one batch at a time.
+     *
+     * PRECONDITION:    the file stream has been opened, maxLines > 0
+     * POSTCONDITION:   up to maxLines more lines are stored in program, and its
+     *                  source line count is the number of lines read so far
+     *
+     * @param   program     -   the program to append to
+     * @param   maxLines    -   the most lines to read
+     * @return              -   true if lines may remain, false if the file has been read to the end
+     */
+    boolean parseInto(ParsedProgram program, int maxLines) {
+        int linesLeft = maxLines;
+        boolean more;
+        while ((more = hasMoreCommands()) && linesLeft-- > 0) {
+            advance();
+            switch (commandType) {
+                case A_INSTRUCTION:
+                    if (isNumber(symbolView)) {
+                        program.add(ParsedProgram.A_NUMBER,
+                                Integer.parseInt(symbolView, 0, symbolView.length(), 10), lineNumber);
+                    } else {
+                        program.add(ParsedProgram.A_SYMBOL, program.symbolIndex(getSymbolView()), lineNumber);
+                    }
+                    break;
+                case C_INSTRUCTION:
+                    program.add(ParsedProgram.C_INSTRUCTION, packFields(), lineNumber);
+                    break;
+                case L_INSTRUCTION:
+                    program.add(ParsedProgram.L_INSTRUCTION, program.symbolIndex(getSymbolView()), lineNumber);
+                    break;
+                case N_INSTRUCTION:
+                    //  Blank & comment-only lines are dropped, anything else is kept for error reporting
+                    if (cleanView.length() > 0) {
+                        program.add(ParsedProgram.INVALID, 0, lineNumber);
+                    }
+                    break;
+            }
+        }
+        program.setSourceLineCount(lineNumber);
+        return more;
+    }
+
     /******************
      * Helper Methods *
      ******************/
 
     /**
-     * Cleans a raw instruction by removing non-essential parts
+     * Opens a file as a memory-mapped input source.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   returns the opened source, or a FileNotFoundException has been thrown
+     *
+     * @param   inFileName  -   the name of the file to be opened
+     * @return              -   the opened source
+     */
+    private static InputSource open(String inFileName) throws FileNotFoundException {
+        if (inFileName == null) {
+            throw new FileNotFoundException();
+        }
+        try {
+            return new MappedFileSource(Paths.get(inFileName));
+        } catch (IOException | RuntimeException e) {
+            throw new FileNotFoundException(inFileName);
+        }
+    }
+
+    /**
+     * Cleans a raw instruction by removing non-essential parts. The bytes are
+     * scanned 8 at a time by AsciiScanner.
      *
      * PRECONDITION:    rawLine contains a line of assembly code and is not null
-     * POSTCONDITION:   returns rawLine with no whitespace or comments anywhere in the instruction
+     * POSTCONDITION:   cleanView holds rawLine with no whitespace or comments anywhere in the instruction
      *
      * @param   rawLine     -   a non-null line of assembly code
-     * @return  cleanedLine -   the instruction with no whitespace or comments
      */
-    private String cleanLine(String rawLine) {
-        String cleanedLine = rawLine;
-        int commentIndex = rawLine.indexOf("//");
-        if (commentIndex != -1) {
-            cleanedLine = rawLine.substring(0, commentIndex);
+    private void cleanLine(LineBuffer rawLine) {
+        if (cleanBytes.length < rawLine.length()) {
+            cleanBytes = new byte[rawLine.getBytes().length];
         }
-        cleanedLine = cleanedLine.trim();
-        cleanedLine = cleanedLine.replaceAll("\t", "");
-        cleanedLine = cleanedLine.replaceAll(" ", "");
-        return cleanedLine;
+        int length = AsciiScanner.cleanLine(rawLine.getBytes(), rawLine.length(), cleanBytes);
+        cleanView.set(cleanBytes, 0, length);
+        cleanLine = null;
     }
 
     /**
-     * Determines the command type of the instruction from the parameter
+     * Determines the command type of the clean line
      *
-     * PRECONDITION:    clean has no whitespace or comments
-     * POSTCONDITION:   returns the command type of the parameter as a Command:
+     * PRECONDITION:    cleanView has no whitespace or comments
+     * POSTCONDITION:   returns the command type of the line as a Command:
      *                  A_INST, C_INST, L_INST, N_INST
-     * @param   clean   -   an instruction with no whitespace or comments
-     * @return          -   the command type of the parameter, as a Command
+     * @return          -   the command type of the line, as a Command
      */
-    private Command parseCommandType(String clean) {
-        if (clean == null || clean.equals("")) {
+    private Command parseCommandType() {
+        int length = cleanView.length();
+        if (length == 0) {
             return Command.N_INSTRUCTION;
         } else {
-            char first = clean.charAt(0);
+            byte first = cleanBytes[0];
             if (first == '@') {
                 return Command.A_INSTRUCTION;
-            } else if (clean.contains(";") || clean.contains("=")) {
+            } else if (indexOf((byte) ';') != -1 || indexOf((byte) '=') != -1) {
                 return Command.C_INSTRUCTION;
-            } else if (first == '(' && clean.charAt(clean.length() - 1) == ')') {
+            } else if (first == '(' && cleanBytes[length - 1] == ')') {
                 return Command.L_INSTRUCTION;
             } else {
                 return Command.N_INSTRUCTION;
@@ -188,7 +320,7 @@ public class Parser {
      *                  method(s) are in the process of populating relevant instance variables
      */
     private void parse() {
-        commandType = parseCommandType(cleanLine);
+        commandType = parseCommandType();
         switch(commandType) {
             case N_INSTRUCTION:
                 break;
@@ -208,69 +340,133 @@ public class Parser {
      * Parses symbol for A- or L- Instructions.
      *
      * PRECONDITION:    the command is an A- or L- command
-     * POSTCONDITION:   the symbol instance variable is populated with the symbol in the command
+     * POSTCONDITION:   symbolView covers the symbol in the command
      */
     private void parseSymbol() {
-        //  Get rid of the '@' or the '('
+        //  Get rid of the '@' or the '(' (and the ')')
         //  TODO Does this need to be error-checked? If so, what happens if the '@', '(', or ')' is missing?
-        symbol = cleanLine.substring(1);
+        int end = cleanView.length();
         if (commandType == Command.L_INSTRUCTION) {
-            symbol = symbol.substring(0, symbol.length() - 1);
+            end = Math.max(1, end - 1);
         }
+        symbolView.set(cleanBytes, 1, end);
+        symbol = null;
     }
 
     /**
      * Parses line to get the comp part of a C-Instruction
      *
      * PRECONDITION:    the command is a C- command
-     * POSTCONDITION:   compMnemonic has been populated with the comp portion of the command
+     * POSTCONDITION:   compView covers the comp portion of the command
      */
     private void parseComp() {
         //  TODO - Does this need to be error-checked? what if semi-colon at the end? Or '=' or ';' is missing?
-        int eqIndex = cleanLine.indexOf('=');
-        int scIndex = cleanLine.indexOf(';');
+        int eqIndex = indexOf((byte) '=');
+        int scIndex = indexOf((byte) ';');
         if (eqIndex != -1) {
             if (scIndex == -1) {
                 //  dest=comp
-                compMnemonic = cleanLine.substring(eqIndex + 1);
+                compView.set(cleanBytes, eqIndex + 1, cleanView.length());
             } else {
-                //  dest=comp;jmp
-                compMnemonic = cleanLine.substring(eqIndex + 1, scIndex);
+                //  dest=comp;jmp (a ';' before the '=' leaves no valid comp)
+                compView.set(cleanBytes, eqIndex + 1, Math.max(eqIndex + 1, scIndex));
             }
         } else {
             //  comp;jmp
-            compMnemonic = cleanLine.substring(0, scIndex);
+            compView.set(cleanBytes, 0, scIndex);
         }
+        compMnemonic = null;
     }
 
     /**
      * Parses the line to get the dest part of a C-Instruction
      *
      * PRECONDITION:    the command is a C- command
-     * POSTCONDITION:   destMnemonic has been populated with the dest portion of the command
+     * POSTCONDITION:   destView covers the dest portion of the command
      */
     private void parseDest() {
-        int eqIndex = cleanLine.indexOf('=');
+        int eqIndex = indexOf((byte) '=');
         if (eqIndex != -1) {
-            destMnemonic = cleanLine.substring(0, eqIndex);
+            destView.set(cleanBytes, 0, eqIndex);
         } else {
-            destMnemonic = "null";
+            destView.set(NULL_MNEMONIC, 0, NULL_MNEMONIC.length);
         }
+        destMnemonic = null;
     }
 
     /**
      * Parses the line to get the jump part of a C-Instruction
      *
      * PRECONDITION:    the command is a C- command
-     * POSTCONDITION:   jumpMnemonic has been populated with the jump portion of the command
+     * POSTCONDITION:   jumpView covers the jump portion of the command
      */
     private void parseJump() {
-        int scIndex = cleanLine.indexOf(';');
+        int scIndex = indexOf((byte) ';');
         if (scIndex != -1) {
-            jumpMnemonic = cleanLine.substring(scIndex + 1);
+            jumpView.set(cleanBytes, scIndex + 1, cleanView.length());
         } else {
-            jumpMnemonic = "null";
+            jumpView.set(NULL_MNEMONIC, 0, NULL_MNEMONIC.length);
+        }
+        jumpMnemonic = null;
+    }
+
+    /**
+     * Finds the first occurrence of a byte in the clean line.
+     *
+     * @param   target  -   the byte to look for
+     * @return          -   its index, or -1 if the clean line does not contain it
+     */
+    private int indexOf(byte target) {
+        int length = cleanView.length();
+        for (int i = 0; i < length; i++) {
+            if (cleanBytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether an A-Instruction operand is a decimal constant, exactly as
+     * Integer.parseInt() would decide, without throwing for ordinary symbols.
+     *
+     * @param   operand -   the symbol part of an A-Instruction
+     * @return          -   true if operand parses as an int, false otherwise
+     */
+    private static boolean isNumber(ByteSlice operand) {
+        if (operand.length() == 0) {
+            return false;
         }
+        char first = operand.charAt(0);
+        if (first != '+' && first != '-' && !Character.isDigit(first)) {
+            return false;
+        }
+        try {
+            Integer.parseInt(operand, 0, operand.length(), 10);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Packs the comp, dest and jump fields of the current C-Instruction into a
+     * single ParsedProgram operand, flagging any field that has no valid code.
+     *
+     * PRECONDITION:    the command is a C- command that has been parsed
+     * POSTCONDITION:   N/A
+     *
+     * @return          -   the packed comp/dest/jump operand
+     */
+    private int packFields() {
+        int comp = Code.compBits(compView);
+        int dest = Code.destBits(destView);
+        int jump = Code.jumpBits(jumpView);
+        int packed = 0;
+        packed |= comp == Code.INVALID ? ParsedProgram.INVALID_COMP : comp << ParsedProgram.COMP_SHIFT;
+        packed |= dest == Code.INVALID ? ParsedProgram.INVALID_DEST : dest << ParsedProgram.DEST_SHIFT;
+        packed |= jump == Code.INVALID ? ParsedProgram.INVALID_JUMP : jump;
+        return packed;
     }
 
     /***********
@@ -298,6 +494,9 @@ public class Parser {
      * @return      -   the symbol name as a String
      */
     public String getSymbol() {
+        if (symbol == null) {
+            symbol = symbolView.toString();
+        }
         return symbol;
     }
 
@@ -310,6 +509,9 @@ public class Parser {
      * @return      -   the comp part as a String
      */
     public String getComp() {
+        if (compMnemonic == null) {
+            compMnemonic = compView.toString();
+        }
         return compMnemonic;
     }
 
@@ -322,6 +524,9 @@ public class Parser {
      * @return      -   the dest part as a String
      */
     public String getDest() {
+        if (destMnemonic == null) {
+            destMnemonic = destView.toString();
+        }
         return destMnemonic;
     }
 
@@ -334,9 +539,60 @@ public class Parser {
      * @return      -   the jump part as a String
      */
     public String getJump() {
+        if (jumpMnemonic == null) {
+            jumpMnemonic = jumpView.toString();
+        }
         return jumpMnemonic;
     }
 
+    /**
+     * Getter for the symbol as a view into the parser's buffer (no String is built).
+     *
+     * PRECONDITION:    the command is an A- or L-Instruction that has been parsed (advance() & check w/ getCommandType())
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the symbol, valid until the next advance()
+     */
+    public ByteSlice getSymbolView() {
+        return symbolView;
+    }
+
+    /**
+     * Getter for the comp part as a view into the parser's buffer (no String is built).
+     *
+     * PRECONDITION:    the command is a C-Instruction that has been parsed (advance() & check w/ getCommandType())
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the comp part, valid until the next advance()
+     */
+    public ByteSlice getCompView() {
+        return compView;
+    }
+
+    /**
+     * Getter for the dest part as a view into the parser's buffer (no String is built).
+     *
+     * PRECONDITION:    the command is a C-Instruction that has been parsed (advance() & check w/ getCommandType())
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the dest part ("null" if absent), valid until the next advance()
+     */
+    public ByteSlice getDestView() {
+        return destView;
+    }
+
+    /**
+     * Getter for the jump part as a view into the parser's buffer (no String is built).
+     *
+     * PRECONDITION:    the command is a C-Instruction that has been parsed (advance() & check w/ getCommandType())
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the jump part ("null" if absent), valid until the next advance()
+     */
+    public ByteSlice getJumpView() {
+        return jumpView;
+    }
+
     /**
      * Getter for String version of command type (Debugging).
      *
@@ -358,6 +614,9 @@ public class Parser {
      * @return      -   rawLine
      */
     public String getRawLine() {
+        if (rawLine == null) {
+            rawLine = line.toString();
+        }
         return rawLine;
     }
 
@@ -370,9 +629,24 @@ public class Parser {
      * @return      -   cleanLine
      */
     public String getCleanLine() {
+        if (cleanLine == null) {
+            cleanLine = cleanView.toString();
+        }
         return cleanLine;
     }
 
+    /**
+     * Getter for the clean line as a view into the parser's buffer (no String is built).
+     *
+     * PRECONDITION:    advance() has been called
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the clean line, valid until the next advance()
+     */
+    public ByteSlice getCleanLineView() {
+        return cleanView;
+    }
+
     /**
      * Getter for lineNumber (Debugging).
      *
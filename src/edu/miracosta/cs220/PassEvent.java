@@ -0,0 +1,41 @@
+/************************************************************************************
+ *
+ * Class name:    PassEvent
+ * Package:       edu.miracosta.cs220
+ * Description:   Java Flight Recorder event for one phase of a HackAssembler run:
+ *                reading & parsing the source, optimizing, firstPass, secondPass,
+ *                the single pass, or flushing the output. The phases of a run follow each
+ *                other on the same thread inside its AssemblyEvent.
+ *
+ * History:       added for the Flight Recorder events
+ *
+ * Notes:         Enabled by default. The phase names are the ones AssemblyStats
+ *                reports (AssemblyStats.READ, FIRST_PASS, ...).
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(PassEvent.NAME)
+@Label("Assembly Pass")
+@Category("Hack Assembler")
+@Description("One phase of a HackAssembler run")
+public class PassEvent extends Event {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String NAME = "edu.miracosta.cs220.Pass";
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    @Label("Pass")
+    @Description("read, optimize, firstPass, secondPass, singlePass or flush")
+    String pass;
+}
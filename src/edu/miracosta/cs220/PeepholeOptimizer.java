@@ -0,0 +1,265 @@
+/************************************************************************************
+ *
+ * Class name:    PeepholeOptimizer
+ * Package:       edu.miracosta.cs220
+ * Description:   Removes the redundant instructions a VM translator typically
+ *                emits, looking at one instruction and what comes just before it:
+ *                  dead-a-load         @X whose value is replaced by the very next
+ *                                      instruction, another A-Instruction
+ *                  repeated-a-load     @X while A already holds X (e.g. the second
+ *                                      @SP in "@SP, M=M+1, @SP, A=M-1")
+ *                  store-after-load    M=D right after D=M (M already equals D)
+ *                  load-after-store    D=M right after M=D (D already equals M)
+ *
+ * History:       added for the peephole optimizer
+ *
+ * Methods:       Public:   PeepholeOptimizer(), optimize(ParsedProgram, Map)
+ *
+ *                Package:  labelSymbols(ParsedProgram), jumpsToNumber(ParsedProgram, boolean[]),
+ *                          removable(ParsedProgram, boolean[])
+ *
+ *                Private:  mayBeKeyboard(ParsedProgram, int, boolean[])
+ *
+ * Notes:         What A holds is only known from the last @X since the last label,
+ *                as a jump may arrive at a label with any A; a C-Instruction that
+ *                writes A forgets it too. Only instructions that assemble without
+ *                errors are removed, and never the first @X of a variable, so every
+ *                variable keeps its RAM address. Programs are assumed to jump only
+ *                to labels: one that jumps to a numeric ROM address (@12, 0;JMP)
+ *                is left as it is, since removing instructions moves that address.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.Map;
+
+public class PeepholeOptimizer implements Optimizer {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String DEAD_A_LOAD = "dead-a-load";
+    public static final String REPEATED_A_LOAD = "repeated-a-load";
+    public static final String STORE_AFTER_LOAD = "store-after-load";
+    public static final String LOAD_AFTER_STORE = "load-after-store";
+
+    //  Packed C-Instruction operands, as ParsedProgram stores them
+    private static final int D_EQUALS_M = Code.compBits("M") << ParsedProgram.COMP_SHIFT
+                                          | Code.destBits("D") << ParsedProgram.DEST_SHIFT;
+    private static final int M_EQUALS_D = Code.compBits("D") << ParsedProgram.COMP_SHIFT
+                                          | Code.destBits("M") << ParsedProgram.DEST_SHIFT;
+    private static final int DEST_A = Code.destBits("A") << ParsedProgram.DEST_SHIFT;
+
+    //  The keyboard can't be written, so a store there can't be read back
+    private static final int KEYBOARD = SymbolTable.getPredefined("KBD");
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an optimizer that applies every rule.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     */
+    public PeepholeOptimizer() {
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Removes redundant instructions in one pass over program.
+     *
+     * PRECONDITION:    program was filled by the Parser
+     * POSTCONDITION:   program behaves as before when assembled; removed holds the
+     *                  number of instructions each rule removed
+     *
+     * @param   program -   the program to rewrite
+     * @param   removed -   instructions removed, by rule name
+     */
+    @Override
+    public void optimize(ParsedProgram program, Map<String, Integer> removed) {
+        int deadLoads = 0, repeatedLoads = 0, storesAfterLoads = 0, loadsAfterStores = 0;
+        boolean[] labels = labelSymbols(program);
+        if (!jumpsToNumber(program, labels)) {
+            boolean[] removable = removable(program, labels);
+            boolean[] dropped = new boolean[program.size()];
+            int loaded = -1;            //  the instruction whose value A holds, if known
+            int previous = -1;          //  the last instruction kept
+            boolean labelBetween = false;
+
+            for (int i = 0; i < program.size(); i++) {
+                byte kind = program.getKind(i);
+                int operand = program.getOperand(i);
+                if (kind == ParsedProgram.L_INSTRUCTION) {
+                    loaded = -1;
+                    labelBetween = true;
+                    continue;
+                }
+                if (kind == ParsedProgram.A_NUMBER || kind == ParsedProgram.A_SYMBOL) {
+                    if (loaded != -1 && program.getKind(loaded) == kind
+                            && program.getOperand(loaded) == operand && removable[i]) {
+                        dropped[i] = true;
+                        repeatedLoads++;
+                        continue;
+                    }
+                    //  A label in between doesn't matter: whoever gets here loads A anyway
+                    if (previous != -1 && removable[previous]
+                            && (program.getKind(previous) == ParsedProgram.A_NUMBER
+                                || program.getKind(previous) == ParsedProgram.A_SYMBOL)) {
+                        dropped[previous] = true;
+                        deadLoads++;
+                    }
+                    loaded = i;
+                } else if (kind == ParsedProgram.C_INSTRUCTION) {
+                    boolean follows = previous != -1 && !labelBetween
+                                      && program.getKind(previous) == ParsedProgram.C_INSTRUCTION;
+                    if (follows && removable[i] && operand == M_EQUALS_D
+                            && program.getOperand(previous) == D_EQUALS_M) {
+                        dropped[i] = true;
+                        storesAfterLoads++;
+                        continue;
+                    }
+                    if (follows && removable[i] && operand == D_EQUALS_M
+                            && program.getOperand(previous) == M_EQUALS_D
+                            && loaded != -1 && !mayBeKeyboard(program, loaded, labels)) {
+                        dropped[i] = true;
+                        loadsAfterStores++;
+                        continue;
+                    }
+                    if ((operand & DEST_A) != 0) {
+                        loaded = -1;
+                    }
+                } else {
+                    loaded = -1;
+                }
+                previous = i;
+                labelBetween = false;
+            }
+            program.compact(dropped);
+        }
+        removed.merge(DEAD_A_LOAD, deadLoads, Integer::sum);
+        removed.merge(REPEATED_A_LOAD, repeatedLoads, Integer::sum);
+        removed.merge(STORE_AFTER_LOAD, storesAfterLoads, Integer::sum);
+        removed.merge(LOAD_AFTER_STORE, loadsAfterStores, Integer::sum);
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Marks the symbols the program declares as labels (a predefined symbol
+     * keeps its value even if it is declared).
+     *
+     * @param   program -   the parsed program
+     * @return          -   true for each symbol index that is a label
+     */
+    static boolean[] labelSymbols(ParsedProgram program) {
+        boolean[] labels = new boolean[program.getSymbolCount()];
+        for (int i = 0; i < program.size(); i++) {
+            if (program.getKind(i) == ParsedProgram.L_INSTRUCTION
+                    && SymbolTable.getPredefined(program.getSymbol(program.getOperand(i))) == SymbolTable.INVALID) {
+                labels[program.getOperand(i)] = true;
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Checks whether the program jumps to a ROM address given as a number (or a
+     * predefined symbol or variable) rather than a label. Removing instructions
+     * would move such an address, so optimizers leave these programs alone.
+     *
+     * @param   program -   the parsed program
+     * @param   labels  -   the label symbols, from labelSymbols(ParsedProgram)
+     * @return          -   true if some jump's target is a number
+     */
+    static boolean jumpsToNumber(ParsedProgram program, boolean[] labels) {
+        int loaded = -1;
+        for (int i = 0; i < program.size(); i++) {
+            switch (program.getKind(i)) {
+                case ParsedProgram.A_NUMBER:
+                case ParsedProgram.A_SYMBOL:
+                    loaded = i;
+                    break;
+                case ParsedProgram.C_INSTRUCTION:
+                    if ((program.getOperand(i) & ParsedProgram.JUMP_MASK) != 0 && loaded != -1
+                            && (program.getKind(loaded) == ParsedProgram.A_NUMBER
+                                || !labels[program.getOperand(loaded)])) {
+                        return true;
+                    }
+                    if ((program.getOperand(i) & DEST_A) != 0) {
+                        loaded = -1;
+                    }
+                    break;
+                case ParsedProgram.L_INSTRUCTION:
+                    break;
+                default:
+                    loaded = -1;
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks the instructions that may be removed: those that assemble without
+     * errors, except the first reference to each variable (which decides its
+     * RAM address).
+     *
+     * @param   program -   the parsed program
+     * @param   labels  -   the label symbols, from labelSymbols(ParsedProgram)
+     * @return          -   true for each instruction index that may be removed
+     */
+    static boolean[] removable(ParsedProgram program, boolean[] labels) {
+        boolean[] removable = new boolean[program.size()];
+        boolean[] referenced = new boolean[program.getSymbolCount()];
+        for (int i = 0; i < program.size(); i++) {
+            int operand = program.getOperand(i);
+            switch (program.getKind(i)) {
+                case ParsedProgram.A_NUMBER:
+                    removable[i] = operand >= 0;
+                    break;
+                case ParsedProgram.A_SYMBOL:
+                    String symbol = program.getSymbol(operand);
+                    boolean variable = !labels[operand] && SymbolTable.getPredefined(symbol) == SymbolTable.INVALID;
+                    removable[i] = SymbolTable.isValidName(symbol) && (referenced[operand] || !variable);
+                    referenced[operand] = true;
+                    break;
+                case ParsedProgram.C_INSTRUCTION:
+                    removable[i] = (operand & (ParsedProgram.INVALID_COMP | ParsedProgram.INVALID_DEST
+                                               | ParsedProgram.INVALID_JUMP)) == 0;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return removable;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Checks whether the A-Instruction at index might load the keyboard's
+     * address. Only the low 15 bits of a number are kept, so @57344 loads it
+     * too; a label's value is a ROM address, which could be anything; and a
+     * variable could only get there if the program had thousands of symbols.
+     */
+    private static boolean mayBeKeyboard(ParsedProgram program, int index, boolean[] labels) {
+        int operand = program.getOperand(index);
+        if (program.getKind(index) == ParsedProgram.A_NUMBER) {
+            return Code.aInstruction(operand) == KEYBOARD;
+        }
+        int predefined = SymbolTable.getPredefined(program.getSymbol(operand));
+        if (predefined != SymbolTable.INVALID) {
+            return predefined == KEYBOARD;
+        }
+        return labels[operand] || program.getSymbolCount() > KEYBOARD - HackAssembler.FIRST_VARIABLE_ADDRESS;
+    }
+}
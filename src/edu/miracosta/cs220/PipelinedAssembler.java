@@ -0,0 +1,506 @@
+/************************************************************************************
+ *
+ * Class name:    PipelinedAssembler
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles a program with each stage on its own thread: a reader
+ *                copies batches of lines out of the InputSource, a parser decodes
+ *                them into ParsedProgram batches, an encoder translates them into
+ *                batches of words, and the calling thread writes those to the
+ *                OutputSink. The stages are joined by bounded SpscRings, so a slow
+ *                stage holds the others back instead of letting batches pile up,
+ *                and throughput approaches that of the slowest stage.
+ *
+ * History:       added for pipelined assembly
+ *
+ * Methods:       Public:   PipelinedAssembler(), PipelinedAssembler(int, int),
+ *                          assemble(InputSource, OutputSink)
+ *
+ *                Private:  read(InputSource, SpscRing), parse(SpscRing, SpscRing, SymbolTable),
+ *                          encode(SpscRing, SpscRing, SymbolTable, Runnable),
+ *                          write(SpscRing, OutputSink), start(String, Stage, Throwable[], Runnable, List)
+ *
+ * Notes:         Translation (and the error reported) follows HackAssembler's single
+ *                pass: an A-Instruction naming a symbol that is not known yet is
+ *                written as a placeholder and patched once the label turns up (or,
+ *                at the end, once it is known to be a variable). The parser publishes every label to a
+ *                ConcurrentSymbolTable as soon as it reads it, so the encoder, which
+ *                runs behind it, rarely has to wait for one. Words that may still
+ *                be patched are held back by the writer when the sink cannot be
+ *                patched, and let go as soon as every reference before them is
+ *                resolved.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+public class PipelinedAssembler {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int DEFAULT_BATCH_LINES = 4096;
+    public static final int DEFAULT_RING_CAPACITY = 16;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final int batchLines;
+    private final int ringCapacity;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates a pipelined assembler with the default batch size and ring capacity.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the assembler is ready to use
+     */
+    public PipelinedAssembler() {
+        this(DEFAULT_BATCH_LINES, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Creates a pipelined assembler.
+     *
+     * PRECONDITION:    batchLines > 0, ringCapacity > 0
+     * POSTCONDITION:   the assembler is ready to use
+     *
+     * @param   batchLines      -   the number of source lines handed on at a time
+     * @param   ringCapacity    -   the number of batches that may wait between two stages
+     */
+    public PipelinedAssembler(int batchLines, int ringCapacity) {
+        this.batchLines = batchLines;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Assembles source into output, which is finished but left open.
+     *
+     * PRECONDITION:    source and output are open
+     * POSTCONDITION:   source has been closed; output holds the machine code
+     *                  (or as much of it as came before the first error)
+     *
+     * @param   source  -   the .asm text
+     * @param   output  -   the sink to write the words to
+     * @return          -   the result of the run
+     * @throws IOException  if the input cannot be read or the output cannot be written
+     */
+    public AssemblyResult assemble(InputSource source, OutputSink output) throws IOException {
+        long start = System.nanoTime();
+        SpscRing<LineBatch> lines = new SpscRing<>(ringCapacity);
+        SpscRing<ParsedProgram> instructions = new SpscRing<>(ringCapacity);
+        SpscRing<WordBatch> words = new SpscRing<>(ringCapacity);
+        ConcurrentSymbolTable symbolTable = new ConcurrentSymbolTable();
+
+        //  The first failure of any stage; it cancels every ring so the other stages stop too
+        Throwable[] failure = new Throwable[1];
+        List<Thread> threads = new ArrayList<>();
+        Runnable cancel = () -> {
+            lines.cancel();
+            instructions.cancel();
+            words.cancel();
+        };
+        start("hack-reader", () -> read(source, lines), failure, cancel, threads);
+        start("hack-parser", () -> parse(lines, instructions, symbolTable), failure, cancel, threads);
+        start("hack-encoder", () -> encode(instructions, words, symbolTable, () -> {
+            lines.cancel();
+            instructions.cancel();
+        }), failure, cancel, threads);
+
+        WriteResult written = null;
+        try {
+            written = write(words, output);
+        } catch (IOException | RuntimeException e) {
+            cancel.run();
+            synchronized (failure) {
+                if (failure[0] == null) {
+                    failure[0] = e;
+                }
+            }
+        } finally {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    cancel.run();
+                    Thread.currentThread().interrupt();
+                }
+            }
+            source.close();
+        }
+
+        synchronized (failure) {
+            if (failure[0] instanceof IOException) {
+                throw (IOException) failure[0];
+            } else if (failure[0] instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) failure[0]).getCause();
+            } else if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException) failure[0];
+            } else if (failure[0] != null) {
+                throw new IOException("Pipeline stage failed", failure[0]);
+            }
+        }
+        output.finish();
+        List<Diagnostic> diagnostics = written.error == null ? Collections.<Diagnostic>emptyList()
+                                                             : Collections.singletonList(written.error);
+        return new AssemblyResult(diagnostics, null, output.getWordCount(), output.getBytesWritten(),
+                written.sourceLineCount, symbolTable.size(), System.nanoTime() - start);
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Starts a stage on a thread of its own. A stage that fails records its
+     * failure (unless another stage failed first) and cancels the pipeline.
+     */
+    private static void start(String name, Stage stage, Throwable[] failure, Runnable cancel,
+                              List<Thread> threads) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (CancellationException e) {
+                //  another stage failed first and has already been recorded
+            } catch (Throwable e) {
+                synchronized (failure) {
+                    if (failure[0] == null) {
+                        failure[0] = e;
+                    }
+                }
+                cancel.run();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+    }
+
+    /**
+     * Reader stage: copies lines out of source, batchLines at a time.
+     */
+    private void read(InputSource source, SpscRing<LineBatch> lines) {
+        LineBuffer line = new LineBuffer();
+        LineBatch batch = new LineBatch(batchLines);
+        while (source.hasNextLine()) {
+            source.nextLine(line);
+            batch.add(line);
+            if (batch.count == batchLines) {
+                lines.put(batch);
+                batch = new LineBatch(batchLines);
+            }
+        }
+        if (batch.count > 0) {
+            lines.put(batch);
+        }
+        lines.close();
+    }
+
+    /**
+     * Parser stage: decodes the lines into one ParsedProgram per batch, and
+     * publishes each valid label with its ROM address as soon as it is read.
+     */
+    private void parse(SpscRing<LineBatch> lines, SpscRing<ParsedProgram> instructions,
+                       SymbolTable symbolTable) {
+        Parser parser = new Parser(new RingSource(lines));
+        int romAddress = 0;
+        boolean more = true;
+        while (more) {
+            ParsedProgram batch = new ParsedProgram();
+            more = parser.parseInto(batch, batchLines);
+            for (int i = 0; i < batch.size(); i++) {
+                switch (batch.getKind(i)) {
+                    case ParsedProgram.A_NUMBER:
+                    case ParsedProgram.A_SYMBOL:
+                    case ParsedProgram.C_INSTRUCTION:
+                        romAddress++;
+                        break;
+                    case ParsedProgram.L_INSTRUCTION:
+                        //  an invalid label is left out; the encoder reports it in line order
+                        symbolTable.getOrAssign(batch.getSymbol(batch.getOperand(i)), romAddress);
+                        break;
+                }
+            }
+            instructions.put(batch);
+        }
+        instructions.close();
+    }
+
+    /**
+     * Encoder stage: translates each instruction batch into a batch of words,
+     * patches and a hold-back position, stopping at the first error.
+     */
+    private void encode(SpscRing<ParsedProgram> instructions, SpscRing<WordBatch> words,
+                        SymbolTable symbolTable, Runnable cancelUpstream) {
+        ForwardReferences forwardReferences = new ForwardReferences();
+        long wordCount = 0;
+        int sourceLineCount = 0;
+        ParsedProgram batch;
+        while ((batch = instructions.take()) != null) {
+            WordBatch out = new WordBatch(batch.size());
+            sourceLineCount = batch.getSourceLineCount();
+            for (int i = 0; i < batch.size() && out.error == null; i++) {
+                int operand = batch.getOperand(i);
+                int lineNumber = batch.getLineNumber(i);
+                switch (batch.getKind(i)) {
+                    case ParsedProgram.A_NUMBER:
+                        if (operand < 0) {
+                            out.error = new Diagnostic(lineNumber, "Negative integer not allowed", null);
+                            break;
+                        }
+                        out.add(Code.aInstruction(operand));
+                        break;
+                    case ParsedProgram.A_SYMBOL:
+                        String symbol = batch.getSymbol(operand);
+                        int address = symbolTable.getAddress(symbol);
+                        if (address != SymbolTable.INVALID) {
+                            out.add(Code.aInstruction(address));
+                        } else if (SymbolTable.isValidName(symbol)) {
+                            //	Label further down or a variable -- decide once it's known
+                            forwardReferences.add(symbol, wordCount + out.count);
+                            out.add(0);
+                        } else {
+                            out.error = new Diagnostic(lineNumber, "Invalid symbol", null);
+                        }
+                        break;
+                    case ParsedProgram.C_INSTRUCTION:
+                        if ((operand & ParsedProgram.INVALID_COMP) != 0) {
+                            out.error = new Diagnostic(lineNumber, "Invalid comp code", null);
+                        } else if ((operand & ParsedProgram.INVALID_DEST) != 0) {
+                            out.error = new Diagnostic(lineNumber, "Invalid dest code", null);
+                        } else if ((operand & ParsedProgram.INVALID_JUMP) != 0) {
+                            out.error = new Diagnostic(lineNumber, "Invalid jump code", null);
+                        } else {
+                            out.add(Code.cInstruction(
+                                    (operand & ParsedProgram.COMP_MASK) >>> ParsedProgram.COMP_SHIFT,
+                                    (operand & ParsedProgram.DEST_MASK) >>> ParsedProgram.DEST_SHIFT,
+                                    operand & ParsedProgram.JUMP_MASK));
+                        }
+                        break;
+                    case ParsedProgram.L_INSTRUCTION:
+                        symbol = batch.getSymbol(operand);
+                        address = symbolTable.getAddress(symbol);
+                        if (address == SymbolTable.INVALID) {
+                            out.error = new Diagnostic(lineNumber, "Invalid symbol", null);
+                            break;
+                        }
+                        for (long position : forwardReferences.resolve(symbol)) {
+                            out.addPatch(position, Code.aInstruction(address));
+                        }
+                        break;
+                    case ParsedProgram.INVALID:
+                        out.error = new Diagnostic(lineNumber, "Expression expected", null);
+                        break;
+                }
+            }
+            wordCount += out.count;
+            out.holdBack = forwardReferences.isEmpty() ? wordCount : forwardReferences.firstPosition();
+            out.sourceLineCount = sourceLineCount;
+            words.put(out);
+            if (out.error != null) {
+                //  the run ends here -- stop the reader & parser, which may be waiting on full rings
+                words.close();
+                cancelUpstream.run();
+                return;
+            }
+        }
+
+        //	Whatever is still unresolved was never declared as a label -> variable
+        WordBatch out = new WordBatch(0);
+        int ramAddress = HackAssembler.FIRST_VARIABLE_ADDRESS;
+        while (!forwardReferences.isEmpty()) {
+            String symbol = forwardReferences.nextSymbol();
+            symbolTable.getOrAssign(symbol, ramAddress);
+            int address = Code.aInstruction(ramAddress++);
+            for (long position : forwardReferences.resolve(symbol)) {
+                out.addPatch(position, address);
+            }
+        }
+        out.holdBack = wordCount;
+        out.sourceLineCount = sourceLineCount;
+        words.put(out);
+        words.close();
+    }
+
+    /**
+     * Writer stage (on the calling thread): writes words and patches to output.
+     * When output cannot be patched, words from the first unresolved reference
+     * on are held in memory until the encoder says they are final.
+     */
+    private static WriteResult write(SpscRing<WordBatch> words, OutputSink output) throws IOException {
+        boolean direct = output.isPatchable();
+        WriteResult result = new WriteResult();
+
+        //  Held-back words: held[0] is word number heldStart
+        int[] held = new int[1024];
+        int heldCount = 0;
+        long heldStart = 0;
+
+        WordBatch batch;
+        while ((batch = words.take()) != null) {
+            if (direct) {
+                for (int i = 0; i < batch.count; i++) {
+                    output.write(batch.words[i]);
+                }
+                for (int i = 0; i < batch.patchCount; i++) {
+                    output.patch(batch.patchPositions[i], batch.patchWords[i]);
+                }
+            } else {
+                if (heldCount + batch.count > held.length) {
+                    held = Arrays.copyOf(held, Math.max(held.length * 2, heldCount + batch.count));
+                }
+                System.arraycopy(batch.words, 0, held, heldCount, batch.count);
+                heldCount += batch.count;
+                for (int i = 0; i < batch.patchCount; i++) {
+                    held[(int) (batch.patchPositions[i] - heldStart)] = batch.patchWords[i];
+                }
+                //  let go of every word before the first one that may still change
+                int release = batch.error != null ? heldCount : (int) (batch.holdBack - heldStart);
+                for (int i = 0; i < release; i++) {
+                    output.write(held[i]);
+                }
+                System.arraycopy(held, release, held, 0, heldCount - release);
+                heldCount -= release;
+                heldStart += release;
+            }
+            result.sourceLineCount = batch.sourceLineCount;
+            if (batch.error != null) {
+                result.error = batch.error;
+            }
+        }
+        return result;
+    }
+
+    /*****************
+     * Inner Classes *
+     *****************/
+
+    /**
+     * The body of a pipeline stage.
+     */
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * Raw lines copied out of the source, back to back in one array.
+     */
+    private static class LineBatch {
+        private byte[] bytes = new byte[1 << 16];
+        private int length;
+        private final int[] ends;
+        private int count;
+
+        private LineBatch(int capacity) {
+            ends = new int[capacity];
+        }
+
+        private void add(LineBuffer line) {
+            if (length + line.length() > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + line.length()));
+            }
+            System.arraycopy(line.getBytes(), 0, bytes, length, line.length());
+            length += line.length();
+            ends[count++] = length;
+        }
+    }
+
+    /**
+     * Encoded words, the patches to earlier words that they resolve, and the
+     * first word position that may still be patched later.
+     */
+    private static class WordBatch {
+        private int[] words;
+        private int count;
+        private long[] patchPositions = new long[16];
+        private int[] patchWords = new int[16];
+        private int patchCount;
+        private long holdBack;
+        private int sourceLineCount;
+        private Diagnostic error;
+
+        private WordBatch(int capacity) {
+            words = new int[Math.max(capacity, 1)];
+        }
+
+        private void add(int word) {
+            words[count++] = word;
+        }
+
+        private void addPatch(long position, int word) {
+            if (patchCount == patchPositions.length) {
+                patchPositions = Arrays.copyOf(patchPositions, patchCount * 2);
+                patchWords = Arrays.copyOf(patchWords, patchCount * 2);
+            }
+            patchPositions[patchCount] = position;
+            patchWords[patchCount++] = word;
+        }
+    }
+
+    /**
+     * What the writer stage saw.
+     */
+    private static class WriteResult {
+        private int sourceLineCount;
+        private Diagnostic error;
+    }
+
+    /**
+     * Feeds the Parser the lines of the batches in a ring, one batch at a time.
+     */
+    private static class RingSource implements InputSource {
+        private final SpscRing<LineBatch> lines;
+        private LineBatch batch;
+        private ByteBuffer bytes;
+        private int next;
+        private long bytesRead;
+
+        private RingSource(SpscRing<LineBatch> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean hasNextLine() {
+            while (batch == null || next == batch.count) {
+                batch = lines.take();
+                if (batch == null) {
+                    return false;
+                }
+                bytes = ByteBuffer.wrap(batch.bytes);
+                next = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public void nextLine(LineBuffer line) {
+            int start = next == 0 ? 0 : batch.ends[next - 1];
+            line.set(bytes, start, batch.ends[next] - start);
+            bytesRead += batch.ends[next] - start;
+            next++;
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
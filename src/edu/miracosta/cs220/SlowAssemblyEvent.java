@@ -0,0 +1,59 @@
+/************************************************************************************
+ *
+ * Class name:    SlowAssemblyEvent
+ * Package:       edu.miracosta.cs220
+ * Description:   Java Flight Recorder event for a HackAssembler run that took
+ *                longer than a threshold (1 s unless the recording says otherwise),
+ *                with what was needed to find the file again and judge its size.
+ *
+ * History:       added for the Flight Recorder events
+ *
+ * Notes:         Disabled by default; turn it on and pick the threshold in the
+ *                recording's settings, e.g.
+ *                  events.enable(SlowAssemblyEvent.NAME).withThreshold(Duration.ofMillis(200));
+ *                or in a .jfc file with edu.miracosta.cs220.SlowAssembly#enabled=true
+ *                and #threshold=200 ms. Runs under the threshold are dropped before
+ *                any field is filled in.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name(SlowAssemblyEvent.NAME)
+@Label("Slow Assembly")
+@Category("Hack Assembler")
+@Description("A HackAssembler run that took longer than the threshold")
+@Enabled(false)
+@Threshold("1 s")
+public class SlowAssemblyEvent extends Event {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String NAME = "edu.miracosta.cs220.SlowAssembly";
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    @Label("File")
+    @Description("The source file, or empty if the source is not a file")
+    String file;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Lines")
+    int lines;
+
+    @Label("Single Pass")
+    boolean singlePass;
+}
@@ -0,0 +1,147 @@
+/************************************************************************************
+ *
+ * Class name:    SpscRing
+ * Package:       edu.miracosta.cs220
+ * Description:   A bounded ring buffer handing items from exactly one producer
+ *                thread to exactly one consumer thread. A full ring makes the
+ *                producer wait (back-pressure) and an empty one makes the consumer
+ *                wait; waiting spins briefly and then parks. Each side only writes
+ *                its own counter, so no locks are needed.
+ *
+ * History:       added for pipelined assembly
+ *
+ * Methods:       Public:   SpscRing(int), put(T), take(), close(), cancel()
+ *
+ *                Private:  await(long)
+ *
+ * Notes:         close() ends the stream normally: take() returns null once every
+ *                item before it has been taken. cancel() ends it abnormally: both
+ *                sides get a CancellationException from their next put() or take().
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.LockSupport;
+
+public class SpscRing<T> {
+
+    /*************
+     * Constants *
+     *************/
+    //  Spinning only helps when the other side can run at the same time
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+    private static final long PARK_NANOS = 20_000;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private final Object[] items;
+    private final int mask;
+
+    //  Next slot to write (only the producer writes it) and to read (only the consumer)
+    private volatile long tail;
+    private volatile long head;
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty ring.
+     *
+     * PRECONDITION:    capacity > 0
+     * POSTCONDITION:   the ring holds no items
+     *
+     * @param   capacity    -   the most items that can wait in the ring (rounded up to a power of 2)
+     */
+    public SpscRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        items = new Object[size];
+        mask = size - 1;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Adds an item, waiting while the ring is full. Producer thread only.
+     *
+     * PRECONDITION:    item is not null, close() has not been called
+     * POSTCONDITION:   the item will be returned by take()
+     *
+     * @param   item    -   the item to hand over
+     * @throws CancellationException    if the ring has been cancelled
+     */
+    public void put(T item) {
+        long slot = tail;
+        for (int waits = 0; slot - head == items.length; waits++) {
+            await(waits);
+        }
+        items[(int) slot & mask] = item;
+        //  the volatile write publishes the item to the consumer
+        tail = slot + 1;
+    }
+
+    /**
+     * Removes the oldest item, waiting while the ring is empty. Consumer thread only.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   the oldest item, or null once the ring is closed and empty
+     * @throws CancellationException    if the ring has been cancelled
+     */
+    @SuppressWarnings("unchecked")
+    public T take() {
+        long slot = head;
+        for (int waits = 0; slot == tail; waits++) {
+            if (closed && slot == tail) {
+                return null;
+            }
+            await(waits);
+        }
+        int index = (int) slot & mask;
+        T item = (T) items[index];
+        items[index] = null;
+        head = slot + 1;
+        return item;
+    }
+
+    /**
+     * Marks the end of the stream. Producer thread only.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Aborts the stream, waking both sides. Any thread may call it.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Waits a little before the caller checks the ring again.
+     *
+     * @param   waits   -   how many times the caller has waited already
+     */
+    private void await(int waits) {
+        if (cancelled) {
+            throw new CancellationException("Pipeline cancelled");
+        }
+        if (waits < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+    }
+}
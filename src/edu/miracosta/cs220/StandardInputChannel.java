@@ -0,0 +1,74 @@
+/************************************************************************************
+ *
+ * Class name:    StandardInputChannel
+ * Package:       edu.miracosta.cs220
+ * Description:   Reads the process's standard input as a channel. Before a read that
+ *                would have to wait for the process feeding the pipe, the output is
+ *                flushed, so the process reading ours gets every finished word
+ *                without either side waiting on a full buffer.
+ *
+ * History:       added for streaming standard input to standard output
+ *
+ * Methods:       Public:   StandardInputChannel(OutputSink), read(ByteBuffer), isOpen(),
+ *                          close()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+public class StandardInputChannel implements ReadableByteChannel {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private FileInputStream input;
+    private FileChannel channel;
+    private OutputSink output;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Opens standard input.
+     *
+     * PRECONDITION:    output is open
+     * POSTCONDITION:   the channel is ready to be read
+     *
+     * @param   output  -   the sink to flush whenever input runs dry
+     */
+    public StandardInputChannel(OutputSink output) {
+        input = new FileInputStream(FileDescriptor.in);
+        channel = input.getChannel();
+        this.output = output;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException {
+        if (input.available() == 0) {
+            //  The next read may block -> let what's done so far move on first
+            output.flush();
+        }
+        return channel.read(buffer);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
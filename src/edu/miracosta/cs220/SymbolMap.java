@@ -0,0 +1,391 @@
+/************************************************************************************
+ *
+ * Class name:    SymbolMap
+ * Package:       edu.miracosta.cs220
+ * Description:   An open-addressing hash map from ASCII symbols to primitive ints.
+ *                Keys are copied into one shared byte pool, values are stored in an
+ *                int[] (no Integer boxing), and a key can be looked up from any
+ *                CharSequence or straight from a (byte[], offset, length) range of
+ *                an input buffer, so no String has to be built to ask for it.
+ *
+ * History:       added to replace the HashMap inside SymbolTable
+ *
+ * Methods:       Public:   SymbolMap(), SymbolMap(int), get(CharSequence),
+ *                          get(byte[], int, int), put(CharSequence, int),
+ *                          putIfAbsent(CharSequence, int), putIfAbsent(byte[], int, int, int),
+ *                          size(), capacity(), getKey(int), getValue(int)
+ *
+ *                Package:  hash(CharSequence), hash(byte[], int, int)
+ *
+ *                Private:  find(...), insert(...), matches(...), grow()
+ *
+ * Notes:         Keys must be Latin-1 (every valid Hack symbol is ASCII). Entries
+ *                are numbered in insertion order and are never removed.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class SymbolMap {
+
+    /*************
+     * Constants *
+     *************/
+    public static final int NOT_FOUND = -1;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**********************
+     * Instance Variables *
+     **********************/
+
+    //  Hash slots: entry index + 1, or 0 for an empty slot
+    private int[] slots;
+    private int mask;
+
+    //  Entries, in insertion order
+    private int[] hashes;
+    private int[] values;
+    private int[] keyStarts;
+    private int[] keyLengths;
+    private int size;
+
+    //  Key characters of every entry, one byte each
+    private byte[] keyBytes;
+    private int keyBytesUsed;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty map.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   the map holds no entries
+     */
+    public SymbolMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map with room for about expectedSize entries before it grows.
+     *
+     * PRECONDITION:    expectedSize >= 0
+     * POSTCONDITION:   the map holds no entries
+     *
+     * @param   expectedSize    -   the number of entries expected
+     */
+    public SymbolMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) * 2;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        hashes = new int[capacity / 2];
+        values = new int[capacity / 2];
+        keyStarts = new int[capacity / 2];
+        keyLengths = new int[capacity / 2];
+        size = 0;
+        keyBytes = new byte[capacity * 4];
+        keyBytesUsed = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    /**
+     * Returns the value of symbol.
+     *
+     * PRECONDITION:    symbol is not null
+     * POSTCONDITION:   N/A
+     *
+     * @param   symbol  -   the key to look up
+     * @return          -   the value of the key, or NOT_FOUND
+     */
+    public int get(CharSequence symbol) {
+        int entry = find(symbol, hash(symbol));
+        return entry == NOT_FOUND ? NOT_FOUND : values[entry];
+    }
+
+    /**
+     * Returns the value of the key held in bytes[offset..offset+length).
+     *
+     * PRECONDITION:    offset and length lie within bytes
+     * POSTCONDITION:   N/A
+     *
+     * @param   bytes   -   a buffer holding the key
+     * @param   offset  -   the index of the key's first byte
+     * @param   length  -   the number of bytes in the key
+     * @return          -   the value of the key, or NOT_FOUND
+     */
+    public int get(byte[] bytes, int offset, int length) {
+        int entry = find(bytes, offset, length, hash(bytes, offset, length));
+        return entry == NOT_FOUND ? NOT_FOUND : values[entry];
+    }
+
+    /**
+     * Sets the value of symbol, adding it if it is not in the map.
+     *
+     * PRECONDITION:    symbol holds only Latin-1 characters
+     * POSTCONDITION:   get(symbol) returns value
+     *
+     * @param   symbol  -   the key
+     * @param   value   -   the value to store
+     */
+    public void put(CharSequence symbol, int value) {
+        int hash = hash(symbol);
+        int entry = find(symbol, hash);
+        if (entry == NOT_FOUND) {
+            insert(symbol, hash, value);
+        } else {
+            values[entry] = value;
+        }
+    }
+
+    /**
+     * Adds symbol with value, unless it is already in the map.
+     *
+     * PRECONDITION:    symbol holds only Latin-1 characters
+     * POSTCONDITION:   symbol is in the map
+     *
+     * @param   symbol  -   the key
+     * @param   value   -   the value to store if the key is new
+     * @return          -   the value already stored, or NOT_FOUND if the key was added
+     */
+    public int putIfAbsent(CharSequence symbol, int value) {
+        int hash = hash(symbol);
+        int entry = find(symbol, hash);
+        if (entry != NOT_FOUND) {
+            return values[entry];
+        }
+        insert(symbol, hash, value);
+        return NOT_FOUND;
+    }
+
+    /**
+     * Adds the key held in bytes[offset..offset+length) with value, unless it is
+     * already in the map.
+     *
+     * PRECONDITION:    offset and length lie within bytes
+     * POSTCONDITION:   the key is in the map
+     *
+     * @param   bytes   -   a buffer holding the key
+     * @param   offset  -   the index of the key's first byte
+     * @param   length  -   the number of bytes in the key
+     * @param   value   -   the value to store if the key is new
+     * @return          -   the value already stored, or NOT_FOUND if the key was added
+     */
+    public int putIfAbsent(byte[] bytes, int offset, int length, int value) {
+        int hash = hash(bytes, offset, length);
+        int entry = find(bytes, offset, length, hash);
+        if (entry != NOT_FOUND) {
+            return values[entry];
+        }
+        insert(bytes, offset, length, hash, value);
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return      -   the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return      -   the number of hash slots (the map grows at half full)
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Returns the key of an entry as a String.
+     *
+     * PRECONDITION:    0 <= entry < size()
+     * POSTCONDITION:   N/A
+     *
+     * @param   entry   -   an entry number, in insertion order
+     * @return          -   the entry's key
+     */
+    public String getKey(int entry) {
+        return new String(keyBytes, keyStarts[entry], keyLengths[entry], StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * PRECONDITION:    0 <= entry < size()
+     * POSTCONDITION:   N/A
+     *
+     * @param   entry   -   an entry number, in insertion order
+     * @return          -   the entry's value
+     */
+    public int getValue(int entry) {
+        return values[entry];
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Finds the entry holding symbol.
+     */
+    private int find(CharSequence symbol, int hash) {
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot] - 1) != NOT_FOUND) {
+            if (hashes[entry] == hash && matches(entry, symbol)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Finds the entry holding the key in bytes[offset..offset+length).
+     */
+    private int find(byte[] bytes, int offset, int length, int hash) {
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot] - 1) != NOT_FOUND) {
+            if (hashes[entry] == hash && keyLengths[entry] == length
+                    && Arrays.equals(keyBytes, keyStarts[entry], keyStarts[entry] + length,
+                                     bytes, offset, offset + length)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Adds a new entry for symbol, copying its bytes straight out of the buffer
+     * when it is a ByteSlice.
+     */
+    private void insert(CharSequence symbol, int hash, int value) {
+        if (symbol instanceof ByteSlice) {
+            ByteSlice slice = (ByteSlice) symbol;
+            insert(slice.getBytes(), slice.getStart(), slice.length(), hash, value);
+        } else {
+            insert(toBytes(symbol), 0, symbol.length(), hash, value);
+        }
+    }
+
+    /**
+     * Adds a new entry; the key must not be in the map.
+     */
+    private void insert(byte[] bytes, int offset, int length, int hash, int value) {
+        if ((size + 1) * 2 > slots.length) {
+            grow();
+        }
+        if (keyBytesUsed + length > keyBytes.length) {
+            keyBytes = Arrays.copyOf(keyBytes, Math.max(keyBytes.length * 2, keyBytesUsed + length));
+        }
+        System.arraycopy(bytes, offset, keyBytes, keyBytesUsed, length);
+        hashes[size] = hash;
+        values[size] = value;
+        keyStarts[size] = keyBytesUsed;
+        keyLengths[size] = length;
+        keyBytesUsed += length;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = ++size;
+    }
+
+    /**
+     * Doubles the number of slots and re-inserts every entry.
+     */
+    private void grow() {
+        SymbolTableGrowthEvent event = new SymbolTableGrowthEvent();
+        event.begin();
+        int capacity = slots.length * 2;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        hashes = Arrays.copyOf(hashes, capacity / 2);
+        values = Arrays.copyOf(values, capacity / 2);
+        keyStarts = Arrays.copyOf(keyStarts, capacity / 2);
+        keyLengths = Arrays.copyOf(keyLengths, capacity / 2);
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.symbols = size;
+            event.oldCapacity = capacity / 2;
+            event.newCapacity = capacity;
+            event.commit();
+        }
+    }
+
+    /**
+     * Checks whether an entry's key has the same characters as symbol.
+     */
+    private boolean matches(int entry, CharSequence symbol) {
+        int length = keyLengths[entry];
+        if (symbol.length() != length) {
+            return false;
+        }
+        int start = keyStarts[entry];
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != (char) (keyBytes[start + i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the characters of symbol; equal to hash(byte[], int, int) for the same text.
+     */
+    static int hash(CharSequence symbol) {
+        int hash = 0;
+        for (int i = 0; i < symbol.length(); i++) {
+            hash = 31 * hash + symbol.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes the bytes of a key held in a buffer.
+     */
+    static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + (bytes[i] & 0xFF);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of a hash so the low bits (used for the slot) depend on every character.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Copies a Latin-1 CharSequence to one byte per character.
+     */
+    private static byte[] toBytes(CharSequence symbol) {
+        byte[] bytes = new byte[symbol.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char current = symbol.charAt(i);
+            if (current > 0xFF) {
+                throw new IllegalArgumentException("Symbol is not Latin-1: " + symbol);
+            }
+            bytes[i] = (byte) current;
+        }
+        return bytes;
+    }
+}
@@ -2,72 +2,89 @@
  *
  * Class name:    SymbolTable
  * Package:       edu.miracosta.cs220
- * Description:   Uses a symbol table as a HashMap to account for predefined and
-*                 programmer-defined assembly symbols.
+ * Description:   Uses a symbol table as an open-addressing SymbolMap to account for
+*                 predefined and programmer-defined assembly symbols. Addresses are
+ *                stored as primitive ints, and symbols can be looked up from any
+ *                CharSequence (such as a Parser view) or a byte range of a buffer.
+ *                The predefined symbols live in one frozen map shared by every
+ *                table; each table only holds its own symbols in an overlay.
  *
  * History:       Mar. 4, J, author, taken from Lab #6 UML & Method Layout
  *
- * Methods:       Public:   SymbolTable(), addEntry(String, int), contains(String),
- *                          getAddress(String)
+ * Methods:       Public:   SymbolTable(), SymbolTable(int), addEntry(String, int), contains(String),
+ *                          getAddress(String), getAddress(CharSequence),
+ *                          getAddress(byte[], int, int), getOrAssign(CharSequence, int),
+ *                          size(), capacity(), isValidName(CharSequence)
  *
- *                Private:  isValidName(String)
+ *                Package:  SymbolTable(SymbolMap), getPredefined(CharSequence),
+ *                          getPredefined(byte[], int, int), getPredefinedCount()
+ *
+ * Notes:         A SymbolTable is meant for one assembly at a time and is not
+ *                thread-safe; see ConcurrentSymbolTable for one that several
+ *                threads can define symbols in.
  *
  ************************************************************************************/
 package edu.miracosta.cs220;
 
-import java.util.HashMap;
-
 public class SymbolTable {
 
     /*************
      * Constants *
      *************/
+    public static final int INVALID = -1;
+
+    //  Predefined symbols - filled once, never written to afterwards, so it is safe to share
+    private static final SymbolMap PREDEFINED = createPredefined();
+
     private static final String INITIAL_VALID_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ$_.:";
     private static final String ALL_VALID_CHARS = INITIAL_VALID_CHARS + "0123456789";
 
     /**********************
      * Instance Variables *
      **********************/
-    private HashMap<String, Integer> symbolTable;
+
+    //  Programmer-defined symbols (labels & variables) of this table only
+    private final SymbolMap symbolTable;
 
     /****************
      * Constructors *
      ****************/
 
     /**
-     * Initializes symbolTable hashmap with predefined symbols.
+     * Initializes an empty symbolTable overlay on top of the shared predefined symbols.
      *
      * PRECONDITION:    N/A
      * POSTCONDITION:   symbolTable has lookups for all valid predefined symbols
      */
     public SymbolTable() {
-        symbolTable = new HashMap<>();
-        //  Virtual Registers
-        symbolTable.put("R0", 0);
-        symbolTable.put("R1", 1);
-        symbolTable.put("R2", 2);
-        symbolTable.put("R3", 3);
-        symbolTable.put("R4", 4);
-        symbolTable.put("R5", 5);
-        symbolTable.put("R6", 6);
-        symbolTable.put("R7", 7);
-        symbolTable.put("R8", 8);
-        symbolTable.put("R9", 9);
-        symbolTable.put("R10", 10);
-        symbolTable.put("R11", 11);
-        symbolTable.put("R12", 12);
-        symbolTable.put("R13", 13);
-        symbolTable.put("R14", 14);
-        symbolTable.put("R15", 15);
-        //  VM Control Pointers
-        symbolTable.put("SP", 0);
-        symbolTable.put("LCL", 1);
-        symbolTable.put("ARG", 2);
-        symbolTable.put("THIS", 3);
-        symbolTable.put("THAT", 4);
-        //  I/O Pointers
-        symbolTable.put("SCREEN", 16384);
-        symbolTable.put("KBD", 24576);
+        this(0);
+    }
+
+    /**
+     * Initializes an empty symbolTable overlay with room for about expectedSize
+     * programmer-defined symbols before it has to grow.
+     *
+     * PRECONDITION:    expectedSize >= 0
+     * POSTCONDITION:   symbolTable has lookups for all valid predefined symbols
+     *
+     * @param   expectedSize    -   the number of labels & variables expected
+     */
+    public SymbolTable(int expectedSize) {
+        this(new SymbolMap(expectedSize));
+    }
+
+    /**
+     * Initializes a table whose programmer-defined symbols are held in overlay.
+     * A subclass that keeps its symbols elsewhere passes null, and must then
+     * override every instance method, since none of these has an overlay to use.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   symbolTable has lookups for all valid predefined symbols
+     *
+     * @param   overlay -   the map for labels & variables, or null for none
+     */
+    SymbolTable(SymbolMap overlay) {
+        symbolTable = overlay;
     }
 
     /******************
@@ -75,7 +92,7 @@ public class SymbolTable {
      ******************/
 
     /**
-     * Adds a new pair [symbol, address] to the symbolTable hashmap.
+     * Adds a new pair [symbol, address] to the symbolTable map.
      *
      * PRECONDITION:    symbol/address pair is not in symbolTable (check w/ contains first)
      * POSTCONDITION:   returns true if symbol is a valid identifier and was added to the table (false otherwise)
@@ -94,7 +111,7 @@ public class SymbolTable {
     }
 
     /**
-     * Returns boolean of whether symbolTable hashmap has symbol as a key or not.
+     * Returns boolean of whether symbolTable map has symbol as a key or not.
      *
      * PRECONDITION:    N/A
      * POSTCONDITION:   N/A
@@ -103,20 +120,126 @@ public class SymbolTable {
      * @return          -   true if symbolTable contains the symbol, false otherwise
      */
     public boolean contains(String symbol) {
-        return symbolTable.containsKey(symbol);
+        return getAddress((CharSequence) symbol) != INVALID;
     }
 
     /**
-     * Returns the address in the symbolTable hashmap of the given symbol.
+     * Returns the address in the symbolTable map of the given symbol.
      *
      * PRECONDITION:    symbol exists in symbolTable (check w/ contains first)
      * POSTCONDITION:   N/A
      *
      * @param   symbol  -   an identifier/symbol from an A or L instruction
-     * @return          -   the symbol's address as given in the hashmap, or null
+     * @return          -   the symbol's address as given in the map, or INVALID
      */
     public int getAddress(String symbol) {
-        return symbolTable.get(symbol);
+        return getAddress((CharSequence) symbol);
+    }
+
+    /**
+     * Returns the address of the given symbol, without needing it as a String.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @param   symbol  -   an identifier/symbol from an A or L instruction
+     * @return          -   the symbol's address, or INVALID if it is not in the table
+     */
+    public int getAddress(CharSequence symbol) {
+        int address = symbolTable.get(symbol);
+        return address != SymbolMap.NOT_FOUND ? address : PREDEFINED.get(symbol);
+    }
+
+    /**
+     * Returns the address of the symbol held in bytes[offset..offset+length),
+     * so a symbol can be looked up straight from an input buffer.
+     *
+     * PRECONDITION:    offset and length lie within bytes
+     * POSTCONDITION:   N/A
+     *
+     * @param   bytes   -   a buffer holding the symbol
+     * @param   offset  -   the index of the symbol's first byte
+     * @param   length  -   the number of bytes in the symbol
+     * @return          -   the symbol's address, or INVALID if it is not in the table
+     */
+    public int getAddress(byte[] bytes, int offset, int length) {
+        int address = symbolTable.get(bytes, offset, length);
+        return address != SymbolMap.NOT_FOUND ? address : PREDEFINED.get(bytes, offset, length);
+    }
+
+    /**
+     * Returns the address of symbol, first adding it with nextRamAddress if it
+     * is not in the table yet - the contains/addEntry/getAddress round trip in
+     * one hash lookup. Whether the address was used can be told from size().
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   symbol is in the table, unless it is not a valid name
+     *
+     * @param   symbol          -   an identifier/symbol from an A or L instruction
+     * @param   nextRamAddress  -   the address to give symbol if it is new
+     * @return                  -   the symbol's address, or INVALID if it is new & not a valid name
+     */
+    public int getOrAssign(CharSequence symbol, int nextRamAddress) {
+        int address = getAddress(symbol);
+        if (address != INVALID) {
+            return address;
+        }
+        if (!isValidName(symbol)) {
+            return INVALID;
+        }
+        symbolTable.putIfAbsent(symbol, nextRamAddress);
+        return nextRamAddress;
+    }
+
+    /**
+     * Returns the number of symbols in the table, predefined ones included.
+     *
+     * @return      -   the number of symbols
+     */
+    public int size() {
+        return PREDEFINED.size() + symbolTable.size();
+    }
+
+    /**
+     * Returns the number of hash slots in the table's own overlay.
+     *
+     * @return      -   the overlay's capacity
+     */
+    public int capacity() {
+        return symbolTable.capacity();
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Returns the address of a predefined symbol, ignoring any overlay.
+     *
+     * @param   symbol  -   an identifier/symbol from an A or L instruction
+     * @return          -   the predefined address, or INVALID if symbol is not predefined
+     */
+    static int getPredefined(CharSequence symbol) {
+        return PREDEFINED.get(symbol);
+    }
+
+    /**
+     * Returns the address of the predefined symbol held in bytes[offset..offset+length).
+     *
+     * @param   bytes   -   a buffer holding the symbol
+     * @param   offset  -   the index of the symbol's first byte
+     * @param   length  -   the number of bytes in the symbol
+     * @return          -   the predefined address, or INVALID if the symbol is not predefined
+     */
+    static int getPredefined(byte[] bytes, int offset, int length) {
+        return PREDEFINED.get(bytes, offset, length);
+    }
+
+    /**
+     * @return      -   the number of predefined symbols
+     */
+    static int getPredefinedCount() {
+        return PREDEFINED.size();
     }
 
     /******************
@@ -124,7 +247,35 @@ public class SymbolTable {
      ******************/
 
     /**
-     * Checks the validity of identifiers for assembly code symbols
+     * Builds the map of predefined symbols shared by every SymbolTable.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   N/A
+     *
+     * @return      -   a map holding all valid predefined symbols
+     */
+    private static SymbolMap createPredefined() {
+        SymbolMap predefined = new SymbolMap();
+        //  Virtual Registers
+        for (int i = 0; i <= 15; i++) {
+            predefined.put("R" + i, i);
+        }
+        //  VM Control Pointers
+        predefined.put("SP", 0);
+        predefined.put("LCL", 1);
+        predefined.put("ARG", 2);
+        predefined.put("THIS", 3);
+        predefined.put("THAT", 4);
+        //  I/O Pointers
+        predefined.put("SCREEN", 16384);
+        predefined.put("KBD", 24576);
+        return predefined;
+    }
+
+    /**
+     * Checks the validity of identifiers for assembly code symbols. A symbol
+     * with a character outside Latin-1 is never valid, so any String can be
+     * passed to addEntry/getOrAssign and is either stored or turned down.
      *
      * PRECONDITION:    symbol has been pulled from a cleaned line and is an identifier
      * POSTCONDITION:   returns true if symbol is valid, & false otherwise
@@ -132,7 +283,7 @@ public class SymbolTable {
      * @param   symbol  -   an identifier pulled from a cleaned line
      * @return          -   true if the identifier is valid, false otherwise
      */
-    public static boolean isValidName(String symbol) {
+    public static boolean isValidName(CharSequence symbol) {
         if (symbol == null || symbol.length() == 0) {
             return false;
         } else {
@@ -146,7 +297,8 @@ public class SymbolTable {
                     return false;
                 }
             }
-            return true;
+            //  The last character isn't held to the valid ones, but it must still fit a Latin-1 key
+            return symbol.charAt(symbol.length() - 1) <= 0xFF;
         }
     }
 }
@@ -0,0 +1,47 @@
+/************************************************************************************
+ *
+ * Class name:    SymbolTableGrowthEvent
+ * Package:       edu.miracosta.cs220
+ * Description:   Java Flight Recorder event for a SymbolMap (the storage behind
+ *                SymbolTable and the parser's symbol pool) doubling its hash array,
+ *                which rehashes every entry. Many of these in one run mean the table
+ *                started out too small.
+ *
+ * History:       added for the Flight Recorder events
+ *
+ * Notes:         Enabled by default; a map grows only O(log n) times, so even a
+ *                recorded run commits few of them.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(SymbolTableGrowthEvent.NAME)
+@Label("Symbol Table Growth")
+@Category("Hack Assembler")
+@Description("A symbol table doubled its capacity and rehashed its entries")
+public class SymbolTableGrowthEvent extends Event {
+
+    /*************
+     * Constants *
+     *************/
+    public static final String NAME = "edu.miracosta.cs220.SymbolTableGrowth";
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    @Label("Symbols")
+    @Description("The number of entries rehashed")
+    int symbols;
+
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+}
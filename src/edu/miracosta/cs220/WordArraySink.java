@@ -0,0 +1,91 @@
+/************************************************************************************
+ *
+ * Class name:    WordArraySink
+ * Package:       edu.miracosta.cs220
+ * Description:   Keeps assembled words in memory, in a growable int[], for callers
+ *                that want the machine code itself rather than a file. Any word can
+ *                be patched, so single-pass assembly works into it.
+ *
+ * History:       added for the in-process assembler API
+ *
+ * Methods:       Public:   WordArraySink(), write(int), patch(long, int), isPatchable(),
+ *                          getWordCount(), getBytesWritten(), getWords(), flush(), close()
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.Arrays;
+
+public class WordArraySink implements OutputSink {
+
+    /**********************
+     * Instance Variables *
+     **********************/
+    private int[] words;
+    private int wordCount;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    /**
+     * Creates an empty sink.
+     *
+     * PRECONDITION:    N/A
+     * POSTCONDITION:   no words have been written
+     */
+    public WordArraySink() {
+        words = new int[1024];
+        wordCount = 0;
+    }
+
+    /******************
+     * Public Methods *
+     ******************/
+
+    @Override
+    public void write(int word) {
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, wordCount * 2);
+        }
+        words[wordCount++] = word;
+    }
+
+    @Override
+    public void patch(long position, int word) {
+        words[(int) position] = word;
+    }
+
+    @Override
+    public boolean isPatchable() {
+        return true;
+    }
+
+    @Override
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return      -   two bytes per word, as in a raw binary image
+     */
+    @Override
+    public long getBytesWritten() {
+        return wordCount * 2L;
+    }
+
+    /**
+     * @return      -   a copy of the words written so far
+     */
+    public int[] getWords() {
+        return Arrays.copyOf(words, wordCount);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,193 @@
+/************************************************************************************
+ *
+ * Class name:    AsciiScannerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Checks the 8-bytes-at-a-time paths of AsciiScanner against plain
+ *                byte-by-byte ones on random lines, made mostly of the bytes the
+ *                fast paths look for ('/', '\r', '\n', spaces and tabs) and bytes
+ *                >= 0x80, whose high bit the SWAR matching must not be fooled by.
+ *                The sources that read their lines off scan() are checked against a
+ *                plain split of the same bytes, across block, buffer and window ends.
+ *
+ * History:       added to guard the SWAR scanner
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AsciiScannerTest {
+
+    /*************
+     * Constants *
+     *************/
+    private static final byte[] TRICKY = {'/', '/', '\r', '\n', ' ', ' ', '\t', 'D', '=', 'M', '@', '1',
+                                          0, 0x1F, 0x20, 0x2F, 0x7F, (byte) 0x80, (byte) 0xAF, (byte) 0xFF};
+    private static final int LINES = 20_000;
+    private static final int TEXTS = 20;
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void cleanLineMatchesScalar() {
+        Random random = new Random(4);
+        byte[] fast = new byte[128];
+        byte[] scalar = new byte[128];
+        for (int n = 0; n < LINES; n++) {
+            byte[] line = randomBytes(random, random.nextInt(100));
+            int fastLength = AsciiScanner.cleanLine(line, line.length, fast);
+            int scalarLength = AsciiScanner.cleanLineScalar(line, line.length, scalar);
+            assertEquals(scalarLength, fastLength, () -> Arrays.toString(line));
+            assertArrayEquals(Arrays.copyOf(scalar, scalarLength), Arrays.copyOf(fast, fastLength),
+                              () -> Arrays.toString(line));
+        }
+    }
+
+    @Test
+    void cleanLineFollowsStringRules() {
+        byte[] clean = new byte[64];
+        String[] lines = {"", "   ", "// only a comment", "  @R0 // load", "\tD = M ;JGT\t", "AM=M-1//x",
+                          "0;JMP /", "(LOOP)  ", "@a / b", "/"};
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+            int comment = line.indexOf("//");
+            String expected = (comment == -1 ? line : line.substring(0, comment)).trim()
+                              .replace(" ", "").replace("\t", "");
+            int length = AsciiScanner.cleanLine(bytes, bytes.length, clean);
+            assertEquals(expected, new String(clean, 0, length, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    @Test
+    void indexOfLineEndMatchesScalar() {
+        Random random = new Random(5);
+        for (int n = 0; n < LINES; n++) {
+            byte[] bytes = randomBytes(random, random.nextInt(100));
+            int from = random.nextInt(bytes.length + 1);
+            int to = from + random.nextInt(bytes.length - from + 1);
+            int expected = to;
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    expected = i;
+                    break;
+                }
+            }
+            for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                ByteBuffer heap = ByteBuffer.wrap(bytes).order(order);
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).order(order).put(bytes);
+                assertEquals(expected, AsciiScanner.indexOfLineEnd(heap, from, to));
+                assertEquals(expected, AsciiScanner.indexOfLineEnd(direct, from, to));
+            }
+        }
+    }
+
+    @Test
+    void scanMatchesScalar() {
+        Random random = new Random(6);
+        for (int n = 0; n < LINES; n++) {
+            byte[] bytes = randomBytes(random, random.nextInt(300));
+            int offset = random.nextInt(bytes.length + 1);
+            int length = random.nextInt(bytes.length - offset + 1);
+            for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                ByteBuffer heap = ByteBuffer.wrap(bytes).order(order);
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).order(order).put(bytes);
+                BufferScan expected = AsciiScanner.scanScalar(heap, offset, length);
+                assertEquals(expected, AsciiScanner.scan(heap, offset, length), () -> Arrays.toString(bytes));
+                assertEquals(expected, AsciiScanner.scan(direct, offset, length), () -> Arrays.toString(bytes));
+            }
+        }
+    }
+
+    @Test
+    void sourcesSplitLinesAsScalar(@TempDir Path directory) throws IOException {
+        Random random = new Random(7);
+        Path file = directory.resolve("Text.asm");
+        for (int n = 0; n < TEXTS; n++) {
+            //  Several scan blocks, with the odd line longer than a block
+            byte[] bytes = randomBytes(random, random.nextInt(300_000));
+            for (int i = random.nextInt(3); i > 0 && bytes.length > 0; i--) {
+                int from = random.nextInt(bytes.length);
+                Arrays.fill(bytes, from, Math.min(bytes.length, from + 100_000), (byte) 'A');
+            }
+            Files.write(file, bytes);
+            List<String> expected = splitScalar(bytes);
+            assertEquals(expected, readLines(new ArraySource(bytes)));
+            assertEquals(expected, readLines(new ArraySource(ByteBuffer.allocateDirect(bytes.length).put(bytes)
+                                                                       .flip())));
+            assertEquals(expected, readLines(new ChannelSource(Channels.newChannel(
+                    new ByteArrayInputStream(bytes)), 1 + random.nextInt(5000))));
+            try (MappedFileSource mapped = new MappedFileSource(file, 1 + random.nextInt(50_000))) {
+                assertEquals(expected, readLines(mapped));
+            }
+        }
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Reads every line of source as a Latin-1 String.
+     */
+    private static List<String> readLines(InputSource source) {
+        List<String> lines = new ArrayList<>();
+        LineBuffer line = new LineBuffer();
+        while (source.hasNextLine()) {
+            source.nextLine(line);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Splits bytes into lines one byte at a time, at "\n", "\r\n" and "\r".
+     */
+    private static List<String> splitScalar(byte[] bytes) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') {
+                lines.add(new String(bytes, start, i - start, StandardCharsets.ISO_8859_1));
+                if (bytes[i] == '\r' && i + 1 < bytes.length && bytes[i + 1] == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < bytes.length) {
+            lines.add(new String(bytes, start, bytes.length - start, StandardCharsets.ISO_8859_1));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns length bytes, three in four of them from TRICKY and the rest
+     * any byte at all.
+     */
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = random.nextInt(4) == 0 ? (byte) random.nextInt(256) : TRICKY[random.nextInt(TRICKY.length)];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,67 @@
+/************************************************************************************
+ *
+ * Class name:    AssemblyCacheTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles random programs through a fresh cache and then again
+ *                from it, and checks that the hit writes the same outputs and
+ *                reports the same word, byte, line and symbol counts as the run
+ *                that filled the cache.
+ *
+ * History:       added with the counts kept in cache entries
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AssemblyCacheTest {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int PROGRAMS = 20;
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void hitReportsTheCountsOfTheFillingRun(@TempDir Path directory) throws IOException {
+        Random random = new Random(16);
+        AssemblyCache cache = new AssemblyCache(directory.resolve("cache"), AssemblyCache.DEFAULT_MAX_BYTES);
+        List<OutputFormat> formats = List.of(OutputFormat.HACK, OutputFormat.BINARY);
+        for (int n = 0; n < PROGRAMS; n++) {
+            String text = RandomPrograms.join(RandomPrograms.lines(random, 1 + random.nextInt(400)), random);
+            Path input = directory.resolve("Prog" + n + ".asm");
+            String baseName = directory.resolve("Prog" + n).toString();
+            Files.writeString(input, text, StandardCharsets.ISO_8859_1);
+
+            AssemblyResult miss = cache.assemble(new HackAssembler(), input, formats, baseName);
+            assertTrue(miss.isSuccessful(), text);
+            byte[] hack = Files.readAllBytes(Path.of(baseName + ".hack"));
+            Files.delete(Path.of(baseName + ".hack"));
+
+            AssemblyResult hit = cache.assemble(new HackAssembler(), input, formats, baseName);
+            assertTrue(hit.isSuccessful(), text);
+            assertNull(hit.getWords(), text);
+            assertArrayEquals(hack, Files.readAllBytes(Path.of(baseName + ".hack")), text);
+            assertEquals(miss.getWordCount(), hit.getWordCount(), text);
+            assertEquals(miss.getBytesWritten(), hit.getBytesWritten(), text);
+            assertEquals(miss.getSourceLineCount(), hit.getSourceLineCount(), text);
+            assertEquals(miss.getSymbolCount(), hit.getSymbolCount(), text);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/************************************************************************************
+ *
+ * Class name:    ControlFlowOptimizerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Runs jump threading and unreachable-code removal on small programs
+ *                and checks how many instructions each removed and that the machine
+ *                code is that of the program written the optimized way; then checks
+ *                the programs the optimizer must leave alone.
+ *
+ * History:       added to cover the control-flow optimizer
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ControlFlowOptimizerTest {
+
+    /*************
+     * Constants *
+     *************/
+
+    //  A VM-style call: the return address is loaded as data and jumped to through R14
+    private static final String[] CALL = {
+        "@RET", "D=A", "@R14", "M=D", "@F", "0;JMP",
+        "(RET)", "@END", "0;JMP",
+        "@9", "D=A",
+        "(F)", "@R14", "A=M", "0;JMP",
+        "(END)", "@END", "0;JMP"
+    };
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void removesUnreachableCode() {
+        check(false, program("@END", "0;JMP", "@5", "D=A", "(END)", "@END", "0;JMP"),
+              program("@END", "0;JMP", "(END)", "@END", "0;JMP"), removed(0, 2));
+    }
+
+    @Test
+    void threadsChainEndingInHaltLoop() {
+        check(false, program("@HOP1", "D;JGT", "@5", "D=A",
+                             "(HOP1)", "@HOP2", "0;JMP",
+                             "(HOP2)", "@END", "0;JMP",
+                             "(END)", "@END", "0;JMP"),
+              program("@END", "D;JGT", "@5", "D=A",
+                      "(HOP1)", "@END", "0;JMP",
+                      "(HOP2)",
+                      "(END)", "@END", "0;JMP"), removed(2, 0));
+    }
+
+    @Test
+    void threadsIntoJumpOnlyCycle() {
+        check(false, program("@A", "0;JMP", "(A)", "@B", "0;JMP", "(B)", "@A", "0;JMP"),
+              program("@B", "0;JMP", "(A)", "(B)", "@A", "0;JMP"), removed(2, 0));
+    }
+
+    @Test
+    void keepsConditionalJumpThatFallsIntoComputedA() {
+        //  D;JGT falls through to A=M with the A it loaded, so its @ can't change
+        unchanged(false, program("@HOP", "D;JGT", "A=M", "M=D",
+                                 "(HOP)", "@END", "0;JMP", "(END)", "@END", "0;JMP"));
+    }
+
+    @Test
+    void keepsFirstReferenceToVariable() {
+        //  The dead @x still decides that x lives at 16
+        check(false, program("@END", "0;JMP", "@x", "M=1", "(END)", "@x", "D=M", "@END", "0;JMP"),
+              program("@END", "0;JMP", "@x", "(END)", "@x", "D=M", "@END", "0;JMP"), removed(0, 1));
+    }
+
+    @Test
+    void keepsReturnAddressesOfComputedJumps() {
+        check(false, program(CALL), program(without(CALL, "@9", "D=A")), removed(0, 2));
+    }
+
+    @Test
+    void conservativeModeLeavesComputedJumpsAlone() {
+        unchanged(true, program(CALL));
+    }
+
+    @Test
+    void conservativeModeOptimizesProgramsWithoutComputedJumps() {
+        check(true, program("@END", "0;JMP", "@5", "D=A", "(END)", "@END", "0;JMP"),
+              program("@END", "0;JMP", "(END)", "@END", "0;JMP"), removed(0, 2));
+    }
+
+    @Test
+    void leavesProgramsWithNumericJumpsAlone() {
+        unchanged(false, program("@END", "0;JMP", "@5", "D=A", "(END)", "@4", "0;JMP"));
+        unchanged(false, program("@END", "0;JMP", "@5", "D=A", "(END)", "@R4", "0;JMP"));
+    }
+
+    @Test
+    void leavesProgramsWithErrorsAlone() {
+        AssemblyResult result = assemble(false, program("@END", "0;JMP", "@5", "D=Q", "(END)", "@END", "0;JMP"));
+        assertFalse(result.isSuccessful());
+        assertEquals(removed(0, 0), result.getRemovedInstructions());
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Assembles source with the control-flow optimizer and checks that it removed
+     * what was expected and produced the same words as plain assembly of optimized.
+     */
+    private static void check(boolean conservative, String source, String optimized,
+                              Map<String, Integer> removed) {
+        AssemblyResult result = assemble(conservative, source);
+        assertTrue(result.isSuccessful(), result.getDiagnostics()::toString);
+        assertEquals(removed, result.getRemovedInstructions());
+        assertArrayEquals(new HackAssembler().assemble(new ArraySource(optimized)).getWords(),
+                          result.getWords());
+    }
+
+    /**
+     * Checks that the control-flow optimizer leaves source as it is.
+     */
+    private static void unchanged(boolean conservative, String source) {
+        check(conservative, source, source, removed(0, 0));
+    }
+
+    private static AssemblyResult assemble(boolean conservative, String source) {
+        return new HackAssembler(false, OutputFormat.HACK, List.of(new ControlFlowOptimizer(conservative)))
+                .assemble(new ArraySource(source));
+    }
+
+    private static String program(String... lines) {
+        return String.join("\n", lines) + "\n";
+    }
+
+    /**
+     * Returns lines without the first occurrence of the run of lines in dropped.
+     */
+    private static String[] without(String[] lines, String... dropped) {
+        List<String> kept = new ArrayList<>(List.of(lines));
+        int start = Collections.indexOfSubList(kept, List.of(dropped));
+        kept.subList(start, start + dropped.length).clear();
+        return kept.toArray(new String[0]);
+    }
+
+    private static Map<String, Integer> removed(int threaded, int unreachable) {
+        return Map.of(ControlFlowOptimizer.JUMP_THREADING, threaded,
+                      ControlFlowOptimizer.UNREACHABLE_CODE, unreachable);
+    }
+}
@@ -0,0 +1,79 @@
+/************************************************************************************
+ *
+ * Class name:    HackLinkerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Splits random programs into three modules at random lines,
+ *                assembles each into a HackObject, writes it to a .hobj file and
+ *                reads it back, links the modules, and checks the words against
+ *                HackAssembler's two-pass assembly of the whole program.
+ *
+ * History:       added to check separate assembly & linking against full runs
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HackLinkerTest {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int PROGRAMS = 200;
+    private static final int MODULES = 3;
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void linkedModulesMatchWholeProgram(@TempDir Path directory) throws IOException, AssemblyException {
+        Random random = new Random(18);
+        for (int n = 0; n < PROGRAMS; n++) {
+            List<String> lines = RandomPrograms.lines(random, random.nextInt(400));
+            int[] cuts = new int[MODULES + 1];
+            for (int i = 1; i < MODULES; i++) {
+                cuts[i] = random.nextInt(lines.size() + 1);
+            }
+            cuts[MODULES] = lines.size();
+            Arrays.sort(cuts);
+
+            StringBuilder whole = new StringBuilder();
+            List<HackObject> objects = new ArrayList<>();
+            for (int i = 0; i < MODULES; i++) {
+                String text = RandomPrograms.join(lines.subList(cuts[i], cuts[i + 1]), random);
+                whole.append(text);
+                String name = "Part" + n + "_" + i;
+                Path file = directory.resolve(name + HackObject.EXTENSION);
+                new HackAssembler().assembleObject(new ArraySource(text), name).write(file);
+                objects.add(HackObject.read(file));
+            }
+
+            WordArraySink output = new WordArraySink();
+            AssemblyResult result = new HackLinker().link(objects, output);
+            assertEquals(List.of(), result.getDiagnostics(), whole::toString);
+            assertArrayEquals(new HackAssembler().assemble(new ArraySource(whole)).getWords(), output.getWords(),
+                              whole::toString);
+        }
+    }
+
+    @Test
+    void labelDeclaredTwiceIsAnError() throws IOException, AssemblyException {
+        HackObject first = new HackAssembler().assembleObject(new ArraySource("(LOOP)\n@LOOP\n0;JMP\n"), "First");
+        HackObject second = new HackAssembler().assembleObject(new ArraySource("(LOOP)\n@1\n"), "Second");
+        AssemblyResult result = new HackLinker().link(List.of(first, second), new WordArraySink());
+        assertFalse(result.isSuccessful());
+    }
+}
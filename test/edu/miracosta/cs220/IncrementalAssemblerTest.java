@@ -0,0 +1,174 @@
+/************************************************************************************
+ *
+ * Class name:    IncrementalAssemblerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Puts random programs through random sequences of edits (lines
+ *                replaced, inserted and deleted, errors brought in and taken out
+ *                again) and checks after every update() that the output files are
+ *                what HackAssembler's two-pass assembly of the whole file writes,
+ *                or, after an edit that leaves an error, that the error is the one
+ *                a full run reports and the last good output is still in place.
+ *                Also checks that an edit only has its own lines and the
+ *                A-instructions naming a moved label or renumbered variable
+ *                encoded again.
+ *
+ * History:       added to check watch mode against full runs
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IncrementalAssemblerTest {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int PROGRAMS = 20;
+    private static final int EDITS = 60;
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void editsMatchFullRuns(@TempDir Path directory) throws IOException {
+        Random random = new Random(17);
+        for (int n = 0; n < PROGRAMS; n++) {
+            Path input = directory.resolve("Prog" + n + ".asm");
+            String baseName = directory.resolve("Prog" + n).toString();
+            List<String> lines = new ArrayList<>();
+            for (String line : RandomPrograms.lines(random, 1 + random.nextInt(300))) {
+                lines.add(withLineEnd(random, line));
+            }
+            IncrementalAssembler assembler = new IncrementalAssembler(input, baseName,
+                    List.of(OutputFormat.HACK, OutputFormat.BINARY));
+            byte[][] lastGood = null;
+            for (int edit = 0; edit <= EDITS; edit++) {
+                if (edit > 0) {
+                    edit(random, lines);
+                }
+                String text = String.join("", lines);
+                Files.writeString(input, text, StandardCharsets.ISO_8859_1);
+                AssemblyResult result = assembler.update();
+
+                AssemblyResult full = new HackAssembler().assemble(new ArraySource(text));
+                assertEquals(full.getDiagnostics().toString(), result.getDiagnostics().toString(), text);
+                if (full.isSuccessful()) {
+                    lastGood = new byte[][] {fullRun(text, OutputFormat.HACK), fullRun(text, OutputFormat.BINARY)};
+                }
+                if (lastGood != null) {
+                    assertArrayEquals(lastGood[0], Files.readAllBytes(Path.of(baseName + ".hack")), text);
+                    assertArrayEquals(lastGood[1], Files.readAllBytes(Path.of(baseName + ".bin")), text);
+                }
+            }
+        }
+    }
+
+    @Test
+    void reparsesOnlyTheEditedLines(@TempDir Path directory) throws IOException {
+        Random random = new Random(117);
+        Path input = directory.resolve("Prog.asm");
+        List<String> lines = RandomPrograms.lines(random, 1000);
+        Files.writeString(input, String.join("\n", lines), StandardCharsets.ISO_8859_1);
+        IncrementalAssembler assembler = new IncrementalAssembler(input, directory.resolve("Prog").toString(),
+                                                                  List.of(OutputFormat.HACK));
+        assembler.update();
+        assertEquals(1000, assembler.getReparsedLineCount());
+
+        lines.set(500, "@var_edited");
+        Files.writeString(input, String.join("\n", lines), StandardCharsets.ISO_8859_1);
+        assertTrue(assembler.update().isSuccessful());
+        assertTrue(assembler.getReparsedLineCount() <= 2, () -> "parsed " + assembler.getReparsedLineCount());
+    }
+
+    @Test
+    void encodesOnlyTheEditedLinesAndMovedReferences(@TempDir Path directory) throws IOException {
+        Path input = directory.resolve("Prog.asm");
+        List<String> lines = new ArrayList<>(List.of("@END", "D;JGT"));
+        for (int i = 0; i < 1000; i++) {
+            lines.add("M=D+1");
+        }
+        lines.addAll(List.of("@x", "M=0", "(END)", "@END", "0;JMP"));
+        Files.writeString(input, String.join("\n", lines), StandardCharsets.ISO_8859_1);
+        IncrementalAssembler assembler = new IncrementalAssembler(input, directory.resolve("Prog").toString(),
+                                                                  List.of(OutputFormat.HACK));
+        assertTrue(assembler.update().isSuccessful());
+        assertEquals(1006, assembler.getEncodedWordCount());
+
+        //  Every line near the edits is an instruction, so each reparsed line is one word.
+        //  Same number of instructions -> no label moves
+        lines.set(500, "M=D-1");
+        Files.writeString(input, String.join("\n", lines), StandardCharsets.ISO_8859_1);
+        assertTrue(assembler.update().isSuccessful());
+        assertEquals(assembler.getReparsedLineCount(), assembler.getEncodedWordCount());
+
+        //  One more instruction -> END moves, and both @END are encoded again
+        lines.add(500, "D=0");
+        Files.writeString(input, String.join("\n", lines), StandardCharsets.ISO_8859_1);
+        assertTrue(assembler.update().isSuccessful());
+        assertEquals(assembler.getReparsedLineCount() + 2, assembler.getEncodedWordCount());
+
+        //  A variable used before x -> x is renumbered, and END moves again
+        lines.add(2, "@y");
+        String text = String.join("\n", lines);
+        Files.writeString(input, text, StandardCharsets.ISO_8859_1);
+        assertTrue(assembler.update().isSuccessful());
+        assertEquals(assembler.getReparsedLineCount() + 3, assembler.getEncodedWordCount());
+        assertTrue(assembler.getEncodedWordCount() <= 6, () -> "encoded " + assembler.getEncodedWordCount());
+        assertArrayEquals(fullRun(text, OutputFormat.HACK),
+                          Files.readAllBytes(directory.resolve("Prog" + OutputFormat.HACK.getExtension())));
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Makes one random edit: replaces, inserts or deletes a few lines, sometimes
+     * putting in a line with an error.
+     */
+    private static void edit(Random random, List<String> lines) {
+        int from = random.nextInt(lines.size() + 1);
+        int to = Math.min(lines.size(), from + random.nextInt(4));
+        List<String> replacement = new ArrayList<>();
+        for (int count = random.nextInt(4); count > 0; count--) {
+            String line = random.nextInt(6) == 0 ? RandomPrograms.error(random) : RandomPrograms.line(random);
+            replacement.add(withLineEnd(random, line));
+        }
+        lines.subList(from, to).clear();
+        lines.addAll(from, replacement);
+        if (lines.isEmpty()) {
+            lines.add(withLineEnd(random, RandomPrograms.line(random)));
+        }
+    }
+
+    private static String withLineEnd(Random random, String line) {
+        return RandomPrograms.join(List.of(line), random);
+    }
+
+    /**
+     * Returns the file a full two-pass run writes for text in format.
+     */
+    private static byte[] fullRun(String text, OutputFormat format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new HackAssembler(false, format).assemble(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)),
+                                                  output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+/************************************************************************************
+ *
+ * Class name:    ParallelAssemblerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles random programs with ParallelAssembler, using chunks
+ *                small enough that labels, variables and "\r\n" line ends fall on
+ *                every side of a chunk boundary, and checks the words and the error
+ *                reported against HackAssembler's two-pass assembly.
+ *
+ * History:       added to check the parallel assembler against full runs
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelAssemblerTest {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int PROGRAMS = 200;
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void matchesTwoPassAssembly() throws IOException {
+        Random random = new Random(13);
+        for (int n = 0; n < PROGRAMS; n++) {
+            String text = RandomPrograms.join(RandomPrograms.lines(random, 1 + random.nextInt(400)), random);
+            check(text, 1 + random.nextInt(4), 1 + random.nextInt(256));
+        }
+    }
+
+    @Test
+    void reportsTheSameFirstError() throws IOException {
+        Random random = new Random(113);
+        for (int n = 0; n < PROGRAMS; n++) {
+            List<String> lines = RandomPrograms.lines(random, 2 + random.nextInt(400));
+            for (int errors = 1 + random.nextInt(3); errors > 0; errors--) {
+                lines.set(random.nextInt(lines.size()), RandomPrograms.error(random));
+            }
+            check(RandomPrograms.join(lines, random), 1 + random.nextInt(4), 1 + random.nextInt(256));
+        }
+    }
+
+    @Test
+    void assemblesFiles(@TempDir Path directory) throws IOException {
+        Random random = new Random(213);
+        Path file = directory.resolve("Prog.asm");
+        String text = RandomPrograms.join(RandomPrograms.lines(random, 5000), random);
+        Files.writeString(file, text, StandardCharsets.ISO_8859_1);
+        WordArraySink output = new WordArraySink();
+        AssemblyResult result = new ParallelAssembler(4, 1024).assemble(file, output);
+        assertEquals(List.of(), result.getDiagnostics());
+        assertArrayEquals(new HackAssembler().assemble(new ArraySource(text)).getWords(), output.getWords());
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Assembles text both ways and compares the outcome: the same error, or else
+     * the same words.
+     */
+    private static void check(String text, int parallelism, int chunkSize) throws IOException {
+        AssemblyResult expected = new HackAssembler().assemble(new ArraySource(text));
+        WordArraySink output = new WordArraySink();
+        AssemblyResult actual = new ParallelAssembler(parallelism, chunkSize)
+                .assemble(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)), output);
+        String context = "chunk size " + chunkSize + ":\n" + text;
+        assertEquals(expected.getDiagnostics().toString(), actual.getDiagnostics().toString(), context);
+        if (expected.isSuccessful()) {
+            assertArrayEquals(expected.getWords(), output.getWords(), context);
+        }
+    }
+}
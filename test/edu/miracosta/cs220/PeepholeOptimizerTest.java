@@ -0,0 +1,145 @@
+/************************************************************************************
+ *
+ * Class name:    PeepholeOptimizerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Runs each peephole rule on a small program and checks how many
+ *                instructions it removed and that the machine code is that of the
+ *                program written without them; then checks the cases the rules
+ *                must leave alone.
+ *
+ * History:       added to cover the peephole optimizer
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PeepholeOptimizerTest {
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void removesDeadLoad() {
+        check(program("@5", "@6", "D=A"), program("@6", "D=A"), removed(1, 0, 0, 0));
+    }
+
+    @Test
+    void removesRepeatedLoad() {
+        check(program("@SP", "M=M+1", "@SP", "A=M-1", "M=D"),
+              program("@SP", "M=M+1", "A=M-1", "M=D"), removed(0, 1, 0, 0));
+    }
+
+    @Test
+    void removesStoreAfterLoad() {
+        check(program("@R1", "D=M", "M=D", "@R2", "M=D"),
+              program("@R1", "D=M", "@R2", "M=D"), removed(0, 0, 1, 0));
+    }
+
+    @Test
+    void removesLoadAfterStore() {
+        check(program("@R1", "M=D", "D=M", "@R2", "M=D"),
+              program("@R1", "M=D", "@R2", "M=D"), removed(0, 0, 0, 1));
+    }
+
+    @Test
+    void keepsLoadAfterStoreToKeyboard() {
+        unchanged(program("@KBD", "M=D", "D=M", "@R2", "M=D"));
+        unchanged(program("@24576", "M=D", "D=M", "@R2", "M=D"));
+        //  Only the low 15 bits are kept, so these load the keyboard's address too
+        unchanged(program("@57344", "M=D", "D=M", "@R2", "M=D"));
+        unchanged(program("@90112", "M=D", "D=M", "@R2", "M=D"));
+    }
+
+    @Test
+    void keepsLoadAfterStoreThroughUnknownA() {
+        unchanged(program("@R1", "A=M", "M=D", "D=M", "@R2", "M=D"));
+    }
+
+    @Test
+    void keepsLoadAfterStoreThroughLabelAddress() {
+        //  A label's value is a ROM address, which may well be 24576
+        unchanged(program("@LOOP", "M=D", "D=M", "(LOOP)", "@LOOP", "0;JMP"));
+    }
+
+    @Test
+    void keepsFirstReferenceToVariable() {
+        //  @x decides that x lives at 16, and y at 17
+        unchanged(program("@x", "@y", "D=A", "@x", "M=D"));
+    }
+
+    @Test
+    void keepsPairsWithLabelBetween() {
+        unchanged(program("@R1", "D=M", "(L1)", "M=D", "@R1", "M=D", "(L2)", "D=M",
+                          "@L1", "D;JGT", "@L2", "0;JMP"));
+    }
+
+    @Test
+    void forgetsAAtLabel() {
+        unchanged(program("@SP", "M=M+1", "(LOOP)", "@SP", "M=M-1", "@LOOP", "0;JMP"));
+    }
+
+    @Test
+    void leavesProgramsWithNumericJumpsAlone() {
+        unchanged(program("@5", "@6", "D=A", "@0", "0;JMP"));
+        unchanged(program("@SP", "M=M+1", "@SP", "A=M-1", "@R5", "D;JGT"));
+    }
+
+    @Test
+    void keepsInstructionsWithErrors() {
+        //  The bad @-1 is a dead load, but it has to stay to be reported
+        AssemblyResult result = assemble(program("@-1", "@5", "D=A"));
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getDiagnostics().size());
+        assertEquals(removed(0, 0, 0, 0), result.getRemovedInstructions());
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Assembles source with the peephole optimizer and checks that it removed
+     * what was expected and produced the same words as plain assembly of optimized.
+     */
+    private static void check(String source, String optimized, Map<String, Integer> removed) {
+        AssemblyResult result = assemble(source);
+        assertTrue(result.isSuccessful(), result.getDiagnostics()::toString);
+        assertEquals(removed, result.getRemovedInstructions());
+        assertArrayEquals(new HackAssembler().assemble(new ArraySource(optimized)).getWords(),
+                          result.getWords());
+    }
+
+    /**
+     * Checks that the peephole optimizer leaves source as it is.
+     */
+    private static void unchanged(String source) {
+        check(source, source, removed(0, 0, 0, 0));
+    }
+
+    private static AssemblyResult assemble(String source) {
+        return new HackAssembler(false, OutputFormat.HACK, List.of(new PeepholeOptimizer()))
+                .assemble(new ArraySource(source));
+    }
+
+    private static String program(String... lines) {
+        return String.join("\n", lines) + "\n";
+    }
+
+    private static Map<String, Integer> removed(int deadLoads, int repeatedLoads, int storesAfterLoads,
+                                                int loadsAfterStores) {
+        return Map.of(PeepholeOptimizer.DEAD_A_LOAD, deadLoads,
+                      PeepholeOptimizer.REPEATED_A_LOAD, repeatedLoads,
+                      PeepholeOptimizer.STORE_AFTER_LOAD, storesAfterLoads,
+                      PeepholeOptimizer.LOAD_AFTER_STORE, loadsAfterStores);
+    }
+}
@@ -0,0 +1,141 @@
+/************************************************************************************
+ *
+ * Class name:    PipelinedAssemblerTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Assembles random programs with PipelinedAssembler, using batches
+ *                and rings small enough that the stages wait on one another, and
+ *                checks the output against HackAssembler's two-pass assembly, both
+ *                into a sink that can be patched and into one that can't (where the
+ *                writer has to hold words back). Errors are checked against the
+ *                single pass, whose rules the pipeline follows, and a failing sink
+ *                must stop every stage.
+ *
+ * History:       added to check the pipelined assembler against full runs
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PipelinedAssemblerTest {
+
+    /*************
+     * Constants *
+     *************/
+    private static final int PROGRAMS = 200;
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void matchesTwoPassAssemblyInPatchableSink() throws IOException {
+        Random random = new Random(14);
+        for (int n = 0; n < PROGRAMS; n++) {
+            String text = RandomPrograms.join(RandomPrograms.lines(random, 1 + random.nextInt(400)), random);
+            WordArraySink output = new WordArraySink();
+            AssemblyResult result = pipeline(random).assemble(new ArraySource(text), output);
+            assertEquals(List.of(), result.getDiagnostics(), text);
+            assertArrayEquals(new HackAssembler().assemble(new ArraySource(text)).getWords(),
+                              output.getWords(), text);
+        }
+    }
+
+    @Test
+    void matchesTwoPassAssemblyInStream() throws IOException {
+        Random random = new Random(114);
+        for (int n = 0; n < PROGRAMS; n++) {
+            String text = RandomPrograms.join(RandomPrograms.lines(random, 1 + random.nextInt(400)), random);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new HackAssembler().assemble(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)), expected);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            OutputSink output = OutputFormat.HACK.open(Channels.newChannel(actual));
+            pipeline(random).assemble(new ArraySource(text), output);
+            assertEquals(expected.toString(StandardCharsets.ISO_8859_1),
+                         actual.toString(StandardCharsets.ISO_8859_1), text);
+        }
+    }
+
+    @Test
+    void reportsTheSameErrorAsSinglePass() throws IOException {
+        Random random = new Random(214);
+        for (int n = 0; n < PROGRAMS; n++) {
+            List<String> lines = RandomPrograms.lines(random, 2 + random.nextInt(400));
+            for (int errors = 1 + random.nextInt(3); errors > 0; errors--) {
+                lines.set(random.nextInt(lines.size()), RandomPrograms.error(random));
+            }
+            String text = RandomPrograms.join(lines, random);
+            AssemblyResult expected = new HackAssembler(true).assemble(new ArraySource(text));
+            AssemblyResult actual = pipeline(random).assemble(new ArraySource(text), new WordArraySink());
+            assertEquals(expected.getDiagnostics().toString(), actual.getDiagnostics().toString(), text);
+        }
+    }
+
+    @Test
+    void failingSinkStopsEveryStage() {
+        Random random = new Random(314);
+        String text = RandomPrograms.join(RandomPrograms.lines(random, 200_000), random);
+        OutputSink failing = new OutputSink() {
+            private long words;
+
+            @Override
+            public void write(int word) throws IOException {
+                if (words == 1000) {
+                    throw new IOException("disk full");
+                }
+                words++;
+            }
+
+            @Override
+            public long getWordCount() {
+                return words;
+            }
+
+            @Override
+            public long getBytesWritten() {
+                return words * 2;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            IOException e = assertThrows(IOException.class,
+                    () -> new PipelinedAssembler(64, 2).assemble(new ArraySource(text), failing));
+            assertEquals("disk full", e.getMessage());
+        });
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+                         .noneMatch(thread -> thread.getName().startsWith("hack-")));
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Returns a pipeline with small batches and rings, so the stages often wait.
+     */
+    private static PipelinedAssembler pipeline(Random random) {
+        return new PipelinedAssembler(1 + random.nextInt(32), 1 + random.nextInt(4));
+    }
+}
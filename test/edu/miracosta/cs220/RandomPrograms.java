@@ -0,0 +1,153 @@
+/************************************************************************************
+ *
+ * Class name:    RandomPrograms
+ * Package:       edu.miracosta.cs220
+ * Description:   Writes random .asm programs for the tests that compare one way of
+ *                assembling with another: labels referred to before and after they
+ *                are declared, label names that are never declared (and so become
+ *                variables), variables, predefined symbols, numbers, every comp,
+ *                dest and jump, comments, blank lines, stray spaces and tabs, and
+ *                "\n", "\r\n" and "\r" line ends.
+ *
+ * History:       added for the differential tests
+ *
+ * Methods:       Package:  lines(Random, int), line(Random), error(Random),
+ *                          join(List, Random)
+ *
+ * Notes:         Every label is declared at most once, so a program split between
+ *                modules at any line links as well as it assembles.
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class RandomPrograms {
+
+    /*************
+     * Constants *
+     *************/
+    private static final String[] COMPS = {
+        "0", "1", "-1", "D", "A", "!D", "!A", "-D", "-A", "D+1", "A+1", "D-1", "A-1", "D+A", "D-A",
+        "A-D", "D&A", "D|A", "M", "!M", "-M", "M+1", "M-1", "D+M", "D-M", "M-D", "D&M", "D|M"
+    };
+    private static final String[] DESTS = {"", "M=", "D=", "MD=", "A=", "AM=", "AD=", "AMD="};
+    private static final String[] JUMPS = {"", ";JGT", ";JEQ", ";JGE", ";JLT", ";JNE", ";JLE", ";JMP"};
+    private static final String[] PREDEFINED = {"SP", "LCL", "ARG", "THIS", "THAT", "R0", "R7", "R13",
+                                                "R15", "SCREEN", "KBD"};
+    private static final String[] ERRORS = {"D=Q", "X=D", "0;JMPX", "@-3", "@1abc", "(2LOOP)"};
+    private static final String[] LINE_ENDS = {"\n", "\n", "\n", "\r\n", "\r"};
+
+    //  Label names are L.0 .. L.LABELS-1; about one in eight is never declared
+    private static final int LABELS = 40;
+
+    /****************
+     * Constructors *
+     ****************/
+
+    private RandomPrograms() {
+    }
+
+    /*******************
+     * Package Methods *
+     *******************/
+
+    /**
+     * Returns count random lines, without line ends, that assemble without errors.
+     *
+     * @param   random  -   the source of randomness
+     * @param   count   -   the number of lines
+     * @return          -   the lines
+     */
+    static List<String> lines(Random random, int count) {
+        List<String> lines = new ArrayList<>(count);
+        List<Integer> toDeclare = new ArrayList<>();
+        for (int i = 0; i < LABELS; i++) {
+            if (random.nextInt(8) != 0) {
+                toDeclare.add(i);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (!toDeclare.isEmpty() && random.nextInt(10) == 0) {
+                lines.add(pad(random, "(L." + toDeclare.remove(random.nextInt(toDeclare.size())) + ")"));
+            } else {
+                lines.add(line(random));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns one random line that is not a label declaration and assembles
+     * without errors.
+     *
+     * @param   random  -   the source of randomness
+     * @return          -   the line, without a line end
+     */
+    static String line(Random random) {
+        switch (random.nextInt(12)) {
+            case 0:
+                return "";
+            case 1:
+                return "// comment " + random.nextInt(100);
+            case 2:
+                return pad(random, "@" + random.nextInt(32768));
+            case 3:
+                return pad(random, "@" + PREDEFINED[random.nextInt(PREDEFINED.length)]);
+            case 4:
+            case 5:
+                return pad(random, "@var_" + random.nextInt(30));
+            case 6:
+            case 7:
+                return pad(random, "@L." + random.nextInt(LABELS));
+            default:
+                String comp = COMPS[random.nextInt(COMPS.length)];
+                String dest = DESTS[random.nextInt(DESTS.length)];
+                String jump = JUMPS[random.nextInt(JUMPS.length)];
+                if (dest.isEmpty() && jump.isEmpty()) {
+                    dest = "D=";
+                }
+                String instruction = dest + (random.nextBoolean() ? comp : comp.replace("", " ").trim()) + jump;
+                return pad(random, instruction) + (random.nextInt(4) == 0 ? "  // why" : "");
+        }
+    }
+
+    /**
+     * Returns one random line that will be reported as an error.
+     *
+     * @param   random  -   the source of randomness
+     * @return          -   the line, without a line end
+     */
+    static String error(Random random) {
+        return ERRORS[random.nextInt(ERRORS.length)];
+    }
+
+    /**
+     * Joins lines into a program, ending each with a random line end.
+     *
+     * @param   lines   -   the lines
+     * @param   random  -   the source of randomness
+     * @return          -   the program text
+     */
+    static String join(List<String> lines, Random random) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(LINE_ENDS[random.nextInt(LINE_ENDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /******************
+     * Helper Methods *
+     ******************/
+
+    /**
+     * Surrounds text with a random amount of spaces and tabs.
+     */
+    private static String pad(Random random, String text) {
+        String[] blanks = {"", "", " ", "\t", "  \t"};
+        return blanks[random.nextInt(blanks.length)] + text + blanks[random.nextInt(blanks.length)];
+    }
+}
@@ -0,0 +1,53 @@
+/************************************************************************************
+ *
+ * Class name:    SymbolTableTest
+ * Package:       edu.miracosta.cs220
+ * Description:   Checks that both symbol tables take any String through their
+ *                public methods: names with characters outside Latin-1 are turned
+ *                down as invalid, while Latin-1 ones behave as before.
+ *
+ * History:       added with the Latin-1 check on symbol names
+ *
+ ************************************************************************************/
+package edu.miracosta.cs220;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SymbolTableTest {
+
+    /****************
+     * Test Methods *
+     ****************/
+
+    @Test
+    void turnsDownNamesOutsideLatin1() {
+        for (SymbolTable table : new SymbolTable[] {new SymbolTable(), new ConcurrentSymbolTable()}) {
+            int size = table.size();
+            for (String name : new String[] {"a€", "LOOPĀ", "中", "x中y"}) {
+                assertFalse(SymbolTable.isValidName(name), name);
+                assertFalse(table.addEntry(name, 100), name);
+                assertEquals(SymbolTable.INVALID, table.getOrAssign(name, 16), name);
+                assertFalse(table.contains(name), name);
+                assertEquals(SymbolTable.INVALID, table.getAddress(name), name);
+            }
+            assertEquals(size, table.size());
+        }
+    }
+
+    @Test
+    void keepsLatin1Names() {
+        for (SymbolTable table : new SymbolTable[] {new SymbolTable(), new ConcurrentSymbolTable()}) {
+            assertTrue(table.addEntry("LOOP", 7));
+            assertEquals(7, table.getAddress("LOOP"));
+            assertEquals(16, table.getOrAssign("i", 16));
+            assertEquals(16, table.getOrAssign("i", 17));
+            //  Only the last character is exempt from the valid ones, as it always was
+            assertTrue(table.addEntry("aé", 8));
+            assertEquals(8, table.getAddress("aé"));
+        }
+    }
+}